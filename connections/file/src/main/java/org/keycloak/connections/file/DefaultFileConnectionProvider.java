@@ -60,7 +60,7 @@ public class DefaultFileConnectionProvider implements FileConnectionProvider {
 
     @Override
     public void commit() {
-        factory.commit(session);
+        factory.commit(session, inMemoryModel);
     }
 
     @Override
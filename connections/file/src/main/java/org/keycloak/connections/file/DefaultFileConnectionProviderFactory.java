@@ -17,30 +17,35 @@
 package org.keycloak.connections.file;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import org.codehaus.jackson.JsonToken;
 import org.jboss.logging.Logger;
 import org.keycloak.Config;
-import org.keycloak.exportimport.Strategy;
 import org.keycloak.exportimport.util.ExportUtils;
 import org.keycloak.exportimport.util.ImportUtils;
+import org.keycloak.models.ClientModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.RealmModel;
+import org.keycloak.models.RealmProvider;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.RepresentationToModel;
 import org.keycloak.representations.idm.RealmRepresentation;
-import org.keycloak.util.JsonSerialization;
+import org.keycloak.representations.idm.UserRepresentation;
 
 /**
  * This class dispenses a FileConnectionProvider to Keycloak sessions.  It
- * makes sure that only one InMemoryModel is provided for each session and it
- * handles thread contention for the file where the model is read or saved.
+ * makes sure that only one InMemoryModel is provided for each session.  The
+ * committed model is kept in memory by a {@link FileModelStore}, which
+ * persists changes to the model file and its change log.  Realms are imported
+ * into the InMemoryModel of a session when the session first uses them, and
+ * just the realms and users changed by the session are exported on commit.
  *
  * @author Stan Silvert ssilvert@redhat.com (C) 2015 Red Hat Inc.
  */
@@ -49,6 +54,7 @@ public class DefaultFileConnectionProviderFactory implements FileConnectionProvi
     protected static final Logger logger = Logger.getLogger(DefaultFileConnectionProviderFactory.class);
 
     private File kcdata;
+    private FileModelStore store;
     private final Map<KeycloakSession, FileConnectionProvider> allProviders = new HashMap<KeycloakSession, FileConnectionProvider>();
 
     @Override
@@ -67,6 +73,10 @@ public class DefaultFileConnectionProviderFactory implements FileConnectionProvi
         }
 
         kcdata = new File(directory, fileName);
+
+        // Count of commits in the change log after which the model file is rewritten
+        int compactAfter = config.getInt("compactAfter", 100);
+        store = new FileModelStore(kcdata, new File(directory, fileName + ".log"), compactAfter);
     }
 
     public void sessionClosed(KeycloakSession session) {
@@ -77,93 +87,107 @@ public class DefaultFileConnectionProviderFactory implements FileConnectionProvi
         }
     }
 
-    void readModelFile(KeycloakSession session) {
-        synchronized(allProviders) {
-            if (!kcdata.exists()) {
-                return;
-            }
+    void loadRealm(KeycloakSession session, InMemoryModel model, String id) {
+        RealmRepresentation rep = store.readRealm(id);
+        if (rep == null) return;
 
-            FileInputStream fis = null;
-            try {
-                fis = new FileInputStream(kcdata);
-                Model model = JsonSerialization.readValue(fis, Model.class);
-                ImportUtils.importFromStream(session, JsonSerialization.mapper, fis, Strategy.IGNORE_EXISTING);
-                session.realms().getMigrationModel().setStoredVersion(model.getModelVersion());
-
-                List<RealmRepresentation> realmReps = new ArrayList<RealmRepresentation>();
-                for (RealmRepresentation realmRep : model.getRealms()) {
-                    if (Config.getAdminRealm().equals(realmRep.getRealm())) {
-                        realmReps.add(0, realmRep);
-                    } else {
-                        realmReps.add(realmRep);
-                    }
-                }
-                for (RealmRepresentation realmRep : realmReps) {
-                    ImportUtils.importRealm(session, realmRep, Strategy.IGNORE_EXISTING);
-                }
+        RealmProvider realms = session.realms();
+        RealmModel realm = realms.createRealm(rep.getId(), rep.getRealm());
+        RepresentationToModel.importRealm(session, rep, realm);
+        boolean masterAdminClientCreated = refreshMasterAdminClient(realms, realm);
 
-            } catch (IOException ioe) {
-                logger.error("Unable to read model file " + kcdata.getAbsolutePath(), ioe);
-            } finally {
-                //logger.info("Read model file for session=" + session.hashCode());
-                try {
-                    if (fis != null) {
-                        fis.close();
-                    }
-                } catch (IOException e) {
-                    logger.error("Failed to close output stream.", e);
-                }
-            }
+        // Importing a committed realm is not a change, unless the session had to fix it up
+        model.clearChanges(id);
+        if (masterAdminClientCreated) {
+            model.realmChanged(id);
         }
     }
 
-    void writeModelFile(KeycloakSession session) {
-        synchronized(allProviders) {
-            FileOutputStream outStream = null;
-
-            try {
-                outStream = new FileOutputStream(kcdata);
-                exportModel(session, outStream);
-            } catch (IOException e) {
-                logger.error("Unable to write model file " + kcdata.getAbsolutePath(), e);
-            } finally {
-                //logger.info("Wrote model file for session=" + session.hashCode());
-                try {
-                    if (outStream != null) {
-                        outStream.close();
+    /**
+     * Same as ImportUtils does after import, but just for the loaded realm, so other realms don't need to be loaded.
+     *
+     * @return true if the client of the realm in the admin realm was missing and had to be created
+     */
+    private boolean refreshMasterAdminClient(RealmProvider realms, RealmModel realm) {
+        RealmModel adminRealm = Config.getAdminRealm().equals(realm.getName()) ? realm : realms.getRealmByName(Config.getAdminRealm());
+        if (adminRealm == null) return false;
+
+        ClientModel masterApp = adminRealm.getClientByClientId(KeycloakModelUtils.getMasterRealmAdminApplicationClientId(realm));
+        if (masterApp != null) {
+            realm.setMasterAdminClient(masterApp);
+            return false;
+        } else {
+            ImportUtils.setupMasterAdminManagement(realms, realm);
+            return true;
+        }
+    }
+
+    void writeModel(KeycloakSession session, InMemoryModel model) {
+        try {
+            ModelChange change = new ModelChange();
+            if (model.isModelVersionChanged()) {
+                change.setModelVersion(model.getModelVersion());
+            }
+
+            List<RealmRepresentation> realmReps = new ArrayList<RealmRepresentation>();
+            List<String> removedRealms = new ArrayList<String>();
+            for (String realmId : model.getChangedRealms()) {
+                RealmModel realm = model.getLoadedRealm(realmId);
+                if (realm != null) {
+                    realmReps.add(ExportUtils.exportRealm(session, realm, false));
+                } else {
+                    removedRealms.add(realmId);
+                }
+            }
+            change.setRealms(realmReps);
+            change.setRemovedRealms(removedRealms);
+
+            Map<String, List<UserRepresentation>> userReps = new HashMap<String, List<UserRepresentation>>();
+            Map<String, List<String>> removedUsers = new HashMap<String, List<String>>();
+            for (Map.Entry<String, Set<String>> entry : model.getChangedUsers().entrySet()) {
+                RealmModel realm = model.getLoadedRealm(entry.getKey());
+                if (realm == null) continue; // users were removed with the realm
+
+                List<UserRepresentation> reps = new ArrayList<UserRepresentation>();
+                List<String> removed = new ArrayList<String>();
+                for (String userId : entry.getValue()) {
+                    UserModel user = model.getUser(realm.getId(), userId);
+                    if (user != null) {
+                        reps.add(ExportUtils.exportUser(session, realm, user));
+                    } else {
+                        removed.add(userId);
                     }
-                } catch (IOException e) {
-                    logger.error("Failed to close output stream.", e);
                 }
+                userReps.put(realm.getId(), reps);
+                removedUsers.put(realm.getId(), removed);
             }
-        }
-    }
+            change.setUsers(userReps);
+            change.setRemovedUsers(removedUsers);
 
-    private void exportModel(KeycloakSession session, FileOutputStream outStream) throws IOException {
-        List<RealmModel> realms = session.realms().getRealms();
-        List<RealmRepresentation> reps = new ArrayList<RealmRepresentation>();
-        for (RealmModel realm : realms) {
-            reps.add(ExportUtils.exportRealm(session, realm, true));
+            store.commit(change);
+        } catch (IOException e) {
+            logger.error("Unable to write model file " + kcdata.getAbsolutePath(), e);
         }
-        Model model = new Model();
-        model.setRealms(reps);
-        model.setModelVersion(session.realms().getMigrationModel().getStoredVersion());
-        JsonSerialization.prettyMapper.writeValue(outStream, model);
     }
 
     @Override
-    public FileConnectionProvider create(KeycloakSession session) {
+    public FileConnectionProvider create(final KeycloakSession session) {
         synchronized (allProviders) {
             FileConnectionProvider fcProvider = allProviders.get(session);
-            if (fcProvider == null) {
-                InMemoryModel model = new InMemoryModel();
-                fcProvider = new DefaultFileConnectionProvider(this, session, model);
-                allProviders.put(session, fcProvider);
-                session.getTransaction().enlist(fcProvider);
-                readModelFile(session);
-                //logger.info("Added session " + session.hashCode() + " total sessions=" + allModels.size());
+            if (fcProvider != null) {
+                return fcProvider;
             }
 
+            InMemoryModel model = new InMemoryModel(store.getModelVersion(), store.getRealmNames(), new InMemoryModel.RealmLoader() {
+                @Override
+                public void loadRealm(InMemoryModel model, String id) {
+                    DefaultFileConnectionProviderFactory.this.loadRealm(session, model, id);
+                }
+            });
+            fcProvider = new DefaultFileConnectionProvider(this, session, model);
+            allProviders.put(session, fcProvider);
+            session.getTransaction().enlist(fcProvider);
+            //logger.info("Added session " + session.hashCode() + " total sessions=" + allModels.size());
             return fcProvider;
         }
     }
@@ -171,23 +195,28 @@ public class DefaultFileConnectionProviderFactory implements FileConnectionProvi
     // commitCount is used for debugging.  This allows you to easily run a test
     // to a particular point and then examine the JSON file.
     //private static int commitCount = 0;
-    void commit(KeycloakSession session) {
+    void commit(KeycloakSession session, InMemoryModel model) {
         //commitCount++;
         synchronized (allProviders) {
             // in case commit was somehow called twice on the same session
             if (!allProviders.containsKey(session)) return;
+        }
 
-            try {
-                writeModelFile(session);
-            } finally {
+        try {
+            // Sessions which just read the model don't export anything
+            if (model.hasChanges()) {
+                writeModel(session, model);
+            }
+        } finally {
+            synchronized (allProviders) {
                 allProviders.remove(session);
                 //logger.info("Removed session " + session.hashCode());
                 //logger.info("*** commitCount=" + commitCount);
                 //logger.info("commit(): Session count=" + allModels.size());
             }
+        }
 
     //     if (commitCount == 16) {Thread.dumpStack();System.exit(0);}
-        }
     }
 
     void rollback(KeycloakSession session) {
@@ -205,7 +234,9 @@ public class DefaultFileConnectionProviderFactory implements FileConnectionProvi
 
     @Override
     public void close() {
-
+        if (store != null) {
+            store.close();
+        }
     }
 
     @Override
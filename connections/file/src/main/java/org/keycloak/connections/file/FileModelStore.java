@@ -0,0 +1,306 @@
+package org.keycloak.connections.file;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.logging.Logger;
+import org.keycloak.models.ModelException;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.keycloak.util.JsonSerialization;
+
+/**
+ * Keeps the committed state of the file model in memory, so sessions don't need to read the model file. The state is
+ * persisted as a snapshot in the model file, plus a change log with one JSON record per commit. A record contains just
+ * the realms and users changed by the commit. After a configured count of records, the state is compacted into a new
+ * snapshot and the log is cleared.
+ *
+ * Realms and users are kept in their JSON form, realms without their users. Sessions read just the realms they use.
+ */
+public class FileModelStore {
+
+    protected static final Logger logger = Logger.getLogger(FileModelStore.class);
+
+    private final File snapshotFile;
+    private final File logFile;
+    private final int compactAfter;
+
+    private boolean loaded;
+    private String modelVersion;
+    private final Map<String, StoredRealm> realms = new LinkedHashMap<String, StoredRealm>();
+    private int logRecords;
+
+    public FileModelStore(File snapshotFile, File logFile, int compactAfter) {
+        this.snapshotFile = snapshotFile;
+        this.logFile = logFile;
+        this.compactAfter = compactAfter;
+    }
+
+    public synchronized String getModelVersion() {
+        ensureLoaded();
+        return modelVersion;
+    }
+
+    /**
+     * @return ids and names of committed realms
+     */
+    public synchronized Map<String, String> getRealmNames() {
+        ensureLoaded();
+        Map<String, String> names = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, StoredRealm> entry : realms.entrySet()) {
+            names.put(entry.getKey(), entry.getValue().name);
+        }
+        return names;
+    }
+
+    /**
+     * Returns the committed realm with its users, or null if there's no such realm. The JSON is parsed outside of the
+     * lock, so commits of other sessions aren't blocked.
+     */
+    public RealmRepresentation readRealm(String id) {
+        String realmJson;
+        List<String> usersJson;
+        synchronized (this) {
+            ensureLoaded();
+            StoredRealm stored = realms.get(id);
+            if (stored == null) return null;
+            realmJson = stored.json;
+            usersJson = new ArrayList<String>(stored.users.values());
+        }
+
+        try {
+            RealmRepresentation realm = JsonSerialization.readValue(realmJson, RealmRepresentation.class);
+            if (!usersJson.isEmpty()) {
+                List<UserRepresentation> users = new ArrayList<UserRepresentation>(usersJson.size());
+                for (String json : usersJson) {
+                    users.add(JsonSerialization.readValue(json, UserRepresentation.class));
+                }
+                realm.setUsers(users);
+            }
+            return realm;
+        } catch (IOException ioe) {
+            throw new ModelException("Unable to read realm " + id, ioe);
+        }
+    }
+
+    /**
+     * Appends the change to the log and applies it to the committed state. Last commit wins for every realm and user.
+     * Users of realms, which were removed in the meantime, are ignored.
+     */
+    public void commit(ModelChange change) throws IOException {
+        // Serialize the record before taking the lock
+        byte[] record = JsonSerialization.writeValueAsBytes(change);
+
+        synchronized (this) {
+            ensureLoaded();
+            append(record);
+            apply(change);
+            logRecords++;
+
+            if (logRecords >= compactAfter) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot if there are any records in the log.
+     */
+    public synchronized void close() {
+        if (loaded && logRecords > 0) {
+            try {
+                compact();
+            } catch (IOException ioe) {
+                logger.error("Unable to write model file " + snapshotFile.getAbsolutePath(), ioe);
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            try {
+                load();
+            } catch (IOException ioe) {
+                throw new ModelException("Unable to read model file " + snapshotFile.getAbsolutePath(), ioe);
+            }
+            loaded = true;
+        }
+    }
+
+    private void load() throws IOException {
+        if (snapshotFile.exists()) {
+            FileInputStream fis = new FileInputStream(snapshotFile);
+            try {
+                Model model = JsonSerialization.readValue(fis, Model.class);
+                modelVersion = model.getModelVersion();
+                if (model.getRealms() != null) {
+                    for (RealmRepresentation realm : model.getRealms()) {
+                        StoredRealm stored = putRealm(realm);
+                        if (realm.getUsers() != null) {
+                            for (UserRepresentation user : realm.getUsers()) {
+                                stored.users.put(userKey(user), JsonSerialization.writeValueAsString(user));
+                            }
+                        }
+                    }
+                }
+            } finally {
+                fis.close();
+            }
+        }
+
+        boolean incomplete = false;
+        logRecords = 0;
+        if (logFile.exists()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) continue;
+
+                    ModelChange change;
+                    try {
+                        change = JsonSerialization.readValue(line, ModelChange.class);
+                    } catch (IOException e) {
+                        // Last record was not written completely, for example when the server was killed
+                        logger.warn("Ignoring incomplete record in model change log " + logFile.getAbsolutePath());
+                        incomplete = true;
+                        break;
+                    }
+
+                    apply(change);
+                    logRecords++;
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        // Records appended after an incomplete one would be lost, so start with a clean log
+        if (incomplete) {
+            compact();
+        }
+    }
+
+    private void apply(ModelChange change) throws IOException {
+        if (change.getModelVersion() != null) {
+            modelVersion = change.getModelVersion();
+        }
+        if (change.getRealms() != null) {
+            for (RealmRepresentation realm : change.getRealms()) {
+                putRealm(realm);
+            }
+        }
+        if (change.getRemovedRealms() != null) {
+            for (String id : change.getRemovedRealms()) {
+                realms.remove(id);
+            }
+        }
+        if (change.getUsers() != null) {
+            for (Map.Entry<String, List<UserRepresentation>> entry : change.getUsers().entrySet()) {
+                StoredRealm stored = realms.get(entry.getKey());
+                if (stored == null) continue;
+                for (UserRepresentation user : entry.getValue()) {
+                    stored.users.put(userKey(user), JsonSerialization.writeValueAsString(user));
+                }
+            }
+        }
+        if (change.getRemovedUsers() != null) {
+            for (Map.Entry<String, List<String>> entry : change.getRemovedUsers().entrySet()) {
+                StoredRealm stored = realms.get(entry.getKey());
+                if (stored == null) continue;
+                for (String userId : entry.getValue()) {
+                    stored.users.remove(userId);
+                }
+            }
+        }
+    }
+
+    private StoredRealm putRealm(RealmRepresentation realm) throws IOException {
+        if (realm.getId() == null) {
+            // Realms are looked up by id, so a realm without id gets its name as id when it's imported
+            realm.setId(realm.getRealm());
+        }
+
+        List<UserRepresentation> users = realm.getUsers();
+        realm.setUsers(null);
+        String json = JsonSerialization.writeValueAsString(realm);
+        realm.setUsers(users);
+
+        StoredRealm stored = realms.get(realm.getId());
+        if (stored == null) {
+            stored = new StoredRealm();
+            realms.put(realm.getId(), stored);
+        }
+        stored.name = realm.getRealm();
+        stored.json = json;
+        return stored;
+    }
+
+    private void append(byte[] record) throws IOException {
+        FileOutputStream out = new FileOutputStream(logFile, true);
+        try {
+            out.write(record);
+            out.write('\n');
+        } finally {
+            out.close();
+        }
+    }
+
+    private void compact() throws IOException {
+        List<RealmRepresentation> reps = new ArrayList<RealmRepresentation>();
+        for (StoredRealm stored : realms.values()) {
+            RealmRepresentation realm = JsonSerialization.readValue(stored.json, RealmRepresentation.class);
+            if (!stored.users.isEmpty()) {
+                List<UserRepresentation> users = new ArrayList<UserRepresentation>(stored.users.size());
+                for (String json : stored.users.values()) {
+                    users.add(JsonSerialization.readValue(json, UserRepresentation.class));
+                }
+                realm.setUsers(users);
+            }
+            reps.add(realm);
+        }
+
+        Model model = new Model();
+        model.setRealms(reps);
+        model.setModelVersion(modelVersion);
+
+        // Write to temporary file first, so there's always a complete snapshot
+        File tmp = new File(snapshotFile.getAbsoluteFile().getParentFile(), snapshotFile.getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            JsonSerialization.prettyMapper.writeValue(out, model);
+        } finally {
+            out.close();
+        }
+        Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        // Records replace whole entities, so replaying them on the new snapshot is harmless if this is not reached
+        new FileOutputStream(logFile).close();
+        logRecords = 0;
+    }
+
+    private static String userKey(UserRepresentation user) {
+        if (user.getId() == null) {
+            // Same as for realms, changes of the imported user are stored by its id
+            user.setId(user.getUsername());
+        }
+        return user.getId();
+    }
+
+    private static class StoredRealm {
+        private String name;
+        private String json;
+        //               userId, JSON
+        private final Map<String, String> users = new LinkedHashMap<String, String>();
+    }
+}
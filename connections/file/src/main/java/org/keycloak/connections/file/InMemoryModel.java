@@ -17,34 +17,67 @@
 
 package org.keycloak.connections.file;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 
 /**
- * This class provides an in-memory copy of the entire model for each
- * Keycloak session.  At the start of the session, the model is read
- * from JSON.  When the session's transaction ends, the model is written back
- * out.
+ * This class provides an in-memory copy of the model for each
+ * Keycloak session.  Realms are loaded by a {@link RealmLoader} when the
+ * session accesses them for the first time.  Realms and users changed by the
+ * session are tracked, so just those are written out when the session's
+ * transaction ends.
+ *
+ * Users of each realm are indexed by username, email and federated identity.
+ * A sorted index by username is used for paging.
  *
  * @author Stan Silvert ssilvert@redhat.com (C) 2015 Red Hat Inc.
  */
 public class InMemoryModel {
     private final Map<String, RealmModel> allRealms = new HashMap<String, RealmModel>();
 
-    //                realmId,    userId, userModel
-    private final Map<String, Map<String,UserModel>> allUsers = new HashMap<String, Map<String,UserModel>>();
+    //                realmId, users
+    private final Map<String, RealmUsers> allUsers = new HashMap<String, RealmUsers>();
+
+    //                realmId, name
+    private final Map<String, String> unloadedRealms = new HashMap<String, String>();
+    private final RealmLoader loader;
 
     private String modelVersion;
 
+    private final Set<String> changedRealms = new HashSet<String>();
+    //                realmId, userIds
+    private final Map<String, Set<String>> changedUsers = new HashMap<String, Set<String>>();
+    private boolean modelVersionChanged;
+
     public InMemoryModel() {
+        this(null, Collections.<String, String>emptyMap(), null);
+    }
+
+    /**
+     * @param modelVersion committed model version
+     * @param realms ids and names of committed realms, which are loaded on first access
+     * @param loader loads committed realms into this model
+     */
+    public InMemoryModel(String modelVersion, Map<String, String> realms, RealmLoader loader) {
+        this.modelVersion = modelVersion;
+        this.unloadedRealms.putAll(realms);
+        this.loader = loader;
     }
 
     public void putRealm(String id, RealmModel realm) {
         allRealms.put(id, realm);
-        allUsers.put(id, new HashMap<String, UserModel>());
+        allUsers.put(id, new RealmUsers());
+        realmChanged(id);
     }
 
     public String getModelVersion() {
@@ -53,57 +86,308 @@ public class InMemoryModel {
 
     public void setModelVersion(String modelVersion) {
         this.modelVersion = modelVersion;
+        modelVersionChanged = true;
     }
 
     public RealmModel getRealm(String id) {
+        RealmModel realm = allRealms.get(id);
+        if (realm == null && unloadedRealms.remove(id) != null) {
+            loader.loadRealm(this, id);
+            realm = allRealms.get(id);
+        }
+        return realm;
+    }
+
+    /**
+     * Returns the realm if it was already loaded or created by the session.
+     */
+    public RealmModel getLoadedRealm(String id) {
         return allRealms.get(id);
     }
 
     public Collection<RealmModel> getRealms() {
-       return allRealms.values();
+        for (String id : new ArrayList<String>(unloadedRealms.keySet())) {
+            getRealm(id);
+        }
+        return allRealms.values();
     }
 
     public RealmModel getRealmByName(String name) {
-        for (RealmModel realm : getRealms()) {
+        for (RealmModel realm : allRealms.values()) {
             if (realm.getName().equals(name)) return realm;
         }
 
+        for (Map.Entry<String, String> entry : new ArrayList<Map.Entry<String, String>>(unloadedRealms.entrySet())) {
+            if (entry.getValue().equals(name)) {
+                // Realm could have been renamed since the session started
+                RealmModel realm = getRealm(entry.getKey());
+                if (realm != null && realm.getName().equals(name)) return realm;
+            }
+        }
+
         return null;
     }
 
     public boolean removeRealm(String id) {
+        if (getRealm(id) == null) return false;
+
+        allRealms.remove(id);
         allUsers.remove(id);
-        return (allRealms.remove(id) != null);
+        realmChanged(id);
+        return true;
+    }
+
+    /**
+     * Marks the realm as changed. Users of the realm are tracked separately by {@link #userChanged(String, String)}.
+     */
+    public void realmChanged(String realmId) {
+        changedRealms.add(realmId);
     }
 
-    protected Map<String, UserModel> realmUsers(String realmId) {
-        Map<String, UserModel> realmUsers = allUsers.get(realmId);
+    public void userChanged(String realmId, String userId) {
+        Set<String> userIds = changedUsers.get(realmId);
+        if (userIds == null) {
+            userIds = new HashSet<String>();
+            changedUsers.put(realmId, userIds);
+        }
+        userIds.add(userId);
+    }
+
+    public boolean hasChanges() {
+        return modelVersionChanged || !changedRealms.isEmpty() || !changedUsers.isEmpty();
+    }
+
+    public boolean isModelVersionChanged() {
+        return modelVersionChanged;
+    }
+
+    /**
+     * @return ids of realms created, changed or removed by the session
+     */
+    public Set<String> getChangedRealms() {
+        return Collections.unmodifiableSet(changedRealms);
+    }
+
+    /**
+     * @return ids of users created, changed or removed by the session, by realm id
+     */
+    public Map<String, Set<String>> getChangedUsers() {
+        return Collections.unmodifiableMap(changedUsers);
+    }
+
+    /**
+     * Forgets changes of the realm and its users. Used after a committed realm was loaded into the model.
+     */
+    public void clearChanges(String realmId) {
+        changedRealms.remove(realmId);
+        changedUsers.remove(realmId);
+    }
+
+    protected RealmUsers realmUsers(String realmId) {
+        RealmUsers realmUsers = allUsers.get(realmId);
         if (realmUsers == null) throw new NullPointerException("Realm users not found for id=" + realmId);
         return realmUsers;
     }
 
     public void putUser(String realmId, String userId, UserModel user) {
-        realmUsers(realmId).put(userId, user);
+        RealmUsers realmUsers = realmUsers(realmId);
+        UserModel previous = realmUsers.byId.put(userId, user);
+        if (previous != null) {
+            realmUsers.unindex(previous);
+        }
+        realmUsers.index(user);
+        userChanged(realmId, userId);
     }
 
     public UserModel getUser(String realmId, String userId) {
-        return realmUsers(realmId).get(userId);
+        return realmUsers(realmId).byId.get(userId);
+    }
+
+    public UserModel getUserByUsername(String realmId, String username) {
+        return realmUsers(realmId).byUsername.get(username);
+    }
+
+    public UserModel getUserByEmail(String realmId, String email) {
+        return realmUsers(realmId).byEmail.get(email);
+    }
+
+    public UserModel getUserByFederatedIdentity(String realmId, String identityProvider, String federatedUserId) {
+        return realmUsers(realmId).byFederatedIdentity.get(federatedIdentityKey(identityProvider, federatedUserId));
     }
 
     public boolean hasUserWithUsername(String realmId, String username) {
-        for (UserModel user : getUsers(realmId)) {
-            if (user.getUsername().equals(username)) return true;
+        return getUserByUsername(realmId, username) != null;
+    }
+
+    public boolean hasUserWithEmail(String realmId, String email) {
+        return getUserByEmail(realmId, email) != null;
+    }
+
+    /**
+     * Updates the username index. Must be called after the username of the user was changed.
+     */
+    public void updateUsername(String realmId, UserModel user, String oldUsername) {
+        RealmUsers realmUsers = realmUsers(realmId);
+        UserModel stored = realmUsers.byId.get(user.getId());
+        if (stored == null) return;
+
+        if (oldUsername != null && realmUsers.byUsername.get(oldUsername) == stored) {
+            realmUsers.byUsername.remove(oldUsername);
+            realmUsers.sortedByUsername.remove(oldUsername);
         }
+        if (user.getUsername() != null) {
+            realmUsers.byUsername.put(user.getUsername(), stored);
+            realmUsers.sortedByUsername.put(user.getUsername(), stored);
+        }
+    }
 
-        return false;
+    /**
+     * Updates the email index. Must be called after the email of the user was changed.
+     */
+    public void updateEmail(String realmId, UserModel user, String oldEmail) {
+        RealmUsers realmUsers = realmUsers(realmId);
+        UserModel stored = realmUsers.byId.get(user.getId());
+        if (stored == null) return;
+
+        if (oldEmail != null && realmUsers.byEmail.get(oldEmail) == stored) {
+            realmUsers.byEmail.remove(oldEmail);
+        }
+        if (user.getEmail() != null) {
+            realmUsers.byEmail.put(user.getEmail(), stored);
+        }
+    }
+
+    public void putFederatedIdentity(String realmId, UserModel user, String identityProvider, String federatedUserId) {
+        RealmUsers realmUsers = realmUsers(realmId);
+        String key = federatedIdentityKey(identityProvider, federatedUserId);
+        realmUsers.byFederatedIdentity.put(key, user);
+        userChanged(realmId, user.getId());
+
+        Set<String> keys = realmUsers.federatedIdentityKeys.get(user.getId());
+        if (keys == null) {
+            keys = new HashSet<String>();
+            realmUsers.federatedIdentityKeys.put(user.getId(), keys);
+        }
+        keys.add(key);
+    }
+
+    public void removeFederatedIdentity(String realmId, UserModel user, String identityProvider, String federatedUserId) {
+        RealmUsers realmUsers = realmUsers(realmId);
+        String key = federatedIdentityKey(identityProvider, federatedUserId);
+        if (realmUsers.byFederatedIdentity.get(key) == user) {
+            realmUsers.byFederatedIdentity.remove(key);
+        }
+        userChanged(realmId, user.getId());
+
+        Set<String> keys = realmUsers.federatedIdentityKeys.get(user.getId());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) realmUsers.federatedIdentityKeys.remove(user.getId());
+        }
     }
 
     public Collection<UserModel> getUsers(String realmId) {
-       return realmUsers(realmId).values();
+       return realmUsers(realmId).byId.values();
+    }
+
+    /**
+     * Returns users of the realm sorted by username.
+     *
+     * @param firstResult index of the first user, or -1 to start with the first one
+     * @param maxResults maximum count of users, or -1 for all users
+     */
+    public List<UserModel> getUsers(String realmId, int firstResult, int maxResults) {
+        Collection<UserModel> sorted = realmUsers(realmId).sortedByUsername.values();
+        int first = (firstResult <= 0) ? 0 : firstResult;
+        int count = (maxResults <= 0) ? sorted.size() : maxResults;
+
+        List<UserModel> result = new ArrayList<UserModel>(Math.max(0, Math.min(count, sorted.size() - first)));
+        Iterator<UserModel> it = sorted.iterator();
+        for (int i = 0; i < first && it.hasNext(); i++) {
+            it.next();
+        }
+        while (it.hasNext() && result.size() < count) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    /**
+     * Returns users of the realm with a username after the given one, sorted by username. The returned collection is a
+     * view, which must not be used after users of the realm were changed.
+     *
+     * @param lastUsername username to start after, or null to start with the first user
+     */
+    public Collection<UserModel> getUsersAfter(String realmId, String lastUsername) {
+        TreeMap<String, UserModel> sorted = realmUsers(realmId).sortedByUsername;
+        return lastUsername == null ? sorted.values() : sorted.tailMap(lastUsername, false).values();
     }
 
     public boolean removeUser(String realmId, String userId) {
-        return (realmUsers(realmId).remove(userId) != null);
+        RealmUsers realmUsers = realmUsers(realmId);
+        UserModel user = realmUsers.byId.remove(userId);
+        if (user == null) return false;
+
+        realmUsers.unindex(user);
+        userChanged(realmId, userId);
+        return true;
+    }
+
+    private static String federatedIdentityKey(String identityProvider, String federatedUserId) {
+        return identityProvider + "::" + federatedUserId;
+    }
+
+    /**
+     * Loads committed realms into the model of a session.
+     */
+    public interface RealmLoader {
+
+        /**
+         * Imports the realm with its users into the model. Changes done by the import must be cleared by
+         * {@link InMemoryModel#clearChanges(String)}.
+         */
+        void loadRealm(InMemoryModel model, String id);
+    }
+
+    /**
+     * Users of a realm with their indexes.
+     */
+    protected static class RealmUsers {
+        private final Map<String, UserModel> byId = new HashMap<String, UserModel>();
+        private final Map<String, UserModel> byUsername = new HashMap<String, UserModel>();
+        private final Map<String, UserModel> byEmail = new HashMap<String, UserModel>();
+        private final Map<String, UserModel> byFederatedIdentity = new HashMap<String, UserModel>();
+        private final Map<String, Set<String>> federatedIdentityKeys = new HashMap<String, Set<String>>();
+        private final TreeMap<String, UserModel> sortedByUsername = new TreeMap<String, UserModel>();
+
+        private void index(UserModel user) {
+            if (user.getUsername() != null) {
+                byUsername.put(user.getUsername(), user);
+                sortedByUsername.put(user.getUsername(), user);
+            }
+            if (user.getEmail() != null) {
+                byEmail.put(user.getEmail(), user);
+            }
+        }
+
+        private void unindex(UserModel user) {
+            if (user.getUsername() != null && byUsername.get(user.getUsername()) == user) {
+                byUsername.remove(user.getUsername());
+                sortedByUsername.remove(user.getUsername());
+            }
+            if (user.getEmail() != null && byEmail.get(user.getEmail()) == user) {
+                byEmail.remove(user.getEmail());
+            }
+
+            Set<String> keys = federatedIdentityKeys.remove(user.getId());
+            if (keys != null) {
+                for (String key : keys) {
+                    if (byFederatedIdentity.get(key) == user) {
+                        byFederatedIdentity.remove(key);
+                    }
+                }
+            }
+        }
     }
 
 }
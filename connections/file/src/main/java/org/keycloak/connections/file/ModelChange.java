@@ -0,0 +1,59 @@
+package org.keycloak.connections.file;
+
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record of the change log of the file model. Contains entities changed by a single commit, which replace the whole
+ * previous state of those entities. Realms don't contain users, users are stored by the id of their realm.
+ */
+public class ModelChange {
+    private String modelVersion;
+    private List<RealmRepresentation> realms;
+    private List<String> removedRealms;
+    private Map<String, List<UserRepresentation>> users;
+    private Map<String, List<String>> removedUsers;
+
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public void setModelVersion(String modelVersion) {
+        this.modelVersion = modelVersion;
+    }
+
+    public List<RealmRepresentation> getRealms() {
+        return realms;
+    }
+
+    public void setRealms(List<RealmRepresentation> realms) {
+        this.realms = realms;
+    }
+
+    public List<String> getRemovedRealms() {
+        return removedRealms;
+    }
+
+    public void setRemovedRealms(List<String> removedRealms) {
+        this.removedRealms = removedRealms;
+    }
+
+    public Map<String, List<UserRepresentation>> getUsers() {
+        return users;
+    }
+
+    public void setUsers(Map<String, List<UserRepresentation>> users) {
+        this.users = users;
+    }
+
+    public Map<String, List<String>> getRemovedUsers() {
+        return removedUsers;
+    }
+
+    public void setRemovedUsers(Map<String, List<String>> removedUsers) {
+        this.removedUsers = removedUsers;
+    }
+}
@@ -12,26 +12,34 @@ import org.jboss.logging.Logger;
 import org.keycloak.Config;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
+import org.keycloak.representations.adapters.action.GlobalRequestResult;
 import org.keycloak.util.EnvUtil;
 import org.keycloak.util.KeystoreUtil;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.KeyStore;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
-public class DefaultHttpClientFactory implements HttpClientFactory {
+public class DefaultHttpClientFactory implements HttpClientFactory, ServerInfoAwareProviderFactory {
 
     private static final Logger logger = Logger.getLogger(DefaultHttpClientFactory.class);
 
     private volatile CloseableHttpClient httpClient;
+    private volatile LogoutDispatcher logoutDispatcher;
 
     @Override
     public HttpClientProvider create(KeycloakSession session) {
         return new HttpClientProvider() {
+            private List<LogoutDispatcher.Pending> pendingLogouts = new LinkedList<LogoutDispatcher.Pending>();
+
             @Override
             public HttpClient getHttpClient() {
                 return httpClient;
@@ -39,7 +47,7 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
 
             @Override
             public void close() {
-
+                pendingLogouts.clear();
             }
 
             @Override
@@ -68,11 +76,24 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
                 return entity.getContent();
 
             }
+
+            @Override
+            public void dispatchLogout(LogoutDispatcher.Request request) {
+                pendingLogouts.add(logoutDispatcher.dispatch(request));
+            }
+
+            @Override
+            public GlobalRequestResult awaitLogouts() {
+                GlobalRequestResult result = logoutDispatcher.await(pendingLogouts);
+                pendingLogouts.clear();
+                return result;
+            }
         };
     }
 
     @Override
     public void close() {
+        logoutDispatcher.close();
         try {
             httpClient.close();
         } catch (IOException e) {
@@ -85,6 +106,11 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
         return "default";
     }
 
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        return logoutDispatcher.getOperationalInfo();
+    }
+
     @Override
     public void init(Config.Scope config) {
         long socketTimeout = config.getLong("socket-timeout-millis", -1L);
@@ -127,6 +153,7 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
             }
         }
         httpClient = builder.build();
+        logoutDispatcher = LogoutDispatcher.create(httpClient, config);
     }
 
     @Override
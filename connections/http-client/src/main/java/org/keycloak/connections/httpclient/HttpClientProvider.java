@@ -3,6 +3,7 @@ package org.keycloak.connections.httpclient;
 import org.apache.http.client.HttpClient;
 import org.keycloak.provider.Provider;
 import org.keycloak.provider.ProviderFactory;
+import org.keycloak.representations.adapters.action.GlobalRequestResult;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,4 +32,19 @@ public interface HttpClientProvider extends Provider {
      * @throws IOException
      */
     public InputStream get(String uri) throws IOException;
+
+    /**
+     * Starts sending a backchannel logout request from a background thread, without waiting for it. Failed requests
+     * are retried in the background.
+     *
+     * @param request
+     */
+    public void dispatchLogout(LogoutDispatcher.Request request);
+
+    /**
+     * Waits for logout requests dispatched with this provider since the previous call, at most the logout timeout.
+     *
+     * @return results of the dispatched requests, requests which didn't complete in time are reported as failed
+     */
+    public GlobalRequestResult awaitLogouts();
 }
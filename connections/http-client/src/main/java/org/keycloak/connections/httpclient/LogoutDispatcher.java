@@ -0,0 +1,316 @@
+package org.keycloak.connections.httpclient;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.EntityBuilder;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.jboss.logging.Logger;
+import org.keycloak.Config;
+import org.keycloak.representations.adapters.action.GlobalRequestResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends backchannel logout requests concurrently from a bounded pool of threads, so logging out of many clients or
+ * cluster nodes doesn't take the sum of all request times. Every request has its own timeout. Failed requests are
+ * retried in the background a few times, with growing delays between attempts.
+ *
+ * Requests are sent from other threads than the one which dispatched them, so they must not use the session or any
+ * model objects. Retries send the same request again, so a request which contains a token must be valid long enough
+ * for all attempts.
+ */
+public class LogoutDispatcher {
+
+    private static final Logger logger = Logger.getLogger(LogoutDispatcher.class);
+
+    public interface Request {
+
+        /**
+         * @return target reported in {@link GlobalRequestResult}
+         */
+        String getTarget();
+
+        /**
+         * Sends the request with the given request config, which sets the timeouts of the request.
+         *
+         * @return true if the target accepted the request
+         */
+        boolean send(HttpClient httpClient, RequestConfig requestConfig) throws IOException;
+    }
+
+    /**
+     * A request which was dispatched, but may not have been sent yet.
+     */
+    public static class Pending {
+
+        private final String target;
+        private final Future<Boolean> result;
+        private final long dispatched = System.currentTimeMillis();
+
+        private Pending(String target, Future<Boolean> result) {
+            this.target = target;
+            this.result = result;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+    }
+
+    private final HttpClient httpClient;
+    private final RequestConfig requestConfig;
+    private final long timeout;
+    private final int retries;
+    private final long retryDelay;
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService retryExecutor;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public LogoutDispatcher(HttpClient httpClient, int poolSize, int queueSize, long timeout, int retries, long retryDelay) {
+        this.httpClient = httpClient;
+        this.requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) timeout)
+                .setConnectionRequestTimeout((int) timeout)
+                .setSocketTimeout((int) timeout).build();
+        this.timeout = timeout;
+        this.retries = retries;
+        this.retryDelay = retryDelay;
+
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize), new DaemonThreadFactory("logout-dispatcher-"));
+        executor.allowCoreThreadTimeOut(true);
+        retryExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("logout-retry-"));
+    }
+
+    public static LogoutDispatcher create(HttpClient httpClient, Config.Scope config) {
+        int poolSize = config.getInt("logout-pool-size", 20);
+        int queueSize = config.getInt("logout-queue-size", 1000);
+        long timeout = config.getLong("logout-timeout-millis", 5000L);
+        int retries = config.getInt("logout-retries", 2);
+        long retryDelay = config.getLong("logout-retry-delay-millis", 5000L);
+        return new LogoutDispatcher(httpClient, poolSize, queueSize, timeout, retries, retryDelay);
+    }
+
+    /**
+     * Creates a request which posts the text to the uri, and succeeds if the response status is 200 or 204.
+     */
+    public static Request textRequest(final String target, final String uri, final String text) {
+        return new Request() {
+            @Override
+            public String getTarget() {
+                return target;
+            }
+
+            @Override
+            public boolean send(HttpClient httpClient, RequestConfig requestConfig) throws IOException {
+                HttpPost post = new HttpPost(uri);
+                post.setConfig(requestConfig);
+                post.setEntity(EntityBuilder.create().setText(text).setContentType(ContentType.TEXT_PLAIN).build());
+                HttpResponse response = httpClient.execute(post);
+                try {
+                    int status = response.getStatusLine().getStatusCode();
+                    return status == 204 || status == 200;
+                } finally {
+                    consume(response);
+                }
+            }
+        };
+    }
+
+    /**
+     * Closes the content stream of the response, so the connection is returned to the pool.
+     */
+    public static void consume(HttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            InputStream is = entity.getContent();
+            if (is != null) is.close();
+        }
+    }
+
+    /**
+     * Starts sending the request. If all threads are busy and the queue is full, the request is sent from the
+     * calling thread.
+     */
+    public Pending dispatch(Request request) {
+        FutureTask<Boolean> task = new FutureTask<Boolean>(new Attempt(request, 0));
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+        return new Pending(request.getTarget(), task);
+    }
+
+    /**
+     * Waits for the first attempt of the dispatched requests, at most the request timeout after each request was
+     * dispatched. Requests which didn't complete in time are reported as failed, but still complete in the background.
+     */
+    public GlobalRequestResult await(List<Pending> pending) {
+        GlobalRequestResult result = new GlobalRequestResult();
+        for (Pending p : pending) {
+            long remaining = p.dispatched + timeout - System.currentTimeMillis();
+            boolean success;
+            try {
+                success = p.result.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.debugv("Logout request to {0} not completed in {1} ms", p.target, timeout);
+                success = false;
+            } catch (ExecutionException e) {
+                success = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                success = false;
+            }
+
+            if (success) {
+                result.addSuccessRequest(p.target);
+            } else {
+                result.addFailedRequest(p.target);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stops the threads. Requests waiting for a retry are abandoned, requests in progress get a few seconds to
+     * complete.
+     */
+    public void close() {
+        retryExecutor.shutdownNow();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getRetried() {
+        return retried.get();
+    }
+
+    /**
+     * @return count of requests which failed even after all retries
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return current counts, for the server info of the http client provider factory
+     */
+    public Map<String, String> getOperationalInfo() {
+        Map<String, String> info = new LinkedHashMap<String, String>();
+        info.put("logoutsActive", String.valueOf(executor.getActiveCount()));
+        info.put("logoutsQueued", String.valueOf(executor.getQueue().size()));
+        info.put("logoutsSent", String.valueOf(getSent()));
+        info.put("logoutsRetried", String.valueOf(getRetried()));
+        info.put("logoutsFailed", String.valueOf(getFailed()));
+        return info;
+    }
+
+    private void retry(final Request request, final int attempt) {
+        if (attempt >= retries || retryExecutor.isShutdown()) {
+            failed.incrementAndGet();
+            logger.warnv("Logout request to {0} failed after {1} attempts", request.getTarget(), attempt + 1);
+            return;
+        }
+
+        retried.incrementAndGet();
+        long delay = retryDelay << attempt;
+        logger.debugv("Logout request to {0} failed, retrying in {1} ms", request.getTarget(), delay);
+        try {
+            retryExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        executor.execute(new FutureTask<Boolean>(new Attempt(request, attempt + 1)));
+                    } catch (RejectedExecutionException e) {
+                        failed.incrementAndGet();
+                        logger.warnv("Logout request to {0} dropped, as too many requests are waiting", request.getTarget());
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    private class Attempt implements Callable<Boolean> {
+
+        private final Request request;
+        private final int attempt;
+
+        private Attempt(Request request, int attempt) {
+            this.request = request;
+            this.attempt = attempt;
+        }
+
+        @Override
+        public Boolean call() {
+            boolean success;
+            try {
+                success = request.send(httpClient, requestConfig);
+            } catch (Exception e) {
+                logger.debugv(e, "Logout request to {0} failed", request.getTarget());
+                success = false;
+            }
+
+            if (success) {
+                sent.incrementAndGet();
+            } else {
+                retry(request, attempt);
+            }
+            return success;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
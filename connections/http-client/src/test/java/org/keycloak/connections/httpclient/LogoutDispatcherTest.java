@@ -0,0 +1,172 @@
+package org.keycloak.connections.httpclient;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.representations.adapters.action.GlobalRequestResult;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class LogoutDispatcherTest {
+
+    private static final String OK = "http://localhost/ok";
+    private static final String FAILING = "http://localhost/failing";
+    private static final String BLOCKED = "http://localhost/blocked";
+
+    private StubHttpClient stub = new StubHttpClient();
+    private LogoutDispatcher dispatcher;
+
+    @After
+    public void after() {
+        stub.release.countDown();
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    public void sendRequests() {
+        dispatcher = new LogoutDispatcher(stub.client(), 2, 10, 5000, 0, 50);
+
+        List<LogoutDispatcher.Pending> pending = new ArrayList<LogoutDispatcher.Pending>();
+        pending.add(dispatcher.dispatch(LogoutDispatcher.textRequest("first", OK, "logout")));
+        pending.add(dispatcher.dispatch(LogoutDispatcher.textRequest("second", OK, "logout")));
+        GlobalRequestResult result = dispatcher.await(pending);
+
+        Assert.assertEquals(2, result.getSuccessRequests().size());
+        Assert.assertNull(result.getFailedRequests());
+        Assert.assertEquals(2, dispatcher.getSent());
+        Assert.assertEquals("2", dispatcher.getOperationalInfo().get("logoutsSent"));
+    }
+
+    @Test
+    public void awaitReportsTimeoutAsFailed() {
+        dispatcher = new LogoutDispatcher(stub.client(), 2, 10, 100, 0, 50);
+
+        List<LogoutDispatcher.Pending> pending = new ArrayList<LogoutDispatcher.Pending>();
+        pending.add(dispatcher.dispatch(LogoutDispatcher.textRequest("blocked", BLOCKED, "logout")));
+        pending.add(dispatcher.dispatch(LogoutDispatcher.textRequest("ok", OK, "logout")));
+
+        long start = System.currentTimeMillis();
+        GlobalRequestResult result = dispatcher.await(pending);
+
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assert.assertEquals(Collections.singletonList("blocked"), result.getFailedRequests());
+        Assert.assertEquals(Collections.singletonList("ok"), result.getSuccessRequests());
+    }
+
+    @Test
+    public void retryWithDoublingDelays() throws Exception {
+        dispatcher = new LogoutDispatcher(stub.client(), 2, 10, 5000, 2, 50);
+
+        GlobalRequestResult result = dispatcher.await(Collections.singletonList(dispatcher.dispatch(LogoutDispatcher.textRequest("failing", FAILING, "logout"))));
+        Assert.assertEquals(Collections.singletonList("failing"), result.getFailedRequests());
+
+        long end = System.currentTimeMillis() + 10000;
+        while (dispatcher.getFailed() == 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(1, dispatcher.getFailed());
+        Assert.assertEquals(2, dispatcher.getRetried());
+        Assert.assertEquals(0, dispatcher.getSent());
+
+        List<Call> calls = stub.getCalls();
+        Assert.assertEquals(3, calls.size());
+        Assert.assertTrue(calls.get(1).time - calls.get(0).time >= 50);
+        Assert.assertTrue(calls.get(2).time - calls.get(1).time >= 100);
+    }
+
+    @Test
+    public void sendFromCallerWhenQueueIsFull() throws Exception {
+        dispatcher = new LogoutDispatcher(stub.client(), 1, 1, 5000, 0, 50);
+
+        // First request keeps the only thread busy, second one fills the queue
+        dispatcher.dispatch(LogoutDispatcher.textRequest("blocked", BLOCKED, "logout"));
+        long end = System.currentTimeMillis() + 10000;
+        while (stub.getCalls().isEmpty() && System.currentTimeMillis() < end) {
+            Thread.sleep(1);
+        }
+        dispatcher.dispatch(LogoutDispatcher.textRequest("queued", BLOCKED, "logout"));
+
+        LogoutDispatcher.Pending pending = dispatcher.dispatch(LogoutDispatcher.textRequest("ok", OK, "logout"));
+
+        List<Call> calls = stub.getCalls();
+        Assert.assertEquals(2, calls.size());
+        Assert.assertEquals(OK, calls.get(1).uri);
+        Assert.assertSame(Thread.currentThread(), calls.get(1).thread);
+        Assert.assertEquals(Collections.singletonList("ok"), dispatcher.await(Collections.singletonList(pending)).getSuccessRequests());
+    }
+
+    @Test
+    public void closeAbandonsScheduledRetries() throws Exception {
+        dispatcher = new LogoutDispatcher(stub.client(), 2, 10, 5000, 2, 10000);
+
+        dispatcher.await(Collections.singletonList(dispatcher.dispatch(LogoutDispatcher.textRequest("failing", FAILING, "logout"))));
+        Assert.assertEquals(1, dispatcher.getRetried());
+
+        long start = System.currentTimeMillis();
+        dispatcher.close();
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+
+        Thread.sleep(100);
+        Assert.assertEquals(1, stub.getCalls().size());
+        Assert.assertEquals(0, dispatcher.getFailed());
+    }
+
+    private static class Call {
+
+        private final String uri;
+        private final Thread thread;
+        private final long time;
+
+        private Call(String uri, Thread thread, long time) {
+            this.uri = uri;
+            this.thread = thread;
+            this.time = time;
+        }
+    }
+
+    private static class StubHttpClient implements InvocationHandler {
+
+        private final List<Call> calls = new ArrayList<Call>();
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private HttpClient client() {
+            return (HttpClient) Proxy.newProxyInstance(HttpClient.class.getClassLoader(), new Class[] { HttpClient.class }, this);
+        }
+
+        private synchronized List<Call> getCalls() {
+            return new ArrayList<Call>(calls);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("execute")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+
+            String uri = ((HttpUriRequest) args[0]).getURI().toString();
+            synchronized (this) {
+                calls.add(new Call(uri, Thread.currentThread(), System.currentTimeMillis()));
+            }
+
+            if (uri.equals(BLOCKED)) {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            return new BasicHttpResponse(HttpVersion.HTTP_1_1, uri.equals(FAILING) ? 500 : 204, null);
+        }
+    }
+
+}
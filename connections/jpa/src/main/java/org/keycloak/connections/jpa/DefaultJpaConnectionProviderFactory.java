@@ -117,6 +117,14 @@ public class DefaultJpaConnectionProviderFactory implements JpaConnectionProvide
 
                         properties.put("hibernate.show_sql", config.getBoolean("showSql", false));
                         properties.put("hibernate.format_sql", config.getBoolean("formatSql", true));
+
+                        // Statements of a flush are sent in JDBC batches, grouped by table
+                        int batchSize = config.getInt("batchSize", 50);
+                        if (batchSize > 0) {
+                            properties.put("hibernate.jdbc.batch_size", batchSize);
+                            properties.put("hibernate.order_inserts", true);
+                            properties.put("hibernate.order_updates", true);
+                        }
                     }
 
                     if (databaseSchema != null) {
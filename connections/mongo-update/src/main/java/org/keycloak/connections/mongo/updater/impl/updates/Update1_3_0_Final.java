@@ -0,0 +1,19 @@
+package org.keycloak.connections.mongo.updater.impl.updates;
+
+import org.keycloak.models.KeycloakSession;
+
+public class Update1_3_0_Final extends Update {
+
+    @Override
+    public String getId() {
+        return "1.3.0.Final";
+    }
+
+    @Override
+    public void update(KeycloakSession session) {
+        // Used to find expired events
+        ensureIndex("events", new String[]{"realmId", "time"}, false, false);
+        ensureIndex("adminEvents", new String[]{"realmId", "time"}, false, false);
+    }
+
+}
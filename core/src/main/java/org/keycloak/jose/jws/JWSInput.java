@@ -2,17 +2,23 @@ package org.keycloak.jose.jws;
 
 import org.keycloak.util.Base64Url;
 import org.keycloak.util.JsonSerialization;
-import static org.keycloak.jose.jws.Algorithm.*;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 
 /**
+ * Parses a JWS in compact serialization. The token is converted to bytes once and the header, content and signature
+ * are decoded from offsets into that array.
+ *
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
 public class JWSInput {
+
     String wireString;
+    byte[] wireBytes;
+    int headerEnd;
+    int contentEnd;
     String encodedHeader;
     String encodedContent;
     String encodedSignature;
@@ -24,20 +30,27 @@ public class JWSInput {
 
     public JWSInput(String wire) {
         this.wireString = wire;
-        String[] parts = wire.split("\\.");
-        if (parts.length < 2 || parts.length > 3) throw new IllegalArgumentException("Parsing error");
-        encodedHeader = parts[0];
-        encodedContent = parts[1];
-        encodedSignatureInput = encodedHeader + '.' + encodedContent;
+
+        headerEnd = wire.indexOf('.');
+        if (headerEnd == -1) throw new IllegalArgumentException("Parsing error");
+
+        contentEnd = wire.indexOf('.', headerEnd + 1);
+        if (contentEnd == -1) {
+            contentEnd = wire.length();
+        } else if (wire.indexOf('.', contentEnd + 1) != -1) {
+            throw new IllegalArgumentException("Parsing error");
+        }
+
         try {
-            content = Base64Url.decode(encodedContent);
-            if (parts.length > 2) {
-                encodedSignature = parts[2];
-                signature = Base64Url.decode(encodedSignature);
+            wireBytes = wire.getBytes("US-ASCII");
 
+            content = Base64Url.decode(wireBytes, headerEnd + 1, contentEnd - headerEnd - 1);
+            if (contentEnd + 1 < wireBytes.length) {
+                signature = Base64Url.decode(wireBytes, contentEnd + 1, wireBytes.length - contentEnd - 1);
             }
-            byte[] headerBytes = Base64Url.decode(encodedHeader);
-            header = JsonSerialization.readValue(headerBytes, JWSHeader.class);
+
+            encodedHeader = wire.substring(0, headerEnd);
+            header = JsonSerialization.readValue(Base64Url.decode(wireBytes, 0, headerEnd), JWSHeader.class);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -47,18 +60,40 @@ public class JWSInput {
         return wireString;
     }
 
+    /**
+     * Returns the ASCII bytes of the whole token. The JWS signing input is the first
+     * {@link #getSignatureInputLength()} bytes of the array, which must not be modified.
+     */
+    public byte[] getWireBytes() {
+        return wireBytes;
+    }
+
+    public int getSignatureInputLength() {
+        return contentEnd;
+    }
+
     public String getEncodedHeader() {
         return encodedHeader;
     }
 
     public String getEncodedContent() {
+        if (encodedContent == null) {
+            encodedContent = wireString.substring(headerEnd + 1, contentEnd);
+        }
         return encodedContent;
     }
 
     public String getEncodedSignature() {
+        if (encodedSignature == null && signature != null) {
+            encodedSignature = wireString.substring(contentEnd + 1);
+        }
         return encodedSignature;
     }
+
     public String getEncodedSignatureInput() {
+        if (encodedSignatureInput == null) {
+            encodedSignatureInput = wireString.substring(0, contentEnd);
+        }
         return encodedSignatureInput;
     }
 
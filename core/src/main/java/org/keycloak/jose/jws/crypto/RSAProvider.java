@@ -9,12 +9,31 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Signature;
 import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
 public class RSAProvider implements SignatureProvider {
+
+    private static final int MAX_CACHED_CERTIFICATES = 100;
+
+    private static final ConcurrentMap<Algorithm, Queue<Signature>> signatures = new ConcurrentHashMap<Algorithm, Queue<Signature>>();
+
+    private static final Map<String, PublicKey> certificateKeys = Collections.synchronizedMap(new LinkedHashMap<String, PublicKey>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PublicKey> eldest) {
+            return size() > MAX_CACHED_CERTIFICATES;
+        }
+    });
+
     public static String getJavaAlgorithm(Algorithm alg) {
         switch (alg) {
             case RS256:
@@ -36,33 +55,65 @@ public class RSAProvider implements SignatureProvider {
         }
     }
 
+    /**
+     * Returns a signature instance from the pool for the algorithm, or creates a new one if the pool is empty.
+     * Instances have to be given back with {@link #release(Algorithm, Signature)} once they're no longer used.
+     */
+    private static Signature borrow(Algorithm alg) {
+        Queue<Signature> pool = signatures.get(alg);
+        Signature signature = pool != null ? pool.poll() : null;
+        return signature != null ? signature : getSignature(alg);
+    }
+
+    private static void release(Algorithm alg, Signature signature) {
+        Queue<Signature> pool = signatures.get(alg);
+        if (pool == null) {
+            pool = new ConcurrentLinkedQueue<Signature>();
+            Queue<Signature> existing = signatures.putIfAbsent(alg, pool);
+            if (existing != null) {
+                pool = existing;
+            }
+        }
+        pool.offer(signature);
+    }
+
     public static byte[] sign(byte[] data, Algorithm algorithm, PrivateKey privateKey) {
+        Signature signature = borrow(algorithm);
         try {
-            Signature signature = getSignature(algorithm);
             signature.initSign(privateKey);
             signature.update(data);
-            return signature.sign();
+            byte[] result = signature.sign();
+            release(algorithm, signature);
+            return result;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
     public static boolean verifyViaCertificate(JWSInput input, String cert) {
-        X509Certificate certificate = null;
-        try {
-            certificate = PemUtils.decodeCertificate(cert);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        PublicKey publicKey = certificateKeys.get(cert);
+        if (publicKey == null) {
+            X509Certificate certificate = null;
+            try {
+                certificate = PemUtils.decodeCertificate(cert);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            publicKey = certificate.getPublicKey();
+            certificateKeys.put(cert, publicKey);
         }
-        return verify(input, certificate.getPublicKey());
+        return verify(input, publicKey);
     }
 
     public static boolean verify(JWSInput input, PublicKey publicKey) {
+        Algorithm algorithm = input.getHeader().getAlgorithm();
+        Signature verifier = borrow(algorithm);
         try {
-            Signature verifier = getSignature(input.getHeader().getAlgorithm());
             verifier.initVerify(publicKey);
-            verifier.update(input.getEncodedSignatureInput().getBytes("UTF-8"));
-            return verifier.verify(input.getSignature());
+            verifier.update(input.getWireBytes(), 0, input.getSignatureInputLength());
+            boolean verified = verifier.verify(input.getSignature());
+            release(algorithm, verifier);
+            return verified;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -3,6 +3,8 @@ package org.keycloak.util;
 
 import net.iharder.Base64;
 
+import java.util.Arrays;
+
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
@@ -16,6 +18,68 @@ public class Base64Url {
         return s;
     }
 
+    private static final byte[] DECODABET = new byte[128];
+
+    static {
+        Arrays.fill(DECODABET, (byte) -1);
+        for (int i = 0; i < 26; i++) {
+            DECODABET['A' + i] = (byte) i;
+            DECODABET['a' + i] = (byte) (26 + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            DECODABET['0' + i] = (byte) (52 + i);
+        }
+        DECODABET['-'] = 62;
+        DECODABET['+'] = 62;
+        DECODABET['_'] = 63;
+        DECODABET['/'] = 63;
+    }
+
+    /**
+     * Decodes a base64url encoded range of an ASCII byte array, without copying it to a string first. Trailing
+     * padding is allowed but not required.
+     */
+    public static byte[] decode(byte[] source, int offset, int length) {
+        while (length > 0 && source[offset + length - 1] == '=') {
+            length--;
+        }
+
+        int remainder = length % 4;
+        if (remainder == 1) {
+            throw new RuntimeException("Illegal base64url string!");
+        }
+
+        byte[] decoded = new byte[(length / 4) * 3 + (remainder > 0 ? remainder - 1 : 0)];
+        int out = 0;
+        int bits = 0;
+        int count = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int c = source[i];
+            int value = c >= 0 && c < DECODABET.length ? DECODABET[c] : -1;
+            if (value == -1) {
+                throw new RuntimeException("Illegal base64url character: " + (char) (c & 0xff));
+            }
+
+            bits = (bits << 6) | value;
+            count++;
+            if (count == 4) {
+                decoded[out++] = (byte) (bits >> 16);
+                decoded[out++] = (byte) (bits >> 8);
+                decoded[out++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+
+        if (count == 2) {
+            decoded[out] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            decoded[out++] = (byte) (bits >> 10);
+            decoded[out] = (byte) (bits >> 2);
+        }
+        return decoded;
+    }
+
     public static byte[] decode(String s) {
         s = s.replace('-', '+'); // 62nd char of encoding
         s = s.replace('_', '/'); // 63rd char of encoding
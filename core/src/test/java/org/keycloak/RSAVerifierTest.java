@@ -1,6 +1,7 @@
 package org.keycloak;
 
 import junit.framework.Assert;
+import net.iharder.Base64;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.openssl.PEMWriter;
 import org.bouncycastle.x509.X509V1CertificateGenerator;
@@ -8,6 +9,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.keycloak.jose.jws.JWSBuilder;
+import org.keycloak.jose.jws.JWSInput;
+import org.keycloak.jose.jws.crypto.RSAProvider;
 import org.keycloak.representations.AccessToken;
 import org.keycloak.util.Time;
 
@@ -129,6 +132,22 @@ public class RSAVerifierTest {
    */
 
 
+    @Test
+    public void testVerifyViaCertificate() throws Exception {
+        String encoded = new JWSBuilder()
+                .jsonContent(token)
+                .rsa256(idpPair.getPrivate());
+        JWSInput input = new JWSInput(encoded);
+
+        String idpCertificate = Base64.encodeBytes(idpCertificates[0].getEncoded());
+        String badCertificate = Base64.encodeBytes(generateTestCertificate("CN=Bad", "CN=Bad", badPair).getEncoded());
+
+        for (int i = 0; i < 2; i++) {
+            Assert.assertTrue(RSAProvider.verifyViaCertificate(input, idpCertificate));
+            Assert.assertFalse(RSAProvider.verifyViaCertificate(input, badCertificate));
+        }
+    }
+
     @Test
     public void testBadSignature() throws Exception {
 
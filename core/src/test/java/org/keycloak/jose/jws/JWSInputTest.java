@@ -0,0 +1,76 @@
+package org.keycloak.jose.jws;
+
+import org.junit.Test;
+import org.keycloak.jose.jws.crypto.HMACProvider;
+import org.keycloak.jose.jws.crypto.RSAProvider;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JWSInputTest {
+
+    @Test
+    public void parseRsa() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        byte[] content = "{\"sub\":\"user\"}".getBytes("UTF-8");
+
+        String encoded = new JWSBuilder().content(content).rsa256(keyPair.getPrivate());
+        JWSInput input = new JWSInput(encoded);
+
+        String[] parts = encoded.split("\\.");
+        assertEquals(Algorithm.RS256, input.getHeader().getAlgorithm());
+        assertEquals(parts[0], input.getEncodedHeader());
+        assertEquals(parts[1], input.getEncodedContent());
+        assertEquals(parts[2], input.getEncodedSignature());
+        assertEquals(parts[0] + "." + parts[1], input.getEncodedSignatureInput());
+        assertEquals(input.getEncodedSignatureInput().length(), input.getSignatureInputLength());
+        assertArrayEquals(content, input.getContent());
+
+        assertTrue(RSAProvider.verify(input, keyPair.getPublic()));
+        assertFalse(RSAProvider.verify(input, KeyPairGenerator.getInstance("RSA").generateKeyPair().getPublic()));
+    }
+
+    @Test
+    public void parseHmac() throws Exception {
+        byte[] secret = "secret".getBytes("UTF-8");
+        String encoded = new JWSBuilder().content("content".getBytes("UTF-8")).hmac256(secret);
+
+        JWSInput input = new JWSInput(encoded);
+        assertEquals(Algorithm.HS256, input.getHeader().getAlgorithm());
+        assertTrue(HMACProvider.verify(input, secret));
+    }
+
+    @Test
+    public void parseUnsigned() throws Exception {
+        String encoded = new JWSBuilder().content("content".getBytes("UTF-8")).none();
+
+        JWSInput input = new JWSInput(encoded);
+        assertEquals(Algorithm.none, input.getHeader().getAlgorithm());
+        assertEquals("content", input.readContentAsString());
+        assertNull(input.getSignature());
+        assertNull(input.getEncodedSignature());
+    }
+
+    @Test
+    public void parseInvalid() {
+        try {
+            new JWSInput("invalid");
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+        }
+
+        try {
+            new JWSInput("a.b.c.d");
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+}
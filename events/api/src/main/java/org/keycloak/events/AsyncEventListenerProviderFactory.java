@@ -0,0 +1,213 @@
+package org.keycloak.events;
+
+import org.jboss.logging.Logger;
+import org.keycloak.Config;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.AuthDetails;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakSessionTask;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps the factory of an event listener configured with {@code "async": true}, so the listener is invoked from a
+ * background thread and a slow listener doesn't delay requests. Providers created by this factory just queue events in
+ * a bounded queue. Every async listener has its own queue and thread, so a slow listener doesn't delay other listeners
+ * either. When the queue is full, new events for the listener are dropped.
+ *
+ * Events are sent in a new session, so listeners see only committed data and can't take part in the transaction of
+ * the request.
+ */
+public class AsyncEventListenerProviderFactory implements EventListenerProviderFactory, ServerInfoAwareProviderFactory {
+
+    private static final Logger logger = Logger.getLogger(AsyncEventListenerProviderFactory.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    private final EventListenerProviderFactory delegate;
+    private final BatchingEventQueue<Object> queue;
+    private final EventListenerProvider provider = new QueueingProvider();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile KeycloakSessionFactory sessionFactory;
+
+    /**
+     * @param delegate initialized factory of the listener
+     * @param queueSize maximum count of events waiting to be sent
+     */
+    public AsyncEventListenerProviderFactory(EventListenerProviderFactory delegate, int queueSize) {
+        this.delegate = delegate;
+        this.queue = new BatchingEventQueue<Object>("event-listener-" + delegate.getId(), "event listener " + delegate.getId(), queueSize, BATCH_SIZE, new BatchingEventQueue.BatchSender<Object>() {
+            @Override
+            public void send(List<Object> batch) {
+                sendBatch(batch);
+            }
+        });
+    }
+
+    /**
+     * Wraps the factory if the listener is configured to be async in the given configuration, otherwise returns the
+     * factory itself.
+     */
+    public static EventListenerProviderFactory wrap(EventListenerProviderFactory factory, Config.Scope config) {
+        if (!config.getBoolean("async", false)) {
+            return factory;
+        }
+
+        int queueSize = config.getInt("queueSize", 1000);
+        logger.debugv("Sending events to {0} asynchronously, queue size {1}", factory.getId(), queueSize);
+        return new AsyncEventListenerProviderFactory(factory, queueSize);
+    }
+
+    @Override
+    public EventListenerProvider create(KeycloakSession session) {
+        return provider;
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+        // The delegate is initialized before it's wrapped
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        delegate.postInit(factory);
+
+        this.sessionFactory = factory;
+        queue.start();
+    }
+
+    /**
+     * Stops the background thread after queued events were sent, then closes the delegate.
+     */
+    @Override
+    public void close() {
+        queue.stop();
+        delegate.close();
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    private void sendBatch(final List<Object> batch) {
+        try {
+            KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
+                @Override
+                public void run(KeycloakSession session) {
+                    // The session would return the queueing provider, so the listener is created by the delegate
+                    EventListenerProvider listener = delegate.create(session);
+                    try {
+                        for (Object event : batch) {
+                            try {
+                                if (event instanceof Event) {
+                                    listener.onEvent((Event) event);
+                                } else {
+                                    QueuedAdminEvent adminEvent = (QueuedAdminEvent) event;
+                                    listener.onEvent(adminEvent.event, adminEvent.includeRepresentation);
+                                }
+                                sent.incrementAndGet();
+                            } catch (Throwable t) {
+                                failed.incrementAndGet();
+                                logger.error("Failed to send event to " + getId(), t);
+                            }
+                        }
+                    } finally {
+                        listener.close();
+                    }
+                }
+            });
+        } catch (Throwable t) {
+            logger.error("Failed to send events to " + getId(), t);
+        }
+    }
+
+    /**
+     * @return count of events waiting to be sent
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getDropped() {
+        return queue.getDropped();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        Map<String, String> info = new LinkedHashMap<String, String>();
+        info.put("queued", String.valueOf(getQueued()));
+        info.put("sent", String.valueOf(getSent()));
+        info.put("dropped", String.valueOf(getDropped()));
+        info.put("failed", String.valueOf(getFailed()));
+        return info;
+    }
+
+    private class QueueingProvider implements EventListenerProvider {
+
+        @Override
+        public void onEvent(Event event) {
+            queue.add(event.clone());
+        }
+
+        @Override
+        public void onEvent(AdminEvent event, boolean includeRepresentation) {
+            queue.add(new QueuedAdminEvent(copy(event), includeRepresentation));
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    private static class QueuedAdminEvent {
+
+        private final AdminEvent event;
+        private final boolean includeRepresentation;
+
+        private QueuedAdminEvent(AdminEvent event, boolean includeRepresentation) {
+            this.event = event;
+            this.includeRepresentation = includeRepresentation;
+        }
+    }
+
+    private static AdminEvent copy(AdminEvent event) {
+        AdminEvent copy = new AdminEvent();
+        copy.setTime(event.getTime());
+        copy.setRealmId(event.getRealmId());
+        copy.setOperationType(event.getOperationType());
+        copy.setResourcePath(event.getResourcePath());
+        copy.setRepresentation(event.getRepresentation());
+        copy.setError(event.getError());
+
+        AuthDetails authDetails = event.getAuthDetails();
+        if (authDetails != null) {
+            AuthDetails authCopy = new AuthDetails();
+            authCopy.setRealmId(authDetails.getRealmId());
+            authCopy.setClientId(authDetails.getClientId());
+            authCopy.setUserId(authDetails.getUserId());
+            authCopy.setIpAddress(authDetails.getIpAddress());
+            copy.setAuthDetails(authCopy);
+        }
+        return copy;
+    }
+
+}
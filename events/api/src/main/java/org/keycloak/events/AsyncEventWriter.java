@@ -0,0 +1,152 @@
+package org.keycloak.events;
+
+import org.jboss.logging.Logger;
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakSessionTask;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saves events of an event store from a background thread, so saving events isn't part of the request. Events are
+ * queued in a bounded queue and written in batches, each batch in its own transaction. When the queue is full, events
+ * are either dropped, or the request waits for a limited time and drops the event if there's still no space.
+ *
+ * Events are written even if the transaction of the request is rolled back, and they may not be visible to queries
+ * right after they were sent.
+ */
+public class AsyncEventWriter {
+
+    private static final Logger logger = Logger.getLogger(AsyncEventWriter.class);
+
+    public enum OverflowPolicy {
+        DROP, BLOCK
+    }
+
+    /**
+     * Writes a batch of events with the given session, which must not be used to send events again.
+     */
+    public interface BatchWriter {
+        void write(KeycloakSession session, List<Event> events);
+    }
+
+    private final BatchWriter writer;
+    private final BatchingEventQueue<Event> queue;
+    private final long overflowTimeout;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile KeycloakSessionFactory sessionFactory;
+
+    public AsyncEventWriter(String name, BatchWriter writer, int queueSize, int batchSize, OverflowPolicy overflowPolicy, long overflowTimeout) {
+        this.writer = writer;
+        this.queue = new BatchingEventQueue<Event>("event-writer-" + name, "event store " + name, queueSize, batchSize, new BatchingEventQueue.BatchSender<Event>() {
+            @Override
+            public void send(List<Event> batch) {
+                writeBatch(batch);
+            }
+        });
+        this.overflowTimeout = overflowPolicy == OverflowPolicy.BLOCK ? overflowTimeout : 0;
+    }
+
+    /**
+     * Creates a writer from the configuration of an event store provider, or returns null if the provider is not
+     * configured to write asynchronously.
+     */
+    public static AsyncEventWriter create(String name, Config.Scope config, BatchWriter writer) {
+        if (!config.getBoolean("async", false)) {
+            return null;
+        }
+
+        int queueSize = config.getInt("queueSize", 10000);
+        int batchSize = config.getInt("batchSize", 100);
+        OverflowPolicy overflowPolicy = OverflowPolicy.valueOf(config.get("overflow", "drop").toUpperCase());
+        long overflowTimeout = config.getLong("overflowTimeout", 1000L);
+
+        logger.debugv("Saving events of {0} asynchronously, queue size {1}, batch size {2}, overflow policy {3}", name, queueSize, batchSize, overflowPolicy);
+        return new AsyncEventWriter(name, writer, queueSize, batchSize, overflowPolicy, overflowTimeout);
+    }
+
+    public void start(KeycloakSessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        queue.start();
+    }
+
+    /**
+     * Queues a copy of the event.
+     *
+     * @return false if the event was dropped, as the queue was full or the writer isn't running
+     */
+    public boolean add(Event event) {
+        return queue.add(event.clone(), overflowTimeout);
+    }
+
+    /**
+     * Stops the background thread after the queued events were written.
+     */
+    public void stop() {
+        queue.stop();
+    }
+
+    private void writeBatch(final List<Event> batch) {
+        try {
+            KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
+                @Override
+                public void run(KeycloakSession session) {
+                    writer.write(session, batch);
+                }
+            });
+            written.addAndGet(batch.size());
+        } catch (Throwable t) {
+            failed.addAndGet(batch.size());
+            logger.error("Failed to save " + batch.size() + " events", t);
+        }
+    }
+
+    /**
+     * @return count of events waiting to be written
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * @return time in milliseconds since the oldest waiting event was sent, or 0 if no events are waiting
+     */
+    public long getLag() {
+        Event oldest = queue.peek();
+        return oldest != null ? Math.max(0, System.currentTimeMillis() - oldest.getTime()) : 0;
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDropped() {
+        return queue.getDropped();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return current metrics of the writer, for the server info of event store factories
+     */
+    public Map<String, String> getOperationalInfo() {
+        Map<String, String> info = new LinkedHashMap<String, String>();
+        info.put("queued", String.valueOf(getQueued()));
+        info.put("lag", getLag() + " ms");
+        info.put("written", String.valueOf(getWritten()));
+        info.put("dropped", String.valueOf(getDropped()));
+        info.put("failed", String.valueOf(getFailed()));
+        return info;
+    }
+
+}
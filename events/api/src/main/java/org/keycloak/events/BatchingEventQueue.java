@@ -0,0 +1,157 @@
+package org.keycloak.events;
+
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded queue of events, which a background thread takes in batches and passes to a {@link BatchSender}, so events
+ * are sent without delaying requests. Events added while the queue is full or the thread isn't running are dropped.
+ * Dropped events are counted, and logged by the background thread.
+ */
+public class BatchingEventQueue<T> {
+
+    private static final Logger logger = Logger.getLogger(BatchingEventQueue.class);
+
+    /**
+     * Sends a batch of events from the background thread. Failures must be handled by the sender.
+     */
+    public interface BatchSender<T> {
+        void send(List<T> batch);
+    }
+
+    private final String threadName;
+    private final String description;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final BatchSender<T> sender;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * @param threadName name of the background thread
+     * @param description where events are sent to, for log messages
+     */
+    public BatchingEventQueue(String threadName, String description, int queueSize, int batchSize, BatchSender<T> sender) {
+        this.threadName = threadName;
+        this.description = description;
+        this.queue = new ArrayBlockingQueue<T>(queueSize);
+        this.batchSize = batchSize;
+        this.sender = sender;
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sendEvents();
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return false if the event was dropped
+     */
+    public boolean add(T event) {
+        return add(event, 0);
+    }
+
+    /**
+     * Queues the event, waiting at most the given time in milliseconds if the queue is full.
+     *
+     * @return false if the event was dropped
+     */
+    public boolean add(T event, long timeout) {
+        boolean added = false;
+        if (running) {
+            if (timeout > 0) {
+                try {
+                    added = queue.offer(event, timeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                added = queue.offer(event);
+            }
+        }
+
+        if (!added) {
+            dropped.incrementAndGet();
+        }
+        return added;
+    }
+
+    /**
+     * Stops the background thread after the queued events were sent, waiting at most 30 seconds.
+     */
+    public synchronized void stop() {
+        if (thread == null) return;
+
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warnv("{0} events for {1} were not sent before shutdown", queue.size(), description);
+        }
+        thread = null;
+    }
+
+    private void sendEvents() {
+        List<T> batch = new ArrayList<T>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    sender.send(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException ie) {
+                running = false;
+            }
+
+            long current = dropped.get();
+            if (current != reportedDropped) {
+                logger.warnv("{0} events for {1} dropped as the queue was full, {2} dropped in total", current - reportedDropped, description, current);
+                reportedDropped = current;
+            }
+        }
+    }
+
+    /**
+     * @return count of events waiting to be sent
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * @return oldest event waiting to be sent, or null if no events are waiting
+     */
+    public T peek() {
+        return queue.peek();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+}
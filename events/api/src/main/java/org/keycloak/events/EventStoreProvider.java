@@ -17,6 +17,14 @@ public interface EventStoreProvider extends EventListenerProvider {
 
     public void clear(String realmId, long olderThan);
 
+    /**
+     * Removes at most the given count of events of the realm older than the given time, so many expired events can be
+     * removed in several short transactions.
+     *
+     * @return count of removed events
+     */
+    public int clear(String realmId, long olderThan, int maxResults);
+
     public void clearAdmin();
 
     public void clearAdmin(String realmId);
@@ -0,0 +1,285 @@
+package org.keycloak.events;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.Config;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncEventListenerProviderFactoryTest {
+
+    private TestSessionFactory sessionFactory = new TestSessionFactory();
+    private List<AsyncEventListenerProviderFactory> factories = new ArrayList<AsyncEventListenerProviderFactory>();
+
+    @After
+    public void after() {
+        for (AsyncEventListenerProviderFactory factory : factories) {
+            factory.close();
+        }
+    }
+
+    @Test
+    public void sendQueuedEvents() {
+        RecordingFactory delegate = new RecordingFactory("recording");
+        AsyncEventListenerProviderFactory factory = start(delegate, 100);
+
+        EventListenerProvider provider = factory.create(sessionFactory.create());
+        Event event = TestSessionFactory.event("realm", 1);
+        provider.onEvent(event);
+        event.setRealmId("changed");
+
+        AdminEvent adminEvent = new AdminEvent();
+        adminEvent.setRealmId("realm");
+        adminEvent.setOperationType(OperationType.CREATE);
+        provider.onEvent(adminEvent, true);
+
+        factory.close();
+
+        Assert.assertEquals(1, delegate.events.size());
+        Assert.assertEquals("realm", delegate.events.get(0).getRealmId());
+        Assert.assertEquals(1, delegate.adminEvents.size());
+        Assert.assertNotSame(adminEvent, delegate.adminEvents.get(0));
+        Assert.assertEquals(OperationType.CREATE, delegate.adminEvents.get(0).getOperationType());
+
+        Assert.assertEquals(2, factory.getSent());
+        Assert.assertEquals(0, factory.getQueued());
+        Assert.assertEquals(0, factory.getDropped());
+
+        // Listener is invoked from a background thread and closed after the batch, delegate is closed with the factory
+        Assert.assertNotSame(Thread.currentThread(), delegate.thread);
+        Assert.assertTrue(delegate.closedProviders > 0);
+        Assert.assertTrue(delegate.closed);
+        Assert.assertTrue(delegate.postInit);
+    }
+
+    @Test
+    public void slowListenerDoesNotDelayOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingFactory slow = new RecordingFactory("slow", release);
+        RecordingFactory fast = new RecordingFactory("fast");
+        AsyncEventListenerProviderFactory slowFactory = start(slow, 100);
+        AsyncEventListenerProviderFactory fastFactory = start(fast, 100);
+
+        KeycloakSession session = sessionFactory.create();
+        for (int i = 0; i < 10; i++) {
+            slowFactory.create(session).onEvent(TestSessionFactory.event("realm", i));
+            fastFactory.create(session).onEvent(TestSessionFactory.event("realm", i));
+        }
+
+        long end = System.currentTimeMillis() + 10000;
+        while (fastFactory.getSent() < 10 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(10, fastFactory.getSent());
+        Assert.assertEquals(0, slowFactory.getSent());
+
+        release.countDown();
+        slowFactory.close();
+        Assert.assertEquals(10, slowFactory.getSent());
+    }
+
+    @Test
+    public void dropWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingFactory delegate = new RecordingFactory("slow", release);
+        AsyncEventListenerProviderFactory factory = start(delegate, 2);
+
+        EventListenerProvider provider = factory.create(sessionFactory.create());
+
+        // First event is taken by the blocked thread, next two fill the queue
+        provider.onEvent(TestSessionFactory.event("realm", 1));
+        Assert.assertTrue(delegate.sending.await(10, TimeUnit.SECONDS));
+        for (int i = 2; i <= 5; i++) {
+            provider.onEvent(TestSessionFactory.event("realm", i));
+        }
+
+        Assert.assertEquals(2, factory.getQueued());
+        Assert.assertEquals(2, factory.getDropped());
+        Assert.assertEquals("2", factory.getOperationalInfo().get("dropped"));
+
+        release.countDown();
+        factory.close();
+
+        Assert.assertEquals(3, factory.getSent());
+        Assert.assertEquals(3, delegate.events.size());
+    }
+
+    @Test
+    public void countFailedEvents() {
+        RecordingFactory delegate = new RecordingFactory("failing");
+        delegate.failRealm = "fail";
+        AsyncEventListenerProviderFactory factory = start(delegate, 10);
+
+        EventListenerProvider provider = factory.create(sessionFactory.create());
+        provider.onEvent(TestSessionFactory.event("fail", 1));
+        provider.onEvent(TestSessionFactory.event("realm", 2));
+        factory.close();
+
+        Assert.assertEquals(1, factory.getFailed());
+        Assert.assertEquals(1, factory.getSent());
+    }
+
+    @Test
+    public void wrapOnlyAsyncListeners() {
+        RecordingFactory delegate = new RecordingFactory("recording");
+
+        Assert.assertSame(delegate, AsyncEventListenerProviderFactory.wrap(delegate, new TestScope(false)));
+
+        EventListenerProviderFactory wrapped = AsyncEventListenerProviderFactory.wrap(delegate, new TestScope(true));
+        Assert.assertTrue(wrapped instanceof AsyncEventListenerProviderFactory);
+        Assert.assertEquals("recording", wrapped.getId());
+    }
+
+    private AsyncEventListenerProviderFactory start(EventListenerProviderFactory delegate, int queueSize) {
+        AsyncEventListenerProviderFactory factory = new AsyncEventListenerProviderFactory(delegate, queueSize);
+        factory.postInit(sessionFactory);
+        factories.add(factory);
+        return factory;
+    }
+
+    private static class RecordingFactory implements EventListenerProviderFactory {
+
+        private final String id;
+        private final CountDownLatch release;
+        private final CountDownLatch sending = new CountDownLatch(1);
+
+        private final List<Event> events = Collections.synchronizedList(new ArrayList<Event>());
+        private final List<AdminEvent> adminEvents = Collections.synchronizedList(new ArrayList<AdminEvent>());
+        private volatile String failRealm;
+        private volatile Thread thread;
+        private volatile int closedProviders;
+        private volatile boolean postInit;
+        private volatile boolean closed;
+
+        private RecordingFactory(String id) {
+            this(id, null);
+        }
+
+        private RecordingFactory(String id, CountDownLatch release) {
+            this.id = id;
+            this.release = release;
+        }
+
+        @Override
+        public EventListenerProvider create(KeycloakSession session) {
+            return new EventListenerProvider() {
+                @Override
+                public void onEvent(Event event) {
+                    thread = Thread.currentThread();
+                    sending.countDown();
+                    if (release != null) {
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    if (event.getRealmId().equals(failRealm)) {
+                        throw new RuntimeException("Expected failure");
+                    }
+                    events.add(event);
+                }
+
+                @Override
+                public void onEvent(AdminEvent event, boolean includeRepresentation) {
+                    adminEvents.add(event);
+                }
+
+                @Override
+                public void close() {
+                    closedProviders++;
+                }
+            };
+        }
+
+        @Override
+        public void init(Config.Scope config) {
+        }
+
+        @Override
+        public void postInit(KeycloakSessionFactory factory) {
+            postInit = true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+    }
+
+    private static class TestScope implements Config.Scope {
+
+        private final boolean async;
+
+        private TestScope(boolean async) {
+            this.async = async;
+        }
+
+        @Override
+        public String get(String key) {
+            return null;
+        }
+
+        @Override
+        public String get(String key, String defaultValue) {
+            return defaultValue;
+        }
+
+        @Override
+        public String[] getArray(String key) {
+            return null;
+        }
+
+        @Override
+        public Integer getInt(String key) {
+            return null;
+        }
+
+        @Override
+        public Integer getInt(String key, Integer defaultValue) {
+            return defaultValue;
+        }
+
+        @Override
+        public Long getLong(String key) {
+            return null;
+        }
+
+        @Override
+        public Long getLong(String key, Long defaultValue) {
+            return defaultValue;
+        }
+
+        @Override
+        public Boolean getBoolean(String key) {
+            return "async".equals(key) ? async : null;
+        }
+
+        @Override
+        public Boolean getBoolean(String key, Boolean defaultValue) {
+            return "async".equals(key) ? async : defaultValue;
+        }
+
+        @Override
+        public Config.Scope scope(String... scope) {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,170 @@
+package org.keycloak.events;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.models.KeycloakSession;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncEventWriterTest {
+
+    private TestSessionFactory sessionFactory = new TestSessionFactory();
+    private AsyncEventWriter writer;
+
+    @After
+    public void after() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    public void writeQueuedEventsOnStop() {
+        final List<Event> written = Collections.synchronizedList(new ArrayList<Event>());
+        writer = new AsyncEventWriter("test", new AsyncEventWriter.BatchWriter() {
+            @Override
+            public void write(KeycloakSession session, List<Event> events) {
+                Assert.assertNotNull(session);
+                Assert.assertTrue(events.size() <= 10);
+                written.addAll(events);
+            }
+        }, 100, 10, AsyncEventWriter.OverflowPolicy.DROP, 0);
+        writer.start(sessionFactory);
+
+        for (int i = 0; i < 50; i++) {
+            Assert.assertTrue(writer.add(TestSessionFactory.event("realm-" + i, i)));
+        }
+        writer.stop();
+
+        Assert.assertEquals(50, written.size());
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals("realm-" + i, written.get(i).getRealmId());
+        }
+        Assert.assertEquals(50, writer.getWritten());
+        Assert.assertEquals(0, writer.getQueued());
+        Assert.assertEquals(0, writer.getDropped());
+        Assert.assertEquals(0, writer.getFailed());
+
+        // Every batch in its own transaction
+        Assert.assertTrue(sessionFactory.committed.get() >= 5);
+        Assert.assertEquals(sessionFactory.committed.get(), sessionFactory.closed.get());
+    }
+
+    @Test
+    public void queuedEventIsCopy() {
+        final List<Event> written = Collections.synchronizedList(new ArrayList<Event>());
+        writer = new AsyncEventWriter("test", new AsyncEventWriter.BatchWriter() {
+            @Override
+            public void write(KeycloakSession session, List<Event> events) {
+                written.addAll(events);
+            }
+        }, 10, 10, AsyncEventWriter.OverflowPolicy.DROP, 0);
+        writer.start(sessionFactory);
+
+        Event event = TestSessionFactory.event("realm", 1);
+        writer.add(event);
+        event.setRealmId("changed");
+        writer.stop();
+
+        Assert.assertEquals(1, written.size());
+        Assert.assertEquals("realm", written.get(0).getRealmId());
+    }
+
+    @Test
+    public void dropWhenQueueIsFull() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        writer = new AsyncEventWriter("test", new AsyncEventWriter.BatchWriter() {
+            @Override
+            public void write(KeycloakSession session, List<Event> events) {
+                writing.countDown();
+                await(release);
+            }
+        }, 2, 1, AsyncEventWriter.OverflowPolicy.DROP, 0);
+        writer.start(sessionFactory);
+
+        // First event is taken by the blocked writer thread, next two fill the queue
+        Assert.assertTrue(writer.add(TestSessionFactory.event("realm", System.currentTimeMillis())));
+        Assert.assertTrue(writing.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(writer.add(TestSessionFactory.event("realm", System.currentTimeMillis() - 1000)));
+        Assert.assertTrue(writer.add(TestSessionFactory.event("realm", System.currentTimeMillis())));
+
+        Assert.assertFalse(writer.add(TestSessionFactory.event("realm", System.currentTimeMillis())));
+        Assert.assertFalse(writer.add(TestSessionFactory.event("realm", System.currentTimeMillis())));
+
+        Assert.assertEquals(2, writer.getQueued());
+        Assert.assertEquals(2, writer.getDropped());
+        Assert.assertTrue(writer.getLag() >= 1000);
+        Assert.assertEquals("2", writer.getOperationalInfo().get("dropped"));
+
+        release.countDown();
+        writer.stop();
+
+        Assert.assertEquals(3, writer.getWritten());
+        Assert.assertEquals(0, writer.getQueued());
+        Assert.assertEquals(0, writer.getLag());
+    }
+
+    @Test
+    public void blockUntilTimeoutWhenQueueIsFull() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        writer = new AsyncEventWriter("test", new AsyncEventWriter.BatchWriter() {
+            @Override
+            public void write(KeycloakSession session, List<Event> events) {
+                writing.countDown();
+                await(release);
+            }
+        }, 1, 1, AsyncEventWriter.OverflowPolicy.BLOCK, 100);
+        writer.start(sessionFactory);
+
+        Assert.assertTrue(writer.add(TestSessionFactory.event("realm", System.currentTimeMillis())));
+        Assert.assertTrue(writing.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(writer.add(TestSessionFactory.event("realm", System.currentTimeMillis())));
+
+        long start = System.currentTimeMillis();
+        Assert.assertFalse(writer.add(TestSessionFactory.event("realm", System.currentTimeMillis())));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 90);
+        Assert.assertEquals(1, writer.getDropped());
+
+        release.countDown();
+        writer.stop();
+        Assert.assertEquals(2, writer.getWritten());
+    }
+
+    @Test
+    public void countFailedBatches() {
+        writer = new AsyncEventWriter("test", new AsyncEventWriter.BatchWriter() {
+            @Override
+            public void write(KeycloakSession session, List<Event> events) {
+                if ("fail".equals(events.get(0).getRealmId())) {
+                    throw new RuntimeException("Expected failure");
+                }
+            }
+        }, 10, 1, AsyncEventWriter.OverflowPolicy.DROP, 0);
+        writer.start(sessionFactory);
+
+        writer.add(TestSessionFactory.event("fail", 1));
+        writer.add(TestSessionFactory.event("realm", 2));
+        writer.stop();
+
+        Assert.assertEquals(1, writer.getFailed());
+        Assert.assertEquals(1, writer.getWritten());
+        Assert.assertEquals(1, sessionFactory.rolledBack.get());
+        Assert.assertEquals(2, sessionFactory.closed.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
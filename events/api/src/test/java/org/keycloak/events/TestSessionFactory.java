@@ -0,0 +1,111 @@
+package org.keycloak.events;
+
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakTransactionManager;
+import org.keycloak.provider.Provider;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.provider.ProviderEventListener;
+import org.keycloak.provider.ProviderFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Session factory for tests of the asynchronous event classes. Sessions support just transactions and close, other
+ * methods return null.
+ */
+class TestSessionFactory implements KeycloakSessionFactory {
+
+    final AtomicInteger committed = new AtomicInteger();
+    final AtomicInteger rolledBack = new AtomicInteger();
+    final AtomicInteger closed = new AtomicInteger();
+
+    @Override
+    public KeycloakSession create() {
+        final KeycloakTransactionManager tx = (KeycloakTransactionManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { KeycloakTransactionManager.class }, new InvocationHandler() {
+            private boolean active;
+            private boolean rollbackOnly;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("begin")) {
+                    active = true;
+                } else if (name.equals("commit")) {
+                    active = false;
+                    committed.incrementAndGet();
+                } else if (name.equals("rollback")) {
+                    active = false;
+                    rolledBack.incrementAndGet();
+                } else if (name.equals("setRollbackOnly")) {
+                    rollbackOnly = true;
+                } else if (name.equals("getRollbackOnly")) {
+                    return rollbackOnly;
+                } else if (name.equals("isActive")) {
+                    return active;
+                }
+                return null;
+            }
+        });
+
+        return (KeycloakSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { KeycloakSession.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getTransaction")) {
+                    return tx;
+                } else if (name.equals("close")) {
+                    closed.incrementAndGet();
+                } else if (name.equals("getKeycloakSessionFactory")) {
+                    return TestSessionFactory.this;
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public <T extends Provider> ProviderFactory<T> getProviderFactory(Class<T> clazz) {
+        return null;
+    }
+
+    @Override
+    public <T extends Provider> ProviderFactory<T> getProviderFactory(Class<T> clazz, String id) {
+        return null;
+    }
+
+    @Override
+    public List<ProviderFactory> getProviderFactories(Class<? extends Provider> clazz) {
+        return null;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void register(ProviderEventListener listener) {
+    }
+
+    @Override
+    public void unregister(ProviderEventListener listener) {
+    }
+
+    @Override
+    public void publish(ProviderEvent event) {
+    }
+
+    static Event event(String realmId, long time) {
+        Event event = new Event();
+        event.setType(EventType.LOGIN);
+        event.setRealmId(realmId);
+        event.setTime(time);
+        return event;
+    }
+
+}
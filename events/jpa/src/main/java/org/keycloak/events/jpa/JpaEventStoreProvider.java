@@ -3,6 +3,7 @@ package org.keycloak.events.jpa;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.type.TypeReference;
 import org.jboss.logging.Logger;
+import org.keycloak.events.AsyncEventWriter;
 import org.keycloak.events.admin.AdminEvent;
 import org.keycloak.events.admin.AdminEventQuery;
 import org.keycloak.events.admin.AuthDetails;
@@ -15,6 +16,7 @@ import org.keycloak.events.EventType;
 import javax.persistence.EntityManager;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -28,10 +30,18 @@ public class JpaEventStoreProvider implements EventStoreProvider {
     };
     private static final Logger logger = Logger.getLogger(JpaEventStoreProvider.class);
 
+    private static final int MAX_IN_ELEMENTS = 1000;
+
     private EntityManager em;
+    private AsyncEventWriter asyncWriter;
 
     public JpaEventStoreProvider(EntityManager em) {
+        this(em, null);
+    }
+
+    public JpaEventStoreProvider(EntityManager em, AsyncEventWriter asyncWriter) {
         this.em = em;
+        this.asyncWriter = asyncWriter;
     }
 
     @Override
@@ -54,9 +64,29 @@ public class JpaEventStoreProvider implements EventStoreProvider {
         em.createQuery("delete from EventEntity where realmId = :realmId and time < :time").setParameter("realmId", realmId).setParameter("time", olderThan).executeUpdate();
     }
 
+    @Override
+    public int clear(String realmId, long olderThan, int maxResults) {
+        List<String> ids = em.createQuery("select e.id from EventEntity e where e.realmId = :realmId and e.time < :time", String.class)
+                .setParameter("realmId", realmId).setParameter("time", olderThan)
+                .setMaxResults(maxResults)
+                .getResultList();
+
+        // Oracle doesn't allow more than 1000 elements in an IN list
+        int removed = 0;
+        for (int i = 0; i < ids.size(); i += MAX_IN_ELEMENTS) {
+            List<String> slice = ids.subList(i, Math.min(i + MAX_IN_ELEMENTS, ids.size()));
+            removed += em.createQuery("delete from EventEntity where id in :ids").setParameter("ids", slice).executeUpdate();
+        }
+        return removed;
+    }
+
     @Override
     public void onEvent(Event event) {
-        em.persist(convertEvent(event));
+        if (asyncWriter != null) {
+            asyncWriter.add(event);
+        } else {
+            em.persist(convertEvent(event));
+        }
     }
 
     @Override
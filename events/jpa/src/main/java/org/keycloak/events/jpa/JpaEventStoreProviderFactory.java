@@ -2,39 +2,71 @@ package org.keycloak.events.jpa;
 
 import org.keycloak.Config;
 import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.events.AsyncEventWriter;
+import org.keycloak.events.Event;
 import org.keycloak.events.EventStoreProvider;
 import org.keycloak.events.EventStoreProviderFactory;
 import org.keycloak.events.EventType;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
 
+import javax.persistence.EntityManager;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
-public class JpaEventStoreProviderFactory implements EventStoreProviderFactory {
+public class JpaEventStoreProviderFactory implements EventStoreProviderFactory, ServerInfoAwareProviderFactory {
 
     public static final String ID = "jpa";
 
+    private AsyncEventWriter asyncWriter;
+
     @Override
     public EventStoreProvider create(KeycloakSession session) {
         JpaConnectionProvider connection = session.getProvider(JpaConnectionProvider.class);
-        return new JpaEventStoreProvider(connection.getEntityManager());
+        return new JpaEventStoreProvider(connection.getEntityManager(), asyncWriter);
     }
 
     @Override
     public void init(Config.Scope config) {
+        asyncWriter = AsyncEventWriter.create(ID, config, new AsyncEventWriter.BatchWriter() {
+            @Override
+            public void write(KeycloakSession session, List<Event> events) {
+                EntityManager em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
+                // Inserts are sent in JDBC batches, if enabled for the connection
+                for (Event event : events) {
+                    em.persist(JpaEventStoreProvider.convertEvent(event));
+                }
+            }
+        });
     }
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
-
+        if (asyncWriter != null) {
+            asyncWriter.start(factory);
+        }
     }
 
     @Override
     public void close() {
+        if (asyncWriter != null) {
+            asyncWriter.stop();
+        }
+    }
+
+    public AsyncEventWriter getAsyncWriter() {
+        return asyncWriter;
+    }
+
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        return asyncWriter != null ? asyncWriter.getOperationalInfo() : null;
     }
 
     @Override
@@ -2,8 +2,10 @@ package org.keycloak.events.mongo;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 
+import org.keycloak.events.AsyncEventWriter;
 import org.keycloak.events.admin.AdminEvent;
 import org.keycloak.events.admin.AdminEventQuery;
 import org.keycloak.events.admin.AuthDetails;
@@ -13,7 +15,9 @@ import org.keycloak.events.EventQuery;
 import org.keycloak.events.EventStoreProvider;
 import org.keycloak.events.EventType;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,10 +27,16 @@ public class MongoEventStoreProvider implements EventStoreProvider {
     
     private DBCollection events;
     private DBCollection adminEvents;
+    private AsyncEventWriter asyncWriter;
 
     public MongoEventStoreProvider(DBCollection events, DBCollection adminEvents) {
+        this(events, adminEvents, null);
+    }
+
+    public MongoEventStoreProvider(DBCollection events, DBCollection adminEvents, AsyncEventWriter asyncWriter) {
         this.events = events;
         this.adminEvents = adminEvents;
+        this.asyncWriter = asyncWriter;
     }
 
     @Override
@@ -52,9 +62,18 @@ public class MongoEventStoreProvider implements EventStoreProvider {
         events.remove(q);
     }
 
+    @Override
+    public int clear(String realmId, long olderThan, int maxResults) {
+        return removeOlderThan(events, realmId, olderThan, maxResults);
+    }
+
     @Override
     public void onEvent(Event event) {
-        events.insert(convertEvent(event));
+        if (asyncWriter != null) {
+            asyncWriter.add(event);
+        } else {
+            events.insert(convertEvent(event));
+        }
     }
 
     @Override
@@ -80,6 +99,27 @@ public class MongoEventStoreProvider implements EventStoreProvider {
         adminEvents.remove(q);
     }
 
+    private static int removeOlderThan(DBCollection collection, String realmId, long olderThan, int maxResults) {
+        BasicDBObject q = new BasicDBObject();
+        q.put("realmId", realmId);
+        q.put("time", new BasicDBObject("$lt", olderThan));
+
+        List<Object> ids = new ArrayList<Object>();
+        DBCursor cursor = collection.find(q, new BasicDBObject("_id", 1)).limit(maxResults);
+        try {
+            while (cursor.hasNext()) {
+                ids.add(cursor.next().get("_id"));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (!ids.isEmpty()) {
+            collection.remove(new BasicDBObject("_id", new BasicDBObject("$in", ids)));
+        }
+        return ids.size();
+    }
+
     @Override
     public void onEvent(AdminEvent adminEvent, boolean includeRepresentation) {
         adminEvents.insert(convertAdminEvent(adminEvent, includeRepresentation));
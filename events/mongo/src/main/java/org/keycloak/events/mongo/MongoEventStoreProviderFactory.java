@@ -1,24 +1,34 @@
 package org.keycloak.events.mongo;
 
 import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
 import com.mongodb.WriteConcern;
 import org.jboss.logging.Logger;
 import org.keycloak.Config;
 import org.keycloak.connections.mongo.MongoConnectionProvider;
+import org.keycloak.events.AsyncEventWriter;
+import org.keycloak.events.Event;
 import org.keycloak.events.EventStoreProvider;
 import org.keycloak.events.EventStoreProviderFactory;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
-public class MongoEventStoreProviderFactory implements EventStoreProviderFactory {
+public class MongoEventStoreProviderFactory implements EventStoreProviderFactory, ServerInfoAwareProviderFactory {
 
     protected static final Logger logger = Logger.getLogger(MongoEventStoreProviderFactory.class);
 
     public static final String ID = "mongo";
 
+    private AsyncEventWriter asyncWriter;
+
     @Override
     public EventStoreProvider create(KeycloakSession session) {
         MongoConnectionProvider connection = session.getProvider(MongoConnectionProvider.class);
@@ -29,20 +39,46 @@ public class MongoEventStoreProviderFactory implements EventStoreProviderFactory
         collection.setWriteConcern(WriteConcern.UNACKNOWLEDGED);
         adminCollection.setWriteConcern(WriteConcern.UNACKNOWLEDGED);
 
-        return new MongoEventStoreProvider(collection, adminCollection);
+        return new MongoEventStoreProvider(collection, adminCollection, asyncWriter);
     }
 
     @Override
     public void init(Config.Scope config) {
+        asyncWriter = AsyncEventWriter.create(ID, config, new AsyncEventWriter.BatchWriter() {
+            @Override
+            public void write(KeycloakSession session, List<Event> events) {
+                DBCollection collection = session.getProvider(MongoConnectionProvider.class).getDB().getCollection("events");
+
+                List<DBObject> objects = new ArrayList<DBObject>(events.size());
+                for (Event event : events) {
+                    objects.add(MongoEventStoreProvider.convertEvent(event));
+                }
+                collection.insert(objects, WriteConcern.UNACKNOWLEDGED);
+            }
+        });
     }
 
     @Override
     public void postInit(KeycloakSessionFactory factory) {
-
+        if (asyncWriter != null) {
+            asyncWriter.start(factory);
+        }
     }
 
     @Override
     public void close() {
+        if (asyncWriter != null) {
+            asyncWriter.stop();
+        }
+    }
+
+    public AsyncEventWriter getAsyncWriter() {
+        return asyncWriter;
+    }
+
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        return asyncWriter != null ? asyncWriter.getOperationalInfo() : null;
     }
 
     @Override
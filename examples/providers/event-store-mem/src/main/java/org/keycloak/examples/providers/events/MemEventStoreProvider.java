@@ -66,6 +66,22 @@ public class MemEventStoreProvider implements EventStoreProvider {
         }
     }
 
+    @Override
+    public int clear(String realmId, long olderThan, int maxResults) {
+        int removed = 0;
+        synchronized(events) {
+            Iterator<Event> itr = events.iterator();
+            while (itr.hasNext() && removed < maxResults) {
+                Event e = itr.next();
+                if (e.getRealmId().equals(realmId) && e.getTime() < olderThan) {
+                    itr.remove();
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
     @Override
     public void onEvent(Event event) {
         if (excludedEvents == null || !excludedEvents.contains(event.getType())) {
@@ -32,6 +32,14 @@ public class ExportImportConfig {
     public static final String USERS_PER_FILE = PREFIX + "usersPerFile";
     public static final Integer DEFAULT_USERS_PER_FILE = 5000;
 
+    // Number of threads exporting users files in parallel in "dir" and "zip" providers. Used if usersExportStrategy is DIFFERENT_FILES
+    public static final String USERS_EXPORT_THREADS = PREFIX + "usersExportThreads";
+    public static final Integer DEFAULT_USERS_EXPORT_THREADS = 1;
+
+    // Number of users imported in a single DB transaction by streaming import
+    public static final String USERS_PER_TRANSACTION = PREFIX + "usersPerTransaction";
+    public static final Integer DEFAULT_USERS_PER_TRANSACTION = 1000;
+
     // Strategy used during import data
     public static final String STRATEGY = PREFIX + "strategy";
     public static final Strategy DEFAULT_STRATEGY = Strategy.OVERWRITE_EXISTING;
@@ -114,6 +122,24 @@ public class ExportImportConfig {
         System.setProperty(USERS_PER_FILE, String.valueOf(usersPerFile));
     }
 
+    public static Integer getUsersExportThreads() {
+        String usersExportThreads = System.getProperty(USERS_EXPORT_THREADS, String.valueOf(DEFAULT_USERS_EXPORT_THREADS));
+        return Integer.parseInt(usersExportThreads.trim());
+    }
+
+    public static void setUsersExportThreads(Integer usersExportThreads) {
+        System.setProperty(USERS_EXPORT_THREADS, String.valueOf(usersExportThreads));
+    }
+
+    public static Integer getUsersPerTransaction() {
+        String usersPerTransaction = System.getProperty(USERS_PER_TRANSACTION, String.valueOf(DEFAULT_USERS_PER_TRANSACTION));
+        return Integer.parseInt(usersPerTransaction.trim());
+    }
+
+    public static void setUsersPerTransaction(Integer usersPerTransaction) {
+        System.setProperty(USERS_PER_TRANSACTION, String.valueOf(usersPerTransaction));
+    }
+
     public static Strategy getStrategy() {
         String strategy = System.getProperty(STRATEGY, DEFAULT_STRATEGY.toString());
         return Enum.valueOf(Strategy.class, strategy);
@@ -91,6 +91,8 @@ public class ExportUtils {
         // Scopes
         List<ClientModel> allClients = new ArrayList<>(clients);
         Map<String, List<ScopeMappingRepresentation>> clientScopeReps = new HashMap<>();
+        // Scope mappings by client which owns the roles and by client which has the scope
+        Map<String, Map<String, ScopeMappingRepresentation>> clientScopesByClient = new HashMap<>();
 
         for (ClientModel client : allClients) {
             Set<RoleModel> clientScopes = client.getScopeMappings();
@@ -105,22 +107,20 @@ public class ExportUtils {
                     ClientModel app = (ClientModel)scope.getContainer();
                     String appName = app.getClientId();
                     List<ScopeMappingRepresentation> currentAppScopes = clientScopeReps.get(appName);
+                    Map<String, ScopeMappingRepresentation> currentAppScopesByClient = clientScopesByClient.get(appName);
                     if (currentAppScopes == null) {
                         currentAppScopes = new ArrayList<>();
                         clientScopeReps.put(appName, currentAppScopes);
+                        currentAppScopesByClient = new HashMap<>();
+                        clientScopesByClient.put(appName, currentAppScopesByClient);
                     }
 
-                    ScopeMappingRepresentation currentClientScope = null;
-                    for (ScopeMappingRepresentation scopeMapping : currentAppScopes) {
-                        if (scopeMapping.getClient().equals(client.getClientId())) {
-                            currentClientScope = scopeMapping;
-                            break;
-                        }
-                    }
+                    ScopeMappingRepresentation currentClientScope = currentAppScopesByClient.get(client.getClientId());
                     if (currentClientScope == null) {
                         currentClientScope = new ScopeMappingRepresentation();
                         currentClientScope.setClient(client.getClientId());
                         currentAppScopes.add(currentClientScope);
+                        currentAppScopesByClient.put(client.getClientId(), currentClientScope);
                     }
                     currentClientScope.role(scope.getName());
                 }
@@ -1,15 +1,16 @@
 package org.keycloak.exportimport.util;
 
-import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
 import org.jboss.logging.Logger;
 import org.keycloak.Config;
 import org.keycloak.exportimport.Strategy;
 import org.keycloak.models.AdminRoles;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RealmProvider;
 import org.keycloak.models.RoleModel;
@@ -18,11 +19,13 @@ import org.keycloak.models.utils.RepresentationToModel;
 import org.keycloak.representations.idm.RealmRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.keycloak.exportimport.ExportImportConfig;
 
 /**
@@ -134,55 +137,134 @@ public class ImportUtils {
 
 
     /**
-     * Fully import realm (or more realms from particular stream)
+     * Import realms from a file (one realm or an array of realms) without reading the whole file into memory. The file is
+     * read twice. First, realms are read without their users and each realm is imported in its own transaction. Then the
+     * users of each imported realm are read again from the file and imported in transactions of
+     * {@link ExportImportConfig#getUsersPerTransaction()} users.
      *
-     * @param session
+     * @param factory
      * @param mapper
-     * @param is
+     * @param file
      * @param strategy
      * @throws IOException
      */
-    public static void importFromStream(KeycloakSession session, ObjectMapper mapper, InputStream is, Strategy strategy) throws IOException {
-        JsonFactory factory = mapper.getJsonFactory();
-        JsonParser parser = factory.createJsonParser(is);
+    public static void importFromFile(KeycloakSessionFactory factory, ObjectMapper mapper, File file, Strategy strategy) throws IOException {
+        // Positions of realms in the array, or -1 if the file contains a single realm
+        List<Integer> positions = new ArrayList<Integer>();
+        List<RealmRepresentation> realmReps = new ArrayList<RealmRepresentation>();
+
+        JsonParser parser = mapper.getJsonFactory().createJsonParser(file);
         try {
             parser.nextToken();
 
             if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
-                // Case with more realms in stream
+                // Case with more realms in file
                 parser.nextToken();
 
-                List<RealmRepresentation> realmReps = new ArrayList<RealmRepresentation>();
+                int position = 0;
                 while (parser.getCurrentToken() == JsonToken.START_OBJECT) {
-                    RealmRepresentation realmRep = parser.readValueAs(RealmRepresentation.class);
+                    RealmRepresentation realmRep = readRealmWithoutUsers(mapper, parser);
                     parser.nextToken();
 
                     // Ensure that master realm is imported first
                     if (Config.getAdminRealm().equals(realmRep.getRealm())) {
+                        positions.add(0, position);
                         realmReps.add(0, realmRep);
                     } else {
+                        positions.add(position);
                         realmReps.add(realmRep);
                     }
+                    position++;
                 }
+            } else if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+                // Case with single realm in file
+                positions.add(-1);
+                realmReps.add(readRealmWithoutUsers(mapper, parser));
+            }
+        } finally {
+            parser.close();
+        }
+
+        for (int i = 0; i < realmReps.size(); i++) {
+            RealmRepresentation realmRep = realmReps.get(i);
+            if (importRealm(factory, realmRep, strategy)) {
+                importRealmUsersFromFile(factory, mapper, file, positions.get(i), realmRep.getRealm());
+            }
+        }
+    }
+
+    /**
+     * Import realm in its own transaction. Returns false if import was skipped, because the realm exists already.
+     */
+    private static boolean importRealm(KeycloakSessionFactory factory, final RealmRepresentation rep, final Strategy strategy) {
+        final AtomicBoolean imported = new AtomicBoolean();
+        KeycloakModelUtils.runJobInTransaction(factory, new ExportImportSessionTask() {
+
+            @Override
+            protected void runExportImportTask(KeycloakSession session) throws IOException {
+                boolean exists = session.realms().getRealmByName(rep.getRealm()) != null;
+                importRealm(session, rep, strategy);
+                imported.set(!exists || strategy != Strategy.IGNORE_EXISTING);
+            }
 
-                for (RealmRepresentation realmRep : realmReps) {
-                    importRealm(session, realmRep, strategy);
+        });
+        return imported.get();
+    }
+
+    // Parser is positioned at start of realm object and is left at its end
+    private static RealmRepresentation readRealmWithoutUsers(ObjectMapper mapper, JsonParser parser) throws IOException {
+        ObjectNode realmNode = mapper.createObjectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("users".equals(field)) {
+                parser.skipChildren();
+            } else {
+                realmNode.put(field, parser.readValueAsTree());
+            }
+        }
+        return mapper.readValue(realmNode, RealmRepresentation.class);
+    }
+
+    private static void importRealmUsersFromFile(KeycloakSessionFactory factory, ObjectMapper mapper, File file, int position, String realmName) throws IOException {
+        JsonParser parser = mapper.getJsonFactory().createJsonParser(file);
+        try {
+            parser.nextToken();
+
+            if (position >= 0) {
+                // Skip realms before the one we want
+                parser.nextToken();
+                for (int i = 0; i < position; i++) {
+                    parser.skipChildren();
+                    parser.nextToken();
+                }
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("users".equals(field) && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                    importUsersInTransactions(factory, realmName, parser);
+                } else {
+                    parser.skipChildren();
                 }
-            } else if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
-                // Case with single realm in stream
-                RealmRepresentation realmRep = parser.readValueAs(RealmRepresentation.class);
-                importRealm(session, realmRep, strategy);
             }
         } finally {
             parser.close();
         }
     }
 
-    // Assuming that it's invoked inside transaction
-    public static void importUsersFromStream(KeycloakSession session, String realmName, ObjectMapper mapper, InputStream is) throws IOException {
-        RealmProvider model = session.realms();
-        JsonFactory factory = mapper.getJsonFactory();
-        JsonParser parser = factory.createJsonParser(is);
+    /**
+     * Import users from stream in transactions of {@link ExportImportConfig#getUsersPerTransaction()} users.
+     *
+     * @param factory
+     * @param realmName
+     * @param mapper
+     * @param is
+     * @throws IOException
+     */
+    public static void importUsersFromStream(KeycloakSessionFactory factory, String realmName, ObjectMapper mapper, InputStream is) throws IOException {
+        JsonParser parser = mapper.getJsonFactory().createJsonParser(is);
         try {
             parser.nextToken();
 
@@ -195,24 +277,14 @@ public class ImportUtils {
                     }
                 } else if ("users".equals(parser.getText())) {
                     parser.nextToken();
-
                     if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
-                        parser.nextToken();
-                    }
-
-                    // TODO: support for more transactions per single users file (if needed)
-                    List<UserRepresentation> userReps = new ArrayList<UserRepresentation>();
-                    while (parser.getCurrentToken() == JsonToken.START_OBJECT) {
-                        UserRepresentation user = parser.readValueAs(UserRepresentation.class);
-                        userReps.add(user);
-                        parser.nextToken();
-                    }
-
-                    importUsers(session, model, realmName, userReps);
-
-                    if (parser.getCurrentToken() == JsonToken.END_ARRAY) {
-                        parser.nextToken();
+                        importUsersInTransactions(factory, realmName, parser);
+                    } else {
+                        parser.skipChildren();
                     }
+                } else {
+                    parser.nextToken();
+                    parser.skipChildren();
                 }
             }
         } finally {
@@ -220,12 +292,47 @@ public class ImportUtils {
         }
     }
 
+    // Parser is positioned at start of users array and is left at its end
+    private static void importUsersInTransactions(KeycloakSessionFactory factory, String realmName, JsonParser parser) throws IOException {
+        int usersPerTransaction = ExportImportConfig.getUsersPerTransaction();
+        int count = 0;
+
+        List<UserRepresentation> userReps = new ArrayList<UserRepresentation>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            userReps.add(parser.readValueAs(UserRepresentation.class));
+            if (userReps.size() >= usersPerTransaction) {
+                importUsers(factory, realmName, userReps);
+                count += userReps.size();
+                userReps = new ArrayList<UserRepresentation>();
+                logger.debugf("Imported %d users of realm '%s'", count, realmName);
+            }
+        }
+
+        if (!userReps.isEmpty()) {
+            importUsers(factory, realmName, userReps);
+            count += userReps.size();
+        }
+
+        if (count > 0 && System.getProperty(ExportImportConfig.ACTION) != null) {
+            logger.infof("Imported %d users of realm '%s'", count, realmName);
+        }
+    }
+
+    private static void importUsers(KeycloakSessionFactory factory, final String realmName, final List<UserRepresentation> userReps) {
+        KeycloakModelUtils.runJobInTransaction(factory, new ExportImportSessionTask() {
+
+            @Override
+            protected void runExportImportTask(KeycloakSession session) throws IOException {
+                importUsers(session, session.realms(), realmName, userReps);
+            }
+
+        });
+    }
+
     private static void importUsers(KeycloakSession session, RealmProvider model, String realmName, List<UserRepresentation> userReps) {
         RealmModel realm = model.getRealmByName(realmName);
         Map<String, ClientModel> apps = realm.getClientNameMap();
-        for (UserRepresentation user : userReps) {
-            RepresentationToModel.createUser(session, realm, user, apps);
-        }
+        RepresentationToModel.createUsers(session, realm, userReps, apps);
     }
 
 }
@@ -14,7 +14,15 @@ import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.representations.idm.RealmRepresentation;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
@@ -74,38 +82,129 @@ public abstract class MultipleStepsExportProvider implements ExportProvider {
         });
 
         if (usersExportStrategy != UsersExportStrategy.SKIP && !exportUsersIntoRealmFile) {
-            // We need to export users now
-            usersHolder.currentPageStart = 0;
-
             // usersExportStrategy==SAME_FILE  means exporting all users into single file (but separate to realm)
             final int countPerPage = (usersExportStrategy == UsersExportStrategy.SAME_FILE) ? usersHolder.totalCount : usersPerFile;
-
-            while (usersHolder.currentPageStart < usersHolder.totalCount) {
-                if (usersHolder.currentPageStart + countPerPage < usersHolder.totalCount) {
-                    usersHolder.currentPageEnd = usersHolder.currentPageStart + countPerPage;
-                } else {
-                    usersHolder.currentPageEnd = usersHolder.totalCount;
+            int threads = ExportImportConfig.getUsersExportThreads();
+
+            if (threads > 1 && usersHolder.totalCount > countPerPage) {
+                exportUsersParallel(factory, realmName, usersHolder.totalCount, countPerPage, threads);
+            } else {
+                final AtomicInteger exported = new AtomicInteger();
+                String lastUsername = null;
+                for (int first = 0; first < usersHolder.totalCount; first += countPerPage) {
+                    lastUsername = exportUsersPage(factory, realmName, first, lastUsername, countPerPage, usersHolder.totalCount, exported);
+                    if (lastUsername == null) break;
                 }
+            }
+        }
+    }
 
-                KeycloakModelUtils.runJobInTransaction(factory, new ExportImportSessionTask() {
+    /**
+     * Exports pages of users from several threads. Every page is exported in its own transaction and written into its
+     * own file, so pages don't depend on each other and can finish in any order. Pages start after the last username of
+     * the previous page, which is looked up by {@link org.keycloak.models.UserProvider#getUsernameAfter} while the
+     * previous page is being exported.
+     */
+    protected void exportUsersParallel(final KeycloakSessionFactory factory, final String realmName, final int totalCount, final int countPerPage, int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
 
-                    @Override
-                    protected void runExportImportTask(KeycloakSession session) throws IOException {
-                        RealmModel realm = session.realms().getRealmByName(realmName);
-                        usersHolder.users = session.users().getUsers(realm, usersHolder.currentPageStart, usersHolder.currentPageEnd - usersHolder.currentPageStart);
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "export-" + realmName + "-users-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        logger.infof("Exporting %d users of realm '%s' with %d threads", totalCount, realmName, threads);
 
-                        writeUsers(realmName + "-users-" + (usersHolder.currentPageStart / countPerPage) + ".json", session, realm, usersHolder.users);
+        try {
+            final AtomicInteger exported = new AtomicInteger();
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            String lastUsername = null;
+            for (int first = 0; first < totalCount; first += countPerPage) {
+                final int pageStart = first;
+                final String pageAfter = lastUsername;
+                futures.add(executor.submit(new Callable<Void>() {
 
-                        logger.info("Users " + usersHolder.currentPageStart + "-" + (usersHolder.currentPageEnd -1) + " exported");
+                    @Override
+                    public Void call() throws Exception {
+                        exportUsersPage(factory, realmName, pageStart, pageAfter, countPerPage, totalCount, exported);
+                        return null;
                     }
 
-                });
+                }));
+
+                lastUsername = findLastUsername(factory, realmName, lastUsername, countPerPage);
+                if (lastUsername == null) break;
+            }
 
-                usersHolder.currentPageStart = usersHolder.currentPageEnd;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ee) {
+                    // Don't start pages which are still waiting, the export failed anyway
+                    for (Future<Void> f : futures) {
+                        f.cancel(false);
+                    }
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new RuntimeException("Failed to export users of realm '" + realmName + "'", cause);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while exporting users of realm '" + realmName + "'", ie);
+                }
             }
+        } finally {
+            executor.shutdownNow();
         }
     }
 
+    /**
+     * Users are read from the user storage, like they're written there by the import. Federation providers would only
+     * validate every exported user, and page boundaries are positions in the user storage anyway.
+     *
+     * @param first index of the first user of the page, used for the file name and logging
+     * @param lastUsername username of the last user of the previous page, or null for the first page
+     * @return username of the last exported user, or null if there were no more users
+     */
+    protected String exportUsersPage(KeycloakSessionFactory factory, final String realmName, final int first, final String lastUsername, final int countPerPage, final int totalCount, final AtomicInteger exported) {
+        final String[] pageEnd = new String[1];
+        KeycloakModelUtils.runJobInTransaction(factory, new ExportImportSessionTask() {
+
+            @Override
+            protected void runExportImportTask(KeycloakSession session) throws IOException {
+                RealmModel realm = session.realms().getRealmByName(realmName);
+                List<UserModel> users = session.userStorage().getUsersAfter(realm, lastUsername, countPerPage);
+                if (users.isEmpty()) return;
+
+                writeUsers(realmName + "-users-" + (first / countPerPage) + ".json", session, realm, users);
+                pageEnd[0] = users.get(users.size() - 1).getUsername();
+
+                int done = exported.addAndGet(users.size());
+                logger.info("Users " + first + "-" + (first + users.size() - 1) + " exported (" + done + " of " + totalCount + ")");
+            }
+
+        });
+        return pageEnd[0];
+    }
+
+    private String findLastUsername(KeycloakSessionFactory factory, final String realmName, final String lastUsername, final int countPerPage) {
+        final String[] pageEnd = new String[1];
+        KeycloakModelUtils.runJobInTransaction(factory, new KeycloakSessionTask() {
+
+            @Override
+            public void run(KeycloakSession session) {
+                RealmModel realm = session.realms().getRealmByName(realmName);
+                pageEnd[0] = session.userStorage().getUsernameAfter(realm, lastUsername, countPerPage);
+            }
+
+        });
+        return pageEnd[0];
+    }
+
     protected abstract void writeRealm(String fileName, RealmRepresentation rep) throws IOException;
 
     protected abstract void writeUsers(String fileName, KeycloakSession session, RealmModel realm, List<UserModel> users) throws IOException;
@@ -118,9 +217,6 @@ public abstract class MultipleStepsExportProvider implements ExportProvider {
     }
 
     public static class UsersHolder {
-        List<UserModel> users;
         int totalCount;
-        int currentPageStart;
-        int currentPageEnd;
     }
 }
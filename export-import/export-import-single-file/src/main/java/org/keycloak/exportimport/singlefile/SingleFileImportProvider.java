@@ -3,15 +3,11 @@ package org.keycloak.exportimport.singlefile;
 import org.jboss.logging.Logger;
 import org.keycloak.exportimport.ImportProvider;
 import org.keycloak.exportimport.Strategy;
-import org.keycloak.exportimport.util.ExportImportSessionTask;
 import org.keycloak.exportimport.util.ImportUtils;
-import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
-import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.util.JsonSerialization;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 
 /**
@@ -28,17 +24,9 @@ public class SingleFileImportProvider implements ImportProvider {
     }
 
     @Override
-    public void importModel(KeycloakSessionFactory factory, final Strategy strategy) throws IOException {
+    public void importModel(KeycloakSessionFactory factory, Strategy strategy) throws IOException {
         logger.infof("Full importing from file %s", this.file.getAbsolutePath());
-        KeycloakModelUtils.runJobInTransaction(factory, new ExportImportSessionTask() {
-
-            @Override
-            protected void runExportImportTask(KeycloakSession session) throws IOException {
-                FileInputStream is = new FileInputStream(file);
-                ImportUtils.importFromStream(session, JsonSerialization.mapper, is, strategy);
-            }
-
-        });
+        ImportUtils.importFromFile(factory, JsonSerialization.mapper, file, strategy);
     }
 
     @Override
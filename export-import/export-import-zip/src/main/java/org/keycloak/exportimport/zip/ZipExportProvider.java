@@ -65,7 +65,8 @@ public class ZipExportProvider extends MultipleStepsExportProvider {
         writeStream(fileName, stream);
     }
 
-    private void writeStream(String fileName, ByteArrayOutputStream stream) throws IOException {
+    // Users files may be exported from several threads, but entries must be added to the zip one at a time
+    private synchronized void writeStream(String fileName, ByteArrayOutputStream stream) throws IOException {
         byte[] byteArray = stream.toByteArray();
         ByteArrayInputStream bis = new ByteArrayInputStream(byteArray);
         this.encrypter.add(fileName, bis, this.password);
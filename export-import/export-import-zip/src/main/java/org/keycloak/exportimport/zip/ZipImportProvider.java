@@ -97,15 +97,8 @@ public class ZipImportProvider implements ImportProvider {
                 if (name.matches(realmName + "-users-[0-9]+\\.json")) {
                     bos = new ByteArrayOutputStream();
                     this.decrypter.extractEntry(entry, bos, this.password);
-                    final ByteArrayInputStream bis2 = new ByteArrayInputStream(bos.toByteArray());
-
-                    KeycloakModelUtils.runJobInTransaction(factory, new ExportImportSessionTask() {
-
-                        @Override
-                        protected void runExportImportTask(KeycloakSession session) throws IOException {
-                            ImportUtils.importUsersFromStream(session, realmName, JsonSerialization.mapper, bis2);
-                        }
-                    });
+                    ByteArrayInputStream bis2 = new ByteArrayInputStream(bos.toByteArray());
+                    ImportUtils.importUsersFromStream(factory, realmName, JsonSerialization.mapper, bis2);
                 }
             }
         } catch (DataFormatException dfe) {
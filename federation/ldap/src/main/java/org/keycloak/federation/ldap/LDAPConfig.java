@@ -86,6 +86,31 @@ public class LDAPConfig {
         return config.get(LDAPConstants.CONNECTION_POOLING);
     }
 
+    public boolean isConnectionPooling() {
+        String connectionPooling = getConnectionPooling();
+        return connectionPooling==null ? false : Boolean.parseBoolean(connectionPooling);
+    }
+
+    public int getConnectionPoolingMinSize() {
+        String minSize = config.get(LDAPConstants.CONNECTION_POOLING_MIN_SIZE);
+        return (minSize==null || minSize.isEmpty()) ? LDAPConstants.DEFAULT_CONNECTION_POOLING_MIN_SIZE : Integer.parseInt(minSize);
+    }
+
+    public int getConnectionPoolingMaxSize() {
+        String maxSize = config.get(LDAPConstants.CONNECTION_POOLING_MAX_SIZE);
+        return (maxSize==null || maxSize.isEmpty()) ? LDAPConstants.DEFAULT_CONNECTION_POOLING_MAX_SIZE : Integer.parseInt(maxSize);
+    }
+
+    public long getConnectionPoolingIdleTimeout() {
+        String idleTimeout = config.get(LDAPConstants.CONNECTION_POOLING_IDLE_TIMEOUT);
+        return (idleTimeout==null || idleTimeout.isEmpty()) ? LDAPConstants.DEFAULT_CONNECTION_POOLING_IDLE_TIMEOUT : Long.parseLong(idleTimeout);
+    }
+
+    public boolean isConnectionPoolingValidate() {
+        String validate = config.get(LDAPConstants.CONNECTION_POOLING_VALIDATE);
+        return validate==null ? true : Boolean.parseBoolean(validate);
+    }
+
     public Properties getAdditionalConnectionProperties() {
         // not supported for now
         return null;
@@ -20,6 +20,7 @@ import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.KeycloakSessionTask;
 import org.keycloak.models.LDAPConstants;
+import org.keycloak.models.ModelException;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserFederationEventAwareProviderFactory;
 import org.keycloak.models.UserFederationMapperModel;
@@ -28,18 +29,29 @@ import org.keycloak.models.UserFederationProviderModel;
 import org.keycloak.models.UserFederationSyncResult;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
 
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class LDAPFederationProviderFactory extends UserFederationEventAwareProviderFactory {
+public class LDAPFederationProviderFactory extends UserFederationEventAwareProviderFactory implements ServerInfoAwareProviderFactory {
     private static final Logger logger = Logger.getLogger(LDAPFederationProviderFactory.class);
     public static final String PROVIDER_NAME = "ldap";
 
@@ -63,6 +75,9 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
 
     @Override
     public void close() {
+        if (this.ldapStoreRegistry != null) {
+            this.ldapStoreRegistry.close();
+        }
         this.ldapStoreRegistry = null;
     }
 
@@ -76,6 +91,12 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
         return Collections.emptySet();
     }
 
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        LDAPIdentityStoreRegistry registry = this.ldapStoreRegistry;
+        return registry != null ? registry.getOperationalInfo() : null;
+    }
+
 
     // Best effort to create appropriate mappers according to our LDAP config
     @Override
@@ -203,6 +224,7 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
     protected UserFederationSyncResult syncImpl(KeycloakSessionFactory sessionFactory, LDAPIdentityQuery userQuery, final String realmId, final UserFederationProviderModel fedModel) {
 
         final UserFederationSyncResult syncResult = new UserFederationSyncResult();
+        long start = System.currentTimeMillis();
 
         boolean pagination = Boolean.parseBoolean(fedModel.getConfig().get(LDAPConstants.PAGINATION));
         if (pagination) {
@@ -210,22 +232,10 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
             String pageSizeConfig = fedModel.getConfig().get(LDAPConstants.BATCH_SIZE_FOR_SYNC);
             int pageSize = pageSizeConfig!=null ? Integer.parseInt(pageSizeConfig) : LDAPConstants.DEFAULT_BATCH_SIZE_FOR_SYNC;
 
-            boolean nextPage = true;
-            while (nextPage) {
-                userQuery.setLimit(pageSize);
-                final List<LDAPObject> users = userQuery.getResultList();
-                nextPage = userQuery.getPaginationContext() != null;
-
-                KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
-
-                    @Override
-                    public void run(KeycloakSession session) {
-                        UserFederationSyncResult currentPageSync = importLdapUsers(session, realmId, fedModel, users);
-                        syncResult.add(currentPageSync);
-                    }
+            String workersConfig = fedModel.getConfig().get(LDAPConstants.SYNC_IMPORT_WORKERS);
+            int workers = (workersConfig!=null && !workersConfig.isEmpty()) ? Integer.parseInt(workersConfig) : LDAPConstants.DEFAULT_SYNC_IMPORT_WORKERS;
 
-                });
-            }
+            syncPipelined(sessionFactory, userQuery, realmId, fedModel, pageSize, Math.max(1, workers), syncResult, start);
         } else {
             // LDAP pagination not available. Do everything in single transaction
             final List<LDAPObject> users = userQuery.getResultList();
@@ -234,15 +244,133 @@ public class LDAPFederationProviderFactory extends UserFederationEventAwareProvi
                 @Override
                 public void run(KeycloakSession session) {
                     UserFederationSyncResult currentSync = importLdapUsers(session, realmId, fedModel, users);
+                    currentSync.setFetched(users.size());
+                    currentSync.setBatches(1);
                     syncResult.add(currentSync);
                 }
 
             });
         }
 
+        syncResult.setDurationMillis(System.currentTimeMillis() - start);
         return syncResult;
     }
 
+    /**
+     * Fetches pages of users from LDAP in the calling thread and imports them on a pool of import workers, each page in
+     * its own transaction. Next pages are fetched while previous ones are imported, but at most 2 pages per worker are
+     * waiting for import. When import of a page fails, no more pages are fetched and the failure is rethrown.
+     */
+    protected void syncPipelined(final KeycloakSessionFactory sessionFactory, LDAPIdentityQuery userQuery, final String realmId, final UserFederationProviderModel fedModel,
+                                 int pageSize, int workers, final UserFederationSyncResult syncResult, final long start) {
+        final Semaphore pendingPages = new Semaphore(workers * 2);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Future<?>> imports = new LinkedList<Future<?>>();
+
+        ExecutorService importers = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ldap-sync-" + fedModel.getDisplayName() + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            boolean nextPage = true;
+            while (nextPage && failure.get() == null) {
+                final List<LDAPObject> users;
+                try {
+                    acquire(pendingPages);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    break;
+                }
+
+                try {
+                    userQuery.setLimit(pageSize);
+                    users = userQuery.getResultList();
+                } catch (RuntimeException e) {
+                    pendingPages.release();
+                    failure.compareAndSet(null, e);
+                    break;
+                }
+                nextPage = userQuery.getPaginationContext() != null;
+
+                imports.add(importers.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            if (failure.get() != null) {
+                                return;
+                            }
+
+                            final UserFederationSyncResult currentPageSync = new UserFederationSyncResult();
+                            KeycloakModelUtils.runJobInTransaction(sessionFactory, new KeycloakSessionTask() {
+
+                                @Override
+                                public void run(KeycloakSession session) {
+                                    currentPageSync.add(importLdapUsers(session, realmId, fedModel, users));
+                                }
+
+                            });
+                            currentPageSync.setFetched(users.size());
+                            currentPageSync.setBatches(1);
+
+                            // Count the page just once its transaction is committed
+                            synchronized (syncResult) {
+                                syncResult.add(currentPageSync);
+                                syncResult.setDurationMillis(System.currentTimeMillis() - start);
+                                logger.debugf("Sync progress of federation provider %s: %s", fedModel.getDisplayName(), syncResult.getStatus());
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            pendingPages.release();
+                        }
+                    }
+
+                }));
+            }
+
+            // Wait for pages already fetched, so no transaction is running once the sync returns
+            for (Future<?> f : imports) {
+                try {
+                    f.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure.compareAndSet(null, new ModelException("Interrupted while waiting for import of LDAP users", e));
+                    break;
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                }
+            }
+        } finally {
+            importers.shutdown();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new ModelException("Failed to import users from LDAP", t);
+        }
+    }
+
+    private static void acquire(Semaphore semaphore) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModelException("Interrupted while waiting for import of LDAP users", e);
+        }
+    }
+
     private LDAPIdentityQuery createQuery(KeycloakSessionFactory sessionFactory, final String realmId, final UserFederationProviderModel model) {
         class QueryHolder {
             LDAPIdentityQuery query;
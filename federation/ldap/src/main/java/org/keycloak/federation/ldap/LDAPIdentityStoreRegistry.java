@@ -2,9 +2,11 @@ package org.keycloak.federation.ldap;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.logging.Logger;
+import org.keycloak.federation.ldap.idm.store.ldap.LDAPContextPool;
 import org.keycloak.federation.ldap.idm.store.ldap.LDAPIdentityStore;
 import org.keycloak.models.LDAPConstants;
 import org.keycloak.models.UserFederationProviderModel;
@@ -27,12 +29,40 @@ public class LDAPIdentityStoreRegistry {
             logLDAPConfig(model.getDisplayName(), config);
 
             LDAPIdentityStore store = createLdapIdentityStore(config);
-            context = new LDAPIdentityStoreContext(config, store);
-            ldapStores.put(model.getId(), context);
+            context = new LDAPIdentityStoreContext(model.getDisplayName(), config, store);
+            LDAPIdentityStoreContext previous = ldapStores.put(model.getId(), context);
+
+            // Release pooled connections of the store with previous config
+            if (previous != null) {
+                previous.store.close();
+            }
         }
         return context.store;
     }
 
+    /**
+     * @return connection pool counts of all stores, prefixed with the display name of their federation provider
+     */
+    public Map<String, String> getOperationalInfo() {
+        Map<String, String> info = new TreeMap<String, String>();
+        for (LDAPIdentityStoreContext context : ldapStores.values()) {
+            LDAPContextPool pool = context.store.getOperationManager().getContextPool();
+            if (pool == null) continue;
+
+            for (Map.Entry<String, String> entry : pool.getOperationalInfo().entrySet()) {
+                info.put(context.displayName + " pool " + entry.getKey(), entry.getValue());
+            }
+        }
+        return info;
+    }
+
+    public void close() {
+        for (LDAPIdentityStoreContext context : ldapStores.values()) {
+            context.store.close();
+        }
+        ldapStores.clear();
+    }
+
     // Don't log LDAP password
     private void logLDAPConfig(String fedProviderDisplayName, Map<String, String> ldapConfig) {
         Map<String, String> copy = new HashMap<String, String>(ldapConfig);
@@ -47,14 +77,6 @@ public class LDAPIdentityStoreRegistry {
     public static LDAPIdentityStore createLdapIdentityStore(Map<String,String> ldapConfig) {
         LDAPConfig cfg = new LDAPConfig(ldapConfig);
 
-        checkSystemProperty("com.sun.jndi.ldap.connect.pool.authentication", "none simple");
-        checkSystemProperty("com.sun.jndi.ldap.connect.pool.initsize", "1");
-        checkSystemProperty("com.sun.jndi.ldap.connect.pool.maxsize", "1000");
-        checkSystemProperty("com.sun.jndi.ldap.connect.pool.prefsize", "5");
-        checkSystemProperty("com.sun.jndi.ldap.connect.pool.timeout", "300000");
-        checkSystemProperty("com.sun.jndi.ldap.connect.pool.protocol", "plain");
-        checkSystemProperty("com.sun.jndi.ldap.connect.pool.debug", "off");
-
         /*String ldapLoginNameMapping = ldapConfig.get(LDAPConstants.USERNAME_LDAP_ATTRIBUTE);
         if (ldapLoginNameMapping == null) {
             ldapLoginNameMapping = activeDirectory ? LDAPConstants.CN : LDAPConstants.UID;
@@ -75,20 +97,16 @@ public class LDAPIdentityStoreRegistry {
         return new LDAPIdentityStore(cfg);
     }
 
-    private static void checkSystemProperty(String name, String defaultValue) {
-        if (System.getProperty(name) == null) {
-            System.setProperty(name, defaultValue);
-        }
-    }
-
 
     private class LDAPIdentityStoreContext {
 
-        private LDAPIdentityStoreContext(Map<String,String> config, LDAPIdentityStore store) {
+        private LDAPIdentityStoreContext(String displayName, Map<String,String> config, LDAPIdentityStore store) {
+            this.displayName = displayName;
             this.config = config;
             this.store = store;
         }
 
+        private String displayName;
         private Map<String,String> config;
         private LDAPIdentityStore store;
     }
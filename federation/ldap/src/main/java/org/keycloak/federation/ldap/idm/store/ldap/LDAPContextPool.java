@@ -0,0 +1,268 @@
+package org.keycloak.federation.ldap.idm.store.ldap;
+
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.CommunicationException;
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapContext;
+
+import org.jboss.logging.Logger;
+
+/**
+ * <p>Pool of LDAP contexts bound with the configured bind credentials. Contexts are handed out to a single caller at a
+ * time and returned with {@link #release(LdapContext, boolean)}.</p>
+ *
+ * <p>Idle contexts are reused most recently used first, so contexts that aren't needed any more stay at the end of the
+ * queue and are closed once they've been idle longer than the idle timeout. Eviction is done when contexts are
+ * borrowed or released, so the pool doesn't need its own thread. At least the minimum size of idle contexts is kept.</p>
+ *
+ * <p>Once closed, the pool doesn't reuse contexts any more, but still creates new ones for callers that hold on to
+ * it. This happens when the LDAP configuration changes while a request is using the previous store.</p>
+ */
+public class LDAPContextPool {
+
+    private static final Logger logger = Logger.getLogger(LDAPContextPool.class);
+
+    // How long to wait for a context when all of them are in use
+    private static final long MAX_WAIT = 10000;
+
+    private static final String[] NO_ATTRIBUTES = new String[] { "1.1" };
+
+    private final Map<String, Object> connectionProperties;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeout;
+    private final boolean validate;
+
+    private final LinkedBlockingDeque<PooledContext> idle = new LinkedBlockingDeque<PooledContext>();
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public LDAPContextPool(Map<String, Object> connectionProperties, int minSize, int maxSize, long idleTimeout, boolean validate) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid LDAP connection pool size, min: " + minSize + ", max: " + maxSize);
+        }
+
+        this.connectionProperties = connectionProperties;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+        this.validate = validate;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Returns an idle context, or a new one if there's no valid idle context. Waits if all contexts are in use.
+     */
+    public LdapContext borrow() throws NamingException {
+        try {
+            if (!permits.tryAcquire(MAX_WAIT, TimeUnit.MILLISECONDS)) {
+                exhausted.incrementAndGet();
+                throw new ServiceUnavailableException("No LDAP context available, all " + maxSize + " contexts are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedNamingException("Interrupted while waiting for LDAP context");
+        }
+
+        try {
+            evictIdle();
+
+            PooledContext pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (!validate || isValid(pooled.context)) {
+                    borrowed.incrementAndGet();
+                    return pooled.context;
+                }
+
+                validationFailures.incrementAndGet();
+                destroy(pooled.context);
+            }
+
+            LdapContext context = new InitialLdapContext(new Hashtable<Object, Object>(connectionProperties), null);
+            created.incrementAndGet();
+            borrowed.incrementAndGet();
+            return context;
+        } catch (NamingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the context to the pool. Broken contexts, for example after a connection failure, are closed instead.
+     */
+    public void release(LdapContext context, boolean broken) {
+        try {
+            if (broken || closed) {
+                destroy(context);
+                return;
+            }
+
+            try {
+                // Operations like paginated search set request controls, which must not leak into the next borrower
+                context.setRequestControls(null);
+            } catch (NamingException ne) {
+                destroy(context);
+                return;
+            }
+
+            idle.offerFirst(new PooledContext(context, System.currentTimeMillis()));
+
+            // Pool might have been closed while the context was added
+            if (closed) {
+                destroyIdle();
+            }
+        } finally {
+            permits.release();
+        }
+
+        evictIdle();
+    }
+
+    /**
+     * Closes all idle contexts. Contexts in use are closed when they're released.
+     */
+    public void close() {
+        closed = true;
+        destroyIdle();
+    }
+
+    /**
+     * Returns true if the exception means the connection of the context can't be used any more.
+     */
+    public static boolean isConnectionFailure(NamingException ne) {
+        return ne instanceof CommunicationException || ne instanceof ServiceUnavailableException;
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getBorrowedCount() {
+        return borrowed.get();
+    }
+
+    public long getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailures.get();
+    }
+
+    public long getExhaustedCount() {
+        return exhausted.get();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return current counts, for the server info of the LDAP federation provider factory
+     */
+    public Map<String, String> getOperationalInfo() {
+        Map<String, String> info = new LinkedHashMap<String, String>();
+        info.put("active", String.valueOf(getActiveCount()));
+        info.put("idle", String.valueOf(getIdleCount()));
+        info.put("created", String.valueOf(getCreatedCount()));
+        info.put("borrowed", String.valueOf(getBorrowedCount()));
+        info.put("destroyed", String.valueOf(getDestroyedCount()));
+        info.put("evicted", String.valueOf(getEvictedCount()));
+        info.put("validationFailures", String.valueOf(getValidationFailureCount()));
+        info.put("exhausted", String.valueOf(getExhaustedCount()));
+        return info;
+    }
+
+    @Override
+    public String toString() {
+        return "LDAPContextPool " + getOperationalInfo();
+    }
+
+    private boolean isValid(LdapContext context) {
+        try {
+            // Reads the entry of the provider URL (root DSE by default) without returning any attributes
+            context.getAttributes("", NO_ATTRIBUTES);
+            return true;
+        } catch (NamingException ne) {
+            // Any other error is a response from the server, so the connection is still alive
+            return !isConnectionFailure(ne);
+        } catch (RuntimeException re) {
+            return false;
+        }
+    }
+
+    private void evictIdle() {
+        long expiredBefore = System.currentTimeMillis() - idleTimeout;
+        while (idle.size() > minSize) {
+            PooledContext last = idle.peekLast();
+            if (last == null || last.lastUsed > expiredBefore) {
+                return;
+            }
+            if (idle.removeLastOccurrence(last)) {
+                evicted.incrementAndGet();
+                destroy(last.context);
+            }
+        }
+    }
+
+    private void destroyIdle() {
+        PooledContext pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled.context);
+        }
+    }
+
+    private void destroy(LdapContext context) {
+        destroyed.incrementAndGet();
+        try {
+            context.close();
+        } catch (NamingException ne) {
+            logger.debug("Could not close Ldap context.", ne);
+        }
+    }
+
+    private static class PooledContext {
+
+        private final LdapContext context;
+        private final long lastUsed;
+
+        private PooledContext(LdapContext context, long lastUsed) {
+            this.context = context;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
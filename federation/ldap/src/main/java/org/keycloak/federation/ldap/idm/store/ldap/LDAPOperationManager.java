@@ -47,10 +47,39 @@ public class LDAPOperationManager {
 
     private final LDAPConfig config;
     private final Map<String, Object> connectionProperties;
+    private final LDAPContextPool contextPool;
 
     public LDAPOperationManager(LDAPConfig config) throws NamingException {
         this.config = config;
         this.connectionProperties = Collections.unmodifiableMap(createConnectionProperties());
+
+        if (config.isConnectionPooling()) {
+            this.contextPool = new LDAPContextPool(this.connectionProperties, config.getConnectionPoolingMinSize(),
+                    config.getConnectionPoolingMaxSize(), config.getConnectionPoolingIdleTimeout(), config.isConnectionPoolingValidate());
+        } else {
+            this.contextPool = null;
+        }
+    }
+
+    /**
+     * @return pool of bound contexts or null if connection pooling is disabled
+     */
+    public LDAPContextPool getContextPool() {
+        return contextPool;
+    }
+
+    /**
+     * <p>
+     * Closes pooled contexts. Operations invoked afterwards still work, but don't reuse contexts any more.
+     * </p>
+     */
+    public void close() {
+        if (contextPool != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debugf("Closing %s", contextPool);
+            }
+            contextPool.close();
+        }
     }
 
     /**
@@ -482,10 +511,8 @@ public class LDAPOperationManager {
             logger.warn("LDAP URL is null. LDAPOperationManager won't work correctly");
         }
 
-        String connectionPooling = this.config.getConnectionPooling();
-        if (connectionPooling != null) {
-            env.put("com.sun.jndi.ldap.connect.pool", connectionPooling);
-        }
+        // Connections are pooled by LDAPContextPool, so JNDI connection pooling is not used
+        env.put("com.sun.jndi.ldap.connect.pool", "false");
 
         // Just dump the additional properties
         Properties additionalProperties = this.config.getAdditionalConnectionProperties();
@@ -507,6 +534,10 @@ public class LDAPOperationManager {
     }
 
     private <R> R execute(LdapOperation<R> operation) throws NamingException {
+        if (contextPool != null) {
+            return executePooled(operation);
+        }
+
         LdapContext context = null;
 
         try {
@@ -525,6 +556,22 @@ public class LDAPOperationManager {
         }
     }
 
+    private <R> R executePooled(LdapOperation<R> operation) throws NamingException {
+        LdapContext context = contextPool.borrow();
+        boolean broken = true;
+
+        try {
+            R result = operation.execute(context);
+            broken = false;
+            return result;
+        } catch (NamingException ne) {
+            broken = LDAPContextPool.isConnectionFailure(ne);
+            throw ne;
+        } finally {
+            contextPool.release(context, broken);
+        }
+    }
+
     private interface LdapOperation<R> {
         R execute(LdapContext context) throws NamingException;
     }
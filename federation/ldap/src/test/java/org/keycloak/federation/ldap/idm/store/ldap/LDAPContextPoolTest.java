@@ -0,0 +1,192 @@
+package org.keycloak.federation.ldap.idm.store.ldap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.CommunicationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.ldap.LdapContext;
+import javax.naming.spi.InitialContextFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class LDAPContextPoolTest {
+
+    private Map<String, Object> connectionProperties;
+
+    @Before
+    public void before() {
+        StubContextFactory.contexts.clear();
+
+        connectionProperties = new HashMap<String, Object>();
+        connectionProperties.put(Context.INITIAL_CONTEXT_FACTORY, StubContextFactory.class.getName());
+    }
+
+    @Test
+    public void borrowAndRelease() throws Exception {
+        LDAPContextPool pool = new LDAPContextPool(connectionProperties, 0, 2, 60000, false);
+
+        LdapContext context = pool.borrow();
+        Assert.assertEquals(1, pool.getActiveCount());
+        Assert.assertEquals(0, pool.getIdleCount());
+
+        pool.release(context, false);
+        Assert.assertEquals(0, pool.getActiveCount());
+        Assert.assertEquals(1, pool.getIdleCount());
+
+        Assert.assertSame(context, pool.borrow());
+        Assert.assertEquals(1, pool.getCreatedCount());
+        Assert.assertEquals(2, pool.getBorrowedCount());
+
+        // Broken contexts aren't reused
+        pool.release(context, true);
+        Assert.assertEquals(0, pool.getIdleCount());
+        Assert.assertEquals(1, pool.getDestroyedCount());
+        Assert.assertTrue(StubContextFactory.get(0).closed);
+
+        Map<String, String> info = pool.getOperationalInfo();
+        Assert.assertEquals("1", info.get("created"));
+        Assert.assertEquals("2", info.get("borrowed"));
+        Assert.assertEquals("1", info.get("destroyed"));
+    }
+
+    @Test
+    public void waitForReleasedContext() throws Exception {
+        final LDAPContextPool pool = new LDAPContextPool(connectionProperties, 0, 1, 60000, false);
+        LdapContext context = pool.borrow();
+
+        final AtomicReference<LdapContext> waited = new AtomicReference<LdapContext>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    waited.set(pool.borrow());
+                } catch (NamingException ne) {
+                    throw new RuntimeException(ne);
+                }
+            }
+        };
+        thread.start();
+        awaitWaiting(thread);
+
+        pool.release(context, false);
+        thread.join(10000);
+
+        Assert.assertSame(context, waited.get());
+        Assert.assertEquals(1, pool.getCreatedCount());
+        Assert.assertEquals(1, pool.getActiveCount());
+        Assert.assertEquals(0, pool.getExhaustedCount());
+    }
+
+    @Test
+    public void evictIdleContexts() throws Exception {
+        LDAPContextPool pool = new LDAPContextPool(connectionProperties, 1, 3, 50, false);
+
+        LdapContext first = pool.borrow();
+        LdapContext second = pool.borrow();
+        LdapContext third = pool.borrow();
+        pool.release(first, false);
+        pool.release(second, false);
+        pool.release(third, false);
+        Assert.assertEquals(3, pool.getIdleCount());
+
+        Thread.sleep(100);
+
+        // Least recently used contexts are evicted, down to the minimum size
+        Assert.assertSame(third, pool.borrow());
+        Assert.assertEquals(0, pool.getIdleCount());
+        Assert.assertEquals(2, pool.getEvictedCount());
+        Assert.assertTrue(StubContextFactory.get(0).closed);
+        Assert.assertTrue(StubContextFactory.get(1).closed);
+        Assert.assertFalse(StubContextFactory.get(2).closed);
+    }
+
+    @Test
+    public void destroyInvalidContextOnBorrow() throws Exception {
+        LDAPContextPool pool = new LDAPContextPool(connectionProperties, 0, 1, 60000, true);
+
+        LdapContext context = pool.borrow();
+        pool.release(context, false);
+        StubContextFactory.get(0).failing = true;
+
+        LdapContext other = pool.borrow();
+        Assert.assertNotSame(context, other);
+        Assert.assertTrue(StubContextFactory.get(0).closed);
+        Assert.assertEquals(1, pool.getValidationFailureCount());
+        Assert.assertEquals(2, pool.getCreatedCount());
+        Assert.assertEquals(1, pool.getActiveCount());
+    }
+
+    @Test
+    public void closeDestroysIdleAndReleasedContexts() throws Exception {
+        LDAPContextPool pool = new LDAPContextPool(connectionProperties, 0, 2, 60000, false);
+
+        LdapContext idle = pool.borrow();
+        LdapContext active = pool.borrow();
+        pool.release(idle, false);
+
+        pool.close();
+        Assert.assertTrue(StubContextFactory.get(0).closed);
+        Assert.assertFalse(StubContextFactory.get(1).closed);
+
+        pool.release(active, false);
+        Assert.assertTrue(StubContextFactory.get(1).closed);
+        Assert.assertEquals(0, pool.getIdleCount());
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < end) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(Thread.State.TIMED_WAITING, thread.getState());
+    }
+
+    public static class StubContextFactory implements InitialContextFactory {
+
+        private static final List<StubContext> contexts = Collections.synchronizedList(new ArrayList<StubContext>());
+
+        private static StubContext get(int index) {
+            return contexts.get(index);
+        }
+
+        @Override
+        public Context getInitialContext(Hashtable<?, ?> environment) throws NamingException {
+            StubContext context = new StubContext();
+            contexts.add(context);
+            return (Context) Proxy.newProxyInstance(LdapContext.class.getClassLoader(), new Class[] { LdapContext.class }, context);
+        }
+    }
+
+    private static class StubContext implements InvocationHandler {
+
+        private volatile boolean closed;
+        private volatile boolean failing;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                closed = true;
+            } else if (name.equals("getAttributes") && failing) {
+                throw new CommunicationException("Connection closed");
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return null;
+        }
+    }
+
+}
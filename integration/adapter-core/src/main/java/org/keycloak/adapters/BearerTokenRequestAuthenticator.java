@@ -63,12 +63,19 @@ public class BearerTokenRequestAuthenticator {
     }
     
     protected AuthOutcome authenticateToken(HttpFacade exchange, String tokenString) {
-        try {
-            token = RSATokenVerifier.verifyToken(tokenString, deployment.getRealmKey(), deployment.getRealmInfoUrl());
-        } catch (VerificationException e) {
-            log.error("Failed to verify token", e);
-            challenge = challengeResponse(exchange, "invalid_token", e.getMessage());
-            return AuthOutcome.FAILED;
+        VerifiedTokenCache tokenCache = deployment.getTokenCache();
+        token = tokenCache != null ? tokenCache.get(tokenString) : null;
+        if (token == null) {
+            try {
+                token = RSATokenVerifier.verifyToken(tokenString, deployment.getRealmKey(), deployment.getRealmInfoUrl());
+            } catch (VerificationException e) {
+                log.error("Failed to verify token", e);
+                challenge = challengeResponse(exchange, "invalid_token", e.getMessage());
+                return AuthOutcome.FAILED;
+            }
+            if (tokenCache != null) {
+                tokenCache.put(tokenString, token);
+            }
         }
         if (token.getIssuedAt() < deployment.getNotBefore()) {
             log.error("Stale token");
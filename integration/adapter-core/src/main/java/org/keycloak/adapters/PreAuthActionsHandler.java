@@ -121,6 +121,9 @@ public class PreAuthActionsHandler {
                 if (action.getNotBefore() > deployment.getNotBefore()) {
                     deployment.setNotBefore(action.getNotBefore());
                 }
+                if (deployment.getTokenCache() != null) {
+                    deployment.getTokenCache().clear();
+                }
                 userSessionManagement.logoutAll();
             }
         } catch (Exception e) {
@@ -142,6 +145,9 @@ public class PreAuthActionsHandler {
             PushNotBeforeAction action = JsonSerialization.readValue(token.getContent(), PushNotBeforeAction.class);
             if (!validateAction(action)) return;
             deployment.setNotBefore(action.getNotBefore());
+            if (deployment.getTokenCache() != null) {
+                deployment.getTokenCache().clear();
+            }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
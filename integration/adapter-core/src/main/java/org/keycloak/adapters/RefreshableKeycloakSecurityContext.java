@@ -7,6 +7,7 @@ import org.keycloak.VerificationException;
 import org.keycloak.representations.AccessToken;
 import org.keycloak.representations.AccessTokenResponse;
 import org.keycloak.representations.IDToken;
+import org.keycloak.util.Time;
 
 import java.io.IOException;
 
@@ -22,6 +23,10 @@ public class RefreshableKeycloakSecurityContext extends KeycloakSecurityContext
     protected transient AdapterTokenStore tokenStore;
     protected String refreshToken;
 
+    // Count of completed refreshes and result of the last one, so requests waiting for a refresh in progress reuse its result
+    protected transient volatile int refreshCount;
+    protected transient volatile boolean lastRefreshResult;
+
     public RefreshableKeycloakSecurityContext() {
     }
 
@@ -60,6 +65,15 @@ public class RefreshableKeycloakSecurityContext extends KeycloakSecurityContext
         return this.token.isActive() && this.token.getIssuedAt() > deployment.getNotBefore();
     }
 
+    /**
+     * @return true if the access token doesn't expire within the token minimum time to live of the deployment
+     */
+    public boolean isTokenTimeToLiveSufficient() {
+        int minTimeToLive = deployment != null ? deployment.getTokenMinimumTimeToLive() : 0;
+        if (minTimeToLive <= 0 || this.token == null || this.token.getExpiration() == 0) return true;
+        return this.token.getExpiration() - minTimeToLive > Time.currentTime();
+    }
+
     public KeycloakDeployment getDeployment() {
         return deployment;
     }
@@ -70,7 +84,11 @@ public class RefreshableKeycloakSecurityContext extends KeycloakSecurityContext
     }
 
     /**
-     * @param checkActive if true, then we won't send refresh request if current accessToken is still active.
+     * Only one refresh of this context is sent at a time. Requests which need a refresh while another request is
+     * refreshing the token wait for it and get its result, instead of sending another refresh.
+     *
+     * @param checkActive if true, then we won't send refresh request if current accessToken is still active and
+     *                    doesn't expire within the token minimum time to live.
      * @return true if accessToken is active or was successfully refreshed
      */
     public boolean refreshExpiredToken(boolean checkActive) {
@@ -78,7 +96,7 @@ public class RefreshableKeycloakSecurityContext extends KeycloakSecurityContext
             if (log.isTraceEnabled()) {
                 log.trace("checking whether to refresh.");
             }
-            if (isActive()) return true;
+            if (isActive() && isTokenTimeToLiveSufficient()) return true;
         }
 
         if (this.deployment == null || refreshToken == null) return false; // Might be serialized in HttpSession?
@@ -88,6 +106,23 @@ public class RefreshableKeycloakSecurityContext extends KeycloakSecurityContext
             return false;
         }
 
+        return refreshToken(refreshCount);
+    }
+
+    protected synchronized boolean refreshToken(int seenRefreshCount) {
+        if (refreshCount != seenRefreshCount) {
+            if (log.isTraceEnabled()) {
+                log.trace("token refreshed by another request");
+            }
+            return lastRefreshResult;
+        }
+
+        lastRefreshResult = doRefresh();
+        refreshCount++;
+        return lastRefreshResult;
+    }
+
+    protected boolean doRefresh() {
         if (log.isTraceEnabled()) {
             log.trace("Doing refresh");
         }
@@ -96,7 +131,8 @@ public class RefreshableKeycloakSecurityContext extends KeycloakSecurityContext
             response = ServerRequest.invokeRefresh(deployment, refreshToken);
         } catch (IOException e) {
             log.error("Refresh token failure", e);
-            return false;
+            // A token refreshed before it expired can still be used if the server isn't reachable
+            return !deployment.isAlwaysRefreshToken() && isActive();
         } catch (ServerRequest.HttpFailure httpFailure) {
             log.error("Refresh token failure status: " + httpFailure.getStatus() + " " + httpFailure.getError());
             return false;
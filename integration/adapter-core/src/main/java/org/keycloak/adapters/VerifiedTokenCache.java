@@ -0,0 +1,70 @@
+package org.keycloak.adapters;
+
+import org.keycloak.representations.AccessToken;
+import org.keycloak.util.Base64Url;
+
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of bearer tokens that have already passed signature verification, so repeated requests with the same
+ * token can skip verification and parsing. Entries are keyed by a SHA-256 hash of the token and are dropped once the
+ * token is no longer active. The not-before policy of the deployment still has to be checked by the caller.
+ *
+ * Cached {@link AccessToken} instances are shared between requests and must not be modified.
+ */
+public class VerifiedTokenCache {
+
+    private final Map<String, AccessToken> tokens;
+
+    public VerifiedTokenCache(final int maxSize) {
+        tokens = new LinkedHashMap<String, AccessToken>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AccessToken> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public AccessToken get(String tokenString) {
+        String key = hash(tokenString);
+        synchronized (tokens) {
+            AccessToken token = tokens.get(key);
+            if (token != null && !token.isActive()) {
+                tokens.remove(key);
+                return null;
+            }
+            return token;
+        }
+    }
+
+    public void put(String tokenString, AccessToken token) {
+        String key = hash(tokenString);
+        synchronized (tokens) {
+            tokens.put(key, token);
+        }
+    }
+
+    public void clear() {
+        synchronized (tokens) {
+            tokens.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (tokens) {
+            return tokens.size();
+        }
+    }
+
+    private static String hash(String tokenString) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64Url.encode(digest.digest(tokenString.getBytes("US-ASCII")));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
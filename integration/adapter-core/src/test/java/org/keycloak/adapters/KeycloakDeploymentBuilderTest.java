@@ -7,6 +7,7 @@ import org.keycloak.enums.TokenStore;
 import org.keycloak.util.PemUtils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -39,6 +40,8 @@ public class KeycloakDeploymentBuilderTest {
         assertEquals(1000, deployment.getRegisterNodePeriod());
         assertEquals(TokenStore.COOKIE, deployment.getTokenStore());
         assertEquals("email", deployment.getPrincipalAttribute());
+        assertNotNull(deployment.getTokenCache());
+        assertEquals(10, deployment.getTokenMinimumTimeToLive());
     }
 
 }
@@ -0,0 +1,169 @@
+package org.keycloak.adapters;
+
+import org.junit.Test;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.util.Time;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshableKeycloakSecurityContextTest {
+
+    @Test
+    public void concurrentRequestsShareRefresh() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestContext context = new TestContext(deployment(0), token(-10), release);
+
+        RefreshThread first = new RefreshThread(context);
+        first.start();
+        assertTrue(context.refreshing.await(10, TimeUnit.SECONDS));
+
+        RefreshThread second = new RefreshThread(context);
+        second.start();
+        awaitBlocked(second);
+
+        release.countDown();
+        first.join(10000);
+        second.join(10000);
+
+        assertTrue(first.result.get());
+        assertTrue(second.result.get());
+        assertEquals(1, context.refreshes.get());
+    }
+
+    @Test
+    public void refreshAgainAfterCompletedRefresh() {
+        TestContext context = new TestContext(deployment(0), token(-10), null);
+
+        assertTrue(context.refreshExpiredToken(false));
+        assertTrue(context.refreshExpiredToken(false));
+        assertEquals(2, context.refreshes.get());
+    }
+
+    @Test
+    public void failedRefreshIsSharedToo() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final TestContext context = new TestContext(deployment(0), token(-10), release);
+        context.result = false;
+
+        RefreshThread first = new RefreshThread(context);
+        first.start();
+        assertTrue(context.refreshing.await(10, TimeUnit.SECONDS));
+
+        RefreshThread second = new RefreshThread(context);
+        second.start();
+        awaitBlocked(second);
+
+        release.countDown();
+        first.join(10000);
+        second.join(10000);
+
+        assertFalse(first.result.get());
+        assertFalse(second.result.get());
+        assertEquals(1, context.refreshes.get());
+    }
+
+    @Test
+    public void activeTokenIsNotRefreshed() {
+        TestContext context = new TestContext(deployment(0), token(60), null);
+
+        assertTrue(context.isTokenTimeToLiveSufficient());
+        assertTrue(context.refreshExpiredToken(true));
+        assertEquals(0, context.refreshes.get());
+    }
+
+    @Test
+    public void refreshTokenExpiringWithinMinimumTimeToLive() {
+        TestContext context = new TestContext(deployment(30), token(10), null);
+
+        assertFalse(context.isTokenTimeToLiveSufficient());
+        assertTrue(context.refreshExpiredToken(true));
+        assertEquals(1, context.refreshes.get());
+
+        // Token getters refresh too
+        context.getTokenString();
+        assertEquals(2, context.refreshes.get());
+    }
+
+    @Test
+    public void tokenWithSufficientTimeToLiveIsNotRefreshed() {
+        TestContext context = new TestContext(deployment(30), token(60), null);
+
+        assertTrue(context.isTokenTimeToLiveSufficient());
+        assertTrue(context.refreshExpiredToken(true));
+        context.getToken();
+        assertEquals(0, context.refreshes.get());
+    }
+
+    private static KeycloakDeployment deployment(int minTimeToLive) {
+        KeycloakDeployment deployment = new KeycloakDeployment();
+        deployment.setRealm("demo");
+        deployment.setTokenMinimumTimeToLive(minTimeToLive);
+        return deployment;
+    }
+
+    private static AccessToken token(int expiresIn) {
+        AccessToken token = new AccessToken();
+        token.issuer("https://localhost:8443/auth/realms/demo");
+        token.issuedAt(Time.currentTime() - 1);
+        token.expiration(Time.currentTime() + expiresIn);
+        return token;
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.BLOCKED && System.currentTimeMillis() < end) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.BLOCKED, thread.getState());
+    }
+
+    private static class TestContext extends RefreshableKeycloakSecurityContext {
+
+        private final CountDownLatch release;
+        private final CountDownLatch refreshing = new CountDownLatch(1);
+        private final AtomicInteger refreshes = new AtomicInteger();
+        private volatile boolean result = true;
+
+        private TestContext(KeycloakDeployment deployment, AccessToken token, CountDownLatch release) {
+            super(deployment, null, "token", token, null, null, "refresh-token");
+            this.release = release;
+        }
+
+        @Override
+        protected boolean doRefresh() {
+            refreshes.incrementAndGet();
+            refreshing.countDown();
+            if (release != null) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class RefreshThread extends Thread {
+
+        private final RefreshableKeycloakSecurityContext context;
+        private final AtomicBoolean result = new AtomicBoolean();
+
+        private RefreshThread(RefreshableKeycloakSecurityContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            result.set(context.refreshExpiredToken(false));
+        }
+    }
+
+}
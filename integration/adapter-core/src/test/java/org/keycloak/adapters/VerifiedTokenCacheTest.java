@@ -0,0 +1,154 @@
+package org.keycloak.adapters;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.enums.SslRequired;
+import org.keycloak.jose.jws.JWSBuilder;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.representations.adapters.action.PushNotBeforeAction;
+import org.keycloak.representations.adapters.config.AdapterConfig;
+import org.keycloak.util.Time;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class VerifiedTokenCacheTest {
+
+    private KeyPair keyPair;
+    private KeycloakDeployment deployment;
+
+    @Before
+    public void before() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        keyPair = generator.generateKeyPair();
+
+        AdapterConfig config = new AdapterConfig();
+        config.setAuthServerUrl("http://localhost:8080/auth");
+
+        deployment = new KeycloakDeployment();
+        deployment.setRealm("demo");
+        deployment.setResourceName("app");
+        deployment.setRealmKey(keyPair.getPublic());
+        deployment.setSslRequired(SslRequired.NONE);
+        deployment.setAuthServerBaseUrl(config);
+        deployment.setTokenCache(new VerifiedTokenCache(10));
+    }
+
+    @Test
+    public void repeatedTokenNotVerifiedAgain() throws Exception {
+        String tokenString = sign(token(Time.currentTime() - 10, Time.currentTime() + 300));
+
+        BearerTokenRequestAuthenticator first = new BearerTokenRequestAuthenticator(deployment);
+        assertEquals(AuthOutcome.AUTHENTICATED, first.authenticateToken(null, tokenString));
+        assertEquals(1, deployment.getTokenCache().size());
+
+        // Signature check would fail now, so the second request can only succeed with the cached token
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        deployment.setRealmKey(generator.generateKeyPair().getPublic());
+
+        BearerTokenRequestAuthenticator second = new BearerTokenRequestAuthenticator(deployment);
+        assertEquals(AuthOutcome.AUTHENTICATED, second.authenticateToken(null, tokenString));
+        assertSame(first.getToken(), second.getToken());
+
+        assertEquals(AuthOutcome.FAILED, new BearerTokenRequestAuthenticator(deployment).authenticateToken(null, sign(token(Time.currentTime() - 10, Time.currentTime() + 300))));
+    }
+
+    @Test
+    public void expiredEntryDropped() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put("expired", token(Time.currentTime() - 20, Time.currentTime() - 10));
+        cache.put("active", token(Time.currentTime() - 20, Time.currentTime() + 300));
+        assertEquals(2, cache.size());
+
+        assertNull(cache.get("expired"));
+        assertNotNull(cache.get("active"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void pushNotBeforeInvalidatesOlderEntries() throws Exception {
+        int issuedAt = Time.currentTime() - 10;
+        String tokenString = sign(token(issuedAt, Time.currentTime() + 300));
+        assertEquals(AuthOutcome.AUTHENTICATED, new BearerTokenRequestAuthenticator(deployment).authenticateToken(null, tokenString));
+        assertEquals(1, deployment.getTokenCache().size());
+
+        PushNotBeforeAction action = new PushNotBeforeAction("action-id", Time.currentTime() + 30, "app", issuedAt + 1);
+        String actionString = new JWSBuilder().jsonContent(action).rsa256(keyPair.getPrivate());
+
+        PreAuthActionsHandler handler = new PreAuthActionsHandler(null, null, facade(actionString));
+        handler.deployment = deployment;
+        handler.handlePushNotBefore();
+
+        assertEquals(0, deployment.getTokenCache().size());
+        assertEquals(issuedAt + 1, deployment.getNotBefore());
+        assertEquals(AuthOutcome.FAILED, new BearerTokenRequestAuthenticator(deployment).authenticateToken(null, tokenString));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryEvicted() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        AccessToken a = token(Time.currentTime() - 10, Time.currentTime() + 300);
+        AccessToken b = token(Time.currentTime() - 10, Time.currentTime() + 300);
+        AccessToken c = token(Time.currentTime() - 10, Time.currentTime() + 300);
+
+        cache.put("a", a);
+        cache.put("b", b);
+        assertSame(a, cache.get("a"));
+        cache.put("c", c);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertSame(a, cache.get("a"));
+        assertSame(c, cache.get("c"));
+    }
+
+    private AccessToken token(int issuedAt, int expiration) {
+        AccessToken token = new AccessToken();
+        token.id("token-id");
+        token.subject("user");
+        token.issuer(deployment.getRealmInfoUrl());
+        token.issuedAt(issuedAt);
+        token.expiration(expiration);
+        return token;
+    }
+
+    private String sign(AccessToken token) {
+        return new JWSBuilder().jsonContent(token).rsa256(keyPair.getPrivate());
+    }
+
+    private static HttpFacade facade(final String body) {
+        final HttpFacade.Request request = (HttpFacade.Request) Proxy.newProxyInstance(HttpFacade.class.getClassLoader(), new Class[] { HttpFacade.Request.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("isSecure")) {
+                    return true;
+                } else if (method.getName().equals("getInputStream")) {
+                    return new ByteArrayInputStream(body.getBytes("UTF-8"));
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        return (HttpFacade) Proxy.newProxyInstance(HttpFacade.class.getClassLoader(), new Class[] { HttpFacade.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("getRequest")) {
+                    return request;
+                }
+                // Responses are only used to report errors
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+}
@@ -30,6 +30,12 @@ public interface UsersResource {
                                            @QueryParam("first") Integer firstResult,
                                            @QueryParam("max") Integer maxResults);
 
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<UserRepresentation> searchAfter(@QueryParam("search") String search,
+                                                @QueryParam("after") String lastUsername,
+                                                @QueryParam("max") Integer maxResults);
+
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     Response create(UserRepresentation userRepresentation);
@@ -91,7 +91,7 @@ public class JettyCookieTokenStore implements AdapterTokenStore {
 
         RefreshableKeycloakSecurityContext session = principal.getKeycloakSecurityContext();
 
-        if (session.isActive() && !session.getDeployment().isAlwaysRefreshToken()) return principal;
+        if (session.isActive() && session.isTokenTimeToLiveSufficient() && !session.getDeployment().isAlwaysRefreshToken()) return principal;
         boolean success = session.refreshExpiredToken(false);
         if (success && session.isActive()) return principal;
 
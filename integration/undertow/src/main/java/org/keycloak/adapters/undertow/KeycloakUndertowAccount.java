@@ -72,7 +72,7 @@ public class KeycloakUndertowAccount implements Account, Serializable, KeycloakA
     public boolean checkActive() {
         // this object may have been serialized, so we need to reset realm config/metadata
         RefreshableKeycloakSecurityContext session = getKeycloakSecurityContext();
-        if (session.isActive() && !session.getDeployment().isAlwaysRefreshToken()) {
+        if (session.isActive() && session.isTokenTimeToLiveSufficient() && !session.getDeployment().isAlwaysRefreshToken()) {
             log.debug("session is active");
             return true;
         }
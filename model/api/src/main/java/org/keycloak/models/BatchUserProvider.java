@@ -0,0 +1,17 @@
+package org.keycloak.models;
+
+/**
+ * Implemented by user providers that can write many new users more efficiently than one at a time, for example when
+ * importing users. While a batch is active, changes of new users may be written lazily and checked for constraints only
+ * when a batch is written. Users returned by the provider during a batch must not be used after the batch ended.
+ */
+public interface BatchUserProvider {
+
+    void startBatch();
+
+    /**
+     * Writes changes of the batch, which weren't written yet, and leaves batch mode.
+     */
+    void endBatch();
+
+}
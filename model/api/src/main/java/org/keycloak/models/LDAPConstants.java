@@ -30,6 +30,16 @@ public class LDAPConstants {
 
     public static final String SEARCH_SCOPE = "searchScope";
     public static final String CONNECTION_POOLING = "connectionPooling";
+
+    // Settings of the LDAP context pool used when connection pooling is enabled
+    public static final String CONNECTION_POOLING_MIN_SIZE = "connectionPoolingMinSize";
+    public static final int DEFAULT_CONNECTION_POOLING_MIN_SIZE = 1;
+    public static final String CONNECTION_POOLING_MAX_SIZE = "connectionPoolingMaxSize";
+    public static final int DEFAULT_CONNECTION_POOLING_MAX_SIZE = 20;
+    // Milliseconds after which idle contexts above the minimum size are closed
+    public static final String CONNECTION_POOLING_IDLE_TIMEOUT = "connectionPoolingIdleTimeout";
+    public static final long DEFAULT_CONNECTION_POOLING_IDLE_TIMEOUT = 300000;
+    public static final String CONNECTION_POOLING_VALIDATE = "connectionPoolingValidate";
     public static final String PAGINATION = "pagination";
 
     public static final String EDIT_MODE = "editMode";
@@ -38,6 +48,10 @@ public class LDAPConstants {
     public static final String BATCH_SIZE_FOR_SYNC = "batchSizeForSync";
     public static final int DEFAULT_BATCH_SIZE_FOR_SYNC = 1000;
 
+    // Count of threads importing pages of users during sync process, while next page is fetched from LDAP
+    public static final String SYNC_IMPORT_WORKERS = "syncImportWorkers";
+    public static final int DEFAULT_SYNC_IMPORT_WORKERS = 1;
+
     // Config option to specify if registrations will be synced or not
     public static final String SYNC_REGISTRATIONS = "syncRegistrations";
 
@@ -0,0 +1,15 @@
+package org.keycloak.models;
+
+import org.keycloak.provider.Provider;
+
+/**
+ * Hashes passwords with PBKDF2. An implementation may limit how many passwords are hashed at the same time, in which
+ * case hashing fails with {@link PasswordHashingRejectedException} while the server is overloaded.
+ */
+public interface PasswordHashingProvider extends Provider {
+
+    String encode(byte[] salt, String rawPassword, int iterations);
+
+    boolean verify(byte[] salt, String rawPassword, String encodedPassword, int iterations);
+
+}
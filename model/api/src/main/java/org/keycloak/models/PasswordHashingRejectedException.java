@@ -0,0 +1,15 @@
+package org.keycloak.models;
+
+/**
+ * Thrown when a password can't be hashed as too many passwords are hashed already.
+ */
+public class PasswordHashingRejectedException extends ModelException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,7 +1,5 @@
 package org.keycloak.models;
 
-import org.keycloak.models.utils.Pbkdf2PasswordEncoder;
-
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -133,9 +131,9 @@ public class PasswordPolicy {
        return -1;
    }
 
-    public Error validate(UserModel user, String password) {
+    public Error validate(KeycloakSession session, UserModel user, String password) {
         for (Policy p : policies) {
-            Error error = p.validate(user, password);
+            Error error = p.validate(session, user, password);
             if (error != null) {
                 return error;
             }
@@ -154,7 +152,7 @@ public class PasswordPolicy {
     }
 
     private static interface Policy {
-        public Error validate(UserModel user, String password);
+        public Error validate(KeycloakSession session, UserModel user, String password);
         public Error validate(String user, String password);
     }
 
@@ -191,7 +189,7 @@ public class PasswordPolicy {
         }
         
         @Override
-        public Error validate(UserModel user, String password) {
+        public Error validate(KeycloakSession session, UserModel user, String password) {
             return null;
         }
     }
@@ -208,7 +206,7 @@ public class PasswordPolicy {
         }
         
         @Override
-        public Error validate(UserModel user, String password) {
+        public Error validate(KeycloakSession session, UserModel user, String password) {
             return validate(user.getUsername(), password);
         }
     }
@@ -228,7 +226,7 @@ public class PasswordPolicy {
         }
         
         @Override
-        public Error validate(UserModel user, String password) {
+        public Error validate(KeycloakSession session, UserModel user, String password) {
             return validate(user.getUsername(), password);
         }
     }
@@ -254,7 +252,7 @@ public class PasswordPolicy {
         }
         
         @Override
-        public Error validate(UserModel user, String password) {
+        public Error validate(KeycloakSession session, UserModel user, String password) {
             return validate(user.getUsername(), password);
         }
     }
@@ -279,7 +277,7 @@ public class PasswordPolicy {
         }
         
         @Override
-        public Error validate(UserModel user, String password) {
+        public Error validate(KeycloakSession session, UserModel user, String password) {
             return validate(user.getUsername(), password);
         }
     }
@@ -304,7 +302,7 @@ public class PasswordPolicy {
         }
         
         @Override
-        public Error validate(UserModel user, String password) {
+        public Error validate(KeycloakSession session, UserModel user, String password) {
             return validate(user.getUsername(), password);
         }
     }
@@ -329,7 +327,7 @@ public class PasswordPolicy {
         }
         
         @Override
-        public Error validate(UserModel user, String password) {
+        public Error validate(KeycloakSession session, UserModel user, String password) {
             return validate(user.getUsername(), password);
         }
     }
@@ -357,7 +355,7 @@ public class PasswordPolicy {
         }
 
         @Override
-        public Error validate(UserModel user, String password) {
+        public Error validate(KeycloakSession session, UserModel user, String password) {
             return validate(user.getUsername(), password);
         }
     }
@@ -376,13 +374,13 @@ public class PasswordPolicy {
         }
 
         @Override
-        public Error validate(UserModel user, String password) {
+        public Error validate(KeycloakSession session, UserModel user, String password) {
             
             if (passwordHistoryPolicyValue != -1) {
             
                 UserCredentialValueModel cred = getCredentialValueModel(user, UserCredentialModel.PASSWORD);
                 if (cred != null) {
-                    if(new Pbkdf2PasswordEncoder(cred.getSalt()).verify(password, cred.getValue(), cred.getHashIterations())) {
+                    if(session.getProvider(PasswordHashingProvider.class).verify(cred.getSalt(), password, cred.getValue(), cred.getHashIterations())) {
                         return new Error(INVALID_PASSWORD_HISTORY, passwordHistoryPolicyValue);
                     }
                 }
@@ -390,7 +388,7 @@ public class PasswordPolicy {
                 List<UserCredentialValueModel> passwordExpiredCredentials = getCredentialValueModels(user, passwordHistoryPolicyValue - 1,
                         UserCredentialModel.PASSWORD_HISTORY);
                 for (UserCredentialValueModel credential : passwordExpiredCredentials) {
-                    if (new Pbkdf2PasswordEncoder(credential.getSalt()).verify(password, credential.getValue(), credential.getHashIterations())) {
+                    if (session.getProvider(PasswordHashingProvider.class).verify(credential.getSalt(), password, credential.getValue(), credential.getHashIterations())) {
                         return new Error(INVALID_PASSWORD_HISTORY, passwordHistoryPolicyValue);
                     }
                 }
@@ -450,7 +448,7 @@ public class PasswordPolicy {
         }
 
         @Override
-        public Error validate(UserModel user, String password) {
+        public Error validate(KeycloakSession session, UserModel user, String password) {
             return null;
         }
     }
@@ -221,7 +221,7 @@ public class UserFederationManager implements UserProvider {
     protected List<UserModel> query(PaginatedQuery pagedQuery, RealmModel realm, int firstResult, int maxResults) {
         List<UserModel> results = new LinkedList<UserModel>();
         if (maxResults == 0) return results;
-        int first = firstResult;
+        int first = firstResult < 0 ? 0 : firstResult;
         int max = maxResults;
         do {
             List<UserModel> query = pagedQuery.query(realm, first, max);
@@ -235,12 +235,40 @@ public class UserFederationManager implements UserProvider {
             }
             if (results.size() == maxResults) return results;
             if (query.size() < max) return results;
-            first = query.size();
+            first += query.size();
             max -= added;
             if (max <= 0) return results;
         } while (true);
     }
 
+    interface KeysetQuery {
+        List<UserModel> query(RealmModel realm, String lastUsername, int max);
+    }
+
+    /**
+     * Like {@link #query(PaginatedQuery, RealmModel, int, int)}, but continues after the last username returned by the
+     * storage, so users dropped by federation providers don't cause the following pages to be read again.
+     */
+    protected List<UserModel> query(KeysetQuery keysetQuery, RealmModel realm, String lastUsername, int maxResults) {
+        List<UserModel> results = new LinkedList<UserModel>();
+        if (maxResults == 0) return results;
+        String last = lastUsername;
+        int max = maxResults;
+        do {
+            List<UserModel> query = keysetQuery.query(realm, last, max);
+            if (query == null || query.size() == 0) return results;
+            last = query.get(query.size() - 1).getUsername();
+            for (UserModel user : query) {
+                user = validateAndProxyUser(realm, user);
+                if (user == null) continue;
+                results.add(user);
+            }
+            if (maxResults < 0 || query.size() < max) return results;
+            max = maxResults - results.size();
+            if (max <= 0) return results;
+        } while (true);
+    }
+
     @Override
     public List<UserModel> getUsers(RealmModel realm, int firstResult, int maxResults) {
         return query(new PaginatedQuery() {
@@ -251,6 +279,22 @@ public class UserFederationManager implements UserProvider {
         }, realm, firstResult, maxResults);
     }
 
+    @Override
+    public List<UserModel> getUsersAfter(RealmModel realm, String lastUsername, int maxResults) {
+        return query(new KeysetQuery() {
+            @Override
+            public List<UserModel> query(RealmModel realm, String lastUsername, int max) {
+                return session.userStorage().getUsersAfter(realm, lastUsername, max);
+            }
+        }, realm, lastUsername, maxResults);
+    }
+
+    @Override
+    public String getUsernameAfter(RealmModel realm, String lastUsername, int position) {
+        // Federation providers can't list users in order, so positions are those of the local storage
+        return session.userStorage().getUsernameAfter(realm, lastUsername, position);
+    }
+
     @Override
     public List<UserModel> searchForUser(String search, RealmModel realm) {
         return searchForUser(search, realm, 0, Integer.MAX_VALUE - 1);
@@ -265,6 +309,30 @@ public class UserFederationManager implements UserProvider {
 
     @Override
     public List<UserModel> searchForUser(final String search, RealmModel realm, int firstResult, int maxResults) {
+        federationLoad(realm, searchAttributes(search));
+        return query(new PaginatedQuery() {
+            @Override
+            public List<UserModel> query(RealmModel realm, int first, int max) {
+                return session.userStorage().searchForUser(search, realm, first, max);
+            }
+        }, realm, firstResult, maxResults);
+    }
+
+    @Override
+    public List<UserModel> searchForUserAfter(final String search, RealmModel realm, String lastUsername, int maxResults) {
+        // Federation providers are asked just for the first page, as they can't continue after a username
+        if (lastUsername == null) {
+            federationLoad(realm, searchAttributes(search));
+        }
+        return query(new KeysetQuery() {
+            @Override
+            public List<UserModel> query(RealmModel realm, String lastUsername, int max) {
+                return session.userStorage().searchForUserAfter(search, realm, lastUsername, max);
+            }
+        }, realm, lastUsername, maxResults);
+    }
+
+    private Map<String, String> searchAttributes(String search) {
         Map<String, String> attributes = new HashMap<String, String>();
         int spaceIndex = search.lastIndexOf(' ');
         if (spaceIndex > -1) {
@@ -279,13 +347,7 @@ public class UserFederationManager implements UserProvider {
             attributes.put(UserModel.LAST_NAME, search.trim());
             attributes.put(UserModel.USERNAME, search.trim().toLowerCase());
         }
-        federationLoad(realm, attributes);
-        return query(new PaginatedQuery() {
-            @Override
-            public List<UserModel> query(RealmModel realm, int first, int max) {
-                return session.userStorage().searchForUser(search, realm, first, max);
-            }
-        }, realm, firstResult, maxResults);
+        return attributes;
     }
 
     @Override
@@ -354,7 +416,7 @@ public class UserFederationManager implements UserProvider {
     public void updateCredential(RealmModel realm, UserModel user, UserCredentialModel credential) {
         if (credential.getType().equals(UserCredentialModel.PASSWORD)) {
             if (realm.getPasswordPolicy() != null) {
-                PasswordPolicy.Error error = realm.getPasswordPolicy().validate(user, credential.getValue());
+                PasswordPolicy.Error error = realm.getPasswordPolicy().validate(session, user, credential.getValue());
                 if (error != null) throw new ModelException(error.getMessage(), error.getParameters());
             }
         }
@@ -9,6 +9,11 @@ public class UserFederationSyncResult {
     private int updated;
     private int removed;
 
+    // Progress of the sync. Not all providers report these
+    private int fetched;
+    private int batches;
+    private long durationMillis;
+
     public int getAdded() {
         return added;
     }
@@ -33,6 +38,37 @@ public class UserFederationSyncResult {
         this.removed = removed;
     }
 
+    public int getFetched() {
+        return fetched;
+    }
+
+    public void setFetched(int fetched) {
+        this.fetched = fetched;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public void setBatches(int batches) {
+        this.batches = batches;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return count of users added or updated per second, or 0 if the duration of the sync is not known
+     */
+    public long getThroughput() {
+        return durationMillis > 0 ? (added + updated) * 1000L / durationMillis : 0;
+    }
+
     public void increaseAdded() {
         added++;
     }
@@ -49,10 +85,16 @@ public class UserFederationSyncResult {
         added += other.added;
         updated += other.updated;
         removed += other.removed;
+        fetched += other.fetched;
+        batches += other.batches;
     }
 
     public String getStatus() {
-        return String.format("%d imported users, %d updated users, %d removed users", added, updated, removed);
+        String status = String.format("%d imported users, %d updated users, %d removed users", added, updated, removed);
+        if (durationMillis > 0) {
+            status += String.format(", %d users fetched in %d batches, %d ms (%d users/s)", fetched, batches, durationMillis, getThroughput());
+        }
+        return status;
     }
 
     @Override
@@ -30,6 +30,32 @@ public interface UserProvider extends Provider {
     List<UserModel> getUsers(RealmModel realm, int firstResult, int maxResults);
     List<UserModel> searchForUser(String search, RealmModel realm);
     List<UserModel> searchForUser(String search, RealmModel realm, int firstResult, int maxResults);
+
+    /**
+     * Returns users of the realm ordered by username, starting after the given username. Unlike paging with
+     * {@code firstResult}, the cost of fetching a page doesn't grow with the number of users before it, and users added
+     * or removed before the cursor don't shift the page.
+     *
+     * @param lastUsername username of the last user of the previous page, or null to start with the first user
+     * @param maxResults maximum count of users, or -1 for all remaining users
+     */
+    List<UserModel> getUsersAfter(RealmModel realm, String lastUsername, int maxResults);
+
+    /**
+     * Returns the username at the given position in the order of {@link #getUsersAfter(RealmModel, String, int)}, without
+     * loading the users before it. Used to find where pages of users end, so the pages can be read independently.
+     *
+     * @param lastUsername username of the last user of the previous page, or null to start with the first user
+     * @param position position of the user after {@code lastUsername}, starting with 1
+     * @return the username, or null if there are fewer users
+     */
+    String getUsernameAfter(RealmModel realm, String lastUsername, int position);
+
+    /**
+     * Like {@link #getUsersAfter(RealmModel, String, int)}, but returns only users matching the search string.
+     */
+    List<UserModel> searchForUserAfter(String search, RealmModel realm, String lastUsername, int maxResults);
+
     List<UserModel> searchForUserByAttributes(Map<String, String> attributes, RealmModel realm);
     List<UserModel> searchForUserByAttributes(Map<String, String> attributes, RealmModel realm, int firstResult, int maxResults);
     Set<FederatedIdentityModel> getFederatedIdentities(UserModel user, RealmModel realm);
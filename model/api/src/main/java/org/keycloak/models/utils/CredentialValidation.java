@@ -2,6 +2,8 @@ package org.keycloak.models.utils;
 
 import org.keycloak.jose.jws.JWSInput;
 import org.keycloak.jose.jws.crypto.RSAProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.PasswordHashingProvider;
 import org.keycloak.models.PasswordPolicy;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserCredentialModel;
@@ -31,17 +33,18 @@ public class CredentialValidation {
     /**
      * Will update password if hash iteration policy has changed
      *
+     * @param session
      * @param realm
      * @param user
      * @param password
      * @return
      */
-    public static boolean validPassword(RealmModel realm, UserModel user, String password) {
+    public static boolean validPassword(KeycloakSession session, RealmModel realm, UserModel user, String password) {
         boolean validated = false;
         UserCredentialValueModel passwordCred = null;
         for (UserCredentialValueModel cred : user.getCredentialsDirectly()) {
             if (cred.getType().equals(UserCredentialModel.PASSWORD)) {
-                validated = new Pbkdf2PasswordEncoder(cred.getSalt()).verify(password, cred.getValue(), cred.getHashIterations());
+                validated = session.getProvider(PasswordHashingProvider.class).verify(cred.getSalt(), password, cred.getValue(), cred.getHashIterations());
                 passwordCred = cred;
             }
         }
@@ -53,7 +56,7 @@ public class CredentialValidation {
                 newCred.setDevice(passwordCred.getDevice());
                 newCred.setSalt(passwordCred.getSalt());
                 newCred.setHashIterations(iterations);
-                newCred.setValue(new Pbkdf2PasswordEncoder(newCred.getSalt()).encode(password, iterations));
+                newCred.setValue(session.getProvider(PasswordHashingProvider.class).encode(newCred.getSalt(), password, iterations));
                 user.updateCredentialDirectly(newCred);
             }
 
@@ -109,14 +112,15 @@ public class CredentialValidation {
     /**
      * Must validate all credentials.  FYI, password hashes may be rehashed and updated based on realm hash password policies.
      *
+     * @param session
      * @param realm
      * @param user
      * @param credentials
      * @return
      */
-    public static boolean validCredentials(RealmModel realm, UserModel user, List<UserCredentialModel> credentials) {
+    public static boolean validCredentials(KeycloakSession session, RealmModel realm, UserModel user, List<UserCredentialModel> credentials) {
         for (UserCredentialModel credential : credentials) {
-            if (!validCredential(realm, user, credential)) return false;
+            if (!validCredential(session, realm, user, credential)) return false;
         }
         return true;
     }
@@ -124,21 +128,22 @@ public class CredentialValidation {
     /**
      * Must validate all credentials.  FYI, password hashes may be rehashed and updated based on realm hash password policies.
      *
+     * @param session
      * @param realm
      * @param user
      * @param credentials
      * @return
      */
-    public static boolean validCredentials(RealmModel realm, UserModel user, UserCredentialModel... credentials) {
+    public static boolean validCredentials(KeycloakSession session, RealmModel realm, UserModel user, UserCredentialModel... credentials) {
         for (UserCredentialModel credential : credentials) {
-            if (!validCredential(realm, user, credential)) return false;
+            if (!validCredential(session, realm, user, credential)) return false;
         }
         return true;
     }
 
-    private static boolean validCredential(RealmModel realm, UserModel user, UserCredentialModel credential) {
+    private static boolean validCredential(KeycloakSession session, RealmModel realm, UserModel user, UserCredentialModel credential) {
         if (credential.getType().equals(UserCredentialModel.PASSWORD)) {
-            if (!validPassword(realm, user, credential.getValue())) {
+            if (!validPassword(session, realm, user, credential.getValue())) {
                 return false;
             }
         } else if (credential.getType().equals(UserCredentialModel.PASSWORD_TOKEN)) {
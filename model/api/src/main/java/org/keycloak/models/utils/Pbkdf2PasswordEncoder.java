@@ -103,11 +103,18 @@ public class Pbkdf2PasswordEncoder {
         return buffer;
     }
 
-    private static SecretKeyFactory getSecretKeyFactory() {
-        try {
-            return SecretKeyFactory.getInstance(PBKDF2_ALGORITHM);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("PBKDF2 algorithm not found");
+    private static final ThreadLocal<SecretKeyFactory> secretKeyFactory = new ThreadLocal<SecretKeyFactory>() {
+        @Override
+        protected SecretKeyFactory initialValue() {
+            try {
+                return SecretKeyFactory.getInstance(PBKDF2_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("PBKDF2 algorithm not found");
+            }
         }
+    };
+
+    private static SecretKeyFactory getSecretKeyFactory() {
+        return secretKeyFactory.get();
     }
 }
@@ -4,6 +4,7 @@ import net.iharder.Base64;
 import org.jboss.logging.Logger;
 import org.keycloak.enums.SslRequired;
 import org.keycloak.migration.MigrationProvider;
+import org.keycloak.models.BatchUserProvider;
 import org.keycloak.models.BrowserSecurityHeaders;
 import org.keycloak.models.ClaimMask;
 import org.keycloak.models.ClientModel;
@@ -22,6 +23,7 @@ import org.keycloak.models.UserCredentialValueModel;
 import org.keycloak.models.UserFederationMapperModel;
 import org.keycloak.models.UserFederationProviderModel;
 import org.keycloak.models.UserModel;
+import org.keycloak.models.UserProvider;
 import org.keycloak.representations.idm.ApplicationRepresentation;
 import org.keycloak.representations.idm.ClaimRepresentation;
 import org.keycloak.representations.idm.ClientRepresentation;
@@ -273,9 +275,7 @@ public class RepresentationToModel {
         // create users and their role mappings and social mappings
 
         if (rep.getUsers() != null) {
-            for (UserRepresentation userRep : rep.getUsers()) {
-                UserModel user = createUser(session, newRealm, userRep, appMap);
-            }
+            createUsers(session, newRealm, rep.getUsers(), appMap);
         }
 
         if(rep.isInternationalizationEnabled() != null){
@@ -792,6 +792,22 @@ public class RepresentationToModel {
 
     // Users
 
+    /**
+     * Creates new users. If the user storage supports it, users are written in batches.
+     */
+    public static void createUsers(KeycloakSession session, RealmModel newRealm, List<UserRepresentation> userReps, Map<String, ClientModel> clientMap) {
+        UserProvider storage = session.getProvider(UserProvider.class);
+        BatchUserProvider batch = storage instanceof BatchUserProvider ? (BatchUserProvider) storage : null;
+        if (batch != null) batch.startBatch();
+        try {
+            for (UserRepresentation userRep : userReps) {
+                createUser(session, newRealm, userRep, clientMap);
+            }
+        } finally {
+            if (batch != null) batch.endBatch();
+        }
+    }
+
     public static UserModel createUser(KeycloakSession session, RealmModel newRealm, UserRepresentation userRep, Map<String, ClientModel> clientMap) {
         convertDeprecatedSocialProviders(userRep);
 
@@ -0,0 +1,16 @@
+package org.keycloak.provider;
+
+import java.util.Map;
+
+/**
+ * Implemented by provider factories, which have operational information to show in the server info of the admin
+ * console, like counts of queued or dropped work.
+ */
+public interface ServerInfoAwareProviderFactory {
+
+    /**
+     * @return names and current values, or null if there's nothing to show
+     */
+    Map<String, String> getOperationalInfo();
+
+}
@@ -37,6 +37,7 @@ import org.keycloak.models.utils.CredentialValidation;
 import org.keycloak.models.utils.KeycloakModelUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -74,34 +75,17 @@ public class FileUserProvider implements UserProvider {
 
     @Override
     public UserModel getUserByUsername(String username, RealmModel realm) {
-        for (UserModel user : inMemoryModel.getUsers(realm.getId())) {
-            if (user.getUsername() == null) continue;
-            if (user.getUsername().equals(username.toLowerCase())) return user;
-        }
-
-        return null;
+        return inMemoryModel.getUserByUsername(realm.getId(), username.toLowerCase());
     }
 
     @Override
     public UserModel getUserByEmail(String email, RealmModel realm) {
-        for (UserModel user : inMemoryModel.getUsers(realm.getId())) {
-            if (user.getEmail() == null) continue;
-            if (user.getEmail().equals(email.toLowerCase())) return user;
-        }
-
-        return null;
+        return inMemoryModel.getUserByEmail(realm.getId(), email.toLowerCase());
     }
 
     @Override
     public UserModel getUserByFederatedIdentity(FederatedIdentityModel socialLink, RealmModel realm) {
-        for (UserModel user : inMemoryModel.getUsers(realm.getId())) {
-            Set<FederatedIdentityModel> identities = this.getFederatedIdentities(user, realm);
-            for (FederatedIdentityModel idModel : identities) {
-                if (idModel.getUserId().equals(socialLink.getUserId())) return user;
-            }
-        }
-
-        return null;
+        return inMemoryModel.getUserByFederatedIdentity(realm.getId(), socialLink.getIdentityProvider(), socialLink.getUserId());
     }
 
     @Override
@@ -116,9 +100,26 @@ public class FileUserProvider implements UserProvider {
 
     @Override
     public List<UserModel> getUsers(RealmModel realm, int firstResult, int maxResults) {
-        List users = new ArrayList(inMemoryModel.getUsers(realm.getId()));
-        List<UserModel> sortedList = sortedSubList(users, firstResult, maxResults);
-        return sortedList;
+        return inMemoryModel.getUsers(realm.getId(), firstResult, maxResults);
+    }
+
+    @Override
+    public List<UserModel> getUsersAfter(RealmModel realm, String lastUsername, int maxResults) {
+        List<UserModel> users = new ArrayList<UserModel>();
+        for (UserModel user : inMemoryModel.getUsersAfter(realm.getId(), lastUsername)) {
+            if (maxResults != -1 && users.size() >= maxResults) break;
+            users.add(user);
+        }
+        return users;
+    }
+
+    @Override
+    public String getUsernameAfter(RealmModel realm, String lastUsername, int position) {
+        int i = 0;
+        for (UserModel user : inMemoryModel.getUsersAfter(realm.getId(), lastUsername)) {
+            if (++i == position) return user.getUsername();
+        }
+        return null;
     }
 
     protected List<UserModel> sortedSubList(List list, int firstResult, int maxResults) {
@@ -145,6 +146,17 @@ public class FileUserProvider implements UserProvider {
 
     @Override
     public List<UserModel> searchForUser(String search, RealmModel realm, int firstResult, int maxResults) {
+        List<UserModel> found = searchForUser(search, inMemoryModel.getUsers(realm.getId()), -1);
+        return sortedSubList(found, firstResult, maxResults);
+    }
+
+    @Override
+    public List<UserModel> searchForUserAfter(String search, RealmModel realm, String lastUsername, int maxResults) {
+        // Users are already sorted by username here
+        return searchForUser(search, inMemoryModel.getUsersAfter(realm.getId(), lastUsername), maxResults);
+    }
+
+    protected List<UserModel> searchForUser(String search, Collection<UserModel> users, int maxResults) {
         search = search.trim();
         Pattern caseInsensitivePattern = Pattern.compile("(?i:.*" + search + ".*)", Pattern.CASE_INSENSITIVE);
 
@@ -161,7 +173,9 @@ public class FileUserProvider implements UserProvider {
 
         List<UserModel> found = new ArrayList<UserModel>();
 
-        for (UserModel user : inMemoryModel.getUsers(realm.getId())) {
+        for (UserModel user : users) {
+            if (maxResults != -1 && found.size() >= maxResults) break;
+
             String firstName = user.getFirstName();
             String lastName = user.getLastName();
             // Case when we have search string like "ohn Bow". Then firstName must end with "ohn" AND lastName must start with "bow" (everything case-insensitive)
@@ -181,7 +195,7 @@ public class FileUserProvider implements UserProvider {
             }
         }
 
-        return sortedSubList(found, firstResult, maxResults);
+        return found;
     }
 
     @Override
@@ -300,7 +314,7 @@ public class FileUserProvider implements UserProvider {
         // userEntity.setEnabled(true);
         userEntity.setRealmId(realm.getId());
 
-        UserAdapter user = new UserAdapter(realm, userEntity, inMemoryModel);
+        UserAdapter user = new UserAdapter(session, realm, userEntity, inMemoryModel);
         inMemoryModel.putUser(realm.getId(), userId, user);
 
         return user;
@@ -327,6 +341,7 @@ public class FileUserProvider implements UserProvider {
         }
 
         userEntity.getFederatedIdentities().add(federatedIdentityEntity);
+        inMemoryModel.putFederatedIdentity(realm.getId(), userAdapter, federatedIdentityEntity.getIdentityProvider(), federatedIdentityEntity.getUserId());
     }
 
     @Override
@@ -339,6 +354,7 @@ public class FileUserProvider implements UserProvider {
         }
 
         userEntity.getFederatedIdentities().remove(federatedIdentityEntity);
+        inMemoryModel.removeFederatedIdentity(realm.getId(), user, federatedIdentityEntity.getIdentityProvider(), federatedIdentityEntity.getUserId());
         return true;
     }
 
@@ -397,12 +413,12 @@ public class FileUserProvider implements UserProvider {
 
     @Override
     public boolean validCredentials(RealmModel realm, UserModel user, List<UserCredentialModel> input) {
-        return CredentialValidation.validCredentials(realm, user, input);
+        return CredentialValidation.validCredentials(session, realm, user, input);
     }
 
     @Override
     public boolean validCredentials(RealmModel realm, UserModel user, UserCredentialModel... input) {
-        return CredentialValidation.validCredentials(realm, user, input);
+        return CredentialValidation.validCredentials(session, realm, user, input);
     }
 
     @Override
@@ -412,6 +428,7 @@ public class FileUserProvider implements UserProvider {
         FederatedIdentityEntity federatedIdentityEntity = findFederatedIdentityLink(userEntity, federatedIdentityModel.getIdentityProvider());
 
         federatedIdentityEntity.setToken(federatedIdentityModel.getToken());
+        inMemoryModel.userChanged(realm.getId(), federatedUser.getId());
     }
 
     private FederatedIdentityEntity findFederatedIdentityLink(UserEntity userEntity, String identityProvider) {
@@ -59,8 +59,13 @@ public class ClientAdapter implements ClientModel {
         this.inMemoryModel = inMemoryModel;
     }
 
+    private void changed() {
+        inMemoryModel.realmChanged(realm.getId());
+    }
+
     @Override
     public void updateClient() {
+        changed();
     }
 
     @Override
@@ -75,6 +80,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setName(String name) {
+        changed();
        entity.setName(name);
     }
 
@@ -89,6 +95,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setWebOrigins(Set<String> webOrigins) {
+        changed();
         List<String> result = new ArrayList<String>();
         result.addAll(webOrigins);
         entity.setWebOrigins(result);
@@ -96,6 +103,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void addWebOrigin(String webOrigin) {
+        changed();
         Set<String> webOrigins = getWebOrigins();
         webOrigins.add(webOrigin);
         setWebOrigins(webOrigins);
@@ -103,6 +111,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void removeWebOrigin(String webOrigin) {
+        changed();
         Set<String> webOrigins = getWebOrigins();
         webOrigins.remove(webOrigin);
         setWebOrigins(webOrigins);
@@ -119,6 +128,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setRedirectUris(Set<String> redirectUris) {
+        changed();
         List<String> result = new ArrayList<String>();
         result.addAll(redirectUris);
         entity.setRedirectUris(result);
@@ -126,12 +136,14 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void addRedirectUri(String redirectUri) {
+        changed();
         if (entity.getRedirectUris().contains(redirectUri)) return;
         entity.getRedirectUris().add(redirectUri);
     }
 
     @Override
     public void removeRedirectUri(String redirectUri) {
+        changed();
         entity.getRedirectUris().remove(redirectUri);
     }
 
@@ -142,6 +154,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setEnabled(boolean enabled) {
+        changed();
         entity.setEnabled(enabled);
     }
 
@@ -157,6 +170,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setSecret(String secret) {
+        changed();
         entity.setSecret(secret);
     }
 
@@ -167,6 +181,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setPublicClient(boolean flag) {
+        changed();
         entity.setPublicClient(flag);
     }
 
@@ -178,6 +193,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setFrontchannelLogout(boolean flag) {
+        changed();
         entity.setFrontchannelLogout(flag);
     }
 
@@ -188,6 +204,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setFullScopeAllowed(boolean value) {
+        changed();
         entity.setFullScopeAllowed(value);
     }
 
@@ -203,6 +220,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setNotBefore(int notBefore) {
+        changed();
         entity.setNotBefore(notBefore);
     }
 
@@ -227,11 +245,13 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void addScopeMapping(RoleModel role) {
+        changed();
         allScopeMappings.put(role.getId(), role);
     }
 
     @Override
     public void deleteScopeMapping(RoleModel role) {
+        changed();
         allScopeMappings.remove(role.getId());
     }
 
@@ -242,18 +262,21 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setProtocol(String protocol) {
+        changed();
         entity.setProtocol(protocol);
 
     }
 
     @Override
     public void setAttribute(String name, String value) {
+        changed();
         entity.getAttributes().put(name, value);
 
     }
 
     @Override
     public void removeAttribute(String name) {
+        changed();
         entity.getAttributes().remove(name);
     }
 
@@ -281,6 +304,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public ProtocolMapperModel addProtocolMapper(ProtocolMapperModel model) {
+        changed();
         if (getProtocolMapperByName(model.getProtocol(), model.getName()) != null) {
             throw new RuntimeException("protocol mapper name must be unique per protocol");
         }
@@ -299,6 +323,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void removeProtocolMapper(ProtocolMapperModel mapping) {
+        changed();
         ProtocolMapperEntity toBeRemoved = null;
         for (ProtocolMapperEntity e : entity.getProtocolMappers()) {
             if (e.getId().equals(mapping.getId())) {
@@ -312,6 +337,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void updateProtocolMapper(ProtocolMapperModel mapping) {
+        changed();
         ProtocolMapperEntity entity = getProtocolMapperEntityById(mapping.getId());
         entity.setProtocolMapper(mapping.getProtocolMapper());
         entity.setConsentRequired(mapping.isConsentRequired());
@@ -378,8 +404,11 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setClientId(String clientId) {
+        changed();
         if (appNameExists(clientId)) throw new ModelDuplicateException("Application named " + clientId + " already exists.");
+        boolean renamed = !clientId.equals(entity.getClientId());
         entity.setClientId(clientId);
+        if (renamed) ((RealmAdapter) realm).roleNamesChanged(getRoles());
     }
 
     private boolean appNameExists(String name) {
@@ -398,6 +427,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setSurrogateAuthRequired(boolean surrogateAuthRequired) {
+        changed();
         entity.setSurrogateAuthRequired(surrogateAuthRequired);
     }
 
@@ -408,11 +438,13 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setManagementUrl(String url) {
+        changed();
         entity.setManagementUrl(url);
     }
 
     @Override
     public void setBaseUrl(String url) {
+        changed();
         entity.setBaseUrl(url);
     }
 
@@ -428,6 +460,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setBearerOnly(boolean only) {
+        changed();
         entity.setBearerOnly(only);
     }
 
@@ -438,6 +471,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setConsentRequired(boolean consentRequired) {
+        changed();
         entity.setConsentRequired(consentRequired);
     }
 
@@ -448,6 +482,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setDirectGrantsOnly(boolean flag) {
+        changed();
         entity.setDirectGrantsOnly(flag);
     }
 
@@ -466,6 +501,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public RoleAdapter addRole(String id, String name) {
+        changed();
         if (roleNameExists(name)) throw new ModelDuplicateException("Role named " + name + " already exists.");
         RoleEntity roleEntity = new RoleEntity();
         roleEntity.setId(id);
@@ -488,6 +524,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public boolean removeRole(RoleModel role) {
+        changed();
         boolean removed = (allRoles.remove(role.getId()) != null);
 
         // remove application roles from users
@@ -552,6 +589,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void addDefaultRole(String name) {
+        changed();
         RoleModel role = getRole(name);
         if (role == null) {
             addRole(name);
@@ -567,6 +605,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void updateDefaultRoles(String[] defaultRoles) {
+        changed();
         List<String> roleNames = new ArrayList<String>();
         for (String roleName : defaultRoles) {
             RoleModel role = getRole(roleName);
@@ -587,6 +626,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void setNodeReRegistrationTimeout(int timeout) {
+        changed();
         entity.setNodeReRegistrationTimeout(timeout);
     }
 
@@ -597,6 +637,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void registerNode(String nodeHost, int registrationTime) {
+        changed();
         if (entity.getRegisteredNodes() == null) {
             entity.setRegisteredNodes(new HashMap<String, Integer>());
         }
@@ -606,6 +647,7 @@ public class ClientAdapter implements ClientModel {
 
     @Override
     public void unregisterNode(String nodeHost) {
+        changed();
         if (entity.getRegisteredNodes() == null) return;
 
         entity.getRegisteredNodes().remove(nodeHost);
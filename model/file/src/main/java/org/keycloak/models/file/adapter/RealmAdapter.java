@@ -96,6 +96,29 @@ public class RealmAdapter implements RealmModel {
         return realm;
     }
 
+    /**
+     * Marks the realm as changed, so it's written when the session commits. Called by all methods changing the realm,
+     * its clients or roles.
+     */
+    void changed() {
+        inMemoryModel.realmChanged(getId());
+    }
+
+    /**
+     * Users reference roles by their names and the client id of their client, so users with any of the roles need to
+     * be written again when those change.
+     */
+    void roleNamesChanged(Collection<RoleModel> roles) {
+        for (UserModel user : inMemoryModel.getUsers(getId())) {
+            for (RoleModel role : roles) {
+                if (user.getRoleMappings().contains(role)) {
+                    inMemoryModel.userChanged(getId(), user.getId());
+                    break;
+                }
+            }
+        }
+    }
+
     @Override
     public String getId() {
         return realm.getId();
@@ -108,6 +131,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setName(String name) {
+        changed();
         if (getName() == null) {
             realm.setName(name);
             return;
@@ -126,6 +150,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setEnabled(boolean enabled) {
+        changed();
         realm.setEnabled(enabled);
     }
 
@@ -136,6 +161,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setSslRequired(SslRequired sslRequired) {
+        changed();
         realm.setSslRequired(sslRequired.name());
     }
 
@@ -146,6 +172,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setRegistrationAllowed(boolean registrationAllowed) {
+        changed();
         realm.setRegistrationAllowed(registrationAllowed);
     }
 
@@ -156,6 +183,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setRegistrationEmailAsUsername(boolean registrationEmailAsUsername) {
+        changed();
         realm.setRegistrationEmailAsUsername(registrationEmailAsUsername);
     }
 
@@ -166,6 +194,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setRememberMe(boolean rememberMe) {
+        changed();
         realm.setRememberMe(rememberMe);
     }
 
@@ -176,6 +205,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setBruteForceProtected(boolean value) {
+        changed();
         realm.setBruteForceProtected(value);
     }
 
@@ -186,6 +216,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setMaxFailureWaitSeconds(int val) {
+        changed();
         realm.setMaxFailureWaitSeconds(val);
     }
 
@@ -196,6 +227,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setWaitIncrementSeconds(int val) {
+        changed();
         realm.setWaitIncrementSeconds(val);
     }
 
@@ -206,6 +238,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setQuickLoginCheckMilliSeconds(long val) {
+        changed();
         realm.setQuickLoginCheckMilliSeconds(val);
     }
 
@@ -216,6 +249,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setMinimumQuickLoginWaitSeconds(int val) {
+        changed();
         realm.setMinimumQuickLoginWaitSeconds(val);
     }
 
@@ -227,6 +261,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setMaxDeltaTimeSeconds(int val) {
+        changed();
         realm.setMaxDeltaTimeSeconds(val);
     }
 
@@ -237,6 +272,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setFailureFactor(int failureFactor) {
+        changed();
         realm.setFailureFactor(failureFactor);
     }
 
@@ -248,6 +284,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setVerifyEmail(boolean verifyEmail) {
+        changed();
         realm.setVerifyEmail(verifyEmail);
     }
 
@@ -258,6 +295,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setResetPasswordAllowed(boolean resetPassword) {
+        changed();
         realm.setResetPasswordAllowed(resetPassword);
     }
 
@@ -268,6 +306,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setEditUsernameAllowed(boolean editUsernameAllowed) {
+        changed();
         realm.setEditUsernameAllowed(editUsernameAllowed);
     }
 
@@ -281,6 +320,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setPasswordPolicy(PasswordPolicy policy) {
+        changed();
         this.passwordPolicy = policy;
         realm.setPasswordPolicy(policy.toString());
     }
@@ -292,6 +332,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setNotBefore(int notBefore) {
+        changed();
         realm.setNotBefore(notBefore);
     }
 
@@ -303,6 +344,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setSsoSessionIdleTimeout(int seconds) {
+        changed();
         realm.setSsoSessionIdleTimeout(seconds);
     }
 
@@ -313,6 +355,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setSsoSessionMaxLifespan(int seconds) {
+        changed();
         realm.setSsoSessionMaxLifespan(seconds);
     }
 
@@ -323,6 +366,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setAccessTokenLifespan(int tokenLifespan) {
+        changed();
         realm.setAccessTokenLifespan(tokenLifespan);
     }
 
@@ -333,6 +377,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setAccessCodeLifespan(int accessCodeLifespan) {
+        changed();
         realm.setAccessCodeLifespan(accessCodeLifespan);
     }
 
@@ -343,6 +388,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setAccessCodeLifespanUserAction(int accessCodeLifespanUserAction) {
+        changed();
         realm.setAccessCodeLifespanUserAction(accessCodeLifespanUserAction);
     }
 
@@ -353,6 +399,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setPublicKeyPem(String publicKeyPem) {
+        changed();
         realm.setPublicKeyPem(publicKeyPem);
         this.publicKey = null;
     }
@@ -366,6 +413,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setCertificate(X509Certificate certificate) {
+        changed();
         this.certificate = certificate;
         String certificatePem = KeycloakModelUtils.getPemFromCertificate(certificate);
         setCertificatePem(certificatePem);
@@ -378,6 +426,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setCertificatePem(String certificate) {
+        changed();
         realm.setCertificatePem(certificate);
 
     }
@@ -390,6 +439,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setPrivateKeyPem(String privateKeyPem) {
+        changed();
         realm.setPrivateKeyPem(privateKeyPem);
         this.privateKey = null;
     }
@@ -403,6 +453,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setPublicKey(PublicKey publicKey) {
+        changed();
         this.publicKey = publicKey;
         String publicKeyPem = KeycloakModelUtils.getPemFromKey(publicKey);
         setPublicKeyPem(publicKeyPem);
@@ -417,6 +468,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setPrivateKey(PrivateKey privateKey) {
+        changed();
         this.privateKey = privateKey;
         String privateKeyPem = KeycloakModelUtils.getPemFromKey(privateKey);
         setPrivateKeyPem(privateKeyPem);
@@ -437,6 +489,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setCodeSecret(String codeSecret) {
+        changed();
         realm.setCodeSecret(codeSecret);
     }
 
@@ -447,6 +500,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setLoginTheme(String name) {
+        changed();
         realm.setLoginTheme(name);
     }
 
@@ -457,6 +511,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setAccountTheme(String name) {
+        changed();
         realm.setAccountTheme(name);
     }
 
@@ -467,6 +522,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setAdminTheme(String name) {
+        changed();
         realm.setAdminTheme(name);
     }
 
@@ -477,6 +533,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setEmailTheme(String name) {
+        changed();
         realm.setEmailTheme(name);
     }
 
@@ -495,6 +552,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public RoleModel addRole(String id, String name) {
+        changed();
         if (id == null) throw new NullPointerException("id == null");
         if (name == null) throw new NullPointerException("name == null");
         if (hasRoleWithName(name)) throw new ModelDuplicateException("Realm already contains role with name " + name + ".");
@@ -516,6 +574,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public boolean removeRoleById(String id) {
+        changed();
         if (id == null) throw new NullPointerException("id == null");
 
         // try realm roles first
@@ -559,6 +618,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void addDefaultRole(String name) {
+        changed();
         RoleModel role = getRole(name);
         if (role == null) {
             addRole(name);
@@ -581,6 +641,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void updateDefaultRoles(String[] defaultRoles) {
+        changed();
         List<String> roleNames = new ArrayList<String>();
         for (String roleName : defaultRoles) {
             RoleModel role = getRole(roleName);
@@ -629,6 +690,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public ClientModel addClient(String id, String clientId) {
+        changed();
         if (clientId == null) throw new NullPointerException("name == null");
         if (id == null) throw new NullPointerException("id == null");
 
@@ -657,6 +719,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public boolean removeClient(String id) {
+        changed();
         ClientModel appToBeRemoved = this.getClientById(id);
         if (appToBeRemoved == null) return false;
 
@@ -674,16 +737,12 @@ public class RealmAdapter implements RealmModel {
     }
 
     boolean hasUserWithEmail(String email) {
-        for (UserModel user : inMemoryModel.getUsers(getId())) {
-            if (user.getEmail() == null) continue;
-            if (user.getEmail().equals(email)) return true;
-        }
-
-        return false;
+        return inMemoryModel.hasUserWithEmail(getId(), email);
     }
 
     @Override
     public void addRequiredCredential(String type) {
+        changed();
         if (type == null) throw new NullPointerException("Credential type can not be null");
 
         RequiredCredentialModel credentialModel = initRequiredCredentialModel(type);
@@ -708,6 +767,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void updateRequiredCredentials(Set<String> creds) {
+        changed();
         updateRequiredCredentials(creds, realm.getRequiredCredentials());
     }
 
@@ -767,6 +827,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setBrowserSecurityHeaders(Map<String, String> headers) {
+        changed();
         realm.setBrowserSecurityHeaders(headers);
     }
 
@@ -777,6 +838,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setSmtpConfig(Map<String, String> smtpConfig) {
+        changed();
         realm.setSmtpConfig(smtpConfig);
     }
 
@@ -798,6 +860,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void addIdentityProvider(IdentityProviderModel identityProvider) {
+        changed();
         if (identityProvider.getAlias() == null) throw new NullPointerException("identityProvider.getAlias() == null");
         if (identityProvider.getInternalId() == null) identityProvider.setInternalId(KeycloakModelUtils.generateId());
         allIdProviders.put(identityProvider.getInternalId(), identityProvider);
@@ -805,6 +868,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void removeIdentityProviderByAlias(String alias) {
+        changed();
         for (IdentityProviderModel provider : getIdentityProviders()) {
             if (provider.getAlias().equals(alias)) {
                 allIdProviders.remove(provider.getInternalId());
@@ -815,12 +879,14 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void updateIdentityProvider(IdentityProviderModel identityProvider) {
+        changed();
         removeIdentityProviderByAlias(identityProvider.getAlias());
         addIdentityProvider(identityProvider);
     }
 
     @Override
     public UserFederationProviderModel addUserFederationProvider(String providerName, Map<String, String> config, int priority, String displayName, int fullSyncPeriod, int changedSyncPeriod, int lastSync) {
+        changed();
         KeycloakModelUtils.ensureUniqueDisplayName(displayName, null, getUserFederationProviders());
 
         UserFederationProviderEntity entity = new UserFederationProviderEntity();
@@ -846,6 +912,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void removeUserFederationProvider(UserFederationProviderModel provider) {
+        changed();
         Iterator<UserFederationProviderEntity> it = realm.getUserFederationProviders().iterator();
         while (it.hasNext()) {
             UserFederationProviderEntity entity = it.next();
@@ -865,6 +932,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void updateUserFederationProvider(UserFederationProviderModel model) {
+        changed();
         KeycloakModelUtils.ensureUniqueDisplayName(model.getDisplayName(), model, getUserFederationProviders());
 
         Iterator<UserFederationProviderEntity> it = realm.getUserFederationProviders().iterator();
@@ -912,6 +980,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setUserFederationProviders(List<UserFederationProviderModel> providers) {
+        changed();
         for (UserFederationProviderModel currentProvider : providers) {
             KeycloakModelUtils.ensureUniqueDisplayName(currentProvider.getDisplayName(), currentProvider, providers);
         }
@@ -952,6 +1021,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setEventsEnabled(boolean enabled) {
+        changed();
         realm.setEventsEnabled(enabled);
     }
 
@@ -962,6 +1032,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setEventsExpiration(long expiration) {
+        changed();
         realm.setEventsExpiration(expiration);
     }
 
@@ -972,6 +1043,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setEventsListeners(Set<String> listeners) {
+        changed();
         if (listeners != null) {
             realm.setEventsListeners(new ArrayList<String>(listeners));
         } else {
@@ -986,6 +1058,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setEnabledEventTypes(Set<String> enabledEventTypes) {
+        changed();
         if (enabledEventTypes != null) {
             realm.setEnabledEventTypes(new ArrayList<String>(enabledEventTypes));
         } else {
@@ -1000,6 +1073,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setAdminEventsEnabled(boolean enabled) {
+        changed();
         realm.setAdminEventsEnabled(enabled);
     }
 
@@ -1010,6 +1084,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setAdminEventsDetailsEnabled(boolean enabled) {
+        changed();
         realm.setAdminEventsDetailsEnabled(enabled);
     }
     
@@ -1020,6 +1095,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setMasterAdminClient(ClientModel client) {
+        changed();
         if (client == null) {
             realm.setMasterAdminClient(null);
             this.masterAdminApp = null;
@@ -1046,6 +1122,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setAccessCodeLifespanLogin(int accessCodeLifespanLogin) {
+        changed();
         realm.setAccessCodeLifespanLogin(accessCodeLifespanLogin);
     }
 
@@ -1056,6 +1133,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setInternationalizationEnabled(boolean enabled) {
+        changed();
         realm.setInternationalizationEnabled(enabled);
     }
 
@@ -1066,6 +1144,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setSupportedLocales(Set<String> locales) {
+        changed();
         realm.setSupportedLocales(new ArrayList<>(locales));
     }
 
@@ -1076,6 +1155,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void setDefaultLocale(String locale) {
+        changed();
         realm.setDefaultLocale(locale);
     }
 
@@ -1117,6 +1197,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public IdentityProviderMapperModel addIdentityProviderMapper(IdentityProviderMapperModel model) {
+        changed();
         if (getIdentityProviderMapperByName(model.getIdentityProviderAlias(), model.getIdentityProviderMapper()) != null) {
             throw new RuntimeException("identity provider mapper name must be unique per identity provider");
         }
@@ -1154,6 +1235,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void removeIdentityProviderMapper(IdentityProviderMapperModel mapping) {
+        changed();
         IdentityProviderMapperEntity toDelete = getIdentityProviderMapperEntity(mapping.getId());
         if (toDelete != null) {
             this.realm.getIdentityProviderMappers().remove(toDelete);
@@ -1163,6 +1245,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void updateIdentityProviderMapper(IdentityProviderMapperModel mapping) {
+        changed();
         IdentityProviderMapperEntity entity = getIdentityProviderMapperEntity(mapping.getId());
         entity.setIdentityProviderAlias(mapping.getIdentityProviderAlias());
         entity.setIdentityProviderMapper(mapping.getIdentityProviderMapper());
@@ -1240,6 +1323,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void removeAuthenticationFlow(AuthenticationFlowModel model) {
+        changed();
         AuthenticationFlowEntity toDelete = getFlowEntity(model.getId());
         if (toDelete == null) return;
         realm.getAuthenticationFlows().remove(toDelete);
@@ -1247,6 +1331,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void updateAuthenticationFlow(AuthenticationFlowModel model) {
+        changed();
         AuthenticationFlowEntity toUpdate = getFlowEntity(model.getId());
         if (toUpdate == null) return;
         toUpdate.setAlias(model.getAlias());
@@ -1256,6 +1341,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public AuthenticationFlowModel addAuthenticationFlow(AuthenticationFlowModel model) {
+        changed();
         AuthenticationFlowEntity entity = new AuthenticationFlowEntity();
         entity.setId(KeycloakModelUtils.generateId());
         entity.setAlias(model.getAlias());
@@ -1311,6 +1397,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public AuthenticationExecutionModel addAuthenticatorExecution(AuthenticationExecutionModel model) {
+        changed();
         AuthenticationExecutionEntity entity = new AuthenticationExecutionEntity();
         entity.setId(KeycloakModelUtils.generateId());
         entity.setAuthenticator(model.getAuthenticator());
@@ -1327,6 +1414,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void updateAuthenticatorExecution(AuthenticationExecutionModel model) {
+        changed();
         AuthenticationExecutionEntity entity = null;
         AuthenticationFlowEntity flow = getFlowEntity(model.getParentFlow());
         for (AuthenticationExecutionEntity exe : flow.getExecutions()) {
@@ -1344,6 +1432,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void removeAuthenticatorExecution(AuthenticationExecutionModel model) {
+        changed();
         AuthenticationExecutionEntity entity = null;
         AuthenticationFlowEntity flow = getFlowEntity(model.getParentFlow());
         for (AuthenticationExecutionEntity exe : flow.getExecutions()) {
@@ -1367,6 +1456,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public AuthenticatorModel addAuthenticator(AuthenticatorModel model) {
+        changed();
         AuthenticatorEntity auth = new AuthenticatorEntity();
         auth.setId(KeycloakModelUtils.generateId());
         auth.setAlias(model.getAlias());
@@ -1379,6 +1469,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void removeAuthenticator(AuthenticatorModel model) {
+        changed();
         AuthenticatorEntity entity = getAuthenticatorEntity(model.getId());
         if (entity == null) return;
         realm.getAuthenticators().remove(entity);
@@ -1416,6 +1507,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void updateAuthenticator(AuthenticatorModel model) {
+        changed();
         AuthenticatorEntity entity = getAuthenticatorEntity(model.getId());
         if (entity == null) return;
         entity.setAlias(model.getAlias());
@@ -1451,6 +1543,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public UserFederationMapperModel addUserFederationMapper(UserFederationMapperModel model) {
+        changed();
         if (getUserFederationMapperByName(model.getFederationProviderId(), model.getName()) != null) {
             throw new ModelDuplicateException("User federation mapper must be unique per federation provider. There is already: " + model.getName());
         }
@@ -1502,6 +1595,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void removeUserFederationMapper(UserFederationMapperModel mapper) {
+        changed();
         UserFederationMapperEntity toDelete = getUserFederationMapperEntity(mapper.getId());
         if (toDelete != null) {
             this.realm.getUserFederationMappers().remove(toDelete);
@@ -1510,6 +1604,7 @@ public class RealmAdapter implements RealmModel {
 
     @Override
     public void updateUserFederationMapper(UserFederationMapperModel mapper) {
+        changed();
         UserFederationMapperEntity entity = getUserFederationMapperEntity(mapper.getId());
         entity.setFederationProviderId(mapper.getFederationProviderId());
         entity.setFederationMapperType(mapper.getFederationMapperType());
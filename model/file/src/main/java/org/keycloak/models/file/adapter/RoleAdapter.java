@@ -56,6 +56,10 @@ public class RoleAdapter implements RoleModel {
         return this.role;
     }
 
+    private void changed() {
+        ((RealmAdapter) realm).changed();
+    }
+
     public boolean isRealmRole() {
         return role.getRealmId() != null;
     }
@@ -73,9 +77,11 @@ public class RoleAdapter implements RoleModel {
     @Override
     public void setName(String name) {
         RealmAdapter realmAdapter = (RealmAdapter)realm;
+        realmAdapter.changed();
         if (role.getName().equals(name)) return;
         if (realmAdapter.hasRoleWithName(name)) throw new ModelDuplicateException("Role name " + name + " already exists.");
         role.setName(name);
+        realmAdapter.roleNamesChanged(Collections.<RoleModel>singleton(this));
     }
 
     @Override
@@ -85,6 +91,7 @@ public class RoleAdapter implements RoleModel {
 
     @Override
     public void setDescription(String description) {
+        changed();
         role.setDescription(description);
     }
 
@@ -95,6 +102,7 @@ public class RoleAdapter implements RoleModel {
 
     @Override
     public void addCompositeRole(RoleModel childRole) {
+        changed();
         List<String> compositeRoleIds = role.getCompositeRoleIds();
         if (compositeRoleIds == null) compositeRoleIds = new ArrayList<String>();
         compositeRoleIds.add(childRole.getId());
@@ -125,6 +133,7 @@ public class RoleAdapter implements RoleModel {
 
     @Override
     public void removeCompositeRole(RoleModel childRole) {
+        changed();
         compositeRoles.remove(childRole);
         List<String> compositeRoleIds = role.getCompositeRoleIds();
         if (compositeRoleIds == null) return; // shouldn't happen
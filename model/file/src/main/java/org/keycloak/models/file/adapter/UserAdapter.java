@@ -21,8 +21,10 @@ import org.keycloak.models.ClientModel;
 
 import static org.keycloak.models.utils.Pbkdf2PasswordEncoder.getSalt;
 
+import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.ModelDuplicateException;
 import org.keycloak.models.UserConsentModel;
+import org.keycloak.models.PasswordHashingProvider;
 import org.keycloak.models.PasswordPolicy;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RoleModel;
@@ -34,7 +36,6 @@ import org.keycloak.models.entities.FederatedIdentityEntity;
 import org.keycloak.models.entities.RoleEntity;
 import org.keycloak.models.entities.UserEntity;
 import org.keycloak.models.utils.KeycloakModelUtils;
-import org.keycloak.models.utils.Pbkdf2PasswordEncoder;
 import org.keycloak.util.Time;
 
 import java.util.ArrayList;
@@ -55,13 +56,15 @@ import static org.keycloak.models.utils.Pbkdf2PasswordEncoder.getSalt;
  */
 public class UserAdapter implements UserModel, Comparable {
 
+    private final KeycloakSession session;
     private final InMemoryModel inMemoryModel;
     private final UserEntity user;
     private final RealmModel realm;
 
     private final Set<RoleModel> allRoles = new HashSet<RoleModel>();
 
-    public UserAdapter(RealmModel realm, UserEntity userEntity, InMemoryModel inMemoryModel) {
+    public UserAdapter(KeycloakSession session, RealmModel realm, UserEntity userEntity, InMemoryModel inMemoryModel) {
+        this.session = session;
         this.user = userEntity;
         this.realm = realm;
         if (userEntity.getFederatedIdentities() == null) {
@@ -74,6 +77,13 @@ public class UserAdapter implements UserModel, Comparable {
         return this.user;
     }
 
+    /**
+     * Marks the user as changed, so it's written when the session commits.
+     */
+    private void changed() {
+        inMemoryModel.userChanged(realm.getId(), getId());
+    }
+
     @Override
     public String getId() {
         return user.getId();
@@ -86,16 +96,20 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void setUsername(String username) {
-        if (getUsername() == null) {
+        changed();
+        String oldUsername = getUsername();
+        if (oldUsername == null) {
             user.setUsername(username);
+            inMemoryModel.updateUsername(realm.getId(), this, null);
             return;
         }
 
-        if (getUsername().equals(username)) return; // allow setting to same name
+        if (oldUsername.equals(username)) return; // allow setting to same name
 
         if (inMemoryModel.hasUserWithUsername(realm.getId(), username))
             throw new ModelDuplicateException("User with username " + username + " already exists in realm.");
         user.setUsername(username);
+        inMemoryModel.updateUsername(realm.getId(), this, oldUsername);
     }
 
     @Override
@@ -105,6 +119,7 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void setEnabled(boolean enabled) {
+        changed();
         user.setEnabled(enabled);
     }
 
@@ -115,6 +130,7 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void setFirstName(String firstName) {
+        changed();
         user.setFirstName(firstName);
     }
 
@@ -125,6 +141,7 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void setLastName(String lastName) {
+        changed();
         user.setLastName(lastName);
     }
 
@@ -135,16 +152,20 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void setEmail(String email) {
+        changed();
+        String oldEmail = getEmail();
         if (email == null) {
             user.setEmail(email);
+            inMemoryModel.updateEmail(realm.getId(), this, oldEmail);
             return;
         }
 
-        if (email.equals(getEmail())) return;
+        if (email.equals(oldEmail)) return;
 
         RealmAdapter realmAdapter = (RealmAdapter)realm;
         if (realmAdapter.hasUserWithEmail(email)) throw new ModelDuplicateException("User with email address " + email + " already exists.");
         user.setEmail(email);
+        inMemoryModel.updateEmail(realm.getId(), this, oldEmail);
     }
 
     @Override
@@ -154,11 +175,13 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void setEmailVerified(boolean verified) {
+        changed();
         user.setEmailVerified(verified);
     }
 
     @Override
     public void setAttribute(String name, String value) {
+        changed();
         if (user.getAttributes() == null) {
             user.setAttributes(new HashMap<String, String>());
         }
@@ -168,6 +191,7 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void removeAttribute(String name) {
+        changed();
         if (user.getAttributes() == null) return;
 
         user.getAttributes().remove(name);
@@ -198,6 +222,7 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void addRequiredAction(String actionName) {
+        changed();
         List<String> requiredActions = user.getRequiredActions();
         if (requiredActions == null) requiredActions = new ArrayList<>();
         if (!requiredActions.contains(actionName)) {
@@ -214,6 +239,7 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void removeRequiredAction(String actionName) {
+        changed();
         List<String> requiredActions = user.getRequiredActions();
         if (requiredActions == null) return;
         requiredActions.remove(actionName);
@@ -238,11 +264,13 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void setTotp(boolean totp) {
+        changed();
         user.setTotp(totp);
     }
 
     @Override
     public void updateCredential(UserCredentialModel cred) {
+        changed();
 
         if (cred.getType().equals(UserCredentialModel.PASSWORD)) {
             updatePasswordCredential(cred);
@@ -314,7 +342,7 @@ public class UserAdapter implements UserModel, Comparable {
                 hashIterations = 1;
         }
         credentialEntity.setCreatedDate(Time.toMillis(Time.currentTime()));
-        credentialEntity.setValue(new Pbkdf2PasswordEncoder(salt).encode(cred.getValue(), hashIterations));
+        credentialEntity.setValue(session.getProvider(PasswordHashingProvider.class).encode(salt, cred.getValue(), hashIterations));
         credentialEntity.setSalt(salt);
         credentialEntity.setHashIterations(hashIterations);
     }
@@ -375,6 +403,7 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void updateCredentialDirectly(UserCredentialValueModel credModel) {
+        changed();
         CredentialEntity credentialEntity = getCredentialEntity(user, credModel.getType());
 
         if (credentialEntity == null) {
@@ -400,6 +429,7 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void grantRole(RoleModel role) {
+        changed();
         allRoles.add(role);
     }
 
@@ -427,7 +457,8 @@ public class UserAdapter implements UserModel, Comparable {
     @Override
     public void deleteRoleMapping(RoleModel role) {
         if (user == null || role == null) return;
-        allRoles.remove(role);
+        // Called for all users of the realm when a client role is removed
+        if (allRoles.remove(role)) changed();
     }
 
     @Override
@@ -450,6 +481,7 @@ public class UserAdapter implements UserModel, Comparable {
 
     @Override
     public void setFederationLink(String link) {
+        changed();
         user.setFederationLink(link);
     }
 
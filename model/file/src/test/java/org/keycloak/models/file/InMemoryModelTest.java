@@ -0,0 +1,184 @@
+package org.keycloak.models.file;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.connections.file.InMemoryModel;
+import org.keycloak.models.ModelDuplicateException;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.entities.RealmEntity;
+import org.keycloak.models.entities.UserEntity;
+import org.keycloak.models.file.adapter.RealmAdapter;
+import org.keycloak.models.file.adapter.UserAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InMemoryModelTest {
+
+    private InMemoryModel model;
+    private RealmAdapter realm;
+
+    @Before
+    public void before() {
+        model = new InMemoryModel();
+
+        RealmEntity realmEntity = new RealmEntity();
+        realmEntity.setId("realm-id");
+        realmEntity.setName("realm");
+        realm = new RealmAdapter(null, realmEntity, model);
+        model.putRealm(realm.getId(), realm);
+    }
+
+    @Test
+    public void usernameIndex() {
+        UserAdapter john = addUser("john-id", "john");
+        addUser("anna-id", "anna");
+
+        Assert.assertSame(john, model.getUserByUsername(realm.getId(), "john"));
+        Assert.assertTrue(model.hasUserWithUsername(realm.getId(), "john"));
+        Assert.assertNull(model.getUserByUsername(realm.getId(), "johnny"));
+        Assert.assertEquals(usernames("anna", "john"), usernames(model.getUsers(realm.getId(), -1, -1)));
+
+        john.setUsername("zed");
+
+        Assert.assertNull(model.getUserByUsername(realm.getId(), "john"));
+        Assert.assertSame(john, model.getUserByUsername(realm.getId(), "zed"));
+        Assert.assertEquals(usernames("anna", "zed"), usernames(model.getUsers(realm.getId(), -1, -1)));
+        Assert.assertEquals(usernames("zed"), usernames(new ArrayList<UserModel>(model.getUsersAfter(realm.getId(), "anna"))));
+
+        try {
+            john.setUsername("anna");
+            Assert.fail("Expected duplicate username");
+        } catch (ModelDuplicateException e) {
+            // expected
+        }
+        Assert.assertSame(john, model.getUserByUsername(realm.getId(), "zed"));
+    }
+
+    @Test
+    public void emailIndex() {
+        UserAdapter john = addUser("john-id", "john");
+        UserAdapter anna = addUser("anna-id", "anna");
+
+        john.setEmail("john@localhost");
+        Assert.assertSame(john, model.getUserByEmail(realm.getId(), "john@localhost"));
+        Assert.assertTrue(model.hasUserWithEmail(realm.getId(), "john@localhost"));
+
+        john.setEmail("johnny@localhost");
+        Assert.assertNull(model.getUserByEmail(realm.getId(), "john@localhost"));
+        Assert.assertSame(john, model.getUserByEmail(realm.getId(), "johnny@localhost"));
+
+        try {
+            anna.setEmail("johnny@localhost");
+            Assert.fail("Expected duplicate email");
+        } catch (ModelDuplicateException e) {
+            // expected
+        }
+        Assert.assertSame(john, model.getUserByEmail(realm.getId(), "johnny@localhost"));
+
+        john.setEmail(null);
+        Assert.assertNull(model.getUserByEmail(realm.getId(), "johnny@localhost"));
+
+        anna.setEmail("johnny@localhost");
+        Assert.assertSame(anna, model.getUserByEmail(realm.getId(), "johnny@localhost"));
+    }
+
+    @Test
+    public void federatedIdentityIndex() {
+        UserAdapter john = addUser("john-id", "john");
+        UserAdapter anna = addUser("anna-id", "anna");
+
+        model.putFederatedIdentity(realm.getId(), john, "google", "123");
+        model.putFederatedIdentity(realm.getId(), john, "facebook", "456");
+        model.putFederatedIdentity(realm.getId(), anna, "google", "789");
+
+        Assert.assertSame(john, model.getUserByFederatedIdentity(realm.getId(), "google", "123"));
+        Assert.assertSame(john, model.getUserByFederatedIdentity(realm.getId(), "facebook", "456"));
+        Assert.assertSame(anna, model.getUserByFederatedIdentity(realm.getId(), "google", "789"));
+        Assert.assertNull(model.getUserByFederatedIdentity(realm.getId(), "facebook", "123"));
+
+        model.removeFederatedIdentity(realm.getId(), john, "google", "123");
+
+        Assert.assertNull(model.getUserByFederatedIdentity(realm.getId(), "google", "123"));
+        Assert.assertSame(john, model.getUserByFederatedIdentity(realm.getId(), "facebook", "456"));
+    }
+
+    @Test
+    public void removeUser() {
+        UserAdapter john = addUser("john-id", "john");
+        john.setEmail("john@localhost");
+        model.putFederatedIdentity(realm.getId(), john, "google", "123");
+        addUser("anna-id", "anna");
+
+        Assert.assertTrue(model.removeUser(realm.getId(), john.getId()));
+        Assert.assertFalse(model.removeUser(realm.getId(), john.getId()));
+
+        Assert.assertNull(model.getUser(realm.getId(), "john-id"));
+        Assert.assertNull(model.getUserByUsername(realm.getId(), "john"));
+        Assert.assertNull(model.getUserByEmail(realm.getId(), "john@localhost"));
+        Assert.assertNull(model.getUserByFederatedIdentity(realm.getId(), "google", "123"));
+        Assert.assertEquals(usernames("anna"), usernames(model.getUsers(realm.getId(), -1, -1)));
+
+        // Username and email can be used again
+        UserAdapter other = addUser("other-id", "john");
+        other.setEmail("john@localhost");
+        Assert.assertSame(other, model.getUserByUsername(realm.getId(), "john"));
+        Assert.assertSame(other, model.getUserByEmail(realm.getId(), "john@localhost"));
+    }
+
+    @Test
+    public void replaceUser() {
+        UserAdapter john = addUser("john-id", "john");
+        john.setEmail("john@localhost");
+
+        UserAdapter replaced = addUser("john-id", "johnny");
+
+        Assert.assertSame(replaced, model.getUser(realm.getId(), "john-id"));
+        Assert.assertNull(model.getUserByUsername(realm.getId(), "john"));
+        Assert.assertNull(model.getUserByEmail(realm.getId(), "john@localhost"));
+        Assert.assertSame(replaced, model.getUserByUsername(realm.getId(), "johnny"));
+        Assert.assertEquals(1, model.getUsers(realm.getId()).size());
+    }
+
+    @Test
+    public void paging() {
+        for (String username : new String[] { "d", "b", "e", "a", "c" }) {
+            addUser(username + "-id", username);
+        }
+
+        Assert.assertEquals(usernames("a", "b"), usernames(model.getUsers(realm.getId(), 0, 2)));
+        Assert.assertEquals(usernames("c", "d"), usernames(model.getUsers(realm.getId(), 2, 2)));
+        Assert.assertEquals(usernames("e"), usernames(model.getUsers(realm.getId(), 4, 2)));
+        Assert.assertTrue(model.getUsers(realm.getId(), 5, 2).isEmpty());
+        Assert.assertEquals(usernames("d", "e"), usernames(new ArrayList<UserModel>(model.getUsersAfter(realm.getId(), "c"))));
+    }
+
+    private UserAdapter addUser(String id, String username) {
+        UserEntity entity = new UserEntity();
+        entity.setId(id);
+        entity.setUsername(username);
+        entity.setRealmId(realm.getId());
+
+        UserAdapter user = new UserAdapter(null, realm, entity, model);
+        model.putUser(realm.getId(), id, user);
+        return user;
+    }
+
+    private static List<String> usernames(String... usernames) {
+        List<String> list = new ArrayList<String>();
+        for (String username : usernames) {
+            list.add(username);
+        }
+        return list;
+    }
+
+    private static List<String> usernames(List<UserModel> users) {
+        List<String> list = new ArrayList<String>();
+        for (UserModel user : users) {
+            list.add(user.getUsername());
+        }
+        return list;
+    }
+
+}
@@ -9,26 +9,33 @@ import org.keycloak.models.cache.CacheRealmProvider;
 import org.keycloak.models.cache.CacheRealmProviderFactory;
 import org.keycloak.models.cache.DefaultCacheRealmProvider;
 import org.keycloak.models.cache.RealmCache;
+import org.keycloak.models.cache.SingleFlight;
+import org.keycloak.models.cache.entities.CachedRoleClosure;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
-public class InfinispanCacheRealmProviderFactory implements CacheRealmProviderFactory {
+public class InfinispanCacheRealmProviderFactory implements CacheRealmProviderFactory, ServerInfoAwareProviderFactory {
 
     protected final ConcurrentHashMap<String, String> realmLookup = new ConcurrentHashMap<String, String>();
+    protected final ConcurrentHashMap<String, CachedRoleClosure> roleClosures = new ConcurrentHashMap<String, CachedRoleClosure>();
+    protected SingleFlight loads;
 
     @Override
     public CacheRealmProvider create(KeycloakSession session) {
         Cache<String, Object> cache = session.getProvider(InfinispanConnectionProvider.class).getCache(InfinispanConnectionProvider.REALM_CACHE_NAME);
-        RealmCache realmCache = new InfinispanRealmCache(cache, realmLookup);
-        return new DefaultCacheRealmProvider(realmCache, session);
+        RealmCache realmCache = new InfinispanRealmCache(cache, realmLookup, roleClosures);
+        return new DefaultCacheRealmProvider(realmCache, loads, session);
     }
 
     @Override
     public void init(Config.Scope config) {
+        loads = new SingleFlight(config.getLong("loadTimeout", SingleFlight.DEFAULT_TIMEOUT));
     }
 
     @Override
@@ -45,4 +52,9 @@ public class InfinispanCacheRealmProviderFactory implements CacheRealmProviderFa
         return "infinispan";
     }
 
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        return loads.getOperationalInfo();
+    }
+
 }
@@ -13,14 +13,17 @@ import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.cache.CacheUserProvider;
 import org.keycloak.models.cache.CacheUserProviderFactory;
 import org.keycloak.models.cache.DefaultCacheUserProvider;
+import org.keycloak.models.cache.SingleFlight;
 import org.keycloak.models.cache.entities.CachedUser;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
-public class InfinispanCacheUserProviderFactory implements CacheUserProviderFactory {
+public class InfinispanCacheUserProviderFactory implements CacheUserProviderFactory, ServerInfoAwareProviderFactory {
 
     protected InfinispanUserCache userCache;
 
@@ -28,13 +31,15 @@ public class InfinispanCacheUserProviderFactory implements CacheUserProviderFact
 
     protected final RealmLookup emailLookup = new RealmLookup();
 
+    protected SingleFlight loads;
+
     // Method CacheEntryCreatedEvent.getValue is available from ispn 6 (EAP6 and AS7 are on ispn 5)
     private boolean isNewInfinispan;
 
     @Override
     public CacheUserProvider create(KeycloakSession session) {
         lazyInit(session);
-        return new DefaultCacheUserProvider(userCache, session);
+        return new DefaultCacheUserProvider(userCache, loads, session);
     }
 
     private void lazyInit(KeycloakSession session) {
@@ -61,6 +66,7 @@ public class InfinispanCacheUserProviderFactory implements CacheUserProviderFact
 
     @Override
     public void init(Config.Scope config) {
+        loads = new SingleFlight(config.getLong("loadTimeout", SingleFlight.DEFAULT_TIMEOUT));
     }
 
     @Override
@@ -77,6 +83,11 @@ public class InfinispanCacheUserProviderFactory implements CacheUserProviderFact
         return "infinispan";
     }
 
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        return loads.getOperationalInfo();
+    }
+
     @Listener
     public class CacheListener {
 
@@ -6,7 +6,10 @@ import org.keycloak.models.cache.RealmCache;
 import org.keycloak.models.cache.entities.CachedClient;
 import org.keycloak.models.cache.entities.CachedRealm;
 import org.keycloak.models.cache.entities.CachedRole;
+import org.keycloak.models.cache.entities.CachedRoleClosure;
 
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -16,18 +19,24 @@ public class InfinispanRealmCache implements RealmCache {
 
     protected static final Logger logger = Logger.getLogger(InfinispanRealmCache.class);
 
+    // Removing this entry invalidates it on all nodes, so they stop using role closures they computed before
+    protected static final String ROLE_CLOSURE_VERSION_KEY = "roleClosureVersion";
+
     protected final Cache<String, Object> cache;
     protected final ConcurrentHashMap<String, String> realmLookup;
+    protected final ConcurrentHashMap<String, CachedRoleClosure> roleClosures;
     protected volatile boolean enabled = true;
 
-    public InfinispanRealmCache(Cache<String, Object> cache, ConcurrentHashMap<String, String> realmLookup) {
+    public InfinispanRealmCache(Cache<String, Object> cache, ConcurrentHashMap<String, String> realmLookup, ConcurrentHashMap<String, CachedRoleClosure> roleClosures) {
         this.cache = cache;
         this.realmLookup = realmLookup;
+        this.roleClosures = roleClosures;
     }
 
     @Override
     public void clear() {
         cache.clear();
+        roleClosures.clear();
     }
 
     @Override
@@ -111,12 +120,14 @@ public class InfinispanRealmCache implements RealmCache {
     public void invalidateRole(CachedRole role) {
         logger.tracev("Removing role {0}", role.getId());
         cache.remove(role);
+        invalidateRoleClosures();
     }
 
     @Override
     public void invalidateRoleById(String id) {
         logger.tracev("Removing role {0}", id);
         cache.remove(id);
+        invalidateRoleClosures();
     }
 
     @Override
@@ -130,6 +141,38 @@ public class InfinispanRealmCache implements RealmCache {
     public void invalidateCachedRoleById(String id) {
         logger.tracev("Removing role {0}", id);
         cache.remove(id);
+        invalidateRoleClosures();
+    }
+
+    @Override
+    public Set<String> getRoleClosure(String roleId) {
+        if (!enabled) return null;
+        CachedRoleClosure closure = roleClosures.get(roleId);
+        return closure != null && closure.getVersion().equals(get(ROLE_CLOSURE_VERSION_KEY, String.class)) ? closure.getRoles() : null;
+    }
+
+    @Override
+    public String getRoleClosureVersion() {
+        String version = get(ROLE_CLOSURE_VERSION_KEY, String.class);
+        if (version == null) {
+            // Unlike put, this doesn't invalidate the entry on other nodes
+            cache.putForExternalRead(ROLE_CLOSURE_VERSION_KEY, UUID.randomUUID().toString());
+            version = get(ROLE_CLOSURE_VERSION_KEY, String.class);
+        }
+        // Closures with a null version are never used
+        return version != null ? version : "";
+    }
+
+    @Override
+    public void addRoleClosure(String roleId, Set<String> closure, String version) {
+        if (!enabled) return;
+        roleClosures.put(roleId, new CachedRoleClosure(version, closure));
+    }
+
+    protected void invalidateRoleClosures() {
+        logger.trace("Removing role closures");
+        cache.remove(ROLE_CLOSURE_VERSION_KEY);
+        roleClosures.clear();
     }
 
     private <T> T get(String id, Class<T> type) {
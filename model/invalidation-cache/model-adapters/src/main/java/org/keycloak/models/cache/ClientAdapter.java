@@ -274,6 +274,19 @@ public class ClientAdapter implements ClientModel {
 
     }
 
+    /**
+     * Returns state compiled from the protocol mappers by {@link #setCompiledProtocolMappers(Object)}, or null if there's
+     * none or the client was updated in this session.
+     */
+    public Object getCompiledProtocolMappers() {
+        if (updated != null) return null;
+        return cached.getCompiledProtocolMappers();
+    }
+
+    public void setCompiledProtocolMappers(Object compiled) {
+        if (updated == null) cached.setCompiledProtocolMappers(compiled);
+    }
+
     @Override
     public ProtocolMapperModel getProtocolMapperById(String id) {
         for (ProtocolMapperModel mapping : cached.getProtocolMappers()) {
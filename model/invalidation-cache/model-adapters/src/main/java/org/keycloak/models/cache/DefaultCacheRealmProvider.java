@@ -26,6 +26,7 @@ import java.util.Set;
  */
 public class DefaultCacheRealmProvider implements CacheRealmProvider {
     protected RealmCache cache;
+    protected SingleFlight loads;
     protected KeycloakSession session;
     protected RealmProvider delegate;
     protected boolean transactionActive;
@@ -41,7 +42,12 @@ public class DefaultCacheRealmProvider implements CacheRealmProvider {
     protected boolean clearAll;
 
     public DefaultCacheRealmProvider(RealmCache cache, KeycloakSession session) {
+        this(cache, new SingleFlight(), session);
+    }
+
+    public DefaultCacheRealmProvider(RealmCache cache, SingleFlight loads, KeycloakSession session) {
         this.cache = cache;
+        this.loads = loads;
         this.session = session;
 
         session.getTransaction().enlistAfterCompletion(getTransaction());
@@ -156,15 +162,16 @@ public class DefaultCacheRealmProvider implements CacheRealmProvider {
     }
 
     @Override
-    public RealmModel getRealm(String id) {
+    public RealmModel getRealm(final String id) {
         if (!cache.isEnabled()) return getDelegate().getRealm(id);
         CachedRealm cached = cache.getCachedRealm(id);
         if (cached == null) {
-            RealmModel model = getDelegate().getRealm(id);
-            if (model == null) return null;
-            if (realmInvalidations.contains(id)) return model;
-            cached = new CachedRealm(cache, this, model);
-            cache.addCachedRealm(cached);
+            return loadRealm("id:" + id, new RealmLoader() {
+                @Override
+                protected RealmModel loadModel() {
+                    return getDelegate().getRealm(id);
+                }
+            });
         } else if (realmInvalidations.contains(id)) {
             return getDelegate().getRealm(id);
         } else if (managedRealms.containsKey(id)) {
@@ -176,15 +183,16 @@ public class DefaultCacheRealmProvider implements CacheRealmProvider {
     }
 
     @Override
-    public RealmModel getRealmByName(String name) {
+    public RealmModel getRealmByName(final String name) {
         if (!cache.isEnabled()) return getDelegate().getRealmByName(name);
         CachedRealm cached = cache.getCachedRealmByName(name);
         if (cached == null) {
-            RealmModel model = getDelegate().getRealmByName(name);
-            if (model == null) return null;
-            if (realmInvalidations.contains(model.getId())) return model;
-            cached = new CachedRealm(cache, this, model);
-            cache.addCachedRealm(cached);
+            return loadRealm("name:" + name, new RealmLoader() {
+                @Override
+                protected RealmModel loadModel() {
+                    return getDelegate().getRealmByName(name);
+                }
+            });
         } else if (realmInvalidations.contains(cached.getId())) {
             return getDelegate().getRealmByName(name);
         } else if (managedRealms.containsKey(cached.getId())) {
@@ -195,6 +203,50 @@ public class DefaultCacheRealmProvider implements CacheRealmProvider {
         return adapter;
     }
 
+    /**
+     * Loads a realm missing in the cache, unless another session is loading it already.
+     */
+    protected RealmModel loadRealm(String key, RealmLoader loader) {
+        CachedRealm cached = loads.load(key, loader);
+        if (cached == null) {
+            // Loaded by this session, but not cached. Or another session failed to load it, or it doesn't exist
+            return loader.loaded ? loader.model : loader.loadModel();
+        }
+
+        if (!loader.loaded) {
+            // Loaded by another session, which doesn't know about invalidations of this one
+            if (realmInvalidations.contains(cached.getId())) {
+                return getDelegate().getRealm(cached.getId());
+            } else if (managedRealms.containsKey(cached.getId())) {
+                return managedRealms.get(cached.getId());
+            }
+        }
+
+        RealmAdapter adapter = new RealmAdapter(cached, this);
+        managedRealms.put(cached.getId(), adapter);
+        return adapter;
+    }
+
+    protected abstract class RealmLoader implements SingleFlight.Loader<CachedRealm> {
+
+        private boolean loaded;
+        private RealmModel model;
+
+        protected abstract RealmModel loadModel();
+
+        @Override
+        public CachedRealm load() {
+            loaded = true;
+            model = loadModel();
+            if (model == null) return null;
+            if (realmInvalidations.contains(model.getId())) return null;
+
+            CachedRealm cached = new CachedRealm(cache, DefaultCacheRealmProvider.this, model);
+            cache.addCachedRealm(cached);
+            return cached;
+        }
+    }
+
     @Override
     public List<RealmModel> getRealms() {
         // Retrieve realms from backend
@@ -26,6 +26,7 @@ import java.util.Set;
  */
 public class DefaultCacheUserProvider implements CacheUserProvider {
     protected UserCache cache;
+    protected SingleFlight loads;
     protected KeycloakSession session;
     protected UserProvider delegate;
     protected boolean transactionActive;
@@ -38,7 +39,12 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
     protected boolean clearAll;
 
     public DefaultCacheUserProvider(UserCache cache, KeycloakSession session) {
+        this(cache, new SingleFlight(), session);
+    }
+
+    public DefaultCacheUserProvider(UserCache cache, SingleFlight loads, KeycloakSession session) {
         this.cache = cache;
+        this.loads = loads;
         this.session = session;
 
         session.getTransaction().enlistAfterCompletion(getTransaction());
@@ -118,7 +124,7 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
     }
 
     @Override
-    public UserModel getUserById(String id, RealmModel realm) {
+    public UserModel getUserById(final String id, final RealmModel realm) {
         if (!cache.isEnabled()) return getDelegate().getUserById(id, realm);
         if (realmInvalidations.contains(realm.getId())) {
             return getDelegate().getUserById(id, realm);
@@ -129,11 +135,12 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
 
         CachedUser cached = cache.getCachedUser(realm.getId(), id);
         if (cached == null) {
-            UserModel model = getDelegate().getUserById(id, realm);
-            if (model == null) return null;
-            if (userInvalidations.containsKey(id)) return model;
-            cached = new CachedUser(realm, model);
-            cache.addCachedUser(realm.getId(), cached);
+            return loadUser("id:" + realm.getId() + ":" + id, new UserLoader(realm) {
+                @Override
+                protected UserModel loadModel() {
+                    return getDelegate().getUserById(id, realm);
+                }
+            });
         } else if (managedUsers.containsKey(id)) {
             return managedUsers.get(id);
         }
@@ -143,7 +150,7 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
     }
 
     @Override
-    public UserModel getUserByUsername(String username, RealmModel realm) {
+    public UserModel getUserByUsername(String username, final RealmModel realm) {
         
         username = username.toLowerCase();
         
@@ -153,11 +160,13 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
         }
         CachedUser cached = cache.getCachedUserByUsername(realm.getId(), username);
         if (cached == null) {
-            UserModel model = getDelegate().getUserByUsername(username, realm);
-            if (model == null) return null;
-            if (userInvalidations.containsKey(model.getId())) return model;
-            cached = new CachedUser(realm, model);
-            cache.addCachedUser(realm.getId(), cached);
+            final String lowerUsername = username;
+            return loadUser("username:" + realm.getId() + ":" + username, new UserLoader(realm) {
+                @Override
+                protected UserModel loadModel() {
+                    return getDelegate().getUserByUsername(lowerUsername, realm);
+                }
+            });
         } else if (userInvalidations.containsKey(cached.getId())) {
             return getDelegate().getUserById(cached.getId(), realm);
         } else if (managedUsers.containsKey(cached.getId())) {
@@ -169,7 +178,7 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
     }
 
     @Override
-    public UserModel getUserByEmail(String email, RealmModel realm) {
+    public UserModel getUserByEmail(String email, final RealmModel realm) {
         
         email = email.toLowerCase();
         
@@ -179,11 +188,13 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
         }
         CachedUser cached = cache.getCachedUserByEmail(realm.getId(), email);
         if (cached == null) {
-            UserModel model = getDelegate().getUserByEmail(email, realm);
-            if (model == null) return null;
-            if (userInvalidations.containsKey(model.getId())) return model;
-            cached = new CachedUser(realm, model);
-            cache.addCachedUser(realm.getId(), cached);
+            final String lowerEmail = email;
+            return loadUser("email:" + realm.getId() + ":" + email, new UserLoader(realm) {
+                @Override
+                protected UserModel loadModel() {
+                    return getDelegate().getUserByEmail(lowerEmail, realm);
+                }
+            });
         } else if (userInvalidations.containsKey(cached.getId())) {
             return getDelegate().getUserByEmail(email, realm);
         } else if (managedUsers.containsKey(cached.getId())) {
@@ -194,6 +205,55 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
         return adapter;
     }
 
+    /**
+     * Loads a user missing in the cache, unless another session is loading it already.
+     */
+    protected UserModel loadUser(String key, UserLoader loader) {
+        CachedUser cached = loads.load(key, loader);
+        if (cached == null) {
+            // Loaded by this session, but not cached. Or another session failed to load it, or it doesn't exist
+            return loader.loaded ? loader.model : loader.loadModel();
+        }
+
+        if (!loader.loaded) {
+            // Loaded by another session, which doesn't know about invalidations of this one
+            if (userInvalidations.containsKey(cached.getId())) {
+                return getDelegate().getUserById(cached.getId(), loader.realm);
+            } else if (managedUsers.containsKey(cached.getId())) {
+                return managedUsers.get(cached.getId());
+            }
+        }
+
+        UserAdapter adapter = new UserAdapter(cached, this, session, loader.realm);
+        managedUsers.put(cached.getId(), adapter);
+        return adapter;
+    }
+
+    protected abstract class UserLoader implements SingleFlight.Loader<CachedUser> {
+
+        private final RealmModel realm;
+        private boolean loaded;
+        private UserModel model;
+
+        protected UserLoader(RealmModel realm) {
+            this.realm = realm;
+        }
+
+        protected abstract UserModel loadModel();
+
+        @Override
+        public CachedUser load() {
+            loaded = true;
+            model = loadModel();
+            if (model == null) return null;
+            if (userInvalidations.containsKey(model.getId())) return null;
+
+            CachedUser cached = new CachedUser(realm, model);
+            cache.addCachedUser(realm.getId(), cached);
+            return cached;
+        }
+    }
+
     @Override
     public void close() {
         if (delegate != null) delegate.close();
@@ -229,6 +289,21 @@ public class DefaultCacheUserProvider implements CacheUserProvider {
         return getDelegate().searchForUser(search, realm, firstResult, maxResults);
     }
 
+    @Override
+    public List<UserModel> getUsersAfter(RealmModel realm, String lastUsername, int maxResults) {
+        return getDelegate().getUsersAfter(realm, lastUsername, maxResults);
+    }
+
+    @Override
+    public String getUsernameAfter(RealmModel realm, String lastUsername, int position) {
+        return getDelegate().getUsernameAfter(realm, lastUsername, position);
+    }
+
+    @Override
+    public List<UserModel> searchForUserAfter(String search, RealmModel realm, String lastUsername, int maxResults) {
+        return getDelegate().searchForUserAfter(search, realm, lastUsername, maxResults);
+    }
+
     @Override
     public List<UserModel> searchForUserByAttributes(Map<String, String> attributes, RealmModel realm) {
         return getDelegate().searchForUserByAttributes(attributes, realm);
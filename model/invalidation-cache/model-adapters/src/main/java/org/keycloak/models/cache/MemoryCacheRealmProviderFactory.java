@@ -3,23 +3,27 @@ package org.keycloak.models.cache;
 import org.keycloak.Config;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
+
+import java.util.Map;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class MemoryCacheRealmProviderFactory implements CacheRealmProviderFactory {
+public class MemoryCacheRealmProviderFactory implements CacheRealmProviderFactory, ServerInfoAwareProviderFactory {
     protected RealmCache cache = new MemoryRealmCache();
+    protected SingleFlight loads;
 
     @Override
     public CacheRealmProvider create(KeycloakSession session) {
-        return new DefaultCacheRealmProvider(cache, session);
+        return new DefaultCacheRealmProvider(cache, loads, session);
     }
 
     @Override
     public void init(Config.Scope config) {
         config.get("");
-
+        loads = new SingleFlight(config.getLong("loadTimeout", SingleFlight.DEFAULT_TIMEOUT));
     }
 
     @Override
@@ -36,4 +40,9 @@ public class MemoryCacheRealmProviderFactory implements CacheRealmProviderFactor
     public String getId() {
         return "mem";
     }
+
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        return loads.getOperationalInfo();
+    }
 }
@@ -3,17 +3,21 @@ package org.keycloak.models.cache;
 import org.keycloak.Config;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
+
+import java.util.Map;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class MemoryCacheUserProviderFactory implements CacheUserProviderFactory {
+public class MemoryCacheUserProviderFactory implements CacheUserProviderFactory, ServerInfoAwareProviderFactory {
     protected MemoryUserCache cache;
+    protected SingleFlight loads;
 
     @Override
     public CacheUserProvider create(KeycloakSession session) {
-        return new DefaultCacheUserProvider(cache, session);
+        return new DefaultCacheUserProvider(cache, loads, session);
     }
 
     @Override
@@ -22,6 +26,7 @@ public class MemoryCacheUserProviderFactory implements CacheUserProviderFactory
         cache = new MemoryUserCache();
         int size = config.getInt("maxSize", 10000);
         cache.setMaxUserCacheSize(size);
+        loads = new SingleFlight(config.getLong("loadTimeout", SingleFlight.DEFAULT_TIMEOUT));
     }
 
     @Override
@@ -38,4 +43,9 @@ public class MemoryCacheUserProviderFactory implements CacheUserProviderFactory
     public String getId() {
         return "mem";
     }
+
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        return loads.getOperationalInfo();
+    }
 }
@@ -3,8 +3,11 @@ package org.keycloak.models.cache;
 import org.keycloak.models.cache.entities.CachedClient;
 import org.keycloak.models.cache.entities.CachedRealm;
 import org.keycloak.models.cache.entities.CachedRole;
+import org.keycloak.models.cache.entities.CachedRoleClosure;
 
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
@@ -16,6 +19,8 @@ public class MemoryRealmCache implements RealmCache {
     protected ConcurrentHashMap<String, CachedRealm> realmCacheByName = new ConcurrentHashMap<String, CachedRealm>();
     protected ConcurrentHashMap<String, CachedClient> applicationCache = new ConcurrentHashMap<String, CachedClient>();
     protected ConcurrentHashMap<String, CachedRole> roleCache = new ConcurrentHashMap<String, CachedRole>();
+    protected ConcurrentHashMap<String, CachedRoleClosure> roleClosureCache = new ConcurrentHashMap<String, CachedRoleClosure>();
+    protected AtomicLong roleClosureVersion = new AtomicLong();
     protected volatile boolean enabled = true;
 
     @Override
@@ -24,6 +29,7 @@ public class MemoryRealmCache implements RealmCache {
         realmCacheByName.clear();
         applicationCache.clear();
         roleCache.clear();
+        invalidateRoleClosures();
     }
 
     @Override
@@ -102,11 +108,13 @@ public class MemoryRealmCache implements RealmCache {
     @Override
     public void invalidateRole(CachedRole role) {
         roleCache.remove(role);
+        invalidateRoleClosures();
     }
 
     @Override
     public void invalidateRoleById(String id) {
         roleCache.remove(id);
+        invalidateRoleClosures();
     }
 
     @Override
@@ -118,5 +126,30 @@ public class MemoryRealmCache implements RealmCache {
     @Override
     public void invalidateCachedRoleById(String id) {
         roleCache.remove(id);
+        invalidateRoleClosures();
+    }
+
+    @Override
+    public Set<String> getRoleClosure(String roleId) {
+        if (!enabled) return null;
+        CachedRoleClosure closure = roleClosureCache.get(roleId);
+        return closure != null && closure.getVersion().equals(getRoleClosureVersion()) ? closure.getRoles() : null;
+    }
+
+    @Override
+    public String getRoleClosureVersion() {
+        return Long.toString(roleClosureVersion.get());
+    }
+
+    @Override
+    public void addRoleClosure(String roleId, Set<String> closure, String version) {
+        if (!enabled) return;
+        roleClosureCache.put(roleId, new CachedRoleClosure(version, closure));
+    }
+
+    // Closures of composites contain other roles, so any change of a role may change them
+    protected void invalidateRoleClosures() {
+        roleClosureVersion.incrementAndGet();
+        roleClosureCache.clear();
     }
 }
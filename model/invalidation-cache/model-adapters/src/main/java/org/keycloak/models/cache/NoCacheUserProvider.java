@@ -98,6 +98,21 @@ public class NoCacheUserProvider implements CacheUserProvider {
         return getDelegate().searchForUser(search, realm, firstResult, maxResults);
     }
 
+    @Override
+    public List<UserModel> getUsersAfter(RealmModel realm, String lastUsername, int maxResults) {
+        return getDelegate().getUsersAfter(realm, lastUsername, maxResults);
+    }
+
+    @Override
+    public String getUsernameAfter(RealmModel realm, String lastUsername, int position) {
+        return getDelegate().getUsernameAfter(realm, lastUsername, position);
+    }
+
+    @Override
+    public List<UserModel> searchForUserAfter(String search, RealmModel realm, String lastUsername, int maxResults) {
+        return getDelegate().searchForUserAfter(search, realm, lastUsername, maxResults);
+    }
+
     @Override
     public List<UserModel> searchForUserByAttributes(Map<String, String> attributes, RealmModel realm) {
         return getDelegate().searchForUserByAttributes(attributes, realm);
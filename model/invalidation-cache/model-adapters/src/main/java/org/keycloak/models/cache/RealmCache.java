@@ -4,6 +4,8 @@ import org.keycloak.models.cache.entities.CachedClient;
 import org.keycloak.models.cache.entities.CachedRealm;
 import org.keycloak.models.cache.entities.CachedRole;
 
+import java.util.Set;
+
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
@@ -39,6 +41,18 @@ public interface RealmCache {
 
     void invalidateRoleById(String id);
 
+    /**
+     * @return closure of the composite role or null if it's not cached or some role was invalidated since it was added
+     */
+    Set<String> getRoleClosure(String roleId);
+
+    /**
+     * @return current version of role closures, which changes whenever a role is invalidated
+     */
+    String getRoleClosureVersion();
+
+    void addRoleClosure(String roleId, Set<String> closure, String version);
+
     boolean isEnabled();
 
     void setEnabled(boolean enabled);
@@ -9,6 +9,7 @@ import org.keycloak.models.cache.entities.CachedRole;
 import org.keycloak.models.utils.KeycloakModelUtils;
 
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.Set;
 
 /**
@@ -116,8 +117,48 @@ public class RoleAdapter implements RoleModel {
         if (this.equals(role)) return true;
         if (!isComposite()) return false;
 
-        Set<RoleModel> visited = new HashSet<RoleModel>();
-        return KeycloakModelUtils.searchFor(role, this, visited);
+        if (updated != null) {
+            Set<RoleModel> visited = new HashSet<RoleModel>();
+            return KeycloakModelUtils.searchFor(role, this, visited);
+        }
+        return getRoleClosure().contains(role.getId());
+    }
+
+    /**
+     * Returns ids of all roles contained in this role, directly or through other composites. The closure is computed
+     * once and cached until any role is invalidated.
+     */
+    protected Set<String> getRoleClosure() {
+        Set<String> closure = cache.getRoleClosure(getId());
+        if (closure != null) return closure;
+
+        // Version must be read before the roles, so the closure is discarded if a role changes meanwhile
+        String version = cache.getRoleClosureVersion();
+        closure = new HashSet<String>();
+        closure.add(getId());
+
+        // Roles updated in this transaction are not cached, so neither is a closure containing them
+        boolean cacheable = true;
+        LinkedList<RoleModel> queue = new LinkedList<RoleModel>();
+        queue.add(this);
+        while (!queue.isEmpty()) {
+            RoleModel current = queue.removeFirst();
+            if (!(current instanceof RoleAdapter) || ((RoleAdapter) current).updated != null) {
+                cacheable = false;
+            }
+            if (!current.isComposite()) continue;
+
+            for (RoleModel contained : current.getComposites()) {
+                if (closure.add(contained.getId())) {
+                    queue.add(contained);
+                }
+            }
+        }
+
+        if (cacheable) {
+            cache.addRoleClosure(getId(), closure, version);
+        }
+        return closure;
     }
 
     @Override
@@ -0,0 +1,130 @@
+package org.keycloak.models.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent loads of the same missing cache entry. The first thread loading a key runs the loader, other
+ * threads loading the same key meanwhile wait for its result instead of loading the entry again. Shared by all
+ * sessions of a cache provider factory.
+ */
+public class SingleFlight {
+
+    public static final long DEFAULT_TIMEOUT = 10000;
+
+    public interface Loader<V> {
+        V load();
+    }
+
+    private final ConcurrentMap<Object, Flight> flights = new ConcurrentHashMap<Object, Flight>();
+    private final long timeout;
+
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public SingleFlight() {
+        this(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param timeout milliseconds to wait for a concurrent load, before the entry is loaded by the waiting thread
+     */
+    public SingleFlight(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs the loader, unless another thread is loading the same key already. In that case waits for the other thread
+     * and returns its result, which is null if its loader returned null or failed. If the other thread doesn't finish
+     * in time, runs the loader too.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V load(Object key, Loader<V> loader) {
+        Flight flight = new Flight();
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            if (existing.owner == Thread.currentThread()) {
+                // Loading the entry needs the entry itself, waiting would never end
+                return loader.load();
+            }
+            if (existing.await(timeout)) {
+                coalesced.incrementAndGet();
+                return (V) existing.value;
+            }
+
+            timedOut.incrementAndGet();
+            loads.incrementAndGet();
+            return loader.load();
+        }
+
+        loads.incrementAndGet();
+        V value = null;
+        try {
+            value = loader.load();
+            return value;
+        } finally {
+            flights.remove(key, flight);
+            flight.complete(value);
+        }
+    }
+
+    /**
+     * @return count of loads run by this instance
+     */
+    public long getLoads() {
+        return loads.get();
+    }
+
+    /**
+     * @return count of loads which waited for a concurrent load of the same key instead
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return count of loads which stopped waiting for a concurrent load of the same key and loaded the entry too
+     */
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    /**
+     * @return current counts, for the server info of cache provider factories
+     */
+    public Map<String, String> getOperationalInfo() {
+        Map<String, String> info = new LinkedHashMap<String, String>();
+        info.put("loads", String.valueOf(getLoads()));
+        info.put("coalesced", String.valueOf(getCoalesced()));
+        info.put("timedOut", String.valueOf(getTimedOut()));
+        return info;
+    }
+
+    private static class Flight {
+
+        private final Thread owner = Thread.currentThread();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Object value;
+
+        private void complete(Object value) {
+            this.value = value;
+            done.countDown();
+        }
+
+        private boolean await(long timeout) {
+            try {
+                return done.await(timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+}
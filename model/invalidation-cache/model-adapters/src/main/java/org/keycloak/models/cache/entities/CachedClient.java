@@ -46,6 +46,7 @@ public class CachedClient {
     private Map<String, String> roles = new HashMap<String, String>();
     private int nodeReRegistrationTimeout;
     private Map<String, Integer> registeredNodes;
+    private volatile Object compiledProtocolMappers;
 
     public CachedClient(RealmCache cache, RealmProvider delegate, RealmModel realm, ClientModel model) {
         id = model.getId();
@@ -186,4 +187,16 @@ public class CachedClient {
     public Map<String, Integer> getRegisteredNodes() {
         return registeredNodes;
     }
+
+    /**
+     * State derived from the protocol mappers, like resolved mapper providers. It's dropped together with the cached
+     * client when the client is invalidated, so it's never older than the protocol mappers.
+     */
+    public Object getCompiledProtocolMappers() {
+        return compiledProtocolMappers;
+    }
+
+    public void setCompiledProtocolMappers(Object compiledProtocolMappers) {
+        this.compiledProtocolMappers = compiledProtocolMappers;
+    }
 }
@@ -0,0 +1,27 @@
+package org.keycloak.models.cache.entities;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Ids of all roles contained in a composite role, directly or through other composites, including the role itself.
+ * The version is the role closure version of the cache when the closure was computed. Closures with an older version
+ * may miss changes of contained roles and are not used.
+ */
+public class CachedRoleClosure {
+    final protected String version;
+    final protected Set<String> roles;
+
+    public CachedRoleClosure(String version, Set<String> roles) {
+        this.version = version;
+        this.roles = Collections.unmodifiableSet(roles);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+}
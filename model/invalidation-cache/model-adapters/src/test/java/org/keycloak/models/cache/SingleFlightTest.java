@@ -0,0 +1,196 @@
+package org.keycloak.models.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SingleFlightTest {
+
+    private SingleFlight loads = new SingleFlight();
+
+    @Test
+    public void coalesceConcurrentLoads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingLoader owner = new BlockingLoader("value", release);
+        LoadThread ownerThread = start("key", owner);
+        Assert.assertTrue(owner.loading.await(10, TimeUnit.SECONDS));
+
+        CountingLoader waiter = new CountingLoader("other");
+        LoadThread waiterThread = start("key", waiter);
+        awaitWaiting(waiterThread);
+
+        release.countDown();
+        ownerThread.join(10000);
+        waiterThread.join(10000);
+
+        Assert.assertEquals("value", ownerThread.result.get());
+        Assert.assertEquals("value", waiterThread.result.get());
+        Assert.assertEquals(0, waiter.count.get());
+        Assert.assertEquals(1, loads.getLoads());
+        Assert.assertEquals(1, loads.getCoalesced());
+    }
+
+    @Test
+    public void loadAgainAfterCompletion() {
+        CountingLoader loader = new CountingLoader("value");
+        Assert.assertEquals("value", loads.load("key", loader));
+        Assert.assertEquals("value", loads.load("key", loader));
+
+        Assert.assertEquals(2, loader.count.get());
+        Assert.assertEquals(2, loads.getLoads());
+        Assert.assertEquals(0, loads.getCoalesced());
+    }
+
+    @Test
+    public void differentKeysDontWait() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingLoader owner = new BlockingLoader("value", release);
+        LoadThread ownerThread = start("key", owner);
+        Assert.assertTrue(owner.loading.await(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals("other", loads.load("other-key", new CountingLoader("other")));
+
+        release.countDown();
+        ownerThread.join(10000);
+        Assert.assertEquals(2, loads.getLoads());
+        Assert.assertEquals(0, loads.getCoalesced());
+    }
+
+    @Test
+    public void failedLoadReturnsNullToWaiters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingLoader owner = new BlockingLoader(null, release);
+        owner.fail = true;
+        LoadThread ownerThread = start("key", owner);
+        Assert.assertTrue(owner.loading.await(10, TimeUnit.SECONDS));
+
+        LoadThread waiterThread = start("key", new CountingLoader("other"));
+        awaitWaiting(waiterThread);
+
+        release.countDown();
+        ownerThread.join(10000);
+        waiterThread.join(10000);
+
+        Assert.assertTrue(ownerThread.failure.get() instanceof IllegalStateException);
+        Assert.assertNull(waiterThread.failure.get());
+        Assert.assertNull(waiterThread.result.get());
+    }
+
+    @Test
+    public void loadLocallyAfterTimeout() throws Exception {
+        loads = new SingleFlight(50);
+
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingLoader owner = new BlockingLoader("value", release);
+        LoadThread ownerThread = start("key", owner);
+        Assert.assertTrue(owner.loading.await(10, TimeUnit.SECONDS));
+
+        CountingLoader waiter = new CountingLoader("local");
+        Assert.assertEquals("local", loads.load("key", waiter));
+        Assert.assertEquals(1, waiter.count.get());
+
+        release.countDown();
+        ownerThread.join(10000);
+
+        Assert.assertEquals(2, loads.getLoads());
+        Assert.assertEquals(0, loads.getCoalesced());
+        Assert.assertEquals(1, loads.getTimedOut());
+        Assert.assertEquals("1", loads.getOperationalInfo().get("timedOut"));
+    }
+
+    @Test
+    public void nestedLoadOfSameKey() {
+        String value = loads.load("key", new SingleFlight.Loader<String>() {
+            @Override
+            public String load() {
+                return "outer-" + loads.load("key", new CountingLoader("inner"));
+            }
+        });
+
+        Assert.assertEquals("outer-inner", value);
+    }
+
+    private LoadThread start(String key, SingleFlight.Loader<String> loader) {
+        LoadThread thread = new LoadThread(key, loader);
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < end) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(Thread.State.TIMED_WAITING, thread.getState());
+    }
+
+    private class LoadThread extends Thread {
+
+        private final String key;
+        private final SingleFlight.Loader<String> loader;
+        private final AtomicReference<String> result = new AtomicReference<String>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        private LoadThread(String key, SingleFlight.Loader<String> loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result.set(loads.load(key, loader));
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }
+    }
+
+    private static class CountingLoader implements SingleFlight.Loader<String> {
+
+        private final String value;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private CountingLoader(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String load() {
+            count.incrementAndGet();
+            return value;
+        }
+    }
+
+    private static class BlockingLoader implements SingleFlight.Loader<String> {
+
+        private final String value;
+        private final CountDownLatch release;
+        private final CountDownLatch loading = new CountDownLatch(1);
+        private volatile boolean fail;
+
+        private BlockingLoader(String value, CountDownLatch release) {
+            this.value = value;
+            this.release = release;
+        }
+
+        @Override
+        public String load() {
+            loading.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (fail) {
+                throw new IllegalStateException("Expected failure");
+            }
+            return value;
+        }
+    }
+
+}
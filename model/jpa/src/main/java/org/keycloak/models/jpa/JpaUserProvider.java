@@ -1,5 +1,6 @@
 package org.keycloak.models.jpa;
 
+import org.keycloak.models.BatchUserProvider;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.CredentialValidationOutput;
 import org.keycloak.models.FederatedIdentityModel;
@@ -28,7 +29,7 @@ import java.util.Set;
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class JpaUserProvider implements UserProvider {
+public class JpaUserProvider implements UserProvider, BatchUserProvider {
 
     private static final String EMAIL = "email";
     private static final String USERNAME = "username";
@@ -37,10 +38,32 @@ public class JpaUserProvider implements UserProvider {
 
     private final KeycloakSession session;
     protected EntityManager em;
+    private final int batchSize;
+    private UserBatch batch;
 
     public JpaUserProvider(KeycloakSession session, EntityManager em) {
+        this(session, em, JpaUserProviderFactory.DEFAULT_BATCH_SIZE);
+    }
+
+    public JpaUserProvider(KeycloakSession session, EntityManager em, int batchSize) {
         this.session = session;
         this.em = em;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void startBatch() {
+        if (batch == null) {
+            batch = new UserBatch(em, batchSize);
+        }
+    }
+
+    @Override
+    public void endBatch() {
+        if (batch != null) {
+            batch.flush();
+            batch = null;
+        }
     }
 
     @Override
@@ -53,9 +76,21 @@ public class JpaUserProvider implements UserProvider {
         entity.setId(id);
         entity.setUsername(username.toLowerCase());
         entity.setRealmId(realm.getId());
-        em.persist(entity);
-        em.flush();
-        UserModel userModel = new UserAdapter(realm, em, entity);
+
+        UserModel userModel;
+        if (batch != null) {
+            // Users created before are complete now, so write them together
+            if (batch.isFull()) {
+                batch.flush();
+            }
+            em.persist(entity);
+            batch.addUser(entity);
+            userModel = new UserAdapter(session, realm, em, entity, batch);
+        } else {
+            em.persist(entity);
+            em.flush();
+            userModel = new UserAdapter(session, realm, em, entity);
+        }
 
         if (addDefaultRoles) {
             for (String r : realm.getDefaultRoles()) {
@@ -114,7 +149,11 @@ public class JpaUserProvider implements UserProvider {
         UserEntity userEntity = em.getReference(UserEntity.class, user.getId());
         entity.setUser(userEntity);
         em.persist(entity);
-        em.flush();
+        if (batch != null) {
+            batch.add(entity);
+        } else {
+            em.flush();
+        }
     }
 
     @Override
@@ -218,7 +257,7 @@ public class JpaUserProvider implements UserProvider {
         query.setParameter("realmId", realm.getId());
         List<UserEntity> entities = query.getResultList();
         if (entities.size() == 0) return null;
-        return new UserAdapter(realm, em, entities.get(0));
+        return new UserAdapter(session, realm, em, entities.get(0));
     }
 
     @Override
@@ -228,7 +267,7 @@ public class JpaUserProvider implements UserProvider {
         query.setParameter("realmId", realm.getId());
         List<UserEntity> results = query.getResultList();
         if (results.size() == 0) return null;
-        return new UserAdapter(realm, em, results.get(0));
+        return new UserAdapter(session, realm, em, results.get(0));
     }
 
     @Override
@@ -237,7 +276,7 @@ public class JpaUserProvider implements UserProvider {
         query.setParameter("email", email.toLowerCase());
         query.setParameter("realmId", realm.getId());
         List<UserEntity> results = query.getResultList();
-        return results.isEmpty() ? null : new UserAdapter(realm, em, results.get(0));
+        return results.isEmpty() ? null : new UserAdapter(session, realm, em, results.get(0));
     }
 
      @Override
@@ -258,7 +297,7 @@ public class JpaUserProvider implements UserProvider {
                     ", userId=" + identity.getUserId() + ", results=" + results);
         } else {
             UserEntity user = results.get(0);
-            return new UserAdapter(realm, em, user);
+            return new UserAdapter(session, realm, em, user);
         }
     }
 
@@ -288,10 +327,39 @@ public class JpaUserProvider implements UserProvider {
         }
         List<UserEntity> results = query.getResultList();
         List<UserModel> users = new ArrayList<UserModel>();
-        for (UserEntity entity : results) users.add(new UserAdapter(realm, em, entity));
+        for (UserEntity entity : results) users.add(new UserAdapter(session, realm, em, entity));
         return users;
     }
 
+    @Override
+    public List<UserModel> getUsersAfter(RealmModel realm, String lastUsername, int maxResults) {
+        TypedQuery<UserEntity> query;
+        if (lastUsername == null) {
+            query = em.createNamedQuery("getAllUsersByRealm", UserEntity.class);
+        } else {
+            query = em.createNamedQuery("getUsersByRealmAfterUsername", UserEntity.class);
+            query.setParameter("username", lastUsername);
+        }
+        query.setParameter("realmId", realm.getId());
+        return toUserModels(realm, query, maxResults);
+    }
+
+    @Override
+    public String getUsernameAfter(RealmModel realm, String lastUsername, int position) {
+        TypedQuery<String> query;
+        if (lastUsername == null) {
+            query = em.createNamedQuery("getUsernamesByRealm", String.class);
+        } else {
+            query = em.createNamedQuery("getUsernamesByRealmAfterUsername", String.class);
+            query.setParameter("username", lastUsername);
+        }
+        query.setParameter("realmId", realm.getId());
+        query.setFirstResult(position - 1);
+        query.setMaxResults(1);
+        List<String> results = query.getResultList();
+        return results.isEmpty() ? null : results.get(0);
+    }
+
     @Override
     public List<UserModel> searchForUser(String search, RealmModel realm) {
         return searchForUser(search, realm, -1, -1);
@@ -310,7 +378,31 @@ public class JpaUserProvider implements UserProvider {
         }
         List<UserEntity> results = query.getResultList();
         List<UserModel> users = new ArrayList<UserModel>();
-        for (UserEntity entity : results) users.add(new UserAdapter(realm, em, entity));
+        for (UserEntity entity : results) users.add(new UserAdapter(session, realm, em, entity));
+        return users;
+    }
+
+    @Override
+    public List<UserModel> searchForUserAfter(String search, RealmModel realm, String lastUsername, int maxResults) {
+        TypedQuery<UserEntity> query;
+        if (lastUsername == null) {
+            query = em.createNamedQuery("searchForUser", UserEntity.class);
+        } else {
+            query = em.createNamedQuery("searchForUserAfterUsername", UserEntity.class);
+            query.setParameter("username", lastUsername);
+        }
+        query.setParameter("realmId", realm.getId());
+        query.setParameter("search", "%" + search.toLowerCase() + "%");
+        return toUserModels(realm, query, maxResults);
+    }
+
+    private List<UserModel> toUserModels(RealmModel realm, TypedQuery<UserEntity> query, int maxResults) {
+        if (maxResults != -1) {
+            query.setMaxResults(maxResults);
+        }
+        List<UserEntity> results = query.getResultList();
+        List<UserModel> users = new ArrayList<UserModel>();
+        for (UserEntity entity : results) users.add(new UserAdapter(session, realm, em, entity));
         return users;
     }
 
@@ -368,7 +460,7 @@ public class JpaUserProvider implements UserProvider {
         }
         List<UserEntity> results = query.getResultList();
         List<UserModel> users = new ArrayList<UserModel>();
-        for (UserEntity entity : results) users.add(new UserAdapter(realm, em, entity));
+        for (UserEntity entity : results) users.add(new UserAdapter(session, realm, em, entity));
         return users;
     }
 
@@ -403,12 +495,12 @@ public class JpaUserProvider implements UserProvider {
 
     @Override
     public boolean validCredentials(RealmModel realm, UserModel user, List<UserCredentialModel> input) {
-        return CredentialValidation.validCredentials(realm, user, input);
+        return CredentialValidation.validCredentials(session, realm, user, input);
     }
 
     @Override
     public boolean validCredentials(RealmModel realm, UserModel user, UserCredentialModel... input) {
-        return CredentialValidation.validCredentials(realm, user, input);
+        return CredentialValidation.validCredentials(session, realm, user, input);
     }
 
     @Override
@@ -15,8 +15,13 @@ import javax.persistence.EntityManager;
  */
 public class JpaUserProviderFactory implements UserProviderFactory {
 
+    static final int DEFAULT_BATCH_SIZE = 500;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
     @Override
     public void init(Config.Scope config) {
+        batchSize = config.getInt("batchSize", DEFAULT_BATCH_SIZE);
     }
 
     @Override
@@ -32,7 +37,7 @@ public class JpaUserProviderFactory implements UserProviderFactory {
     @Override
     public UserProvider create(KeycloakSession session) {
         EntityManager em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
-        return new JpaUserProvider(session, em);
+        return new JpaUserProvider(session, em, batchSize);
     }
 
     @Override
@@ -3,8 +3,10 @@ package org.keycloak.models.jpa;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.ProtocolMapperModel;
 import org.keycloak.models.UserConsentModel;
+import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.ModelDuplicateException;
 import org.keycloak.models.ModelException;
+import org.keycloak.models.PasswordHashingProvider;
 import org.keycloak.models.PasswordPolicy;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RoleContainerModel;
@@ -21,7 +23,6 @@ import org.keycloak.models.jpa.entities.UserEntity;
 import org.keycloak.models.jpa.entities.UserRequiredActionEntity;
 import org.keycloak.models.jpa.entities.UserRoleMappingEntity;
 import org.keycloak.models.utils.KeycloakModelUtils;
-import org.keycloak.models.utils.Pbkdf2PasswordEncoder;
 import org.keycloak.util.Time;
 
 import javax.persistence.EntityManager;
@@ -48,15 +49,35 @@ import static org.keycloak.models.utils.Pbkdf2PasswordEncoder.getSalt;
 public class UserAdapter implements UserModel {
 
     protected UserEntity user;
+    protected KeycloakSession session;
     protected EntityManager em;
     protected RealmModel realm;
 
-    public UserAdapter(RealmModel realm, EntityManager em, UserEntity user) {
+    // Set just for users created during a batch
+    protected UserBatch batch;
+    protected Set<RoleModel> batchRoleMappings;
+
+    public UserAdapter(KeycloakSession session, RealmModel realm, EntityManager em, UserEntity user) {
+        this.session = session;
         this.em = em;
         this.user = user;
         this.realm = realm;
     }
 
+    /**
+     * Adapter for a user created during a batch. Changes aren't flushed, and role mappings are tracked in memory, as
+     * the user didn't have any before.
+     */
+    UserAdapter(KeycloakSession session, RealmModel realm, EntityManager em, UserEntity user, UserBatch batch) {
+        this(session, realm, em, user);
+        this.batch = batch;
+        this.batchRoleMappings = new HashSet<RoleModel>();
+    }
+
+    private void flush() {
+        if (batch == null) em.flush();
+    }
+
     public UserEntity getUser() {
         return user;
     }
@@ -256,7 +277,7 @@ public class UserAdapter implements UserModel {
                 credentialEntity.setValue(cred.getValue());
             }
         }
-        em.flush();
+        flush();
     }
 
     private void updatePasswordCredential(UserCredentialModel cred) {
@@ -318,7 +339,7 @@ public class UserAdapter implements UserModel {
                 hashIterations = 1;
         }
         credentialEntity.setCreatedDate(Time.toMillis(Time.currentTime()));
-        credentialEntity.setValue(new Pbkdf2PasswordEncoder(salt).encode(cred.getValue(), hashIterations));
+        credentialEntity.setValue(session.getProvider(PasswordHashingProvider.class).encode(salt, cred.getValue(), hashIterations));
         credentialEntity.setSalt(salt);
         credentialEntity.setHashIterations(hashIterations);
     }
@@ -398,7 +419,7 @@ public class UserAdapter implements UserModel {
         credentialEntity.setDevice(credModel.getDevice());
         credentialEntity.setHashIterations(credModel.getHashIterations());
 
-        em.flush();
+        flush();
     }
 
     @Override
@@ -421,6 +442,11 @@ public class UserAdapter implements UserModel {
         entity.setUser(getUser());
         entity.setRoleId(role.getId());
         em.persist(entity);
+        if (batch != null) {
+            batchRoleMappings.add(role);
+            batch.add(entity);
+            return;
+        }
         em.flush();
         em.detach(entity);
     }
@@ -442,6 +468,8 @@ public class UserAdapter implements UserModel {
 
     @Override
     public Set<RoleModel> getRoleMappings() {
+        if (batchRoleMappings != null) return new HashSet<RoleModel>(batchRoleMappings);
+
         // we query ids only as the role might be cached and following the @ManyToOne will result in a load
         // even if we're getting just the id.
         TypedQuery<String> query = em.createNamedQuery("userRoleMappingIds", String.class);
@@ -459,6 +487,7 @@ public class UserAdapter implements UserModel {
     @Override
     public void deleteRoleMapping(RoleModel role) {
         if (user == null || role == null) return;
+        if (batchRoleMappings != null) batchRoleMappings.remove(role);
 
         TypedQuery<UserRoleMappingEntity> query = getUserRoleMappingEntityTypedQuery(role);
         List<UserRoleMappingEntity> results = query.getResultList();
@@ -0,0 +1,64 @@
+package org.keycloak.models.jpa;
+
+import org.keycloak.models.jpa.entities.UserEntity;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Users created during a batch, together with their dependent entities. The batch is flushed in one go once it's
+ * full, and its entities are detached afterwards, so the persistence context doesn't grow with the number of imported
+ * users.
+ */
+class UserBatch {
+
+    private final EntityManager em;
+    private final int size;
+
+    private final List<UserEntity> users = new ArrayList<UserEntity>();
+    private final List<Object> entities = new ArrayList<Object>();
+
+    UserBatch(EntityManager em, int size) {
+        this.em = em;
+        this.size = size;
+    }
+
+    void addUser(UserEntity user) {
+        users.add(user);
+    }
+
+    /**
+     * Adds an entity referencing a user of the batch, which isn't reachable from the user entity itself.
+     */
+    void add(Object entity) {
+        entities.add(entity);
+    }
+
+    boolean isFull() {
+        return users.size() >= size;
+    }
+
+    void flush() {
+        em.flush();
+
+        for (Object entity : entities) {
+            em.detach(entity);
+        }
+        for (UserEntity user : users) {
+            for (Object attribute : user.getAttributes()) {
+                em.detach(attribute);
+            }
+            for (Object action : user.getRequiredActions()) {
+                em.detach(action);
+            }
+            for (Object credential : user.getCredentials()) {
+                em.detach(credential);
+            }
+            em.detach(user);
+        }
+
+        entities.clear();
+        users.clear();
+    }
+}
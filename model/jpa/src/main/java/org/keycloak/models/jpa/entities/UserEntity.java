@@ -20,7 +20,11 @@ import java.util.Collection;
  */
 @NamedQueries({
         @NamedQuery(name="getAllUsersByRealm", query="select u from UserEntity u where u.realmId = :realmId order by u.username"),
+        @NamedQuery(name="getUsersByRealmAfterUsername", query="select u from UserEntity u where u.realmId = :realmId and u.username > :username order by u.username"),
+        @NamedQuery(name="getUsernamesByRealm", query="select u.username from UserEntity u where u.realmId = :realmId order by u.username"),
+        @NamedQuery(name="getUsernamesByRealmAfterUsername", query="select u.username from UserEntity u where u.realmId = :realmId and u.username > :username order by u.username"),
         @NamedQuery(name="searchForUser", query="select u from UserEntity u where u.realmId = :realmId and ( lower(u.username) like :search or lower(concat(u.firstName, ' ', u.lastName)) like :search or u.email like :search ) order by u.username"),
+        @NamedQuery(name="searchForUserAfterUsername", query="select u from UserEntity u where u.realmId = :realmId and u.username > :username and ( lower(u.username) like :search or lower(concat(u.firstName, ' ', u.lastName)) like :search or u.email like :search ) order by u.username"),
         @NamedQuery(name="getRealmUserById", query="select u from UserEntity u where u.id = :id and u.realmId = :realmId"),
         @NamedQuery(name="getRealmUserByUsername", query="select u from UserEntity u where u.username = :username and u.realmId = :realmId"),
         @NamedQuery(name="getRealmUserByEmail", query="select u from UserEntity u where u.email = :email and u.realmId = :realmId"),
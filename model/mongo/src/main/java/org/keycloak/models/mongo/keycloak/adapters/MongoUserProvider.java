@@ -135,6 +135,30 @@ public class MongoUserProvider implements UserProvider {
         return convertUserEntities(realm, users);
     }
 
+    @Override
+    public List<UserModel> getUsersAfter(RealmModel realm, String lastUsername, int maxResults) {
+        QueryBuilder builder = new QueryBuilder()
+                .and("realmId").is(realm.getId());
+        if (lastUsername != null) {
+            builder.and("username").greaterThan(lastUsername);
+        }
+        DBObject sort = new BasicDBObject("username", 1);
+        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, builder.get(), sort, -1, maxResults, invocationContext);
+        return convertUserEntities(realm, users);
+    }
+
+    @Override
+    public String getUsernameAfter(RealmModel realm, String lastUsername, int position) {
+        QueryBuilder builder = new QueryBuilder()
+                .and("realmId").is(realm.getId());
+        if (lastUsername != null) {
+            builder.and("username").greaterThan(lastUsername);
+        }
+        DBObject sort = new BasicDBObject("username", 1);
+        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, builder.get(), sort, position - 1, 1, invocationContext);
+        return users.isEmpty() ? null : users.get(0).getUsername();
+    }
+
     @Override
     public List<UserModel> searchForUser(String search, RealmModel realm) {
         return searchForUser(search, realm, -1, -1);
@@ -142,6 +166,21 @@ public class MongoUserProvider implements UserProvider {
 
     @Override
     public List<UserModel> searchForUser(String search, RealmModel realm, int firstResult, int maxResults) {
+        DBObject sort = new BasicDBObject("username", 1);
+
+        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, searchQuery(search, realm, null), sort, firstResult, maxResults, invocationContext);
+        return convertUserEntities(realm, users);
+    }
+
+    @Override
+    public List<UserModel> searchForUserAfter(String search, RealmModel realm, String lastUsername, int maxResults) {
+        DBObject sort = new BasicDBObject("username", 1);
+
+        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, searchQuery(search, realm, lastUsername), sort, -1, maxResults, invocationContext);
+        return convertUserEntities(realm, users);
+    }
+
+    private DBObject searchQuery(String search, RealmModel realm, String lastUsername) {
         search = search.trim();
         Pattern caseInsensitivePattern = Pattern.compile("(?i:" + search + ")");
 
@@ -175,11 +214,10 @@ public class MongoUserProvider implements UserProvider {
 
                 ).get()
         );
-
-        DBObject sort = new BasicDBObject("username", 1);
-
-        List<MongoUserEntity> users = getMongoStore().loadEntities(MongoUserEntity.class, builder.get(), sort, firstResult, maxResults, invocationContext);
-        return convertUserEntities(realm, users);
+        if (lastUsername != null) {
+            builder.and(new QueryBuilder().put("username").greaterThan(lastUsername).get());
+        }
+        return builder.get();
     }
 
     @Override
@@ -393,12 +431,12 @@ public class MongoUserProvider implements UserProvider {
 
     @Override
     public boolean validCredentials(RealmModel realm, UserModel user, List<UserCredentialModel> input) {
-        return CredentialValidation.validCredentials(realm, user, input);
+        return CredentialValidation.validCredentials(session, realm, user, input);
     }
 
     @Override
     public boolean validCredentials(RealmModel realm, UserModel user, UserCredentialModel... input) {
-        return CredentialValidation.validCredentials(realm, user, input);
+        return CredentialValidation.validCredentials(session, realm, user, input);
     }
 
     @Override
@@ -57,7 +57,11 @@ public class ClientSessionAdapter implements ClientSessionModel {
     public void setUserSession(UserSessionModel userSession) {
         if (userSession == null) {
             if (entity.getUserSession() != null) {
-                provider.dettachSession(getUserSession(), this);
+                UserSessionModel current = getUserSession();
+                if (current != null) {
+                    provider.dettachSession(current, this);
+                }
+                provider.dettachedClientSession(entity);
             }
             entity.setUserSession(null);
         } else {
@@ -65,11 +69,13 @@ public class ClientSessionAdapter implements ClientSessionModel {
                 if (entity.getUserSession().equals(userSession.getId())) {
                     return;
                 } else {
-                    provider.dettachSession(userSession, this);
+                    UserSessionModel current = getUserSession();
+                    if (current != null) {
+                        provider.dettachSession(current, this);
+                    }
                 }
-            } else {
-                provider.attachSession(userSession, this);
             }
+            provider.attachSession(userSession, this);
 
             entity.setUserSession(userSession.getId());
         }
@@ -6,6 +6,7 @@ import org.keycloak.models.ClientModel;
 import org.keycloak.models.ClientSessionModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakTransaction;
+import org.keycloak.models.ModelException;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.UserSessionModel;
@@ -16,11 +17,8 @@ import org.keycloak.models.sessions.infinispan.entities.LoginFailureEntity;
 import org.keycloak.models.sessions.infinispan.entities.LoginFailureKey;
 import org.keycloak.models.sessions.infinispan.entities.SessionEntity;
 import org.keycloak.models.sessions.infinispan.entities.UserSessionEntity;
-import org.keycloak.models.sessions.infinispan.mapreduce.ClientSessionMapper;
 import org.keycloak.models.sessions.infinispan.mapreduce.FirstResultReducer;
-import org.keycloak.models.sessions.infinispan.mapreduce.LargestResultReducer;
 import org.keycloak.models.sessions.infinispan.mapreduce.SessionMapper;
-import org.keycloak.models.sessions.infinispan.mapreduce.UserSessionMapper;
 import org.keycloak.models.sessions.infinispan.mapreduce.UserSessionNoteMapper;
 import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.models.utils.RealmInfoUtil;
@@ -43,12 +41,14 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
     private final KeycloakSession session;
     private final Cache<String, SessionEntity> sessionCache;
     private final Cache<LoginFailureKey, LoginFailureEntity> loginFailureCache;
+    private final SessionIndex index;
     private final InfinispanKeycloakTransaction tx;
 
-    public InfinispanUserSessionProvider(KeycloakSession session, Cache<String, SessionEntity> sessionCache, Cache<LoginFailureKey, LoginFailureEntity> loginFailureCache) {
+    public InfinispanUserSessionProvider(KeycloakSession session, Cache<String, SessionEntity> sessionCache, Cache<LoginFailureKey, LoginFailureEntity> loginFailureCache, int expirationBucketSize, int indexShards) {
         this.session = session;
         this.sessionCache = sessionCache;
         this.loginFailureCache = loginFailureCache;
+        this.index = new SessionIndex(sessionCache, expirationBucketSize, indexShards);
         this.tx = new InfinispanKeycloakTransaction();
 
         session.getTransaction().enlistAfterCompletion(tx);
@@ -118,34 +118,19 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
 
     @Override
     public List<UserSessionModel> getUserSessions(RealmModel realm, UserModel user) {
-        Map<String, UserSessionEntity> sessions = new MapReduceTask(sessionCache)
-                .mappedWith(UserSessionMapper.create(realm.getId()).user(user.getId()))
-                .reducedWith(new FirstResultReducer())
-                .execute();
-
-        return wrapUserSessions(realm, sessions.values());
+        return wrapUserSessions(realm, getIndexedUserSessions(SessionIndex.userKey(realm.getId(), user.getId())));
     }
 
     @Override
     public List<UserSessionModel> getUserSessionByBrokerUserId(RealmModel realm, String brokerUserId) {
-        Map<String, UserSessionEntity> sessions = new MapReduceTask(sessionCache)
-                .mappedWith(UserSessionMapper.create(realm.getId()).brokerUserId(brokerUserId))
-                .reducedWith(new FirstResultReducer())
-                .execute();
-
-        return wrapUserSessions(realm, sessions.values());
+        return wrapUserSessions(realm, getIndexedUserSessions(SessionIndex.brokerUserKey(realm.getId(), brokerUserId)));
     }
 
     @Override
     public UserSessionModel getUserSessionByBrokerSessionId(RealmModel realm, String brokerSessionId) {
-        Map<String, UserSessionEntity> sessions = new MapReduceTask(sessionCache)
-                .mappedWith(UserSessionMapper.create(realm.getId()).brokerSessionId(brokerSessionId))
-                .reducedWith(new FirstResultReducer())
-                .execute();
-
-        List<UserSessionModel> userSessionModels = wrapUserSessions(realm, sessions.values());
-        if (userSessionModels.isEmpty()) return null;
-        return userSessionModels.get(0);
+        List<UserSessionEntity> sessions = getIndexedUserSessions(SessionIndex.brokerSessionKey(realm.getId(), brokerSessionId));
+        if (sessions.isEmpty()) return null;
+        return wrap(realm, sessions.get(0));
     }
 
     @Override
@@ -155,10 +140,7 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
 
     @Override
     public List<UserSessionModel> getUserSessions(RealmModel realm, ClientModel client, int firstResult, int maxResults) {
-        Map<String, Integer> map = new MapReduceTask(sessionCache)
-                .mappedWith(ClientSessionMapper.create(realm.getId()).client(client.getId()).emitUserSessionAndTimestamp())
-                .reducedWith(new LargestResultReducer())
-                .execute();
+        Map<String, Integer> map = getUserSessionTimestamps(realm, client);
 
         List<Map.Entry<String, Integer>> sessionTimestamps = new LinkedList<Map.Entry<String, Integer>>(map.entrySet());
 
@@ -216,11 +198,7 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
 
     @Override
     public int getActiveUserSessions(RealmModel realm, ClientModel client) {
-        Map map = new MapReduceTask(sessionCache)
-                .mappedWith(ClientSessionMapper.create(realm.getId()).client(client.getId()).emitUserSessionAndTimestamp())
-                .reducedWith(new LargestResultReducer()).execute();
-
-        return map.size();
+        return getUserSessionTimestamps(realm, client).size();
     }
 
     @Override
@@ -230,38 +208,66 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
 
     @Override
     public void removeUserSessions(RealmModel realm, UserModel user) {
-        Map<String, String> sessions = new MapReduceTask(sessionCache)
-                .mappedWith(UserSessionMapper.create(realm.getId()).user(user.getId()).emitKey())
-                .reducedWith(new FirstResultReducer())
-                .execute();
-
-        for (String id : sessions.keySet()) {
+        for (String id : index.get(SessionIndex.userKey(realm.getId(), user.getId()))) {
             removeUserSession(realm, id);
         }
     }
 
     @Override
     public void removeExpiredUserSessions(RealmModel realm) {
-        int expired = Time.currentTime() - realm.getSsoSessionMaxLifespan();
-        int expiredRefresh = Time.currentTime() - realm.getSsoSessionIdleTimeout();
-        int expiredDettachedClientSession = Time.currentTime() - RealmInfoUtil.getDettachedClientSessionLifespan(realm);
-
-        Map<String, String> map = new MapReduceTask(sessionCache)
-                .mappedWith(UserSessionMapper.create(realm.getId()).expired(expired, expiredRefresh).emitKey())
-                .reducedWith(new FirstResultReducer())
-                .execute();
-
-        for (String id : map.keySet()) {
-            removeUserSession(realm, id);
+        int currentTime = Time.currentTime();
+        int maxLifespan = realm.getSsoSessionMaxLifespan();
+        int idleTimeout = realm.getSsoSessionIdleTimeout();
+        int lifespan = Math.min(maxLifespan, idleTimeout);
+        int expired = currentTime - maxLifespan;
+        int expiredRefresh = currentTime - idleTimeout;
+
+        for (int shard = 0; shard < index.getShards(); shard++) {
+            for (int bucket : index.getExpiryBuckets(SessionIndex.USER_SESSION_EXPIRY, realm.getId(), shard, currentTime - lifespan)) {
+                List<String> processed = new LinkedList<String>();
+                for (String id : index.get(SessionIndex.expiryKey(SessionIndex.USER_SESSION_EXPIRY, realm.getId(), bucket, shard))) {
+                    SessionEntity e = sessionCache.get(id);
+                    if (e instanceof UserSessionEntity) {
+                        UserSessionEntity entity = (UserSessionEntity) e;
+                        if (entity.getStarted() <= expired || entity.getLastSessionRefresh() <= expiredRefresh) {
+                            removeUserSession(realm, entity);
+                        } else {
+                            int referenceTime = Math.min(entity.getStarted() + maxLifespan, entity.getLastSessionRefresh() + idleTimeout) - lifespan;
+                            if (index.bucket(referenceTime) == bucket) {
+                                continue;
+                            }
+                            index.addExpiry(SessionIndex.USER_SESSION_EXPIRY, realm.getId(), id, referenceTime);
+                        }
+                    }
+                    processed.add(id);
+                }
+                tx.removeExpired(SessionIndex.USER_SESSION_EXPIRY, realm.getId(), shard, bucket, processed);
+            }
         }
 
-        map = new MapReduceTask(sessionCache)
-                .mappedWith(ClientSessionMapper.create(realm.getId()).expiredRefresh(expiredDettachedClientSession).requireNullUserSession(true).emitKey())
-                .reducedWith(new FirstResultReducer())
-                .execute();
-
-        for (String id : map.keySet()) {
-            tx.remove(sessionCache, id);
+        int expiredDettachedClientSession = currentTime - RealmInfoUtil.getDettachedClientSessionLifespan(realm);
+
+        for (int shard = 0; shard < index.getShards(); shard++) {
+            for (int bucket : index.getExpiryBuckets(SessionIndex.CLIENT_SESSION_EXPIRY, realm.getId(), shard, expiredDettachedClientSession)) {
+                List<String> processed = new LinkedList<String>();
+                for (String id : index.get(SessionIndex.expiryKey(SessionIndex.CLIENT_SESSION_EXPIRY, realm.getId(), bucket, shard))) {
+                    SessionEntity e = sessionCache.get(id);
+                    if (e instanceof ClientSessionEntity) {
+                        ClientSessionEntity entity = (ClientSessionEntity) e;
+                        if (entity.getUserSession() == null) {
+                            if (entity.getTimestamp() <= expiredDettachedClientSession) {
+                                tx.remove(sessionCache, id);
+                            } else if (index.bucket(entity.getTimestamp()) == bucket) {
+                                continue;
+                            } else {
+                                index.addExpiry(SessionIndex.CLIENT_SESSION_EXPIRY, realm.getId(), id, entity.getTimestamp());
+                            }
+                        }
+                    }
+                    processed.add(id);
+                }
+                tx.removeExpired(SessionIndex.CLIENT_SESSION_EXPIRY, realm.getId(), shard, bucket, processed);
+            }
         }
     }
 
@@ -300,12 +306,7 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
 
     @Override
     public void onClientRemoved(RealmModel realm, ClientModel client) {
-        Map<String, String> map = new MapReduceTask(sessionCache)
-                .mappedWith(ClientSessionMapper.create(realm.getId()).client(client.getId()).emitKey())
-                .reducedWith(new FirstResultReducer())
-                .execute();
-
-        for (String id : map.keySet()) {
+        for (String id : index.getClientSessions(realm.getId(), client.getId())) {
             tx.remove(sessionCache, id);
         }
     }
@@ -334,6 +335,10 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
         }
     }
 
+    void dettachedClientSession(ClientSessionEntity entity) {
+        index.addExpiry(SessionIndex.CLIENT_SESSION_EXPIRY, entity.getRealm(), entity.getId(), entity.getTimestamp());
+    }
+
     void dettachSession(UserSessionModel userSession, ClientSessionModel clientSession) {
         UserSessionEntity entity = ((UserSessionAdapter) userSession).getEntity();
         String clientSessionId = clientSession.getId();
@@ -347,15 +352,21 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
     }
 
     void removeUserSession(RealmModel realm, String userSessionId) {
-        tx.remove(sessionCache, userSessionId);
+        SessionEntity entity = sessionCache.get(userSessionId);
+        if (entity instanceof UserSessionEntity) {
+            removeUserSession(realm, (UserSessionEntity) entity);
+        } else {
+            tx.remove(sessionCache, userSessionId);
+        }
+    }
 
-        Map<String, String> map = new MapReduceTask(sessionCache)
-                .mappedWith(ClientSessionMapper.create(realm.getId()).userSession(userSessionId).emitKey())
-                .reducedWith(new FirstResultReducer())
-                .execute();
+    void removeUserSession(RealmModel realm, UserSessionEntity entity) {
+        tx.remove(sessionCache, entity.getId());
 
-        for (String id : map.keySet()) {
-            tx.remove(sessionCache, id);
+        if (entity.getClientSessions() != null) {
+            for (String id : entity.getClientSessions()) {
+                tx.remove(sessionCache, id);
+            }
         }
     }
 
@@ -363,6 +374,34 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
         return tx;
     }
 
+    List<UserSessionEntity> getIndexedUserSessions(String key) {
+        List<UserSessionEntity> entities = new LinkedList<UserSessionEntity>();
+        for (String id : index.get(key)) {
+            SessionEntity entity = sessionCache.get(id);
+            if (entity instanceof UserSessionEntity) {
+                entities.add((UserSessionEntity) entity);
+            }
+        }
+        return entities;
+    }
+
+    Map<String, Integer> getUserSessionTimestamps(RealmModel realm, ClientModel client) {
+        Map<String, Integer> timestamps = new HashMap<String, Integer>();
+        for (String id : index.getClientSessions(realm.getId(), client.getId())) {
+            SessionEntity entity = sessionCache.get(id);
+            if (entity instanceof ClientSessionEntity) {
+                ClientSessionEntity clientSession = (ClientSessionEntity) entity;
+                if (clientSession.getUserSession() != null) {
+                    Integer current = timestamps.get(clientSession.getUserSession());
+                    if (current == null || clientSession.getTimestamp() > current) {
+                        timestamps.put(clientSession.getUserSession(), clientSession.getTimestamp());
+                    }
+                }
+            }
+        }
+        return timestamps;
+    }
+
     UserSessionModel wrap(RealmModel realm, UserSessionEntity entity) {
         return entity != null ? new UserSessionAdapter(session, this, sessionCache, realm, entity) : null;
     }
@@ -397,6 +436,7 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
         private boolean active;
         private boolean rollback;
         private Map<Object, CacheTask> tasks = new HashMap<Object, CacheTask>();
+        private List<ExpiredTask> expiredTasks = new LinkedList<ExpiredTask>();
 
         @Override
         public void begin() {
@@ -412,11 +452,16 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
             for (CacheTask task : tasks.values()) {
                 task.execute();
             }
+
+            for (ExpiredTask task : expiredTasks) {
+                task.execute();
+            }
         }
 
         @Override
         public void rollback() {
             tasks.clear();
+            expiredTasks.clear();
         }
 
         @Override
@@ -462,6 +507,14 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
             tasks.put(key, new CacheTask(cache, CacheOperation.REMOVE, key, null));
         }
 
+        /**
+         * Removes processed sessions from an expiry bucket once the expired sessions were removed, so sessions aren't
+         * left out of all buckets if the transaction is rolled back.
+         */
+        public void removeExpired(String type, String realm, int shard, int bucket, List<String> sessionIds) {
+            expiredTasks.add(new ExpiredTask(type, realm, shard, bucket, sessionIds));
+        }
+
         public class CacheTask {
             private Cache cache;
             private CacheOperation operation;
@@ -479,9 +532,22 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
                 switch (operation) {
                     case ADD:
                         cache.put(key, value);
+                        if (cache == sessionCache) {
+                            try {
+                                index.index((SessionEntity) value);
+                            } catch (ModelException e) {
+                                // A session missing from an index can't be found by user, client or expiry
+                                cache.remove(key);
+                                throw e;
+                            }
+                        }
                         break;
                     case REMOVE:
+                        Object removed = cache == sessionCache ? cache.get(key) : null;
                         cache.remove(key);
+                        if (removed != null) {
+                            index.unindex((SessionEntity) removed);
+                        }
                         break;
                     case REPLACE:
                         cache.replace(key, value);
@@ -490,6 +556,26 @@ public class InfinispanUserSessionProvider implements UserSessionProvider {
             }
         }
 
+        public class ExpiredTask {
+            private String type;
+            private String realm;
+            private int shard;
+            private int bucket;
+            private List<String> sessionIds;
+
+            public ExpiredTask(String type, String realm, int shard, int bucket, List<String> sessionIds) {
+                this.type = type;
+                this.realm = realm;
+                this.shard = shard;
+                this.bucket = bucket;
+                this.sessionIds = sessionIds;
+            }
+
+            public void execute() {
+                index.removeExpired(type, realm, shard, bucket, sessionIds);
+            }
+        }
+
     }
 
     public enum CacheOperation {
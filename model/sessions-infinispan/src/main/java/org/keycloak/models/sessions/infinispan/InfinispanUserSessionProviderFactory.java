@@ -16,16 +16,22 @@ import org.keycloak.models.sessions.infinispan.entities.SessionEntity;
  */
 public class InfinispanUserSessionProviderFactory implements UserSessionProviderFactory {
 
+    private int expirationBucketSize;
+
+    private int indexShards;
+
     @Override
     public UserSessionProvider create(KeycloakSession session) {
         InfinispanConnectionProvider connections = session.getProvider(InfinispanConnectionProvider.class);
         Cache<String, SessionEntity> cache = connections.getCache(InfinispanConnectionProvider.SESSION_CACHE_NAME);
         Cache<LoginFailureKey, LoginFailureEntity> loginFailures = connections.getCache(InfinispanConnectionProvider.LOGIN_FAILURE_CACHE_NAME);
-        return new InfinispanUserSessionProvider(session, cache, loginFailures);
+        return new InfinispanUserSessionProvider(session, cache, loginFailures, expirationBucketSize, indexShards);
     }
 
     @Override
     public void init(Config.Scope config) {
+        expirationBucketSize = config.getInt("expirationBucketSize", 60);
+        indexShards = config.getInt("indexShards", 16);
     }
 
     @Override
@@ -0,0 +1,277 @@
+package org.keycloak.models.sessions.infinispan;
+
+import org.infinispan.Cache;
+import org.keycloak.models.ModelException;
+import org.keycloak.models.sessions.infinispan.entities.ClientSessionEntity;
+import org.keycloak.models.sessions.infinispan.entities.SessionEntity;
+import org.keycloak.models.sessions.infinispan.entities.SessionIndexEntity;
+import org.keycloak.models.sessions.infinispan.entities.UserSessionEntity;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maintains secondary indexes for user and client sessions. Index entries are stored in the sessions cache itself so
+ * they're distributed and replicated the same way as the sessions they point to. Entries are updated with conditional
+ * operations, so concurrent updates from different nodes don't overwrite each other. If an entry can't be updated
+ * after a number of attempts a {@link ModelException} is thrown, so the transaction updating the session fails
+ * instead of leaving the session out of the index.
+ *
+ * The sessions of a client are split over a number of shards by session id, as a popular client can have many
+ * sessions and every update copies the whole entry. Entries for a user or a broker session only hold a few sessions
+ * and aren't split.
+ *
+ * Indexes may contain ids of sessions that have since been removed, so callers have to handle missing sessions.
+ *
+ * Sessions are also grouped into expiry buckets by a reference time. A session can't expire earlier than the realm's
+ * shortest lifespan after its reference time. Like client sessions, buckets are split into shards by session id. Each
+ * shard of a realm has a directory entry listing its non-empty buckets, so expiring sessions only has to visit buckets
+ * old enough to contain expired sessions.
+ */
+public class SessionIndex {
+
+    private static final String PREFIX = "index::";
+
+    private static final int MAX_RETRIES = 100;
+
+    public static final String USER_SESSION_EXPIRY = "userSessionExpiry";
+
+    public static final String CLIENT_SESSION_EXPIRY = "clientSessionExpiry";
+
+    private final Cache<String, SessionEntity> cache;
+
+    private final int bucketSize;
+
+    private final int shards;
+
+    public SessionIndex(Cache<String, SessionEntity> cache, int bucketSize, int shards) {
+        this.cache = cache;
+        this.bucketSize = bucketSize;
+        this.shards = shards;
+    }
+
+    public static String userKey(String realm, String user) {
+        return key("user", realm, user);
+    }
+
+    public static String clientKey(String realm, String client, int shard) {
+        return key("client", realm, client + "::" + shard);
+    }
+
+    public static String brokerSessionKey(String realm, String brokerSessionId) {
+        return key("brokerSession", realm, brokerSessionId);
+    }
+
+    public static String brokerUserKey(String realm, String brokerUserId) {
+        return key("brokerUser", realm, brokerUserId);
+    }
+
+    public static String expiryKey(String type, String realm, int bucket, int shard) {
+        return key(type, realm, bucket + "::" + shard);
+    }
+
+    public static String expiryDirectoryKey(String type, String realm, int shard) {
+        return key(type, realm, "buckets::" + shard);
+    }
+
+    public static boolean isIndexKey(Object key) {
+        return key instanceof String && ((String) key).startsWith(PREFIX);
+    }
+
+    private static String key(String type, String realm, String value) {
+        return PREFIX + type + "::" + realm + "::" + value;
+    }
+
+    public Set<String> get(String key) {
+        SessionEntity entity = cache.get(key);
+        if (entity instanceof SessionIndexEntity && ((SessionIndexEntity) entity).getSessions() != null) {
+            return Collections.unmodifiableSet(((SessionIndexEntity) entity).getSessions());
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * Returns the ids of the sessions of the client from all shards.
+     */
+    public Set<String> getClientSessions(String realm, String client) {
+        Set<String> sessions = new HashSet<String>();
+        for (int shard = 0; shard < shards; shard++) {
+            sessions.addAll(get(clientKey(realm, client, shard)));
+        }
+        return sessions;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public int shard(String sessionId) {
+        return (sessionId.hashCode() & Integer.MAX_VALUE) % shards;
+    }
+
+    public int bucket(int time) {
+        return time / bucketSize;
+    }
+
+    /**
+     * Returns the expiry buckets of a shard of the realm that may contain sessions with a reference time before or at
+     * the given time, in ascending order.
+     */
+    public List<Integer> getExpiryBuckets(String type, String realm, int shard, int time) {
+        int maxBucket = bucket(time);
+        List<Integer> buckets = new LinkedList<Integer>();
+        for (String b : get(expiryDirectoryKey(type, realm, shard))) {
+            int bucket = Integer.parseInt(b);
+            if (bucket <= maxBucket) {
+                buckets.add(bucket);
+            }
+        }
+        Collections.sort(buckets);
+        return buckets;
+    }
+
+    public void addExpiry(String type, String realm, String sessionId, int time) {
+        int bucket = bucket(time);
+        int shard = shard(sessionId);
+        if (add(expiryKey(type, realm, bucket, shard), realm, sessionId)) {
+            add(expiryDirectoryKey(type, realm, shard), realm, Integer.toString(bucket));
+        }
+    }
+
+    /**
+     * Removes the processed session ids from an expiry bucket, and the bucket from the directory of its shard once it's
+     * empty.
+     */
+    public void removeExpired(String type, String realm, int shard, int bucket, Collection<String> sessionIds) {
+        String bucketKey = expiryKey(type, realm, bucket, shard);
+        if (removeAll(bucketKey, sessionIds)) {
+            String directoryKey = expiryDirectoryKey(type, realm, shard);
+            remove(directoryKey, Integer.toString(bucket));
+
+            // A concurrent addExpiry may have created the bucket again before it was removed from the directory
+            if (cache.containsKey(bucketKey)) {
+                add(directoryKey, realm, Integer.toString(bucket));
+            }
+        }
+    }
+
+    public void index(SessionEntity entity) {
+        if (entity instanceof UserSessionEntity) {
+            UserSessionEntity userSession = (UserSessionEntity) entity;
+            add(userKey(userSession.getRealm(), userSession.getUser()), userSession.getRealm(), userSession.getId());
+            addExpiry(USER_SESSION_EXPIRY, userSession.getRealm(), userSession.getId(), userSession.getStarted());
+            if (userSession.getBrokerSessionId() != null) {
+                add(brokerSessionKey(userSession.getRealm(), userSession.getBrokerSessionId()), userSession.getRealm(), userSession.getId());
+            }
+            if (userSession.getBrokerUserId() != null) {
+                add(brokerUserKey(userSession.getRealm(), userSession.getBrokerUserId()), userSession.getRealm(), userSession.getId());
+            }
+        } else if (entity instanceof ClientSessionEntity) {
+            ClientSessionEntity clientSession = (ClientSessionEntity) entity;
+            add(clientKey(clientSession.getRealm(), clientSession.getClient(), shard(clientSession.getId())), clientSession.getRealm(), clientSession.getId());
+            if (clientSession.getUserSession() == null) {
+                addExpiry(CLIENT_SESSION_EXPIRY, clientSession.getRealm(), clientSession.getId(), clientSession.getTimestamp());
+            }
+        }
+    }
+
+    public void unindex(SessionEntity entity) {
+        if (entity instanceof UserSessionEntity) {
+            UserSessionEntity userSession = (UserSessionEntity) entity;
+            remove(userKey(userSession.getRealm(), userSession.getUser()), userSession.getId());
+            if (userSession.getBrokerSessionId() != null) {
+                remove(brokerSessionKey(userSession.getRealm(), userSession.getBrokerSessionId()), userSession.getId());
+            }
+            if (userSession.getBrokerUserId() != null) {
+                remove(brokerUserKey(userSession.getRealm(), userSession.getBrokerUserId()), userSession.getId());
+            }
+        } else if (entity instanceof ClientSessionEntity) {
+            ClientSessionEntity clientSession = (ClientSessionEntity) entity;
+            remove(clientKey(clientSession.getRealm(), clientSession.getClient(), shard(clientSession.getId())), clientSession.getId());
+        }
+    }
+
+    /**
+     * Adds the session id to the index entry. Returns true if the entry didn't exist before.
+     */
+    public boolean add(String key, String realm, String sessionId) {
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            SessionIndexEntity current = (SessionIndexEntity) cache.get(key);
+            if (current == null) {
+                SessionIndexEntity entity = new SessionIndexEntity();
+                entity.setId(key);
+                entity.setRealm(realm);
+                entity.setSessions(new HashSet<String>());
+                entity.getSessions().add(sessionId);
+
+                if (cache.putIfAbsent(key, entity) == null) {
+                    return true;
+                }
+            } else {
+                if (current.getSessions() != null && current.getSessions().contains(sessionId)) {
+                    return false;
+                }
+
+                SessionIndexEntity updated = current.copy();
+                updated.getSessions().add(sessionId);
+
+                if (cache.replace(key, current, updated)) {
+                    return false;
+                }
+            }
+        }
+        throw new ModelException("Failed to add session " + sessionId + " to index " + key);
+    }
+
+    public void remove(String key, String sessionId) {
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            SessionIndexEntity current = (SessionIndexEntity) cache.get(key);
+            if (current == null || current.getSessions() == null || !current.getSessions().contains(sessionId)) {
+                return;
+            }
+
+            SessionIndexEntity updated = current.copy();
+            updated.getSessions().remove(sessionId);
+
+            if (updated.getSessions().isEmpty()) {
+                if (cache.remove(key, current)) {
+                    return;
+                }
+            } else if (cache.replace(key, current, updated)) {
+                return;
+            }
+        }
+        throw new ModelException("Failed to remove session " + sessionId + " from index " + key);
+    }
+
+    /**
+     * Removes the session ids from the index entry. Returns true if the entry is empty and was removed, or didn't exist.
+     */
+    public boolean removeAll(String key, Collection<String> sessionIds) {
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            SessionIndexEntity current = (SessionIndexEntity) cache.get(key);
+            if (current == null) {
+                return true;
+            }
+
+            SessionIndexEntity updated = current.copy();
+            updated.getSessions().removeAll(sessionIds);
+
+            if (updated.getSessions().isEmpty()) {
+                if (cache.remove(key, current)) {
+                    return true;
+                }
+            } else if (updated.getSessions().size() == current.getSessions().size()) {
+                return false;
+            } else if (cache.replace(key, current, updated)) {
+                return false;
+            }
+        }
+        throw new ModelException("Failed to remove sessions from index " + key);
+    }
+
+}
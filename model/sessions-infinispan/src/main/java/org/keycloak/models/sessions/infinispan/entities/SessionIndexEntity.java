@@ -0,0 +1,51 @@
+package org.keycloak.models.sessions.infinispan.entities;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Secondary index entry stored in the sessions cache. Maps an index key (for example realm and user) to the ids of the
+ * sessions matching it. Instances are treated as immutable once put in the cache, updates are done by replacing them
+ * with a modified copy.
+ */
+public class SessionIndexEntity extends SessionEntity {
+
+    private Set<String> sessions;
+
+    public Set<String> getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(Set<String> sessions) {
+        this.sessions = sessions;
+    }
+
+    public SessionIndexEntity copy() {
+        SessionIndexEntity copy = new SessionIndexEntity();
+        copy.setId(getId());
+        copy.setRealm(getRealm());
+        copy.setSessions(sessions != null ? new HashSet<String>(sessions) : new HashSet<String>());
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SessionIndexEntity)) return false;
+
+        SessionIndexEntity that = (SessionIndexEntity) o;
+
+        if (getId() != null ? !getId().equals(that.getId()) : that.getId() != null) return false;
+        if (sessions != null ? !sessions.equals(that.sessions) : that.sessions != null) return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = getId() != null ? getId().hashCode() : 0;
+        result = 31 * result + (sessions != null ? sessions.hashCode() : 0);
+        return result;
+    }
+
+}
@@ -0,0 +1,228 @@
+package org.keycloak.models.sessions.infinispan;
+
+import org.infinispan.Cache;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.models.sessions.infinispan.entities.ClientSessionEntity;
+import org.keycloak.models.sessions.infinispan.entities.SessionEntity;
+import org.keycloak.models.sessions.infinispan.entities.UserSessionEntity;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SessionIndexTest {
+
+    private static final int THREADS = 4;
+
+    private DefaultCacheManager cacheManager;
+    private Cache<String, SessionEntity> cache;
+    private SessionIndex index;
+
+    @Before
+    public void before() {
+        cacheManager = new DefaultCacheManager();
+        cache = cacheManager.getCache("sessions");
+        index = new SessionIndex(cache, 60, 4);
+    }
+
+    @After
+    public void after() {
+        cacheManager.stop();
+    }
+
+    @Test
+    public void indexUserSession() {
+        UserSessionEntity userSession = createUserSession("user-session", "user", 1000);
+        userSession.setBrokerSessionId("broker-session");
+        userSession.setBrokerUserId("broker-user");
+
+        index.index(userSession);
+
+        Assert.assertEquals(singleton("user-session"), index.get(SessionIndex.userKey("realm", "user")));
+        Assert.assertEquals(singleton("user-session"), index.get(SessionIndex.brokerSessionKey("realm", "broker-session")));
+        Assert.assertEquals(singleton("user-session"), index.get(SessionIndex.brokerUserKey("realm", "broker-user")));
+        Assert.assertTrue(index.get(SessionIndex.userKey("realm", "other")).isEmpty());
+
+        index.unindex(userSession);
+
+        Assert.assertTrue(index.get(SessionIndex.userKey("realm", "user")).isEmpty());
+        Assert.assertTrue(index.get(SessionIndex.brokerSessionKey("realm", "broker-session")).isEmpty());
+        Assert.assertTrue(index.get(SessionIndex.brokerUserKey("realm", "broker-user")).isEmpty());
+        Assert.assertFalse(cache.containsKey(SessionIndex.userKey("realm", "user")));
+    }
+
+    @Test
+    public void indexClientSessionsInShards() {
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < 100; i++) {
+            index.index(createClientSession("client-session-" + i, "client", "user-session"));
+            expected.add("client-session-" + i);
+        }
+
+        Assert.assertEquals(expected, index.getClientSessions("realm", "client"));
+        Assert.assertTrue(index.getClientSessions("realm", "other").isEmpty());
+
+        int shardsUsed = 0;
+        for (int shard = 0; shard < 4; shard++) {
+            if (!index.get(SessionIndex.clientKey("realm", "client", shard)).isEmpty()) {
+                shardsUsed++;
+            }
+        }
+        Assert.assertTrue(shardsUsed > 1);
+
+        for (int i = 0; i < 100; i += 2) {
+            index.unindex(createClientSession("client-session-" + i, "client", "user-session"));
+            expected.remove("client-session-" + i);
+        }
+
+        Assert.assertEquals(expected, index.getClientSessions("realm", "client"));
+    }
+
+    @Test
+    public void concurrentUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < 200; i++) {
+                            index.index(createClientSession(thread + "-" + i, "client", "user-session"));
+                            index.index(createUserSession(thread + "-" + i, "user", 1000));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            await(futures);
+
+            Assert.assertEquals(THREADS * 200, index.getClientSessions("realm", "client").size());
+            Assert.assertEquals(THREADS * 200, index.get(SessionIndex.userKey("realm", "user")).size());
+
+            futures.clear();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < 200; i += 2) {
+                            index.unindex(createClientSession(thread + "-" + i, "client", "user-session"));
+                            index.unindex(createUserSession(thread + "-" + i, "user", 1000));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            await(futures);
+
+            Set<String> expected = new HashSet<String>();
+            for (int t = 0; t < THREADS; t++) {
+                for (int i = 1; i < 200; i += 2) {
+                    expected.add(t + "-" + i);
+                }
+            }
+            Assert.assertEquals(expected, index.getClientSessions("realm", "client"));
+            Assert.assertEquals(expected, index.get(SessionIndex.userKey("realm", "user")));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void refreshedSessionMovesBucket() {
+        String type = SessionIndex.USER_SESSION_EXPIRY;
+        int shard = index.shard("session");
+
+        index.addExpiry(type, "realm", "session", 1000);
+        Assert.assertEquals(list(16), index.getExpiryBuckets(type, "realm", shard, 1100));
+        Assert.assertEquals(singleton("session"), index.get(SessionIndex.expiryKey(type, "realm", 16, shard)));
+
+        // Session was refreshed, so expiring the old bucket moves it to the bucket of its new reference time
+        index.addExpiry(type, "realm", "session", 2000);
+        index.removeExpired(type, "realm", shard, 16, singleton("session"));
+
+        Assert.assertFalse(cache.containsKey(SessionIndex.expiryKey(type, "realm", 16, shard)));
+        Assert.assertTrue(index.getExpiryBuckets(type, "realm", shard, 1100).isEmpty());
+        Assert.assertEquals(list(33), index.getExpiryBuckets(type, "realm", shard, 2000));
+        Assert.assertEquals(singleton("session"), index.get(SessionIndex.expiryKey(type, "realm", 33, shard)));
+    }
+
+    @Test
+    public void expiredBucketRemoved() {
+        String type = SessionIndex.CLIENT_SESSION_EXPIRY;
+        for (int i = 0; i < 20; i++) {
+            index.addExpiry(type, "realm", "session-" + i, 1000);
+        }
+
+        for (int shard = 0; shard < index.getShards(); shard++) {
+            for (int bucket : index.getExpiryBuckets(type, "realm", shard, 1000)) {
+                index.removeExpired(type, "realm", shard, bucket, index.get(SessionIndex.expiryKey(type, "realm", bucket, shard)));
+            }
+        }
+
+        for (int shard = 0; shard < index.getShards(); shard++) {
+            Assert.assertFalse(cache.containsKey(SessionIndex.expiryKey(type, "realm", 16, shard)));
+            Assert.assertFalse(cache.containsKey(SessionIndex.expiryDirectoryKey(type, "realm", shard)));
+        }
+    }
+
+    @Test
+    public void missingBucketRemovedFromDirectory() {
+        String type = SessionIndex.USER_SESSION_EXPIRY;
+        index.add(SessionIndex.expiryDirectoryKey(type, "realm", 0), "realm", "16");
+
+        index.removeExpired(type, "realm", 0, 16, new HashSet<String>());
+
+        Assert.assertTrue(index.getExpiryBuckets(type, "realm", 0, 1000).isEmpty());
+    }
+
+    private static void await(List<Future<Void>> futures) throws Exception {
+        for (Future<Void> f : futures) {
+            f.get();
+        }
+    }
+
+    private static List<Integer> list(int bucket) {
+        List<Integer> list = new ArrayList<Integer>();
+        list.add(bucket);
+        return list;
+    }
+
+    private static Set<String> singleton(String id) {
+        Set<String> set = new HashSet<String>();
+        set.add(id);
+        return set;
+    }
+
+    static UserSessionEntity createUserSession(String id, String user, int started) {
+        UserSessionEntity entity = new UserSessionEntity();
+        entity.setId(id);
+        entity.setRealm("realm");
+        entity.setUser(user);
+        entity.setStarted(started);
+        entity.setLastSessionRefresh(started);
+        return entity;
+    }
+
+    static ClientSessionEntity createClientSession(String id, String client, String userSession) {
+        ClientSessionEntity entity = new ClientSessionEntity();
+        entity.setId(id);
+        entity.setRealm("realm");
+        entity.setClient(client);
+        entity.setUserSession(userSession);
+        entity.setTimestamp(1000);
+        return entity;
+    }
+
+}
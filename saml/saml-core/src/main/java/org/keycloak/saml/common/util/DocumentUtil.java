@@ -66,6 +66,8 @@ public class DocumentUtil {
 
     private static DocumentBuilderFactory documentBuilderFactory;
 
+    private static final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<DocumentBuilder>();
+
     public static final String feature_external_general_entities = "http://xml.org/sax/features/external-general-entities";
     public static final String feature_external_parameter_entities = "http://xml.org/sax/features/external-parameter-entities";
     public static final String feature_disallow_doctype_decl = "http://apache.org/xml/features/disallow-doctype-decl";
@@ -98,10 +100,9 @@ public class DocumentUtil {
      * @throws ParserConfigurationException
      */
     public static Document createDocument() throws ConfigurationException {
-        DocumentBuilderFactory factory = getDocumentBuilderFactory();
         DocumentBuilder builder;
         try {
-            builder = factory.newDocumentBuilder();
+            builder = getDocumentBuilder();
         } catch (ParserConfigurationException e) {
             throw new ConfigurationException(e);
         }
@@ -119,8 +120,7 @@ public class DocumentUtil {
      */
     public static Document createDocumentWithBaseNamespace(String baseNamespace, String localPart) throws ProcessingException {
         try {
-            DocumentBuilderFactory factory = getDocumentBuilderFactory();
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            DocumentBuilder builder = getDocumentBuilder();
             return builder.getDOMImplementation().createDocument(baseNamespace, localPart, null);
         } catch (DOMException e) {
             throw logger.processingError(e);
@@ -158,8 +158,7 @@ public class DocumentUtil {
      */
     public static Document getDocument(Reader reader) throws ConfigurationException, ProcessingException, ParsingException {
         try {
-            DocumentBuilderFactory factory = getDocumentBuilderFactory();
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            DocumentBuilder builder = getDocumentBuilder();
             return builder.parse(new InputSource(reader));
         } catch (ParserConfigurationException e) {
             throw logger.configurationError(e);
@@ -182,9 +181,8 @@ public class DocumentUtil {
      * @throws SAXException
      */
     public static Document getDocument(File file) throws ConfigurationException, ProcessingException, ParsingException {
-        DocumentBuilderFactory factory = getDocumentBuilderFactory();
         try {
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            DocumentBuilder builder = getDocumentBuilder();
             return builder.parse(file);
         } catch (ParserConfigurationException e) {
             throw logger.configurationError(e);
@@ -207,9 +205,8 @@ public class DocumentUtil {
      * @throws SAXException
      */
     public static Document getDocument(InputStream is) throws ConfigurationException, ProcessingException, ParsingException {
-        DocumentBuilderFactory factory = getDocumentBuilderFactory();
         try {
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            DocumentBuilder builder = getDocumentBuilder();
             return builder.parse(is);
         } catch (ParserConfigurationException e) {
             throw logger.configurationError(e);
@@ -236,7 +233,7 @@ public class DocumentUtil {
 
         Result streamResult = new StreamResult(sw);
         // Write the DOM document to the stream
-        Transformer xformer = TransformerUtil.getTransformer();
+        Transformer xformer = TransformerUtil.getThreadTransformer();
         try {
             xformer.transform(source, streamResult);
         } catch (TransformerException e) {
@@ -262,7 +259,7 @@ public class DocumentUtil {
 
         Result streamResult = new StreamResult(sw);
         // Write the DOM document to the file
-        Transformer xformer = TransformerUtil.getTransformer();
+        Transformer xformer = TransformerUtil.getThreadTransformer();
         try {
             xformer.transform(source, streamResult);
         } catch (TransformerException e) {
@@ -343,7 +340,7 @@ public class DocumentUtil {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         Result streamResult = new StreamResult(baos);
         // Write the DOM document to the stream
-        Transformer transformer = TransformerUtil.getTransformer();
+        Transformer transformer = TransformerUtil.getThreadTransformer();
         try {
             transformer.transform(source, streamResult);
         } catch (TransformerException e) {
@@ -370,7 +367,7 @@ public class DocumentUtil {
 
         Result streamResult = new StreamResult(baos);
         // Write the DOM document to the stream
-        Transformer transformer = TransformerUtil.getTransformer();
+        Transformer transformer = TransformerUtil.getThreadTransformer();
         try {
             transformer.transform(source, streamResult);
         } catch (TransformerException e) {
@@ -469,7 +466,7 @@ public class DocumentUtil {
 
     public static Node getNodeFromSource(Source source) throws ProcessingException, ConfigurationException {
         try {
-            Transformer transformer = TransformerUtil.getTransformer();
+            Transformer transformer = TransformerUtil.getThreadTransformer();
             DOMResult result = new DOMResult();
             TransformerUtil.transform(transformer, source, result);
             return result.getNode();
@@ -480,7 +477,7 @@ public class DocumentUtil {
 
     public static Document getDocumentFromSource(Source source) throws ProcessingException, ConfigurationException {
         try {
-            Transformer transformer = TransformerUtil.getTransformer();
+            Transformer transformer = TransformerUtil.getThreadTransformer();
             DOMResult result = new DOMResult();
             TransformerUtil.transform(transformer, source, result);
             return (Document) result.getNode();
@@ -503,6 +500,27 @@ public class DocumentUtil {
         }
     }
 
+    /**
+     * <p> Returns the {@link DocumentBuilder} of the calling thread, created from {@link #getDocumentBuilderFactory()}
+     * on first use and reset on every later use. Creating a builder is costly, but a builder isn't thread safe, so it's
+     * reused only by the thread which created it. Resetting keeps the features set on the factory, so entities are
+     * handled as with a new builder. </p>
+     *
+     * @return
+     *
+     * @throws ParserConfigurationException
+     */
+    static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilder builder = documentBuilder.get();
+        if (builder == null) {
+            builder = getDocumentBuilderFactory().newDocumentBuilder();
+            documentBuilder.set(builder);
+        } else {
+            builder.reset();
+        }
+        return builder;
+    }
+
     /**
      * <p> Creates a namespace aware {@link DocumentBuilderFactory}. The returned instance is cached and shared between
      * different threads. </p>
@@ -68,6 +68,8 @@ public class TransformerUtil {
 
     private static TransformerFactory transformerFactory;
 
+    private static final ThreadLocal<Transformer> threadTransformer = new ThreadLocal<Transformer>();
+
     /**
      * Get the Default Transformer
      *
@@ -85,12 +87,36 @@ public class TransformerUtil {
             throw logger.configurationError(e);
         }
 
-        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-        transformer.setOutputProperty(OutputKeys.INDENT, "no");
+        setDefaultOutputProperties(transformer);
 
         return transformer;
     }
 
+    /**
+     * Get the Default Transformer of the calling thread. The transformer is created on first use and reset on every
+     * later use, so it must be used only by the calling thread, and not after the thread called this method again.
+     *
+     * @return
+     *
+     * @throws org.keycloak.saml.common.exceptions.ConfigurationException
+     */
+    static Transformer getThreadTransformer() throws ConfigurationException {
+        Transformer transformer = threadTransformer.get();
+        if (transformer == null) {
+            transformer = getTransformer();
+            threadTransformer.set(transformer);
+        } else {
+            transformer.reset();
+            setDefaultOutputProperties(transformer);
+        }
+        return transformer;
+    }
+
+    private static void setDefaultOutputProperties(Transformer transformer) {
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        transformer.setOutputProperty(OutputKeys.INDENT, "no");
+    }
+
     /**
      * <p>Creates a {@link TransformerFactory}. The returned instance is cached and shared between different
      * threads.</p>
@@ -172,7 +198,7 @@ public class TransformerUtil {
 
     public static void transform(JAXBContext context, JAXBElement<?> jaxb, Result result) throws ParsingException {
         try {
-            Transformer transformer = getTransformer();
+            Transformer transformer = getThreadTransformer();
             JAXBSource jaxbSource = new JAXBSource(context, jaxb);
 
             transformer.transform(jaxbSource, result);
@@ -50,6 +50,17 @@ public class PostBindingUtil {
         return Base64.encodeBytes(stringToEncode.getBytes("UTF-8"), Base64.DONT_BREAK_LINES);
     }
 
+    /**
+     * Apply base64 encoding on the bytes of a message
+     *
+     * @param bytes
+     *
+     * @return
+     */
+    public static String base64Encode(byte[] bytes) {
+        return Base64.encodeBytes(bytes, Base64.DONT_BREAK_LINES);
+    }
+
     /**
      * Apply base64 decoding on the message and return the byte array
      *
@@ -0,0 +1,73 @@
+package org.keycloak.saml.common.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.saml.common.exceptions.ParsingException;
+import org.w3c.dom.Document;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import java.io.ByteArrayInputStream;
+
+/**
+ * Document builders and transformers are reused by the thread which created them, and must behave as new instances.
+ */
+public class DocumentUtilTest {
+
+    private static final String DOCUMENT = "<root xmlns=\"urn:test\"><child>text</child></root>";
+
+    private static final String DOCTYPE = "<?xml version=\"1.0\"?>\n" +
+            "<!DOCTYPE root [<!ELEMENT root ANY>]>\n" +
+            "<root>text</root>";
+
+    private static final String EXTERNAL_ENTITY = "<?xml version=\"1.0\"?>\n" +
+            "<!DOCTYPE root [<!ENTITY external SYSTEM \"file:///etc/passwd\">]>\n" +
+            "<root>&external;</root>";
+
+    @Test
+    public void reusedBuilderRejectsDoctype() throws Exception {
+        Assert.assertEquals("root", parse(DOCUMENT).getDocumentElement().getLocalName());
+        Assert.assertSame(DocumentUtil.getDocumentBuilder(), DocumentUtil.getDocumentBuilder());
+
+        assertRejected(DOCTYPE);
+        assertRejected(EXTERNAL_ENTITY);
+
+        // A failed parse doesn't break the builder for later documents either
+        Assert.assertEquals("root", parse(DOCUMENT).getDocumentElement().getLocalName());
+        assertRejected(EXTERNAL_ENTITY);
+    }
+
+    @Test
+    public void reusedTransformerOmitsXmlDeclaration() throws Exception {
+        Document document = parse(DOCUMENT);
+        Assert.assertFalse(DocumentUtil.getDocumentAsString(document).startsWith("<?xml"));
+
+        // An earlier caller changed output properties of the thread transformer
+        Transformer transformer = TransformerUtil.getThreadTransformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+
+        Assert.assertSame(transformer, TransformerUtil.getThreadTransformer());
+        Assert.assertEquals("yes", transformer.getOutputProperty(OutputKeys.OMIT_XML_DECLARATION));
+        Assert.assertEquals("no", transformer.getOutputProperty(OutputKeys.INDENT));
+
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+        String xml = DocumentUtil.getDocumentAsString(document);
+        Assert.assertFalse(xml, xml.startsWith("<?xml"));
+        Assert.assertFalse(xml, xml.contains("\n"));
+    }
+
+    private static Document parse(String xml) throws Exception {
+        return DocumentUtil.getDocument(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
+
+    private static void assertRejected(String xml) throws Exception {
+        try {
+            parse(xml);
+            Assert.fail("Expected document to be rejected");
+        } catch (ParsingException e) {
+            // expected
+        }
+    }
+
+}
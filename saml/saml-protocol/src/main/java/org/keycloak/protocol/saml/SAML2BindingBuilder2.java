@@ -6,8 +6,8 @@ import org.keycloak.saml.common.constants.JBossSAMLConstants;
 import org.keycloak.saml.common.constants.JBossSAMLURIConstants;
 import org.keycloak.saml.common.exceptions.ConfigurationException;
 import org.keycloak.saml.common.exceptions.ProcessingException;
+import org.keycloak.saml.common.util.TransformerUtil;
 import org.keycloak.saml.processing.api.saml.v2.sig.SAML2Signature;
-import org.keycloak.saml.processing.core.saml.v2.util.DocumentUtil;
 import org.keycloak.saml.processing.core.util.XMLEncryptionUtil;
 import org.keycloak.saml.processing.web.util.PostBindingUtil;
 import org.keycloak.saml.processing.web.util.RedirectBindingUtil;
@@ -22,6 +22,10 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import javax.xml.namespace.QName;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.security.KeyPair;
@@ -111,6 +115,7 @@ public class SAML2BindingBuilder2<T extends SAML2BindingBuilder2> {
 
     public class PostBindingBuilder {
         protected Document document;
+        protected byte[] documentBytes;
 
         public PostBindingBuilder(Document document) throws ProcessingException {
             if (encrypt) encryptDocument(document);
@@ -123,25 +128,40 @@ public class SAML2BindingBuilder2<T extends SAML2BindingBuilder2> {
             }
         }
 
+        public PostBindingBuilder(byte[] documentBytes) {
+            if (isDocumentRequired(true)) {
+                throw new IllegalStateException("Signing or encrypting requires a DOM document");
+            }
+            this.documentBytes = documentBytes;
+        }
+
         public String encoded() throws ProcessingException, ConfigurationException, IOException {
-            byte[] responseBytes = DocumentUtil.getDocumentAsString(document).getBytes("UTF-8");
-            return PostBindingUtil.base64Encode(new String(responseBytes));
+            return PostBindingUtil.base64Encode(getDocumentBytes());
         }
+
+        /**
+         * @return the document, or null if this builder was created from a serialized document
+         */
         public Document getDocument() {
             return document;
         }
 
+        protected byte[] getDocumentBytes() throws ProcessingException {
+            return documentBytes != null ? documentBytes : serialize(document);
+        }
+
         public Response request(String actionUrl) throws ConfigurationException, ProcessingException, IOException {
-            return buildResponse(document, actionUrl, true);
+            return buildResponse(getDocumentBytes(), actionUrl, true);
         }
         public Response response(String actionUrl) throws ConfigurationException, ProcessingException, IOException {
-            return buildResponse(document, actionUrl, false);
+            return buildResponse(getDocumentBytes(), actionUrl, false);
         }
     }
 
 
     public class RedirectBindingBuilder {
         protected Document document;
+        protected byte[] documentBytes;
 
         public RedirectBindingBuilder(Document document) throws ProcessingException {
             if (encrypt) encryptDocument(document);
@@ -151,6 +171,16 @@ public class SAML2BindingBuilder2<T extends SAML2BindingBuilder2> {
             }
         }
 
+        public RedirectBindingBuilder(byte[] documentBytes) {
+            if (isDocumentRequired(false)) {
+                throw new IllegalStateException("Signing assertions or encrypting requires a DOM document");
+            }
+            this.documentBytes = documentBytes;
+        }
+
+        /**
+         * @return the document, or null if this builder was created from a serialized document
+         */
         public Document getDocument() {
             return document;
         }
@@ -161,7 +191,8 @@ public class SAML2BindingBuilder2<T extends SAML2BindingBuilder2> {
                 samlParameterName = GeneralConstants.SAML_REQUEST_KEY;
             }
 
-            return generateRedirectUri(samlParameterName, redirectUri, document);
+            byte[] bytes = documentBytes != null ? documentBytes : serialize(document);
+            return generateRedirectUri(samlParameterName, redirectUri, bytes);
         }
         public Response response(String redirectUri) throws ProcessingException, ConfigurationException, IOException {
             return response(redirectUri, false);
@@ -185,6 +216,26 @@ public class SAML2BindingBuilder2<T extends SAML2BindingBuilder2> {
 
 
 
+    /**
+     * Whether the document must be passed as DOM document, as it's signed or encrypted. The redirect binding signs the
+     * query string, so a document signature doesn't need the DOM document there.
+     */
+    public boolean isDocumentRequired(boolean postBinding) {
+        return encrypt || signAssertions || (sign && postBinding);
+    }
+
+    protected byte[] serialize(Document document) throws ProcessingException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            TransformerUtil.getTransformer().transform(new DOMSource(document), new StreamResult(bos));
+        } catch (TransformerException e) {
+            throw new ProcessingException(e);
+        } catch (ConfigurationException e) {
+            throw new ProcessingException(e);
+        }
+        return bos.toByteArray();
+    }
+
     private String getSAMLNSPrefix(Document samlResponseDocument) {
         Node assertionElement = samlResponseDocument.getDocumentElement()
                 .getElementsByTagNameNS(JBossSAMLURIConstants.ASSERTION_NSURI.get(), JBossSAMLConstants.ASSERTION.get()).item(0);
@@ -265,8 +316,8 @@ public class SAML2BindingBuilder2<T extends SAML2BindingBuilder2> {
     }
 
 
-    protected Response buildResponse(Document responseDoc, String actionUrl, boolean asRequest) throws ProcessingException, ConfigurationException, IOException {
-        String str = buildHtmlPostResponse(responseDoc, actionUrl, asRequest);
+    protected Response buildResponse(byte[] responseBytes, String actionUrl, boolean asRequest) throws ProcessingException, ConfigurationException, IOException {
+        String str = buildHtml(PostBindingUtil.base64Encode(responseBytes), actionUrl, asRequest);
 
         CacheControl cacheControl = new CacheControl();
         cacheControl.setNoCache(true);
@@ -275,13 +326,6 @@ public class SAML2BindingBuilder2<T extends SAML2BindingBuilder2> {
                        .header("Cache-Control", "no-cache, no-store").build();
     }
 
-    protected String buildHtmlPostResponse(Document responseDoc, String actionUrl, boolean asRequest) throws ProcessingException, ConfigurationException, IOException {
-        byte[] responseBytes = org.keycloak.saml.common.util.DocumentUtil.getDocumentAsString(responseDoc).getBytes("UTF-8");
-        String samlResponse = PostBindingUtil.base64Encode(new String(responseBytes));
-
-        return buildHtml(samlResponse, actionUrl, asRequest);
-    }
-
     protected String buildHtml(String samlResponse, String actionUrl, boolean asRequest) {
         StringBuilder builder = new StringBuilder();
 
@@ -315,19 +359,16 @@ public class SAML2BindingBuilder2<T extends SAML2BindingBuilder2> {
         return builder.toString();
     }
 
-    protected String base64Encoded(Document document) throws ConfigurationException, ProcessingException, IOException  {
-        String documentAsString = DocumentUtil.getDocumentAsString(document);
-        logger.debugv("saml docment: {0}", documentAsString);
-        byte[] responseBytes = documentAsString.getBytes("UTF-8");
-
-        return RedirectBindingUtil.deflateBase64URLEncode(responseBytes);
+    protected String base64Encoded(byte[] documentBytes) throws IOException  {
+        if (logger.isDebugEnabled()) logger.debugv("saml docment: {0}", new String(documentBytes, "UTF-8"));
+        return RedirectBindingUtil.deflateBase64URLEncode(documentBytes);
     }
 
 
-    protected URI generateRedirectUri(String samlParameterName, String redirectUri, Document document) throws ConfigurationException, ProcessingException, IOException {
+    protected URI generateRedirectUri(String samlParameterName, String redirectUri, byte[] documentBytes) throws ConfigurationException, ProcessingException, IOException {
         UriBuilder builder = UriBuilder.fromUri(redirectUri)
                 .replaceQuery(null)
-                .queryParam(samlParameterName, base64Encoded(document));
+                .queryParam(samlParameterName, base64Encoded(documentBytes));
         if (relayState != null) {
             builder.queryParam("RelayState", relayState);
         }
@@ -359,5 +400,19 @@ public class SAML2BindingBuilder2<T extends SAML2BindingBuilder2> {
         return new PostBindingBuilder(document);
     }
 
+    /**
+     * Uses a serialized document, which can't be signed or encrypted by this builder, except for the query string
+     * signature of the redirect binding.
+     *
+     * @see #isDocumentRequired(boolean)
+     */
+    public RedirectBindingBuilder redirectBinding(byte[] documentBytes) {
+        return new RedirectBindingBuilder(documentBytes);
+    }
+
+    public PostBindingBuilder postBinding(byte[] documentBytes) {
+        return new PostBindingBuilder(documentBytes);
+    }
+
 
 }
@@ -20,6 +20,8 @@ import org.keycloak.dom.saml.v2.assertion.SubjectConfirmationDataType;
 import org.keycloak.dom.saml.v2.assertion.AudienceRestrictionType;
 import org.keycloak.dom.saml.v2.protocol.ResponseType;
 import org.w3c.dom.Document;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
 
 import static org.keycloak.saml.common.util.StringUtil.isNotNull;
@@ -135,6 +137,26 @@ public class SAML2LoginResponseBuilder {
         return samlResponseDocument;
     }
 
+    /**
+     * Writes the response straight to bytes, without building a DOM document. Only usable if the response doesn't need
+     * to be signed or encrypted as a document.
+     */
+    public byte[] buildBytes(ResponseType responseType) throws ProcessingException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new SAML2Response().marshall(responseType, bos);
+        byte[] bytes = bos.toByteArray();
+
+        if (logger.isTraceEnabled()) {
+            try {
+                logger.trace("SAML Response Document: " + new String(bytes, "UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new ProcessingException(e);
+            }
+        }
+
+        return bytes;
+    }
+
     public ResponseType buildModel() throws ConfigurationException, ProcessingException {
         ResponseType responseType = null;
 
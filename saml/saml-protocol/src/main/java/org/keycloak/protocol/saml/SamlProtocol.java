@@ -1,14 +1,15 @@
 package org.keycloak.protocol.saml;
 
-import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.message.BasicNameValuePair;
 import org.jboss.logging.Logger;
 import org.keycloak.connections.httpclient.HttpClientProvider;
+import org.keycloak.connections.httpclient.LogoutDispatcher;
 import org.keycloak.dom.saml.v2.assertion.AssertionType;
 import org.keycloak.dom.saml.v2.assertion.AttributeStatementType;
 import org.keycloak.dom.saml.v2.protocol.ResponseType;
@@ -42,7 +43,6 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.io.IOException;
-import java.io.InputStream;
 import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -306,13 +306,12 @@ public class SamlProtocol implements LoginProtocol {
         }
 
 
-        Document samlDocument = null;
+        ResponseType samlModel = null;
         try {
-            ResponseType samlModel = builder.buildModel();
+            samlModel = builder.buildModel();
             transformAttributeStatement(attributeStatementMappers, samlModel, session, userSession, clientSession);
             populateRoles(roleListMapper, samlModel, session, userSession, clientSession);
             samlModel = transformLoginResponse(loginResponseMappers, samlModel, session, userSession, clientSession);
-            samlDocument = builder.buildDocument(samlModel);
         } catch (Exception e) {
             logger.error("failed", e);
             return ErrorPage.error(session, Messages.FAILED_TO_PROCESS_RESPONSE);
@@ -341,8 +340,20 @@ public class SamlProtocol implements LoginProtocol {
             }
             bindingBuilder.encrypt(publicKey);
         }
+        boolean postBinding = isPostBinding(clientSession);
         try {
-            if (isPostBinding(clientSession)) {
+            if (!bindingBuilder.isDocumentRequired(postBinding)) {
+                // Nothing to sign or encrypt in the document, so it's written straight to bytes
+                byte[] samlBytes = builder.buildBytes(samlModel);
+                if (postBinding) {
+                    return bindingBuilder.postBinding(samlBytes).response(redirectUri);
+                } else {
+                    return bindingBuilder.redirectBinding(samlBytes).response(redirectUri);
+                }
+            }
+
+            Document samlDocument = builder.buildDocument(samlModel);
+            if (postBinding) {
                 return bindingBuilder.postBinding(samlDocument).response(redirectUri);
             } else {
                 return bindingBuilder.redirectBinding(samlDocument).response(redirectUri);
@@ -526,41 +537,54 @@ public class SamlProtocol implements LoginProtocol {
             return;
         }
 
+        // Sent from a background thread, concurrently with logout requests to other clients
+        session.getProvider(HttpClientProvider.class).dispatchLogout(new BackchannelLogoutRequest(logoutUrl, logoutRequestString));
+    }
+
+    private static class BackchannelLogoutRequest implements LogoutDispatcher.Request {
 
-        HttpClient httpClient = session.getProvider(HttpClientProvider.class).getHttpClient();
-        for (int i = 0; i < 2; i++) { // follow redirects once
-            try {
+        private final String logoutUrl;
+        private final String logoutRequestString;
+
+        private BackchannelLogoutRequest(String logoutUrl, String logoutRequestString) {
+            this.logoutUrl = logoutUrl;
+            this.logoutRequestString = logoutRequestString;
+        }
+
+        @Override
+        public String getTarget() {
+            return logoutUrl;
+        }
+
+        @Override
+        public boolean send(HttpClient httpClient, RequestConfig requestConfig) throws IOException {
+            String url = logoutUrl;
+            for (int i = 0; i < 2; i++) { // follow redirects once
                 List<NameValuePair> formparams = new ArrayList<NameValuePair>();
                 formparams.add(new BasicNameValuePair(GeneralConstants.SAML_REQUEST_KEY, logoutRequestString));
                 formparams.add(new BasicNameValuePair("BACK_CHANNEL_LOGOUT", "BACK_CHANNEL_LOGOUT")); // for Picketlink todo remove this
                 UrlEncodedFormEntity form = new UrlEncodedFormEntity(formparams, "UTF-8");
-                HttpPost post = new HttpPost(logoutUrl);
+                HttpPost post = new HttpPost(url);
+                post.setConfig(requestConfig);
                 post.setEntity(form);
                 HttpResponse response = httpClient.execute(post);
                 try {
                     int status = response.getStatusLine().getStatusCode();
-                    if (status == 302  && !logoutUrl.endsWith("/")) {
+                    if (status == 302  && !url.endsWith("/")) {
                         String redirect = response.getFirstHeader(HttpHeaders.LOCATION).getValue();
-                        String withSlash = logoutUrl + "/";
+                        String withSlash = url + "/";
                         if (withSlash.equals(redirect)) {
-                            logoutUrl = withSlash;
+                            url = withSlash;
                             continue;
                         }
                     }
+                    return status < 400;
                 } finally {
-                    HttpEntity entity = response.getEntity();
-                    if (entity != null) {
-                        InputStream is = entity.getContent();
-                        if (is != null) is.close();
-                    }
-
+                    LogoutDispatcher.consume(response);
                 }
-            } catch (IOException e) {
-                logger.warn("failed to send saml logout", e);
             }
-            break;
+            return false;
         }
-
     }
 
     protected SAML2LogoutRequestBuilder createLogoutRequest(String logoutUrl, ClientSessionModel clientSession, ClientModel client) {
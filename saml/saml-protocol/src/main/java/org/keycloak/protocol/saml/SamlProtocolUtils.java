@@ -16,6 +16,9 @@ import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.Signature;
 import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
@@ -23,6 +26,17 @@ import java.security.cert.Certificate;
  */
 public class SamlProtocolUtils {
 
+    private static final int MAX_CACHED_KEYS = 1000;
+
+    // Public keys of certificates, keyed by the encoded certificate. A changed certificate is a different key, so entries
+    // never need to be invalidated. The least recently used entries are evicted when the cache is full.
+    private static final Map<String, PublicKey> publicKeys = Collections.synchronizedMap(new LinkedHashMap<String, PublicKey>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PublicKey> eldest) {
+            return size() > MAX_CACHED_KEYS;
+        }
+    });
+
     /**
      * <p>
      * Creates a random {@code byte[]} secret of the specified size.
@@ -70,13 +84,25 @@ public class SamlProtocolUtils {
     public static PublicKey getPublicKey(ClientModel client, String attribute) throws VerificationException {
         String certPem = client.getAttribute(attribute);
         if (certPem == null) throw new VerificationException("Client does not have a public key.");
-        Certificate cert = null;
-        try {
-            cert = PemUtils.decodeCertificate(certPem);
-        } catch (Exception e) {
-            throw new VerificationException("Could not decode cert", e);
+        return getPublicKey(certPem);
+    }
+
+    /**
+     * Returns the public key of a PEM encoded certificate. Keys are cached, so a certificate is only decoded once.
+     */
+    public static PublicKey getPublicKey(String certPem) throws VerificationException {
+        PublicKey publicKey = publicKeys.get(certPem);
+        if (publicKey == null) {
+            Certificate cert = null;
+            try {
+                cert = PemUtils.decodeCertificate(certPem);
+            } catch (Exception e) {
+                throw new VerificationException("Could not decode cert", e);
+            }
+            publicKey = cert.getPublicKey();
+            publicKeys.put(certPem, publicKey);
         }
-        return cert.getPublicKey();
+        return publicKey;
     }
 
     public static void verifyRedirectSignature(PublicKey publicKey, UriInfo uriInformation) throws VerificationException {
@@ -0,0 +1,152 @@
+package org.keycloak.protocol.saml;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.dom.saml.v2.protocol.ResponseType;
+import org.keycloak.saml.common.constants.JBossSAMLURIConstants;
+import org.keycloak.saml.common.util.DocumentUtil;
+import org.keycloak.saml.processing.web.util.PostBindingUtil;
+import org.keycloak.saml.processing.web.util.RedirectBindingUtil;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Responses written straight to bytes must be the same as responses written through a DOM document.
+ */
+public class SAML2LoginResponseBuilderTest {
+
+    private static final String ACTION_URL = "http://localhost:8080/sales-post/saml";
+
+    private SAML2LoginResponseBuilder builder;
+    private ResponseType model;
+
+    @Before
+    public void before() throws Exception {
+        builder = new SAML2LoginResponseBuilder()
+                .requestID("request-id")
+                .destination(ACTION_URL)
+                .issuer("http://localhost:8081/auth/realms/demo")
+                .assertionExpiration(300)
+                .subjectExpiration(300)
+                .requestIssuer("http://localhost:8080/sales-post/")
+                .nameIdentifier(JBossSAMLURIConstants.NAMEID_FORMAT_UNSPECIFIED.get(), "bburke")
+                .authMethod(JBossSAMLURIConstants.AC_UNSPECIFIED.get())
+                .sessionIndex("session-index");
+        model = builder.buildModel();
+    }
+
+    @Test
+    public void bytesSameAsDocument() throws Exception {
+        Document document = builder.buildDocument(model);
+        assertSameXml(document, parse(builder.buildBytes(model)));
+    }
+
+    @Test
+    public void postBinding() throws Exception {
+        SAML2BindingBuilder2 bindingBuilder = new SAML2BindingBuilder2().relayState("relay-state");
+        Assert.assertFalse(bindingBuilder.isDocumentRequired(true));
+
+        String fromDocument = bindingBuilder.postBinding(builder.buildDocument(model)).encoded();
+        String fromBytes = bindingBuilder.postBinding(builder.buildBytes(model)).encoded();
+
+        assertSameXml(parse(PostBindingUtil.base64Decode(fromDocument)), parse(PostBindingUtil.base64Decode(fromBytes)));
+    }
+
+    @Test
+    public void postBindingWithDocumentSignatureRequiresDocument() throws Exception {
+        SAML2BindingBuilder2 bindingBuilder = new SAML2BindingBuilder2().signWith(generateKeyPair()).signDocument();
+        Assert.assertTrue(bindingBuilder.isDocumentRequired(true));
+
+        try {
+            bindingBuilder.postBinding(builder.buildBytes(model));
+            Assert.fail("Expected document to be required");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void redirectBinding() throws Exception {
+        SAML2BindingBuilder2 bindingBuilder = new SAML2BindingBuilder2().relayState("relay-state");
+        Assert.assertFalse(bindingBuilder.isDocumentRequired(false));
+
+        URI fromDocument = bindingBuilder.redirectBinding(builder.buildDocument(model)).responseUri(ACTION_URL, false);
+        URI fromBytes = bindingBuilder.redirectBinding(builder.buildBytes(model)).responseUri(ACTION_URL, false);
+
+        assertSameRedirect(fromDocument, fromBytes);
+    }
+
+    @Test
+    public void redirectBindingWithDocumentSignature() throws Exception {
+        KeyPair keyPair = generateKeyPair();
+        SAML2BindingBuilder2 bindingBuilder = new SAML2BindingBuilder2().relayState("relay-state").signWith(keyPair).signDocument();
+        Assert.assertFalse(bindingBuilder.isDocumentRequired(false));
+
+        URI fromDocument = bindingBuilder.redirectBinding(builder.buildDocument(model)).responseUri(ACTION_URL, false);
+        URI fromBytes = bindingBuilder.redirectBinding(builder.buildBytes(model)).responseUri(ACTION_URL, false);
+
+        assertSameRedirect(fromDocument, fromBytes);
+        assertSignature(fromDocument, keyPair);
+        assertSignature(fromBytes, keyPair);
+    }
+
+    private void assertSameRedirect(URI expected, URI actual) throws Exception {
+        Assert.assertEquals(expected.getPath(), actual.getPath());
+
+        Map<String, String> expectedParams = parseQuery(expected);
+        Map<String, String> actualParams = parseQuery(actual);
+        Assert.assertEquals(expectedParams.keySet(), actualParams.keySet());
+        Assert.assertEquals(expectedParams.get("RelayState"), actualParams.get("RelayState"));
+        Assert.assertEquals(expectedParams.get("SigAlg"), actualParams.get("SigAlg"));
+
+        Document expectedDocument = DocumentUtil.getDocument(RedirectBindingUtil.urlBase64DeflateDecode(expectedParams.get("SAMLResponse")));
+        Document actualDocument = DocumentUtil.getDocument(RedirectBindingUtil.urlBase64DeflateDecode(actualParams.get("SAMLResponse")));
+        assertSameXml(expectedDocument, actualDocument);
+    }
+
+    private void assertSignature(URI uri, KeyPair keyPair) throws Exception {
+        String query = uri.getRawQuery();
+        int index = query.indexOf("&Signature=");
+        Assert.assertTrue(index > 0);
+
+        Signature signature = SignatureAlgorithm.RSA_SHA1.createSignature();
+        signature.initVerify(keyPair.getPublic());
+        signature.update(query.substring(0, index).getBytes("UTF-8"));
+        Assert.assertTrue(signature.verify(RedirectBindingUtil.urlBase64Decode(query.substring(index + "&Signature=".length()))));
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> params = new HashMap<String, String>();
+        for (String param : uri.getRawQuery().split("&")) {
+            int index = param.indexOf('=');
+            params.put(param.substring(0, index), param.substring(index + 1));
+        }
+        return params;
+    }
+
+    private static Document parse(byte[] bytes) throws Exception {
+        return DocumentUtil.getDocument(new ByteArrayInputStream(bytes));
+    }
+
+    private static void assertSameXml(Document expected, Document actual) throws Exception {
+        expected.normalizeDocument();
+        actual.normalizeDocument();
+        Assert.assertTrue("Expected " + DocumentUtil.asString(expected) + " but was " + DocumentUtil.asString(actual),
+                expected.getDocumentElement().isEqualNode(actual.getDocumentElement()));
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        return generator.generateKeyPair();
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.keycloak.protocol.saml;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.VerificationException;
+import org.keycloak.saml.processing.core.util.XMLSignatureUtil;
+
+import java.security.PublicKey;
+
+/**
+ * Public keys of client and identity provider certificates are cached by the encoded certificate.
+ */
+public class SamlProtocolUtilsTest {
+
+    // Certificates as stored in client attributes and identity provider configs, without BEGIN and END lines
+    private static final String CERTIFICATE_A =
+            "MIICADCCAWmgAwIBAgIUBUwy4j5Tf55FQoEx9icx8clehKEwDQYJKoZIhvcNAQEL\n" +
+            "BQAwETEPMA0GA1UEAwwGdGVzdC1hMCAXDTI2MTAxNzAxMDIxMVoYDzIxMjYwOTIz\n" +
+            "MDEwMjExWjARMQ8wDQYDVQQDDAZ0ZXN0LWEwgZ8wDQYJKoZIhvcNAQEBBQADgY0A\n" +
+            "MIGJAoGBAMltk0F3wi3HR8eoRm+hs+mmxWKpNnCdI0CYWxNCM2OwcL9/BAfJP0ow\n" +
+            "vKkJcx/DDwRqSwpm2zy9DzqBIFX8wniXnAM7Unp1I/GO8fUFc7L9QB42GfVkF58Q\n" +
+            "aIomt2i2ptU17ecgdiYUXqKsb6weKtj8gdCDe7cOlCEkFrWqWI3/AgMBAAGjUzBR\n" +
+            "MB0GA1UdDgQWBBR/2YtrGe0PPmwOT6p1xCnPioJ6FTAfBgNVHSMEGDAWgBR/2Ytr\n" +
+            "Ge0PPmwOT6p1xCnPioJ6FTAPBgNVHRMBAf8EBTADAQH/MA0GCSqGSIb3DQEBCwUA\n" +
+            "A4GBAGUeav+XZQsf+j06kPAS9ELQ3oDasa2mdvPdbwV+zZQnoFZmVlb5Rdigol8+\n" +
+            "xq18AJeyyBsnT4F3QwA25G5YFgBW5+v/ctEsjDui3Lngk7OmjzywEUHflCVm1PI4\n" +
+            "v0xW5Y5695e355K1uIBq9XfM77DXuCFBUSdPeb+zEhOZHfBP";
+
+    private static final String CERTIFICATE_B =
+            "MIICADCCAWmgAwIBAgIUUATtHvwvfrYv5GulK/dq9p6+TfowDQYJKoZIhvcNAQEL\n" +
+            "BQAwETEPMA0GA1UEAwwGdGVzdC1iMCAXDTI2MTAxNzAxMDIxMVoYDzIxMjYwOTIz\n" +
+            "MDEwMjExWjARMQ8wDQYDVQQDDAZ0ZXN0LWIwgZ8wDQYJKoZIhvcNAQEBBQADgY0A\n" +
+            "MIGJAoGBAOtbkKLmqYmw4ai16pLh+zuXaVMv6G5oJlD11Cqy4C2t0DgGjnObcUdj\n" +
+            "mvlWSHQxxyiL0PE0QnF4aMr+v3MqjizYaTWm3JOgrSulSLeMNWz5jHs0epdqg3bP\n" +
+            "XzjqM4T2fUu6la9qpku9ishXwX3JCoDqz/8S4d2HLZ79gxY7tYCJAgMBAAGjUzBR\n" +
+            "MB0GA1UdDgQWBBSsnInGMIB4uAw6Ae9VqEFih/KWdzAfBgNVHSMEGDAWgBSsnInG\n" +
+            "MIB4uAw6Ae9VqEFih/KWdzAPBgNVHRMBAf8EBTADAQH/MA0GCSqGSIb3DQEBCwUA\n" +
+            "A4GBAOlQKzGleXKExZ2xOB7JCbDeLD1MHDlhYWwIRfLqu8mUlN9W17kfs43TN+WB\n" +
+            "J0s2Xx7A6GVl85UuCC5opXv7DMS3YjeEQSa9QcKsAhvH6eUf2Vvbrw6uF3OZxepI\n" +
+            "GU7FHssy5vt8unQQRytTDGpVglQifjvEAuXfCcqkQckrTB4F";
+
+    @Test
+    public void pemReturnsCachedKey() throws Exception {
+        String pem = "-----BEGIN CERTIFICATE-----\n" + CERTIFICATE_A + "\n-----END CERTIFICATE-----";
+
+        PublicKey key = SamlProtocolUtils.getPublicKey(pem);
+        Assert.assertEquals(keyInfoKey(CERTIFICATE_A), key);
+        Assert.assertSame(key, SamlProtocolUtils.getPublicKey(pem));
+    }
+
+    @Test
+    public void changedCertificateDecodesNewKey() throws Exception {
+        PublicKey keyA = SamlProtocolUtils.getPublicKey(CERTIFICATE_A);
+        PublicKey keyB = SamlProtocolUtils.getPublicKey(CERTIFICATE_B);
+
+        Assert.assertNotEquals(keyA, keyB);
+        Assert.assertEquals(keyInfoKey(CERTIFICATE_B), keyB);
+        Assert.assertSame(keyA, SamlProtocolUtils.getPublicKey(CERTIFICATE_A));
+    }
+
+    @Test
+    public void invalidPem() throws Exception {
+        // Failures aren't cached, the second call must fail the same way
+        for (int i = 0; i < 2; i++) {
+            try {
+                SamlProtocolUtils.getPublicKey("-----BEGIN CERTIFICATE-----\nbm90IGEgY2VydGlmaWNhdGU=\n-----END CERTIFICATE-----");
+                Assert.fail("Expected VerificationException");
+            } catch (VerificationException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void bareBase64FromIdentityProviderConfig() throws Exception {
+        // SAMLEndpoint.getIDPKey strips all whitespace from the configured signing certificate
+        String signingCertificate = "  " + CERTIFICATE_A.replace("\n", "\r\n  ") + "\n";
+
+        PublicKey key = SamlProtocolUtils.getPublicKey(signingCertificate.replaceAll("\\s", ""));
+        Assert.assertEquals(keyInfoKey(CERTIFICATE_A.replaceAll("\\s", "")), key);
+    }
+
+    // Key as decoded by the previous SAMLEndpoint.getIDPKey implementation
+    private static PublicKey keyInfoKey(String certificate) throws Exception {
+        return XMLSignatureUtil.getX509CertificateFromKeyInfoString(certificate).getPublicKey();
+    }
+
+}
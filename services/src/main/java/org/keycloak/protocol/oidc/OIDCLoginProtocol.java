@@ -165,7 +165,7 @@ public class OIDCLoginProtocol implements LoginProtocol {
     public void backchannelLogout(UserSessionModel userSession, ClientSessionModel clientSession) {
         if (!(clientSession.getClient() instanceof ClientModel)) return;
         ClientModel app = clientSession.getClient();
-        new ResourceAdminManager(session).logoutClientSession(uriInfo.getRequestUri(), realm, app, clientSession);
+        new ResourceAdminManager(session).dispatchLogoutClientSession(uriInfo.getRequestUri(), realm, app, clientSession);
     }
 
     @Override
@@ -0,0 +1,92 @@
+package org.keycloak.protocol.oidc;
+
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.ProtocolMapperModel;
+import org.keycloak.models.cache.ClientAdapter;
+import org.keycloak.protocol.ProtocolMapper;
+import org.keycloak.protocol.oidc.mappers.CompiledProtocolMapperModel;
+import org.keycloak.protocol.oidc.mappers.OIDCAccessTokenMapper;
+import org.keycloak.protocol.oidc.mappers.OIDCIDTokenMapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Protocol mappers of a client resolved to their providers, split into access token and ID token mappers. Chains of
+ * cached clients are kept with the cached client, so they're built again only after the client (and with it its
+ * protocol mappers) was invalidated.
+ */
+public class OIDCProtocolMapperChain {
+
+    private final List<Mapping<OIDCAccessTokenMapper>> accessTokenMappers;
+    private final List<Mapping<OIDCIDTokenMapper>> idTokenMappers;
+
+    private OIDCProtocolMapperChain(List<Mapping<OIDCAccessTokenMapper>> accessTokenMappers, List<Mapping<OIDCIDTokenMapper>> idTokenMappers) {
+        this.accessTokenMappers = Collections.unmodifiableList(accessTokenMappers);
+        this.idTokenMappers = Collections.unmodifiableList(idTokenMappers);
+    }
+
+    public static OIDCProtocolMapperChain get(KeycloakSessionFactory sessionFactory, ClientModel client) {
+        if (client instanceof ClientAdapter) {
+            ClientAdapter cached = (ClientAdapter) client;
+            Object compiled = cached.getCompiledProtocolMappers();
+            if (compiled instanceof OIDCProtocolMapperChain) {
+                return (OIDCProtocolMapperChain) compiled;
+            }
+
+            OIDCProtocolMapperChain chain = build(sessionFactory, client);
+            cached.setCompiledProtocolMappers(chain);
+            return chain;
+        }
+        return build(sessionFactory, client);
+    }
+
+    private static OIDCProtocolMapperChain build(KeycloakSessionFactory sessionFactory, ClientModel client) {
+        List<Mapping<OIDCAccessTokenMapper>> accessTokenMappers = new ArrayList<Mapping<OIDCAccessTokenMapper>>();
+        List<Mapping<OIDCIDTokenMapper>> idTokenMappers = new ArrayList<Mapping<OIDCIDTokenMapper>>();
+
+        for (ProtocolMapperModel model : client.getProtocolMappers()) {
+            ProtocolMapper mapper = (ProtocolMapper) sessionFactory.getProviderFactory(ProtocolMapper.class, model.getProtocolMapper());
+            if (mapper == null) continue;
+
+            ProtocolMapperModel compiled = new CompiledProtocolMapperModel(model);
+            if (mapper instanceof OIDCAccessTokenMapper) {
+                accessTokenMappers.add(new Mapping<OIDCAccessTokenMapper>(compiled, (OIDCAccessTokenMapper) mapper));
+            }
+            if (mapper instanceof OIDCIDTokenMapper) {
+                idTokenMappers.add(new Mapping<OIDCIDTokenMapper>(compiled, (OIDCIDTokenMapper) mapper));
+            }
+        }
+
+        return new OIDCProtocolMapperChain(accessTokenMappers, idTokenMappers);
+    }
+
+    public List<Mapping<OIDCAccessTokenMapper>> getAccessTokenMappers() {
+        return accessTokenMappers;
+    }
+
+    public List<Mapping<OIDCIDTokenMapper>> getIdTokenMappers() {
+        return idTokenMappers;
+    }
+
+    public static class Mapping<T> {
+
+        private final ProtocolMapperModel model;
+        private final T mapper;
+
+        private Mapping(ProtocolMapperModel model, T mapper) {
+            this.model = model;
+            this.mapper = mapper;
+        }
+
+        public ProtocolMapperModel getModel() {
+            return model;
+        }
+
+        public T getMapper() {
+            return mapper;
+        }
+    }
+}
@@ -11,7 +11,6 @@ import org.keycloak.jose.jws.crypto.RSAProvider;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.ClientSessionModel;
 import org.keycloak.models.KeycloakSession;
-import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.ProtocolMapperModel;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.RoleModel;
@@ -19,7 +18,6 @@ import org.keycloak.models.UserModel;
 import org.keycloak.models.UserSessionModel;
 import org.keycloak.models.UserSessionProvider;
 import org.keycloak.models.utils.KeycloakModelUtils;
-import org.keycloak.protocol.ProtocolMapper;
 import org.keycloak.protocol.oidc.mappers.OIDCAccessTokenMapper;
 import org.keycloak.protocol.oidc.mappers.OIDCIDTokenMapper;
 import org.keycloak.representations.AccessToken;
@@ -27,7 +25,6 @@ import org.keycloak.representations.AccessTokenResponse;
 import org.keycloak.representations.IDToken;
 import org.keycloak.representations.RefreshToken;
 import org.keycloak.services.managers.AuthenticationManager;
-import org.keycloak.services.managers.ClientSessionCode;
 import org.keycloak.util.Time;
 
 import javax.ws.rs.core.HttpHeaders;
@@ -60,6 +57,22 @@ public class TokenManager {
         }
     }
 
+    /**
+     * Adds the scope role, or the roles contained in it, which the user has through any of the role mappings.
+     */
+    public static void applyScope(Set<RoleModel> roleMappings, RoleModel scope, Set<RoleModel> visited, Set<RoleModel> requested) {
+        if (!visited.add(scope)) return;
+        if (KeycloakModelUtils.hasRole(roleMappings, scope)) {
+            requested.add(scope);
+            return;
+        }
+        if (!scope.isComposite()) return;
+
+        for (RoleModel contained : scope.getComposites()) {
+            applyScope(roleMappings, contained, visited, requested);
+        }
+    }
+
     public static class TokenValidation {
         public final UserModel user;
         public final UserSessionModel userSession;
@@ -246,11 +259,10 @@ public class TokenManager {
             scopeMappings.addAll(((ClientModel) client).getRoles());
         }
 
-        for (RoleModel role : roleMappings) {
-            for (RoleModel desiredRole : scopeMappings) {
-                Set<RoleModel> visited = new HashSet<RoleModel>();
-                applyScope(role, desiredRole, visited, requestedRoles);
-            }
+        // Processing of a scope role doesn't depend on the path to it, so each one needs to be visited just once
+        Set<RoleModel> visited = new HashSet<RoleModel>();
+        for (RoleModel desiredRole : scopeMappings) {
+            applyScope(roleMappings, desiredRole, visited, requestedRoles);
         }
 
         return requestedRoles;
@@ -284,27 +296,25 @@ public class TokenManager {
 
     public AccessToken transformAccessToken(KeycloakSession session, AccessToken token, RealmModel realm, ClientModel client, UserModel user,
                                             UserSessionModel userSession, ClientSessionModel clientSession) {
-        Set<ProtocolMapperModel> mappings = new ClientSessionCode(realm, clientSession).getRequestedProtocolMappers();
-        KeycloakSessionFactory sessionFactory = session.getKeycloakSessionFactory();
-        for (ProtocolMapperModel mapping : mappings) {
-
-            ProtocolMapper mapper = (ProtocolMapper)sessionFactory.getProviderFactory(ProtocolMapper.class, mapping.getProtocolMapper());
-            if (mapper == null || !(mapper instanceof OIDCAccessTokenMapper)) continue;
-            token = ((OIDCAccessTokenMapper)mapper).transformAccessToken(token, mapping, session, userSession, clientSession);
+        Set<String> requested = clientSession.getProtocolMappers();
+        if (requested == null || requested.isEmpty()) return token;
 
+        OIDCProtocolMapperChain chain = OIDCProtocolMapperChain.get(session.getKeycloakSessionFactory(), clientSession.getClient());
+        for (OIDCProtocolMapperChain.Mapping<OIDCAccessTokenMapper> mapping : chain.getAccessTokenMappers()) {
+            if (!requested.contains(mapping.getModel().getId())) continue;
+            token = mapping.getMapper().transformAccessToken(token, mapping.getModel(), session, userSession, clientSession);
         }
         return token;
     }
     public void transformIDToken(KeycloakSession session, IDToken token, RealmModel realm, ClientModel client, UserModel user,
                                       UserSessionModel userSession, ClientSessionModel clientSession) {
-        Set<ProtocolMapperModel> mappings = new ClientSessionCode(realm, clientSession).getRequestedProtocolMappers();
-        KeycloakSessionFactory sessionFactory = session.getKeycloakSessionFactory();
-        for (ProtocolMapperModel mapping : mappings) {
-
-            ProtocolMapper mapper = (ProtocolMapper)sessionFactory.getProviderFactory(ProtocolMapper.class, mapping.getProtocolMapper());
-            if (mapper == null || !(mapper instanceof OIDCIDTokenMapper)) continue;
-            token = ((OIDCIDTokenMapper)mapper).transformIDToken(token, mapping, session, userSession, clientSession);
+        Set<String> requested = clientSession.getProtocolMappers();
+        if (requested == null || requested.isEmpty()) return;
 
+        OIDCProtocolMapperChain chain = OIDCProtocolMapperChain.get(session.getKeycloakSessionFactory(), clientSession.getClient());
+        for (OIDCProtocolMapperChain.Mapping<OIDCIDTokenMapper> mapping : chain.getIdTokenMappers()) {
+            if (!requested.contains(mapping.getModel().getId())) continue;
+            token = mapping.getMapper().transformIDToken(token, mapping.getModel(), session, userSession, clientSession);
         }
     }
 
@@ -0,0 +1,34 @@
+package org.keycloak.protocol.oidc.mappers;
+
+import org.keycloak.models.ProtocolMapperModel;
+
+/**
+ * Copy of a protocol mapper model which keeps its token claim name split into nested claim names, so tokens mapped
+ * with a cached mapper chain don't split it again. Mappers receive it as a plain {@link ProtocolMapperModel}.
+ */
+public class CompiledProtocolMapperModel extends ProtocolMapperModel {
+
+    private final String[] claimPath;
+
+    public CompiledProtocolMapperModel(ProtocolMapperModel model) {
+        this.id = model.getId();
+        this.name = model.getName();
+        this.protocol = model.getProtocol();
+        this.protocolMapper = model.getProtocolMapper();
+        this.consentRequired = model.isConsentRequired();
+        this.consentText = model.getConsentText();
+        this.config = model.getConfig();
+
+        String claim = config != null ? config.get(OIDCAttributeMapperHelper.TOKEN_CLAIM_NAME) : null;
+        this.claimPath = claim != null ? OIDCAttributeMapperHelper.getClaimPath(claim) : null;
+    }
+
+    /**
+     * @return token claim name split into nested claim names, or null if the mapper has none. The array is shared by
+     * all tokens mapped with this model, so it must not be modified.
+     */
+    public String[] getClaimPath() {
+        return claimPath;
+    }
+
+}
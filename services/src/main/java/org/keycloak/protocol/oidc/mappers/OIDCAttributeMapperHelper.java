@@ -55,21 +55,30 @@ public class OIDCAttributeMapperHelper {
     public static void mapClaim(IDToken token, ProtocolMapperModel mappingModel, Object attributeValue) {
         if (attributeValue == null) return;
         attributeValue = mapAttributeValue(mappingModel, attributeValue);
-        String protocolClaim = mappingModel.getConfig().get(TOKEN_CLAIM_NAME);
-        String[] split = protocolClaim.split("\\.");
+        String[] path = null;
+        if (mappingModel instanceof CompiledProtocolMapperModel) {
+            path = ((CompiledProtocolMapperModel) mappingModel).getClaimPath();
+        }
+        if (path == null) {
+            path = getClaimPath(mappingModel.getConfig().get(TOKEN_CLAIM_NAME));
+        }
         Map<String, Object> jsonObject = token.getOtherClaims();
-        for (int i = 0; i < split.length; i++) {
-            if (i == split.length - 1) {
-                jsonObject.put(split[i], attributeValue);
-            } else {
-                Map<String, Object> nested = (Map<String, Object>)jsonObject.get(split[i]);
-                if (nested == null) {
-                    nested = new HashMap<String, Object>();
-                    jsonObject.put(split[i], nested);
-                    jsonObject = nested;
-                }
+        for (int i = 0; i < path.length - 1; i++) {
+            Map<String, Object> nested = (Map<String, Object>)jsonObject.get(path[i]);
+            if (nested == null) {
+                nested = new HashMap<String, Object>();
+                jsonObject.put(path[i], nested);
             }
+            jsonObject = nested;
         }
+        jsonObject.put(path[path.length - 1], attributeValue);
+    }
+
+    /**
+     * Splits a claim name like 'address.street' into the names of nested claims.
+     */
+    public static String[] getClaimPath(String protocolClaim) {
+        return protocolClaim.split("\\.");
     }
 
     public static ProtocolMapperModel createClaimMapper(String name,
@@ -2,6 +2,10 @@ package org.keycloak.services;
 
 import org.jboss.logging.Logger;
 import org.keycloak.Config;
+import org.keycloak.events.AsyncEventListenerProviderFactory;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventListenerProviderFactory;
+import org.keycloak.events.EventStoreProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.provider.Provider;
@@ -11,6 +15,7 @@ import org.keycloak.provider.ProviderFactory;
 import org.keycloak.provider.ProviderManager;
 import org.keycloak.provider.Spi;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -24,6 +29,10 @@ public class DefaultKeycloakSessionFactory implements KeycloakSessionFactory {
 
     private static final Logger log = Logger.getLogger(DefaultKeycloakSessionFactory.class);
 
+    // Factories of these providers send queued events when they're closed, so they're closed in this order before the
+    // factories of the providers they use
+    private static final List<Class<? extends Provider>> CLOSE_FIRST = Arrays.<Class<? extends Provider>>asList(EventListenerProvider.class, EventStoreProvider.class);
+
     private Map<Class<? extends Provider>, String> provider = new HashMap<Class<? extends Provider>, String>();
     private Map<Class<? extends Provider>, Map<String, ProviderFactory>> factoriesMap = new HashMap<Class<? extends Provider>, Map<String, ProviderFactory>>();
     protected CopyOnWriteArrayList<ProviderEventListener> listeners = new CopyOnWriteArrayList<ProviderEventListener>();
@@ -68,7 +77,7 @@ public class DefaultKeycloakSessionFactory implements KeycloakSessionFactory {
                     log.warnv("{0} ({1}) is implementing the internal SPI {2}. This SPI is internal and may change without notice", factory.getId(), factory.getClass().getName(), spi.getName());
                 }
 
-                factories.put(factory.getId(), factory);
+                factories.put(factory.getId(), wrap(spi, factory, scope));
 
                 log.debugv("Loaded SPI {0} (provider = {1})", spi.getName(), provider);
             } else {
@@ -80,7 +89,7 @@ public class DefaultKeycloakSessionFactory implements KeycloakSessionFactory {
                         log.warnv("{0} ({1}) is implementing the internal SPI {2}. This SPI is internal and may change without notice", factory.getId(), factory.getClass().getName(), spi.getName());
                     }
 
-                    factories.put(factory.getId(), factory);
+                    factories.put(factory.getId(), wrap(spi, factory, scope));
                 }
 
                 if (factories.size() == 1) {
@@ -137,13 +146,33 @@ public class DefaultKeycloakSessionFactory implements KeycloakSessionFactory {
     }
 
     public void close() {
-        for (Map<String, ProviderFactory> factories : factoriesMap.values()) {
-            for (ProviderFactory factory : factories.values()) {
-                factory.close();
+        for (Class<? extends Provider> clazz : CLOSE_FIRST) {
+            Map<String, ProviderFactory> factories = factoriesMap.get(clazz);
+            if (factories != null) {
+                close(factories);
+            }
+        }
+
+        for (Map.Entry<Class<? extends Provider>, Map<String, ProviderFactory>> entry : factoriesMap.entrySet()) {
+            if (!CLOSE_FIRST.contains(entry.getKey())) {
+                close(entry.getValue());
             }
         }
     }
 
+    private void close(Map<String, ProviderFactory> factories) {
+        for (ProviderFactory factory : factories.values()) {
+            factory.close();
+        }
+    }
+
+    private ProviderFactory wrap(Spi spi, ProviderFactory factory, Config.Scope scope) {
+        if (spi.getProviderClass() == EventListenerProvider.class) {
+            return AsyncEventListenerProviderFactory.wrap((EventListenerProviderFactory) factory, scope);
+        }
+        return factory;
+    }
+
     private boolean isInternal(ProviderFactory<?> factory) {
         return factory.getClass().getPackage().getName().startsWith("org.keycloak");
     }
@@ -7,6 +7,7 @@ import org.keycloak.ClientConnection;
 import org.keycloak.RSATokenVerifier;
 import org.keycloak.VerificationException;
 import org.keycloak.broker.provider.IdentityProvider;
+import org.keycloak.connections.httpclient.HttpClientProvider;
 import org.keycloak.events.Details;
 import org.keycloak.events.EventBuilder;
 import org.keycloak.events.EventType;
@@ -29,6 +30,7 @@ import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.protocol.LoginProtocol;
 import org.keycloak.protocol.oidc.TokenManager;
 import org.keycloak.representations.AccessToken;
+import org.keycloak.representations.adapters.action.GlobalRequestResult;
 import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.services.resources.IdentityBrokerService;
 import org.keycloak.services.resources.LoginActionsService;
@@ -132,6 +134,7 @@ public class AuthenticationManager {
         for (ClientSessionModel clientSession : userSession.getClientSessions()) {
             backchannelLogoutClientSession(session, realm, clientSession, userSession, uriInfo, headers);
         }
+        awaitBackchannelLogouts(session);
         if (logoutBroker) {
             String brokerId = userSession.getNote(IdentityBrokerService.BROKER_PROVIDER_ID);
             if (brokerId != null) {
@@ -175,6 +178,16 @@ public class AuthenticationManager {
                 }
             }
         }
+        awaitBackchannelLogouts(session);
+    }
+
+    // Protocols dispatch backchannel logout requests, which are sent concurrently. Failed requests are retried in the
+    // background, so this only waits for the first attempt.
+    private static void awaitBackchannelLogouts(KeycloakSession session) {
+        GlobalRequestResult result = session.getProvider(HttpClientProvider.class).awaitLogouts();
+        if (result.getFailedRequests() != null) {
+            logger.debugv("Backchannel logout failed or not completed yet for: {0}", result.getFailedRequests());
+        }
     }
 
     public static Response browserLogout(KeycloakSession session, RealmModel realm, UserSessionModel userSession, UriInfo uriInfo, ClientConnection connection, HttpHeaders headers) {
@@ -211,6 +224,7 @@ public class AuthenticationManager {
                 }
             }
         }
+        awaitBackchannelLogouts(session);
 
         for (ClientSessionModel nextRedirectClient : redirectClients) {
             String authMethod = nextRedirectClient.getAuthMethod();
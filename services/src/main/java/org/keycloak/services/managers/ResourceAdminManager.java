@@ -3,6 +3,7 @@ package org.keycloak.services.managers;
 import org.jboss.logging.Logger;
 import org.keycloak.TokenIdGenerator;
 import org.keycloak.connections.httpclient.HttpClientProvider;
+import org.keycloak.connections.httpclient.LogoutDispatcher;
 import org.keycloak.constants.AdapterConstants;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.ClientSessionModel;
@@ -106,8 +107,9 @@ public class ResourceAdminManager {
         //logger.infov("logging out resources: {0}", clientSessions);
 
         for (Map.Entry<ClientModel, List<ClientSessionModel>> entry : clientSessions.entrySet()) {
-            logoutClientSessions(requestUri, realm, entry.getKey(), entry.getValue());
+            dispatchLogoutClientSessions(requestUri, realm, entry.getKey(), entry.getValue());
         }
+        awaitLogouts();
     }
 
     private void putClientSessions(MultivaluedHashMap<ClientModel, ClientSessionModel> clientSessions, UserSessionModel userSession) {
@@ -128,14 +130,29 @@ public class ResourceAdminManager {
             ourAppClientSessions = clientSessions.get(resource);
         }
 
-        logoutClientSessions(requestUri, realm, resource, ourAppClientSessions);
+        dispatchLogoutClientSessions(requestUri, realm, resource, ourAppClientSessions);
+        awaitLogouts();
     }
 
     public boolean logoutClientSession(URI requestUri, RealmModel realm, ClientModel resource, ClientSessionModel clientSession) {
-        return logoutClientSessions(requestUri, realm, resource, Arrays.asList(clientSession));
+        if (!dispatchLogoutClientSessions(requestUri, realm, resource, Arrays.asList(clientSession))) {
+            return false;
+        }
+        return awaitLogouts().getFailedRequests() == null;
+    }
+
+    /**
+     * Starts logging out the client session without waiting for the client. Logout requests dispatched like this are
+     * sent concurrently, so logging out a user session from many clients takes about as long as the slowest client.
+     */
+    public void dispatchLogoutClientSession(URI requestUri, RealmModel realm, ClientModel resource, ClientSessionModel clientSession) {
+        dispatchLogoutClientSessions(requestUri, realm, resource, Arrays.asList(clientSession));
     }
 
-    protected boolean logoutClientSessions(URI requestUri, RealmModel realm, ClientModel resource, List<ClientSessionModel> clientSessions) {
+    /**
+     * @return true if logout requests were dispatched
+     */
+    protected boolean dispatchLogoutClientSessions(URI requestUri, RealmModel realm, ClientModel resource, List<ClientSessionModel> clientSessions) {
         String managementUrl = getManagementUrl(requestUri, resource);
         if (managementUrl != null) {
 
@@ -160,16 +177,13 @@ public class ResourceAdminManager {
             }
 
             if (managementUrl.contains(CLIENT_SESSION_HOST_PROPERTY)) {
-                boolean allPassed = true;
                 // Send logout separately to each host (needed for single-sign-out in cluster for non-distributable apps - KEYCLOAK-748)
                 for (Map.Entry<String, List<String>> entry : adapterSessionIds.entrySet()) {
                     String host = entry.getKey();
                     List<String> sessionIds = entry.getValue();
                     String currentHostMgmtUrl = managementUrl.replace(CLIENT_SESSION_HOST_PROPERTY, host);
-                    allPassed = sendLogoutRequest(realm, resource, sessionIds, userSessions, 0, currentHostMgmtUrl) && allPassed;
+                    dispatchLogoutRequest(realm, resource, sessionIds, userSessions, 0, currentHostMgmtUrl);
                 }
-
-                return allPassed;
             } else {
                 // Send single logout request
                 List<String> allSessionIds = new ArrayList<String>();
@@ -177,8 +191,9 @@ public class ResourceAdminManager {
                     allSessionIds.addAll(currentIds);
                 }
 
-                return sendLogoutRequest(realm, resource, allSessionIds, userSessions, 0, managementUrl);
+                dispatchLogoutRequest(realm, resource, allSessionIds, userSessions, 0, managementUrl);
             }
+            return true;
         } else {
             logger.debugv("Can't logout {0}: no management url", resource.getClientId());
             return false;
@@ -192,12 +207,11 @@ public class ResourceAdminManager {
         List<ClientModel> resources = realm.getClients();
         logger.debugv("logging out {0} resources ", resources.size());
 
-        GlobalRequestResult finalResult = new GlobalRequestResult();
+        // Requests for all clients are sent concurrently
         for (ClientModel resource : resources) {
-            GlobalRequestResult currentResult = logoutClient(requestUri, realm, resource, realm.getNotBefore());
-            finalResult.addAll(currentResult);
+            dispatchLogoutClient(requestUri, realm, resource, realm.getNotBefore());
         }
-        return finalResult;
+        return awaitLogouts();
     }
 
     public GlobalRequestResult logoutClient(URI requestUri, RealmModel realm, ClientModel resource) {
@@ -207,40 +221,37 @@ public class ResourceAdminManager {
 
 
     protected GlobalRequestResult logoutClient(URI requestUri, RealmModel realm, ClientModel resource, int notBefore) {
+        dispatchLogoutClient(requestUri, realm, resource, notBefore);
+        return awaitLogouts();
+    }
+
+    protected void dispatchLogoutClient(URI requestUri, RealmModel realm, ClientModel resource, int notBefore) {
         List<String> mgmtUrls = getAllManagementUrls(requestUri, resource);
         if (mgmtUrls.isEmpty()) {
             logger.debug("No management URL or no registered cluster nodes for the client " + resource.getClientId());
-            return new GlobalRequestResult();
+            return;
         }
 
         if (logger.isDebugEnabled()) logger.debug("Send logoutClient for URLs: " + mgmtUrls);
 
         // Propagate this to all hosts
-        GlobalRequestResult result = new GlobalRequestResult();
         for (String mgmtUrl : mgmtUrls) {
-            if (sendLogoutRequest(realm, resource, null, null, notBefore, mgmtUrl)) {
-                result.addSuccessRequest(mgmtUrl);
-            } else {
-                result.addFailedRequest(mgmtUrl);
-            }
+            dispatchLogoutRequest(realm, resource, null, null, notBefore, mgmtUrl);
         }
-        return result;
     }
 
-    protected boolean sendLogoutRequest(RealmModel realm, ClientModel resource, List<String> adapterSessionIds, List<String> userSessions, int notBefore, String managementUrl) {
+    protected void dispatchLogoutRequest(RealmModel realm, ClientModel resource, List<String> adapterSessionIds, List<String> userSessions, int notBefore, String managementUrl) {
         LogoutAction adminAction = new LogoutAction(TokenIdGenerator.generateId(), Time.currentTime() + 30, resource.getClientId(), adapterSessionIds, notBefore, userSessions);
         String token = new TokenManager().encodeToken(realm, adminAction);
         if (logger.isDebugEnabled()) logger.debugv("logout resource {0} url: {1} sessionIds: " + adapterSessionIds, resource.getClientId(), managementUrl);
         URI target = UriBuilder.fromUri(managementUrl).path(AdapterConstants.K_LOGOUT).build();
-        try {
-            int status = session.getProvider(HttpClientProvider.class).postText(target.toString(), token);
-            boolean success = status == 204 || status == 200;
-            logger.debugf("logout success for %s: %s", managementUrl, success);
-            return success;
-        } catch (IOException e) {
-            logger.warn("Logout for client '" + resource.getClientId() + "' failed", e);
-            return false;
-        }
+        session.getProvider(HttpClientProvider.class).dispatchLogout(LogoutDispatcher.textRequest(managementUrl, target.toString(), token));
+    }
+
+    protected GlobalRequestResult awaitLogouts() {
+        GlobalRequestResult result = session.getProvider(HttpClientProvider.class).awaitLogouts();
+        if (result.getFailedRequests() != null) logger.debugv("logout failed for: {0}", result.getFailedRequests());
+        return result;
     }
 
     public GlobalRequestResult pushRealmRevocationPolicy(URI requestUri, RealmModel realm) {
@@ -0,0 +1,127 @@
+package org.keycloak.services.passwordhashing;
+
+import org.keycloak.models.PasswordHashingRejectedException;
+import org.keycloak.models.utils.Pbkdf2PasswordEncoder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how many passwords are hashed at the same time, so a burst of logins with a high hash iterations policy can't
+ * keep all request threads busy with hashing. Passwords are hashed on the calling thread once it got a permit. At most
+ * <code>maxWaiting</code> threads wait for a permit, each for at most <code>waitTimeout</code> milliseconds, other
+ * requests are rejected with {@link PasswordHashingRejectedException} right away.
+ */
+public class BoundedPasswordHashing {
+
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final long waitTimeout;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AtomicLong hashCount = new AtomicLong();
+    private final AtomicLong hashTime = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public BoundedPasswordHashing(int maxConcurrent, int maxWaiting, long waitTimeout) {
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxWaiting = maxWaiting;
+        this.waitTimeout = waitTimeout;
+    }
+
+    public String encode(byte[] salt, String rawPassword, int iterations) {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            return hash(salt, rawPassword, iterations);
+        } finally {
+            hashTime.addAndGet(System.nanoTime() - start);
+            hashCount.incrementAndGet();
+            permits.release();
+        }
+    }
+
+    public boolean verify(byte[] salt, String rawPassword, String encodedPassword, int iterations) {
+        return encode(salt, rawPassword, iterations).equals(encodedPassword);
+    }
+
+    protected String hash(byte[] salt, String rawPassword, int iterations) {
+        return new Pbkdf2PasswordEncoder(salt).encode(rawPassword, iterations);
+    }
+
+    private void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            throw reject(null);
+        }
+        try {
+            if (!permits.tryAcquire(waitTimeout, TimeUnit.MILLISECONDS)) {
+                throw reject(null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject(e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private PasswordHashingRejectedException reject(Throwable cause) {
+        rejectedCount.incrementAndGet();
+        return new PasswordHashingRejectedException("Too many concurrent password hashing requests", cause);
+    }
+
+    public long getHashCount() {
+        return hashCount.get();
+    }
+
+    /**
+     * Total time spent hashing in milliseconds
+     */
+    public long getHashTime() {
+        return TimeUnit.NANOSECONDS.toMillis(hashTime.get());
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return count of threads waiting to hash a password
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * @return count of passwords being hashed
+     */
+    public int getActiveCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * @return current counts, for the server info of the password hashing provider factory
+     */
+    public Map<String, String> getOperationalInfo() {
+        Map<String, String> info = new LinkedHashMap<String, String>();
+        info.put("hashCount", String.valueOf(getHashCount()));
+        info.put("hashTime", getHashTime() + " ms");
+        info.put("active", String.valueOf(getActiveCount()));
+        info.put("waiting", String.valueOf(getWaiting()));
+        info.put("rejected", String.valueOf(getRejectedCount()));
+        return info;
+    }
+
+}
@@ -0,0 +1,27 @@
+package org.keycloak.services.passwordhashing;
+
+import org.keycloak.models.PasswordHashingProvider;
+
+public class DefaultPasswordHashingProvider implements PasswordHashingProvider {
+
+    private final BoundedPasswordHashing hashing;
+
+    public DefaultPasswordHashingProvider(BoundedPasswordHashing hashing) {
+        this.hashing = hashing;
+    }
+
+    @Override
+    public String encode(byte[] salt, String rawPassword, int iterations) {
+        return hashing.encode(salt, rawPassword, iterations);
+    }
+
+    @Override
+    public boolean verify(byte[] salt, String rawPassword, String encodedPassword, int iterations) {
+        return hashing.verify(salt, rawPassword, encodedPassword, iterations);
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,47 @@
+package org.keycloak.services.passwordhashing;
+
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.PasswordHashingProvider;
+import org.keycloak.models.PasswordHashingProviderFactory;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
+
+import java.util.Map;
+
+public class DefaultPasswordHashingProviderFactory implements PasswordHashingProviderFactory, ServerInfoAwareProviderFactory {
+
+    private BoundedPasswordHashing hashing;
+
+    @Override
+    public PasswordHashingProvider create(KeycloakSession session) {
+        return new DefaultPasswordHashingProvider(hashing);
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+        int maxConcurrent = config.getInt("maxConcurrent", Runtime.getRuntime().availableProcessors());
+        int maxWaiting = config.getInt("maxWaiting", maxConcurrent * 100);
+        long waitTimeout = config.getLong("waitTimeout", 5000L);
+        hashing = new BoundedPasswordHashing(maxConcurrent, maxWaiting, waitTimeout);
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String getId() {
+        return "default";
+    }
+
+    @Override
+    public Map<String, String> getOperationalInfo() {
+        return hashing.getOperationalInfo();
+    }
+
+}
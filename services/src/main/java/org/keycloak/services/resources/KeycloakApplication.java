@@ -75,6 +75,7 @@ public class KeycloakApplication extends Application {
         singletons.add(new RealmsResource());
         singletons.add(new AdminRoot());
         singletons.add(new ModelExceptionMapper());
+        singletons.add(new PasswordHashingRejectedExceptionMapper());
         classes.add(SkeletonKeyContextResolver.class);
         classes.add(QRCodeResource.class);
         classes.add(ThemeResource.class);
@@ -162,10 +163,13 @@ public class KeycloakApplication extends Application {
     }
 
     public static void setupScheduledTasks(final KeycloakSessionFactory sessionFactory) {
-        long interval = Config.scope("scheduled").getLong("interval", 60L) * 1000;
+        Config.Scope config = Config.scope("scheduled");
+        long interval = config.getLong("interval", 60L) * 1000;
+        int eventsChunkSize = config.getInt("clearEventsChunkSize", ClearExpiredEvents.DEFAULT_CHUNK_SIZE);
+        long eventsChunkPause = config.getLong("clearEventsChunkPause", ClearExpiredEvents.DEFAULT_CHUNK_PAUSE);
 
         TimerProvider timer = sessionFactory.create().getProvider(TimerProvider.class);
-        timer.schedule(new ScheduledTaskRunner(sessionFactory, new ClearExpiredEvents()), interval, "ClearExpiredEvents");
+        timer.schedule(new ScheduledTaskRunner(sessionFactory, new ClearExpiredEvents(eventsChunkSize, eventsChunkPause)), interval, "ClearExpiredEvents");
         timer.schedule(new ScheduledTaskRunner(sessionFactory, new ClearExpiredUserSessions()), interval, "ClearExpiredUserSessions");
         new UsersSyncManager().bootstrapPeriodic(sessionFactory, timer);
     }
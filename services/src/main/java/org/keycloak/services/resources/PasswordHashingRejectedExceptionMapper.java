@@ -0,0 +1,28 @@
+package org.keycloak.services.resources;
+
+import org.jboss.logging.Logger;
+import org.keycloak.models.PasswordHashingRejectedException;
+import org.keycloak.services.ErrorResponse;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Responds with 503 when a password couldn't be hashed as the server is busy hashing other passwords, so clients can
+ * retry later instead of seeing a server error.
+ */
+@Provider
+public class PasswordHashingRejectedExceptionMapper implements ExceptionMapper<PasswordHashingRejectedException> {
+
+    private static final Logger logger = Logger.getLogger(PasswordHashingRejectedExceptionMapper.class);
+
+    private static final int RETRY_AFTER_SECONDS = 5;
+
+    @Override
+    public Response toResponse(PasswordHashingRejectedException ex) {
+        logger.warn(ex.getMessage());
+        Response response = ErrorResponse.error("Server is busy, please try again later", Response.Status.SERVICE_UNAVAILABLE);
+        return Response.fromResponse(response).header("Retry-After", RETRY_AFTER_SECONDS).build();
+    }
+}
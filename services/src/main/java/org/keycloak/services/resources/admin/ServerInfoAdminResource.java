@@ -18,6 +18,7 @@ import org.keycloak.protocol.LoginProtocolFactory;
 import org.keycloak.protocol.ProtocolMapper;
 import org.keycloak.provider.ProviderConfigProperty;
 import org.keycloak.provider.ProviderFactory;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
 import org.keycloak.provider.Spi;
 import org.keycloak.representations.idm.ConfigPropertyRepresentation;
 import org.keycloak.representations.idm.ProtocolMapperRepresentation;
@@ -75,6 +76,19 @@ public class ServerInfoAdminResource {
             spiRep.setName(spi.getName());
             spiRep.setInternal(spi.isInternal());
             spiRep.setImplementations(session.listProviderIds(spi.getProviderClass()));
+
+            Map<String, Map<String, String>> operationalInfo = new HashMap<>();
+            for (ProviderFactory factory : session.getKeycloakSessionFactory().getProviderFactories(spi.getProviderClass())) {
+                if (factory instanceof ServerInfoAwareProviderFactory) {
+                    Map<String, String> providerInfo = ((ServerInfoAwareProviderFactory) factory).getOperationalInfo();
+                    if (providerInfo != null) {
+                        operationalInfo.put(factory.getId(), providerInfo);
+                    }
+                }
+            }
+            if (!operationalInfo.isEmpty()) {
+                spiRep.setOperationalInfo(operationalInfo);
+            }
             providers.add(spiRep);
         }
         info.providers = providers;
@@ -273,6 +287,7 @@ public class ServerInfoAdminResource {
         private String name;
         private boolean internal;
         private Set<String> implementations;
+        private Map<String, Map<String, String>> operationalInfo;
 
         public String getName() {
             return name;
@@ -297,6 +312,14 @@ public class ServerInfoAdminResource {
         public void setImplementations(Set<String> implementations) {
             this.implementations = implementations;
         }
+
+        public Map<String, Map<String, String>> getOperationalInfo() {
+            return operationalInfo;
+        }
+
+        public void setOperationalInfo(Map<String, Map<String, String>> operationalInfo) {
+            this.operationalInfo = operationalInfo;
+        }
     }
 
     private static Map<String, List<String>> createEnumsMap(Class... enums) {
@@ -453,6 +453,8 @@ public class UsersResource {
      * @param first
      * @param email
      * @param username
+     * @param after username of the last user of the previous page. Continues after that user instead of skipping
+     *              {@code first} users, which is cheaper for later pages. Not used for queries by attributes.
      * @return
      */
     @GET
@@ -464,7 +466,8 @@ public class UsersResource {
                                              @QueryParam("email") String email,
                                              @QueryParam("username") String username,
                                              @QueryParam("first") Integer firstResult,
-                                             @QueryParam("max") Integer maxResults) {
+                                             @QueryParam("max") Integer maxResults,
+                                             @QueryParam("after") String after) {
         auth.requireView();
 
         firstResult = firstResult != null ? firstResult : -1;
@@ -472,7 +475,9 @@ public class UsersResource {
 
         List<UserRepresentation> results = new ArrayList<UserRepresentation>();
         List<UserModel> userModels;
-        if (search != null) {
+        if (search != null && after != null) {
+            userModels = session.users().searchForUserAfter(search.trim(), realm, after, maxResults);
+        } else if (search != null) {
             userModels = session.users().searchForUser(search.trim(), realm, firstResult, maxResults);
         } else if (last != null || first != null || email != null || username != null) {
             Map<String, String> attributes = new HashMap<String, String>();
@@ -489,6 +494,8 @@ public class UsersResource {
                 attributes.put(UserModel.USERNAME, username);
             }
             userModels = session.users().searchForUserByAttributes(attributes, realm, firstResult, maxResults);
+        } else if (after != null) {
+            userModels = session.users().getUsersAfter(realm, after, maxResults);
         } else {
             userModels = session.users().getUsers(realm, firstResult, maxResults);
         }
@@ -1,14 +1,42 @@
 package org.keycloak.services.scheduled;
 
+import org.jboss.logging.Logger;
 import org.keycloak.events.EventStoreProvider;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.KeycloakSessionTask;
 import org.keycloak.models.RealmModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
 
 /**
+ * Removes expired events in chunks. Each chunk is removed in its own transaction, with a pause between chunks, so
+ * removing many events doesn't keep the event table locked for long.
+ *
  * @author <a href="mailto:sthorger@redhat.com">Stian Thorgersen</a>
  */
 public class ClearExpiredEvents implements ScheduledTask {
 
+    private static final Logger logger = Logger.getLogger(ClearExpiredEvents.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+    public static final long DEFAULT_CHUNK_PAUSE = 100;
+
+    private final int chunkSize;
+    private final long chunkPause;
+
+    public ClearExpiredEvents() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_PAUSE);
+    }
+
+    /**
+     * @param chunkSize maximum count of events removed in one transaction
+     * @param chunkPause milliseconds to wait between chunks
+     */
+    public ClearExpiredEvents(int chunkSize, long chunkPause) {
+        this.chunkSize = chunkSize;
+        this.chunkPause = chunkPause;
+    }
+
     @Override
     public void run(KeycloakSession session) {
         EventStoreProvider eventStore = session.getProvider(EventStoreProvider.class);
@@ -16,10 +44,37 @@ public class ClearExpiredEvents implements ScheduledTask {
             for (RealmModel realm : session.realms().getRealms()) {
                 if (realm.isEventsEnabled() && realm.getEventsExpiration() > 0) {
                     long olderThan = System.currentTimeMillis() - realm.getEventsExpiration() * 1000;
-                    eventStore.clear(realm.getId(), olderThan);
+                    clearRealm(session.getKeycloakSessionFactory(), realm.getId(), olderThan);
                 }
             }
         }
     }
 
+    private void clearRealm(KeycloakSessionFactory factory, final String realmId, final long olderThan) {
+        final int[] removed = new int[1];
+        int total = 0;
+        do {
+            KeycloakModelUtils.runJobInTransaction(factory, new KeycloakSessionTask() {
+                @Override
+                public void run(KeycloakSession session) {
+                    removed[0] = session.getProvider(EventStoreProvider.class).clear(realmId, olderThan, chunkSize);
+                }
+            });
+            total += removed[0];
+
+            if (removed[0] == chunkSize && chunkPause > 0) {
+                try {
+                    Thread.sleep(chunkPause);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } while (removed[0] == chunkSize);
+
+        if (total > 0) {
+            logger.debugv("Removed {0} expired events of realm {1}", total, realmId);
+        }
+    }
+
 }
@@ -0,0 +1,123 @@
+package org.keycloak.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.keycloak.models.PasswordHashingRejectedException;
+import org.keycloak.models.utils.Pbkdf2PasswordEncoder;
+import org.keycloak.services.passwordhashing.BoundedPasswordHashing;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class BoundedPasswordHashingTest {
+
+    @Test
+    public void testEncodeAndVerify() {
+        BoundedPasswordHashing hashing = new BoundedPasswordHashing(2, 10, 1000);
+        byte[] salt = Pbkdf2PasswordEncoder.getSalt();
+
+        String encoded = hashing.encode(salt, "password", 10);
+
+        Assert.assertEquals(new Pbkdf2PasswordEncoder(salt).encode("password", 10), encoded);
+        Assert.assertTrue(hashing.verify(salt, "password", encoded, 10));
+        Assert.assertFalse(hashing.verify(salt, "invalid", encoded, 10));
+        Assert.assertEquals(3, hashing.getHashCount());
+        Assert.assertEquals(0, hashing.getActiveCount());
+        Assert.assertEquals(0, hashing.getRejectedCount());
+        Assert.assertEquals("3", hashing.getOperationalInfo().get("hashCount"));
+        Assert.assertEquals("0", hashing.getOperationalInfo().get("rejected"));
+    }
+
+    @Test
+    public void testRejectWhenQueueFull() throws Exception {
+        BlockingPasswordHashing hashing = new BlockingPasswordHashing(1, 0, 10000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> blocked = hashing.encodeAsync(executor);
+
+            try {
+                hashing.encode(new byte[16], "password", 1);
+                Assert.fail("Expected hashing to be rejected");
+            } catch (PasswordHashingRejectedException e) {
+                // expected
+            }
+            Assert.assertEquals(1, hashing.getRejectedCount());
+            Assert.assertEquals(0, hashing.getWaiting());
+
+            hashing.release.countDown();
+            Assert.assertEquals("hashed", blocked.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(0, hashing.getActiveCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectOnTimeout() throws Exception {
+        BlockingPasswordHashing hashing = new BlockingPasswordHashing(1, 10, 100);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> blocked = hashing.encodeAsync(executor);
+
+            long start = System.currentTimeMillis();
+            try {
+                hashing.encode(new byte[16], "password", 1);
+                Assert.fail("Expected hashing to be rejected");
+            } catch (PasswordHashingRejectedException e) {
+                // expected
+            }
+            Assert.assertTrue(System.currentTimeMillis() - start >= 100);
+            Assert.assertEquals(1, hashing.getRejectedCount());
+            Assert.assertEquals(0, hashing.getWaiting());
+
+            hashing.release.countDown();
+            blocked.get(10, TimeUnit.SECONDS);
+
+            Assert.assertEquals("hashed", hashing.encode(new byte[16], "password", 1));
+            Assert.assertEquals(2, hashing.getHashCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Holds the first hash until released, so tests don't depend on how long real hashing takes
+     */
+    private static class BlockingPasswordHashing extends BoundedPasswordHashing {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingPasswordHashing(int maxConcurrent, int maxWaiting, long waitTimeout) {
+            super(maxConcurrent, maxWaiting, waitTimeout);
+        }
+
+        @Override
+        protected String hash(byte[] salt, String rawPassword, int iterations) {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed";
+        }
+
+        Future<String> encodeAsync(ExecutorService executor) throws InterruptedException {
+            Future<String> future = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return encode(new byte[16], "password", 1);
+                }
+            });
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+            return future;
+        }
+
+    }
+
+}
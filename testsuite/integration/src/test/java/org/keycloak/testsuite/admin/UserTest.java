@@ -184,6 +184,29 @@ public class UserTest extends AbstractClientTest {
         assertEquals(9, users.size());
     }
 
+    @Test
+    public void searchAfterUsername() {
+        createUsers();
+
+        List<UserRepresentation> users = realm.users().searchAfter("username", null, 2);
+        assertEquals(2, users.size());
+        assertEquals("username1", users.get(0).getUsername());
+        assertEquals("username2", users.get(1).getUsername());
+
+        users = realm.users().searchAfter("username", "username2", 2);
+        assertEquals(2, users.size());
+        assertEquals("username3", users.get(0).getUsername());
+        assertEquals("username4", users.get(1).getUsername());
+
+        users = realm.users().searchAfter("username", "username7", 20);
+        assertEquals(2, users.size());
+        assertEquals("username8", users.get(0).getUsername());
+        assertEquals("username9", users.get(1).getUsername());
+
+        users = realm.users().searchAfter("username", "username9", 20);
+        assertEquals(0, users.size());
+    }
+
     @Test
     public void getFederatedIdentities() {
         // Add sample identity provider
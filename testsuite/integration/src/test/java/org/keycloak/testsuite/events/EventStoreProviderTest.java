@@ -184,6 +184,28 @@ public class EventStoreProviderTest {
         Assert.assertEquals(3, eventStore.createQuery().getResultList().size());
     }
 
+    @Test
+    public void clearOldInChunks() {
+        eventStore.onEvent(create(System.currentTimeMillis() - 30000, EventType.LOGIN, "realmId", "clientId", "userId", "127.0.0.1", "error"));
+        eventStore.onEvent(create(System.currentTimeMillis() - 20000, EventType.LOGIN, "realmId", "clientId", "userId", "127.0.0.1", "error"));
+        eventStore.onEvent(create(System.currentTimeMillis() - 20000, EventType.LOGIN, "realmId", "clientId", "userId", "127.0.0.1", "error"));
+        eventStore.onEvent(create(System.currentTimeMillis(), EventType.LOGIN, "realmId", "clientId", "userId", "127.0.0.1", "error"));
+        eventStore.onEvent(create(System.currentTimeMillis() - 30000, EventType.LOGIN, "realmId2", "clientId", "userId", "127.0.0.1", "error"));
+
+        resetSession();
+
+        Assert.assertEquals(2, eventStore.clear("realmId", System.currentTimeMillis() - 10000, 2));
+
+        resetSession();
+
+        Assert.assertEquals(1, eventStore.clear("realmId", System.currentTimeMillis() - 10000, 2));
+
+        resetSession();
+
+        Assert.assertEquals(0, eventStore.clear("realmId", System.currentTimeMillis() - 10000, 2));
+        Assert.assertEquals(2, eventStore.createQuery().getResultList().size());
+    }
+
     private Event create(EventType event, String realmId, String clientId, String userId, String ipAddress, String error) {
         return create(System.currentTimeMillis(), event, realmId, clientId, userId, ipAddress, error);
     }
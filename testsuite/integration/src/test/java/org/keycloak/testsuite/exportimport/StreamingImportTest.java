@@ -0,0 +1,158 @@
+package org.keycloak.testsuite.exportimport;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.keycloak.exportimport.ExportImportConfig;
+import org.keycloak.exportimport.Strategy;
+import org.keycloak.exportimport.util.ImportUtils;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserCredentialModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.services.managers.RealmManager;
+import org.keycloak.testsuite.rule.KeycloakRule;
+import org.keycloak.util.JsonSerialization;
+
+import java.io.File;
+
+/**
+ * Tests for {@link ImportUtils#importFromFile}, which reads realms and their users from the file in separate passes.
+ */
+public class StreamingImportTest {
+
+    @ClassRule
+    public static KeycloakRule keycloakRule = new KeycloakRule();
+
+    @After
+    public void after() {
+        System.getProperties().remove(ExportImportConfig.USERS_PER_TRANSACTION);
+
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmManager realmManager = new RealmManager(session);
+            for (String realmName : new String[] { "stream-a", "stream-b", "stream-c", "stream-single" }) {
+                RealmModel realm = realmManager.getRealmByName(realmName);
+                if (realm != null) {
+                    realmManager.removeRealm(realm);
+                }
+            }
+        } finally {
+            keycloakRule.stopSession(session, true);
+        }
+    }
+
+    @Test
+    public void importRealmWithMetadataAfterUsers() throws Exception {
+        importFromFile("model/stream-import-realm.json", Strategy.OVERWRITE_EXISTING);
+
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel realm = session.realms().getRealmByName("stream-single");
+            Assert.assertNotNull(realm);
+            Assert.assertEquals("Role defined after the users", realm.getRole("single-role").getDescription());
+
+            UserModel user = assertAuthenticated(session, realm, "single-user1");
+            Assert.assertTrue(user.hasRole(realm.getRole("single-role")));
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+    }
+
+    @Test
+    public void importUsersOfEachRealm() throws Exception {
+        // Users of a realm are split into more transactions
+        ExportImportConfig.setUsersPerTransaction(2);
+
+        importFromFile("model/stream-import-realms.json", Strategy.OVERWRITE_EXISTING);
+
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel realmA = session.realms().getRealmByName("stream-a");
+            RealmModel realmB = session.realms().getRealmByName("stream-b");
+            RealmModel realmC = session.realms().getRealmByName("stream-c");
+
+            Assert.assertEquals(2, session.users().getUsersCount(realmA));
+            Assert.assertEquals(3, session.users().getUsersCount(realmB));
+            Assert.assertEquals(1, session.users().getUsersCount(realmC));
+
+            UserModel aUser = assertAuthenticated(session, realmA, "a-user1");
+            ClientModel aApp = realmA.getClientByClientId("a-app");
+            Assert.assertTrue(aUser.hasRole(realmA.getRole("a-role")));
+            Assert.assertTrue(aUser.hasRole(aApp.getRole("a-app-role")));
+            assertAuthenticated(session, realmA, "a-user2");
+
+            for (String username : new String[] { "b-user1", "b-user2", "b-user3" }) {
+                assertAuthenticated(session, realmB, username);
+                Assert.assertNull(session.users().getUserByUsername(username, realmA));
+                Assert.assertNull(session.users().getUserByUsername(username, realmC));
+            }
+
+            UserModel cUser = assertAuthenticated(session, realmC, "c-user1");
+            Assert.assertTrue(cUser.hasRole(realmC.getClientByClientId("c-app").getRole("c-app-role")));
+            Assert.assertNull(session.users().getUserByUsername("a-user1", realmC));
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+    }
+
+    @Test
+    public void ignoreExistingRealmSkipsItsUsers() throws Exception {
+        importFromFile("model/stream-import-realms.json", Strategy.OVERWRITE_EXISTING);
+
+        // Remove a user of an existing realm and a whole realm
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel realmA = session.realms().getRealmByName("stream-a");
+            session.users().removeUser(realmA, session.users().getUserByUsername("a-user1", realmA));
+            new RealmManager(session).removeRealm(session.realms().getRealmByName("stream-b"));
+        } finally {
+            keycloakRule.stopSession(session, true);
+        }
+
+        importFromFile("model/stream-import-realms.json", Strategy.IGNORE_EXISTING);
+
+        session = keycloakRule.startSession();
+        try {
+            // Existing realm was skipped together with its users
+            RealmModel realmA = session.realms().getRealmByName("stream-a");
+            Assert.assertNull(session.users().getUserByUsername("a-user1", realmA));
+            Assert.assertEquals(1, session.users().getUsersCount(realmA));
+
+            // Realm after the skipped one was imported again with its users
+            RealmModel realmB = session.realms().getRealmByName("stream-b");
+            Assert.assertNotNull(realmB);
+            Assert.assertEquals(3, session.users().getUsersCount(realmB));
+            assertAuthenticated(session, realmB, "b-user2");
+
+            Assert.assertEquals(1, session.users().getUsersCount(session.realms().getRealmByName("stream-c")));
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+    }
+
+    private void importFromFile(String resource, Strategy strategy) throws Exception {
+        File file = new File(Thread.currentThread().getContextClassLoader().getResource(resource).toURI());
+
+        KeycloakSessionFactory factory;
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            factory = session.getKeycloakSessionFactory();
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+
+        ImportUtils.importFromFile(factory, JsonSerialization.mapper, file, strategy);
+    }
+
+    private UserModel assertAuthenticated(KeycloakSession session, RealmModel realm, String username) {
+        UserModel user = session.users().getUserByUsername(username, realm);
+        Assert.assertNotNull("user " + username + " not found", user);
+        Assert.assertTrue(session.users().validCredentials(realm, user, UserCredentialModel.password("password")));
+        return user;
+    }
+
+}
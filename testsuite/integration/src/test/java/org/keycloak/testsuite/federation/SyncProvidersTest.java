@@ -9,14 +9,17 @@ import org.junit.rules.TestRule;
 import org.junit.runners.MethodSorters;
 import org.keycloak.federation.ldap.LDAPFederationProvider;
 import org.keycloak.federation.ldap.LDAPFederationProviderFactory;
+import org.keycloak.federation.ldap.LDAPUtils;
 import org.keycloak.federation.ldap.idm.model.LDAPObject;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.LDAPConstants;
+import org.keycloak.models.ModelException;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserFederationProvider;
 import org.keycloak.models.UserFederationProviderModel;
 import org.keycloak.models.UserFederationSyncResult;
+import org.keycloak.models.UserModel;
 import org.keycloak.models.UserProvider;
 import org.keycloak.services.managers.RealmManager;
 import org.keycloak.services.managers.UsersSyncManager;
@@ -26,8 +29,11 @@ import org.keycloak.testsuite.DummyUserFederationProviderFactory;
 import org.keycloak.timer.TimerProvider;
 import org.keycloak.util.Time;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author <a href="mailto:mposolda@redhat.com">Marek Posolda</a>
@@ -185,6 +191,144 @@ public class SyncProvidersTest {
         }
     }
 
+    @Test
+    public void testPipelinedSync() {
+        UserFederationProviderModel pipelinedModel = addPipelinedProvider("pipelined-sync");
+        List<String> ldapUsernames;
+
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel realm = session.realms().getRealmByName("pipelined-sync");
+            LDAPFederationProvider ldapFedProvider = FederationTestUtils.getLdapProvider(session, pipelinedModel);
+
+            // Enough users for several pages, so pages are imported while next ones are fetched
+            for (int i=1 ; i<=7 ; i++) {
+                if (ldapFedProvider.loadLDAPUserByUsername(realm, "pipelined" + i) == null) {
+                    FederationTestUtils.addLDAPUser(ldapFedProvider, realm, "pipelined" + i, "Pipelined" + i + "FN", "Pipelined" + i + "LN", "pipelined" + i + "@email.org", "3" + i);
+                }
+            }
+
+            ldapUsernames = new ArrayList<String>();
+            for (LDAPObject ldapUser : LDAPUtils.createQueryForUserSearch(ldapFedProvider, realm).getResultList()) {
+                ldapUsernames.add(LDAPUtils.getUsername(ldapUser, ldapFedProvider.getLdapIdentityStore().getConfig()));
+            }
+        } finally {
+            keycloakRule.stopSession(session, true);
+        }
+
+        session = keycloakRule.startSession();
+        try {
+            RealmModel realm = session.realms().getRealmByName("pipelined-sync");
+            LDAPFederationProviderFactory factory = (LDAPFederationProviderFactory) session.getKeycloakSessionFactory().getProviderFactory(UserFederationProvider.class, LDAPFederationProviderFactory.PROVIDER_NAME);
+            UserFederationSyncResult syncResult = factory.syncAllUsers(session.getKeycloakSessionFactory(), realm.getId(), pipelinedModel);
+
+            int users = ldapUsernames.size();
+            assertSyncEquals(syncResult, users, 0, 0);
+            Assert.assertEquals(users, syncResult.getFetched());
+            Assert.assertEquals((users + 1) / 2, syncResult.getBatches());
+            Assert.assertTrue(syncResult.getDurationMillis() > 0);
+            Assert.assertEquals(users * 1000L / syncResult.getDurationMillis(), syncResult.getThroughput());
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+
+        session = keycloakRule.startSession();
+        try {
+            RealmModel realm = session.realms().getRealmByName("pipelined-sync");
+            UserProvider userProvider = session.userStorage();
+            Assert.assertEquals(ldapUsernames.size(), userProvider.getUsersCount(realm));
+            for (String username : ldapUsernames) {
+                UserModel user = userProvider.getUserByUsername(username, realm);
+                Assert.assertNotNull(username, user);
+                Assert.assertEquals(pipelinedModel.getId(), user.getFederationLink());
+            }
+            FederationTestUtils.assertUserImported(userProvider, realm, "pipelined7", "Pipelined7FN", "Pipelined7LN", "pipelined7@email.org", "37");
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+
+        removeRealm("pipelined-sync");
+    }
+
+    @Test
+    public void testPipelinedSyncFailure() {
+        UserFederationProviderModel pipelinedModel = addPipelinedProvider("pipelined-sync-failure");
+
+        final AtomicInteger pages = new AtomicInteger();
+        LDAPFederationProviderFactory factory = new LDAPFederationProviderFactory() {
+
+            @Override
+            protected UserFederationSyncResult importLdapUsers(KeycloakSession session, String realmId, UserFederationProviderModel fedModel, List<LDAPObject> ldapUsers) {
+                if (pages.incrementAndGet() == 2) {
+                    throw new ModelException("Expected failure");
+                }
+                return super.importLdapUsers(session, realmId, fedModel, ldapUsers);
+            }
+
+        };
+        factory.init(null);
+
+        int ldapUsers;
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel realm = session.realms().getRealmByName("pipelined-sync-failure");
+            ldapUsers = LDAPUtils.createQueryForUserSearch(factory.getInstance(session, pipelinedModel), realm).getResultList().size();
+
+            try {
+                factory.syncAllUsers(session.getKeycloakSessionFactory(), realm.getId(), pipelinedModel);
+                Assert.fail("Expected sync to fail");
+            } catch (ModelException e) {
+                Assert.assertEquals("Expected failure", e.getMessage());
+            }
+            Assert.assertTrue(pages.get() >= 2);
+        } finally {
+            keycloakRule.stopSession(session, false);
+            factory.close();
+        }
+
+        // Users of the failed page are not imported
+        session = keycloakRule.startSession();
+        try {
+            RealmModel realm = session.realms().getRealmByName("pipelined-sync-failure");
+            Assert.assertTrue(session.userStorage().getUsersCount(realm) < ldapUsers);
+        } finally {
+            keycloakRule.stopSession(session, false);
+        }
+
+        removeRealm("pipelined-sync-failure");
+    }
+
+    // Pages of 2 users imported by 3 workers
+    private UserFederationProviderModel addPipelinedProvider(String realmName) {
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmModel realm = new RealmManager(session).createRealm(realmName);
+
+            Map<String,String> ldapConfig = new HashMap<String, String>(ldapRule.getConfig());
+            ldapConfig.put(LDAPConstants.SYNC_REGISTRATIONS, "false");
+            ldapConfig.put(LDAPConstants.EDIT_MODE, UserFederationProvider.EditMode.WRITABLE.toString());
+            ldapConfig.put(LDAPConstants.PAGINATION, "true");
+            ldapConfig.put(LDAPConstants.BATCH_SIZE_FOR_SYNC, "2");
+            ldapConfig.put(LDAPConstants.SYNC_IMPORT_WORKERS, "3");
+
+            UserFederationProviderModel model = realm.addUserFederationProvider(LDAPFederationProviderFactory.PROVIDER_NAME, ldapConfig, 0, realmName + "-ldap", -1, -1, 0);
+            FederationTestUtils.addZipCodeLDAPMapper(realm, model);
+            return model;
+        } finally {
+            keycloakRule.stopSession(session, true);
+        }
+    }
+
+    private void removeRealm(String realmName) {
+        KeycloakSession session = keycloakRule.startSession();
+        try {
+            RealmManager manager = new RealmManager(session);
+            manager.removeRealm(manager.getRealmByName(realmName));
+        } finally {
+            keycloakRule.stopSession(session, true);
+        }
+    }
+
     private void sleep(int time) {
         try {
             Thread.sleep(time);
@@ -1,13 +1,30 @@
 package org.keycloak.testsuite.model;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.infinispan.Cache;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.cache.CacheRealmProvider;
+import org.keycloak.models.cache.DefaultCacheRealmProvider;
+import org.keycloak.models.cache.MemoryRealmCache;
+import org.keycloak.models.cache.RealmCache;
+import org.keycloak.models.cache.RoleAdapter;
+import org.keycloak.models.cache.entities.CachedRoleClosure;
+import org.keycloak.models.cache.infinispan.InfinispanRealmCache;
+import org.keycloak.protocol.oidc.TokenManager;
+import org.keycloak.provider.ServerInfoAwareProviderFactory;
 import org.keycloak.testsuite.rule.KeycloakRule;
 
 /**
@@ -65,4 +82,152 @@ public class CacheTest {
 
 
     }
+
+    @Test
+    public void testLoadAfterInvalidation() throws Exception {
+        String realmId;
+        {
+            // invalidation is applied on rollback too, so the realm is removed from the cache
+            KeycloakSession session = kc.startSession();
+            realmId = session.realms().getRealmByName("test").getId();
+            session.getProvider(CacheRealmProvider.class).registerRealmInvalidation(realmId);
+            kc.stopSession(session, false);
+        }
+        long loads = getRealmLoads();
+        {
+            // realm invalidated by this session is loaded from the delegate and not cached
+            KeycloakSession session = kc.startSession();
+            session.getProvider(CacheRealmProvider.class).registerRealmInvalidation(realmId);
+            RealmModel realm = session.realms().getRealm(realmId);
+            Assert.assertEquals("test", realm.getName());
+            Assert.assertFalse(realm instanceof org.keycloak.models.cache.RealmAdapter);
+            kc.stopSession(session, false);
+        }
+        Assert.assertEquals(loads + 1, getRealmLoads());
+        {
+            KeycloakSession session = kc.startSession();
+            RealmModel realm = session.realms().getRealm(realmId);
+            Assert.assertTrue(realm instanceof org.keycloak.models.cache.RealmAdapter);
+            kc.stopSession(session, false);
+        }
+        Assert.assertEquals(loads + 2, getRealmLoads());
+        {
+            // now it's cached
+            KeycloakSession session = kc.startSession();
+            RealmModel realm = session.realms().getRealmByName("test");
+            Assert.assertTrue(realm instanceof org.keycloak.models.cache.RealmAdapter);
+            kc.stopSession(session, false);
+        }
+        Assert.assertEquals(loads + 2, getRealmLoads());
+    }
+
+    @Test
+    public void testRoleClosureMemoryCache() throws Exception {
+        testRoleClosure(new MemoryRealmCache(), "closure-mem");
+    }
+
+    @Test
+    public void testRoleClosureInfinispanCache() throws Exception {
+        KeycloakSession session = kc.startSession();
+        Cache<String, Object> cache = session.getProvider(InfinispanConnectionProvider.class).getCache(InfinispanConnectionProvider.REALM_CACHE_NAME);
+        kc.stopSession(session, false);
+
+        testRoleClosure(new InfinispanRealmCache(cache, new ConcurrentHashMap<String, String>(), new ConcurrentHashMap<String, CachedRoleClosure>()), "closure-infinispan");
+    }
+
+    // Token roles of a user with the composite "parent" role, for a client with "child-1" and "child-2" in its scope
+    private void testRoleClosure(RealmCache realmCache, String prefix) throws Exception {
+        {
+            KeycloakSession session = kc.startSession();
+            RealmModel realm = session.realms().getRealmByName("test");
+            RoleModel parent = realm.addRole(prefix + "-parent");
+            RoleModel child1 = realm.addRole(prefix + "-child-1");
+            RoleModel child2 = realm.addRole(prefix + "-child-2");
+            parent.addCompositeRole(child1);
+
+            ClientModel app = realm.addClient(prefix + "-app");
+            app.setFullScopeAllowed(false);
+            app.addScopeMapping(child1);
+            app.addScopeMapping(child2);
+            kc.stopSession(session, true);
+        }
+        try {
+            Assert.assertEquals(Collections.singleton(prefix + "-child-1"), getTokenRoles(realmCache, prefix));
+            String parentId = getRole(realmCache, prefix + "-parent").getId();
+            Set<String> closure = realmCache.getRoleClosure(parentId);
+            Assert.assertNotNull(closure);
+
+            // served from the cached closure
+            Assert.assertEquals(Collections.singleton(prefix + "-child-1"), getTokenRoles(realmCache, prefix));
+            Assert.assertSame(closure, realmCache.getRoleClosure(parentId));
+
+            {
+                KeycloakSession session = kc.startSession();
+                RealmModel realm = new DefaultCacheRealmProvider(realmCache, session).getRealmByName("test");
+                realm.getRole(prefix + "-parent").addCompositeRole(realm.getRole(prefix + "-child-2"));
+                kc.stopSession(session, true);
+            }
+            Assert.assertNull(realmCache.getRoleClosure(parentId));
+            Assert.assertEquals(new HashSet<String>(Arrays.asList(prefix + "-child-1", prefix + "-child-2")), getTokenRoles(realmCache, prefix));
+
+            {
+                KeycloakSession session = kc.startSession();
+                RealmModel realm = new DefaultCacheRealmProvider(realmCache, session).getRealmByName("test");
+                realm.getRole(prefix + "-parent").removeCompositeRole(realm.getRole(prefix + "-child-1"));
+                kc.stopSession(session, true);
+            }
+            Assert.assertNull(realmCache.getRoleClosure(parentId));
+            Assert.assertEquals(Collections.singleton(prefix + "-child-2"), getTokenRoles(realmCache, prefix));
+        } finally {
+            KeycloakSession session = kc.startSession();
+            RealmModel realm = session.realms().getRealmByName("test");
+            realm.removeClient(realm.getClientByClientId(prefix + "-app").getId());
+            realm.removeRole(realm.getRole(prefix + "-parent"));
+            realm.removeRole(realm.getRole(prefix + "-child-1"));
+            realm.removeRole(realm.getRole(prefix + "-child-2"));
+            kc.stopSession(session, true);
+        }
+    }
+
+    private Set<String> getTokenRoles(RealmCache realmCache, String prefix) {
+        KeycloakSession session = kc.startSession();
+        try {
+            RealmModel realm = new DefaultCacheRealmProvider(realmCache, session).getRealmByName("test");
+            RoleModel parent = realm.getRole(prefix + "-parent");
+            Assert.assertTrue(parent instanceof RoleAdapter);
+
+            Set<RoleModel> requested = new HashSet<RoleModel>();
+            Set<RoleModel> visited = new HashSet<RoleModel>();
+            for (RoleModel scope : realm.getClientByClientId(prefix + "-app").getScopeMappings()) {
+                TokenManager.applyScope(Collections.singleton(parent), scope, visited, requested);
+            }
+
+            Set<String> names = new HashSet<String>();
+            for (RoleModel role : requested) {
+                names.add(role.getName());
+            }
+            return names;
+        } finally {
+            kc.stopSession(session, true);
+        }
+    }
+
+    private RoleModel getRole(RealmCache realmCache, String name) {
+        KeycloakSession session = kc.startSession();
+        try {
+            return new DefaultCacheRealmProvider(realmCache, session).getRealmByName("test").getRole(name);
+        } finally {
+            kc.stopSession(session, false);
+        }
+    }
+
+    private long getRealmLoads() {
+        KeycloakSession session = kc.startSession();
+        try {
+            ServerInfoAwareProviderFactory factory = (ServerInfoAwareProviderFactory) session.getKeycloakSessionFactory().getProviderFactory(CacheRealmProvider.class);
+            return Long.parseLong(factory.getOperationalInfo().get("loads"));
+        } finally {
+            kc.stopSession(session, false);
+        }
+    }
 }
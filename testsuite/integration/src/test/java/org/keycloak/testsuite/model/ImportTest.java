@@ -18,17 +18,24 @@ import org.keycloak.models.RealmModel;
 import org.keycloak.models.RequiredCredentialModel;
 import org.keycloak.models.RoleModel;
 import org.keycloak.models.UserConsentModel;
+import org.keycloak.models.UserCredentialModel;
 import org.keycloak.models.UserFederationMapperModel;
 import org.keycloak.models.UserFederationProvider;
 import org.keycloak.models.UserFederationProviderFactory;
 import org.keycloak.models.UserFederationProviderModel;
 import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.RepresentationToModel;
 import org.keycloak.protocol.oidc.OIDCLoginProtocol;
 import org.keycloak.protocol.oidc.mappers.OIDCAttributeMapperHelper;
 import org.keycloak.protocol.oidc.mappers.UserSessionNoteMapper;
+import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
 import org.keycloak.services.managers.RealmManager;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -293,6 +300,57 @@ public class ImportTest extends AbstractModelTest {
         verifyRequiredCredentials(realm.getRequiredCredentials(), "password");
     }
 
+    @Test
+    public void installUsersInBatches() throws Exception {
+        RealmModel realm = realmManager.createRealm("batch-users");
+        realm.addRole("user");
+        ClientModel app = realm.addClient("app");
+        app.addRole("app-user");
+        Map<String, ClientModel> clientMap = new HashMap<String, ClientModel>();
+        clientMap.put("app", app);
+
+        // More than the default JPA batch size, so there's a full batch and a partial one written when the batch ends
+        List<UserRepresentation> userReps = new ArrayList<UserRepresentation>();
+        for (int i = 0; i < 750; i++) {
+            UserRepresentation userRep = new UserRepresentation();
+            userRep.setUsername("user-" + i);
+            userRep.setEnabled(true);
+            Map<String, String> attributes = new HashMap<String, String>();
+            attributes.put("index", String.valueOf(i));
+            userRep.setAttributes(attributes);
+
+            CredentialRepresentation cred = new CredentialRepresentation();
+            cred.setType(CredentialRepresentation.PASSWORD);
+            cred.setValue("password-" + i);
+            userRep.setCredentials(Collections.singletonList(cred));
+
+            userRep.setRealmRoles(Collections.singletonList("user"));
+            Map<String, List<String>> clientRoles = new HashMap<String, List<String>>();
+            clientRoles.put("app", Collections.singletonList("app-user"));
+            userRep.setClientRoles(clientRoles);
+            userReps.add(userRep);
+        }
+
+        RepresentationToModel.createUsers(session, realm, userReps, clientMap);
+        commit();
+
+        realm = realmManager.getRealmByName("batch-users");
+        app = realm.getClientByClientId("app");
+        Assert.assertEquals(750, session.users().getUsersCount(realm));
+
+        for (int i : new int[] { 0, 499, 500, 749 }) {
+            UserModel user = session.users().getUserByUsername("user-" + i, realm);
+            Assert.assertNotNull(user);
+            Assert.assertTrue(user.isEnabled());
+            Assert.assertEquals(String.valueOf(i), user.getAttribute("index"));
+            Assert.assertTrue(session.users().validCredentials(realm, user, UserCredentialModel.password("password-" + i)));
+            Assert.assertFalse(session.users().validCredentials(realm, user, UserCredentialModel.password("password")));
+            Assert.assertTrue(user.hasRole(realm.getRole("user")));
+            Assert.assertTrue(user.hasRole(app.getRole("app-user")));
+            Assert.assertEquals(2, user.getRoleMappings().size());
+        }
+    }
+
     private void verifyRequiredCredentials(List<RequiredCredentialModel> requiredCreds, String expectedType) {
         Assert.assertEquals(1, requiredCreds.size());
         Assert.assertEquals(expectedType, requiredCreds.get(0).getType());